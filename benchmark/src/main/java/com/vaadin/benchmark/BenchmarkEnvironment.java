@@ -0,0 +1,286 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpSession;
+
+import com.vaadin.benchmark.ServletMocks.CountingOutputStream;
+import com.vaadin.benchmark.ServletMocks.RequestData;
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.SessionExpiredException;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletRequest;
+import com.vaadin.server.VaadinServletResponse;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.shared.ApplicationConstants;
+import com.vaadin.shared.ui.ui.UIConstants;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.CheckBox;
+import com.vaadin.ui.ComboBox;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.Table;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+/**
+ * A servlet, service, session and UI set up the same way as in a deployed
+ * application, but without a servlet container. The UI contains a typical form
+ * and table so that the measured requests and responses have a realistic
+ * number of connectors and shared states.
+ *
+ * @author Vaadin Ltd
+ */
+public class BenchmarkEnvironment {
+
+    /**
+     * Servlet that exposes its service to the benchmarks.
+     */
+    public static class BenchmarkServlet extends VaadinServlet {
+        @Override
+        public VaadinServletService getService() {
+            return super.getService();
+        }
+    }
+
+    /**
+     * UI with a form of {@link #FORM_ROWS} rows and a table of
+     * {@link #TABLE_ROWS} rows.
+     */
+    public static class BenchmarkUI extends UI {
+        private Button button;
+        private Table table;
+
+        @Override
+        protected void init(com.vaadin.server.VaadinRequest request) {
+            VerticalLayout layout = new VerticalLayout();
+            layout.setMargin(true);
+            layout.setSpacing(true);
+
+            for (int i = 0; i < FORM_ROWS; i++) {
+                HorizontalLayout row = new HorizontalLayout();
+                row.addComponent(new Label("Field " + i));
+                TextField textField = new TextField("Caption " + i);
+                textField.setValue("Value " + i);
+                row.addComponent(textField);
+                ComboBox comboBox = new ComboBox("Choice " + i);
+                comboBox.addItem("a");
+                comboBox.addItem("b");
+                row.addComponent(comboBox);
+                row.addComponent(new CheckBox("Check " + i));
+                layout.addComponent(row);
+            }
+
+            button = new Button("Save");
+            layout.addComponent(button);
+
+            table = new Table();
+            table.addContainerProperty("name", String.class, "");
+            table.addContainerProperty("amount", Integer.class, 0);
+            table.addContainerProperty("active", Boolean.class, false);
+            for (int i = 0; i < TABLE_ROWS; i++) {
+                table.addItem(new Object[] { "Row " + i, i, i % 2 == 0 },
+                        i);
+            }
+            layout.addComponent(table);
+
+            setContent(layout);
+        }
+
+        public Button getButton() {
+            return button;
+        }
+
+        public Table getTable() {
+            return table;
+        }
+    }
+
+    /**
+     * The number of rows in the form of {@link BenchmarkUI}.
+     */
+    public static final int FORM_ROWS = 20;
+
+    /**
+     * The number of rows in the table of {@link BenchmarkUI}.
+     */
+    public static final int TABLE_ROWS = 100;
+
+    private final BenchmarkServlet servlet;
+    private final VaadinServletService service;
+    private final HttpSession httpSession;
+    private final VaadinSession session;
+    private final BenchmarkUI ui;
+
+    /**
+     * Creates a new environment with one session containing one
+     * {@link BenchmarkUI}.
+     *
+     * @param initParameters
+     *            additional servlet init parameters, not <code>null</code>
+     * @throws ServletException
+     *             if the servlet cannot be initialized
+     * @throws ServiceException
+     *             if the session cannot be created
+     * @throws SessionExpiredException
+     *             if the session cannot be created
+     */
+    public BenchmarkEnvironment(Properties initParameters)
+            throws ServletException, ServiceException,
+            SessionExpiredException {
+        Properties parameters = new Properties();
+        // Production mode skips debug checks that would distort the results
+        parameters.setProperty("productionMode", "true");
+        parameters.setProperty("UI", BenchmarkUI.class.getName());
+        parameters.putAll(initParameters);
+
+        servlet = new BenchmarkServlet();
+        servlet.init(ServletMocks.createServletConfig("benchmark",
+                parameters));
+        service = servlet.getService();
+
+        httpSession = ServletMocks.createSession();
+        RequestData initRequest = new RequestData("/",
+                new HashMap<String, String>(), httpSession);
+        session = service.findVaadinSession(new VaadinServletRequest(
+                ServletMocks.createRequest(initRequest), service));
+
+        ui = new BenchmarkUI();
+        session.lock();
+        try {
+            ui.setSession(session);
+            ui.doInit(new VaadinServletRequest(
+                    ServletMocks.createRequest(initRequest), service), 0, "");
+            session.addUI(ui);
+            // Start from the state after the initial response
+            ui.getConnectorTracker().markAllConnectorsClean();
+        } finally {
+            session.unlock();
+        }
+    }
+
+    /**
+     * Creates a new environment using only the default init parameters.
+     *
+     * @throws ServletException
+     *             if the servlet cannot be initialized
+     * @throws ServiceException
+     *             if the session cannot be created
+     * @throws SessionExpiredException
+     *             if the session cannot be created
+     */
+    public BenchmarkEnvironment() throws ServletException, ServiceException,
+            SessionExpiredException {
+        this(new Properties());
+    }
+
+    /**
+     * Creates request data for a UIDL request to the UI of this environment.
+     *
+     * @return new request data
+     */
+    public RequestData createUidlRequestData() {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(UIConstants.UI_ID_PARAMETER,
+                String.valueOf(ui.getUIId()));
+        return new RequestData("/" + ApplicationConstants.UIDL_PATH + "/",
+                parameters, httpSession);
+    }
+
+    /**
+     * Wraps the given request data as a Vaadin request.
+     *
+     * @param data
+     *            the request data
+     * @return a Vaadin request
+     */
+    public VaadinServletRequest createRequest(RequestData data) {
+        return new VaadinServletRequest(ServletMocks.createRequest(data),
+                service);
+    }
+
+    /**
+     * Creates a Vaadin response that writes to the given stream.
+     *
+     * @param out
+     *            the stream to write to
+     * @return a Vaadin response
+     */
+    public VaadinServletResponse createResponse(CountingOutputStream out) {
+        return new VaadinServletResponse(ServletMocks.createResponse(out),
+                service);
+    }
+
+    /**
+     * Creates the JSON message of a UIDL request with the given RPC
+     * invocations. The message uses the next client to server message id
+     * expected by the UI, so a new message must be created for every request.
+     *
+     * @param invocations
+     *            the JSON array of invocations
+     * @return the message
+     */
+    public String createUidlMessage(String invocations) {
+        return "{\"" + ApplicationConstants.CSRF_TOKEN + "\":\""
+                + session.getCsrfToken() + "\",\""
+                + ApplicationConstants.RPC_INVOCATIONS + "\":" + invocations
+                + ",\"" + ApplicationConstants.SERVER_SYNC_ID + "\":"
+                + ui.getConnectorTracker().getCurrentSyncId() + ",\""
+                + ApplicationConstants.CLIENT_TO_SERVER_ID + "\":"
+                + (ui.getLastProcessedClientToServerId() + 1) + "}";
+    }
+
+    /**
+     * Creates the JSON array of invocations that a client sends when the save
+     * button is clicked after a text field has been edited.
+     *
+     * @return the invocations
+     */
+    public String createClickInvocations() {
+        Component textField = ((HorizontalLayout) ((VerticalLayout) ui
+                .getContent()).getComponent(0)).getComponent(1);
+        return "[[\"" + textField.getConnectorId()
+                + "\",\"v\",\"v\",[\"text\",[\"s\",\"edited\"]]],[\""
+                + ui.getButton().getConnectorId()
+                + "\",\"com.vaadin.shared.ui.button.ButtonServerRpc\",\"click\","
+                + "[{\"altKey\":false,\"button\":\"LEFT\",\"clientX\":10,"
+                + "\"clientY\":20,\"ctrlKey\":false,\"metaKey\":false,"
+                + "\"relativeX\":5,\"relativeY\":5,\"shiftKey\":false,"
+                + "\"type\":1}]],[\"" + ui.getConnectorId()
+                + "\",\"com.vaadin.shared.ui.ui.UIServerRpc\",\"scroll\","
+                + "[0,100]]]";
+    }
+
+    public VaadinServletService getService() {
+        return service;
+    }
+
+    public VaadinSession getSession() {
+        return session;
+    }
+
+    public BenchmarkUI getUI() {
+        return ui;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.ui.ConnectorTracker;
+
+/**
+ * Measures the dirty connector tracking done by {@link ConnectorTracker} for
+ * every request.
+ *
+ * @author Vaadin Ltd
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ConnectorTrackerBenchmark {
+
+    private BenchmarkEnvironment environment;
+    private ConnectorTracker connectorTracker;
+    private List<ClientConnector> connectors;
+
+    @Setup
+    public void setup() throws Exception {
+        environment = new BenchmarkEnvironment();
+        environment.getSession().lock();
+        connectorTracker = environment.getUI().getConnectorTracker();
+        connectorTracker.markAllConnectorsDirty();
+        connectors = new ArrayList<ClientConnector>(
+                connectorTracker.getDirtyConnectors());
+        connectorTracker.markAllConnectorsClean();
+    }
+
+    @TearDown
+    public void tearDown() {
+        environment.getSession().unlock();
+    }
+
+    @Benchmark
+    public int markDirtyAndClean() {
+        for (ClientConnector connector : connectors) {
+            connectorTracker.markDirty(connector);
+        }
+        Collection<ClientConnector> dirty = connectorTracker
+                .getDirtyConnectors();
+        int size = dirty.size();
+        connectorTracker.markAllConnectorsClean();
+        return size;
+    }
+
+    @Benchmark
+    public int markAllDirtyAndClean() {
+        connectorTracker.markAllConnectorsDirty();
+        int size = connectorTracker.getDirtyVisibleConnectors().size();
+        connectorTracker.markAllConnectorsClean();
+        return size;
+    }
+
+    @Benchmark
+    public ClientConnector getConnector() {
+        return connectorTracker.getConnector(
+                connectors.get(connectors.size() / 2).getConnectorId());
+    }
+}
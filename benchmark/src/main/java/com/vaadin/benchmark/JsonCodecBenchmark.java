@@ -0,0 +1,123 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.vaadin.server.EncodeResult;
+import com.vaadin.server.JsonCodec;
+import com.vaadin.shared.MouseEventDetails;
+import com.vaadin.shared.communication.SharedState;
+import com.vaadin.shared.ui.table.TableState;
+import com.vaadin.shared.ui.textfield.AbstractTextFieldState;
+import com.vaadin.ui.ConnectorTracker;
+
+import elemental.json.JsonValue;
+
+/**
+ * Measures encoding typical shared states and decoding RPC parameters with
+ * {@link JsonCodec}.
+ *
+ * @author Vaadin Ltd
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JsonCodecBenchmark {
+
+    private BenchmarkEnvironment environment;
+    private ConnectorTracker connectorTracker;
+    private SharedState textFieldState;
+    private JsonValue textFieldReference;
+    private SharedState tableState;
+    private JsonValue tableReference;
+    private JsonValue encodedMouseEventDetails;
+
+    @Setup
+    public void setup() throws Exception {
+        environment = new BenchmarkEnvironment();
+        environment.getSession().lock();
+        connectorTracker = environment.getUI().getConnectorTracker();
+
+        AbstractTextFieldState textFieldState = new AbstractTextFieldState();
+        textFieldState.caption = "Caption";
+        textFieldState.text = "Value";
+        textFieldState.inputPrompt = "Prompt";
+        textFieldState.maxLength = 20;
+        textFieldState.immediate = true;
+        textFieldState.styles = Arrays.asList("small", "required");
+        this.textFieldState = textFieldState;
+        textFieldReference = encode(new AbstractTextFieldState(), null);
+
+        TableState tableState = new TableState();
+        tableState.caption = "Table";
+        tableState.width = "100%";
+        tableState.height = "400px";
+        tableState.immediate = true;
+        this.tableState = tableState;
+        tableReference = encode(new TableState(), null);
+
+        MouseEventDetails details = new MouseEventDetails();
+        details.setButton(MouseEventDetails.MouseButton.LEFT);
+        details.setClientX(10);
+        details.setClientY(20);
+        encodedMouseEventDetails = JsonCodec.encode(details, null,
+                MouseEventDetails.class, connectorTracker).getEncodedValue();
+    }
+
+    @TearDown
+    public void tearDown() {
+        environment.getSession().unlock();
+    }
+
+    @Benchmark
+    public JsonValue encodeTextFieldStateFull() {
+        return encode(textFieldState, null);
+    }
+
+    @Benchmark
+    public JsonValue encodeTextFieldStateDiff() {
+        return encode(textFieldState, textFieldReference);
+    }
+
+    @Benchmark
+    public JsonValue encodeTableStateDiff() {
+        return encode(tableState, tableReference);
+    }
+
+    @Benchmark
+    public Object decodeMouseEventDetails() {
+        return JsonCodec.decodeInternalOrCustomType(MouseEventDetails.class,
+                encodedMouseEventDetails, connectorTracker);
+    }
+
+    private JsonValue encode(SharedState state, JsonValue reference) {
+        EncodeResult result = JsonCodec.encode(state, reference,
+                state.getClass(), connectorTracker);
+        return result.getDiff() != null ? result.getDiff()
+                : result.getEncodedValue();
+    }
+}
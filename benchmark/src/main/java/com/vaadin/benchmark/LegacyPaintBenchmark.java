@@ -0,0 +1,90 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmark;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.vaadin.server.JsonPaintTarget;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.PaintException;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.server.communication.LegacyUidlWriter;
+import com.vaadin.ui.Table;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+import elemental.json.JsonObject;
+
+/**
+ * Measures painting legacy components through
+ * {@link LegacyCommunicationManager} and {@link JsonPaintTarget}, using the
+ * table of {@link BenchmarkEnvironment.BenchmarkUI}.
+ *
+ * @author Vaadin Ltd
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LegacyPaintBenchmark {
+
+    private BenchmarkEnvironment environment;
+    private LegacyCommunicationManager manager;
+    private Table table;
+
+    @Setup
+    public void setup() throws Exception {
+        environment = new BenchmarkEnvironment();
+        environment.getSession().lock();
+        VaadinSession.setCurrent(environment.getSession());
+        UI.setCurrent(environment.getUI());
+        manager = environment.getSession().getCommunicationManager();
+        table = environment.getUI().getTable();
+    }
+
+    @TearDown
+    public void tearDown() {
+        CurrentInstance.clearAll();
+        environment.getSession().unlock();
+    }
+
+    @Benchmark
+    public int paintTable() throws IOException, PaintException {
+        table.markAsDirty();
+        StringWriter writer = new StringWriter();
+        JsonPaintTarget target = new JsonPaintTarget(manager, writer, false);
+        new LegacyUidlWriter().write(environment.getUI(), writer, target);
+        target.close();
+        environment.getUI().getConnectorTracker().markAllConnectorsClean();
+        return writer.getBuffer().length();
+    }
+
+    @Benchmark
+    public JsonObject encodeTableState() {
+        // Delegates to LegacyCommunicationManager.encodeState
+        return table.encodeState();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.vaadin.server.LegacyCommunicationManager.InvalidUIDLSecurityKeyException;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.server.communication.ServerRpcHandler;
+import com.vaadin.server.communication.ServerRpcHandler.RpcRequest;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+import elemental.json.JsonArray;
+
+/**
+ * Measures parsing UIDL request messages and decoding and invoking the RPC
+ * calls they contain using {@link ServerRpcHandler}.
+ *
+ * @author Vaadin Ltd
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ServerRpcHandlerBenchmark {
+
+    /**
+     * Exposes the invocation handling without parsing the message.
+     */
+    private static class BenchmarkRpcHandler extends ServerRpcHandler {
+        @Override
+        public void handleInvocations(UI ui,
+                int lastSyncIdSeenByClient, JsonArray invocationsData) {
+            super.handleInvocations(ui, lastSyncIdSeenByClient,
+                    invocationsData);
+        }
+    }
+
+    private BenchmarkEnvironment environment;
+    private BenchmarkRpcHandler handler;
+    private VaadinRequest request;
+    private String invocations;
+    private String message;
+    private RpcRequest parsedRequest;
+
+    @Setup
+    public void setup() throws Exception {
+        environment = new BenchmarkEnvironment();
+        handler = new BenchmarkRpcHandler();
+        request = environment
+                .createRequest(environment.createUidlRequestData());
+        invocations = environment.createClickInvocations();
+        message = environment.createUidlMessage(invocations);
+        parsedRequest = new RpcRequest(message, request);
+        environment.getSession().lock();
+        VaadinSession.setCurrent(environment.getSession());
+        UI.setCurrent(environment.getUI());
+    }
+
+    @TearDown
+    public void tearDown() {
+        CurrentInstance.clearAll();
+        environment.getSession().unlock();
+    }
+
+    @Benchmark
+    public Object parseMessage() {
+        return new RpcRequest(message, request).getRpcInvocationsData();
+    }
+
+    @Benchmark
+    public void handleInvocations() {
+        handler.handleInvocations(environment.getUI(),
+                parsedRequest.getSyncId(),
+                parsedRequest.getRpcInvocationsData());
+    }
+
+    @Benchmark
+    public void handleRpc()
+            throws IOException, InvalidUIDLSecurityKeyException {
+        handler.handleRpc(environment.getUI(),
+                new StringReader(environment.createUidlMessage(invocations)),
+                request);
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+/**
+ * Minimal servlet API objects for driving the framework without a servlet
+ * container. The objects are dynamic proxies that implement only what the
+ * request handling pipeline needs; all other methods return default values so
+ * that the measured time is spent in framework code only.
+ *
+ * @author Vaadin Ltd
+ */
+public class ServletMocks {
+
+    private ServletMocks() {
+        // Only static helpers
+    }
+
+    /**
+     * Response output stream that discards everything but counts the bytes.
+     */
+    public static class CountingOutputStream extends ServletOutputStream {
+        private long count = 0;
+
+        @Override
+        public void write(int b) throws IOException {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            count += len;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Mutable state of a mock request. A single instance can be reused for
+     * several requests by changing the body between invocations.
+     */
+    public static class RequestData {
+        private final String pathInfo;
+        private final Map<String, String> parameters;
+        private final HttpSession session;
+        private final Map<String, Object> attributes = new HashMap<String, Object>();
+        private String body = "";
+
+        public RequestData(String pathInfo, Map<String, String> parameters,
+                HttpSession session) {
+            this.pathInfo = pathInfo;
+            this.parameters = parameters;
+            this.session = session;
+        }
+
+        public void setBody(String body) {
+            this.body = body;
+            attributes.clear();
+        }
+    }
+
+    /**
+     * Creates a servlet config with the given init parameters and a servlet
+     * context without any resources.
+     *
+     * @param servletName
+     *            the servlet name
+     * @param initParameters
+     *            the init parameters
+     * @return a servlet config
+     */
+    public static ServletConfig createServletConfig(final String servletName,
+            final Properties initParameters) {
+        final ServletContext context = proxy(ServletContext.class,
+                new DefaultHandler() {
+                    private final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+
+                    @Override
+                    protected Object handle(String name, Object[] args) {
+                        if ("getAttribute".equals(name)) {
+                            return attributes.get(args[0]);
+                        } else if ("setAttribute".equals(name)) {
+                            attributes.put((String) args[0], args[1]);
+                        } else if ("removeAttribute".equals(name)) {
+                            attributes.remove(args[0]);
+                        } else if ("getContextPath".equals(name)) {
+                            return "";
+                        } else if ("getMajorVersion".equals(name)) {
+                            return 3;
+                        }
+                        return NOT_HANDLED;
+                    }
+                });
+        return proxy(ServletConfig.class, new DefaultHandler() {
+            @Override
+            protected Object handle(String name, Object[] args) {
+                if ("getServletName".equals(name)) {
+                    return servletName;
+                } else if ("getServletContext".equals(name)) {
+                    return context;
+                } else if ("getInitParameter".equals(name)) {
+                    return initParameters.getProperty((String) args[0]);
+                } else if ("getInitParameterNames".equals(name)) {
+                    return initParameters.propertyNames();
+                }
+                return NOT_HANDLED;
+            }
+        });
+    }
+
+    /**
+     * Creates an HTTP session that stores its attributes in memory.
+     *
+     * @return an HTTP session
+     */
+    public static HttpSession createSession() {
+        return proxy(HttpSession.class, new DefaultHandler() {
+            private final Map<String, Object> attributes = new ConcurrentHashMap<String, Object>();
+
+            @Override
+            protected Object handle(String name, Object[] args) {
+                if ("getAttribute".equals(name)) {
+                    return attributes.get(args[0]);
+                } else if ("setAttribute".equals(name)) {
+                    if (args[1] == null) {
+                        attributes.remove(args[0]);
+                    } else {
+                        attributes.put((String) args[0], args[1]);
+                    }
+                } else if ("removeAttribute".equals(name)) {
+                    attributes.remove(args[0]);
+                } else if ("getAttributeNames".equals(name)) {
+                    return Collections.enumeration(attributes.keySet());
+                } else if ("getId".equals(name)) {
+                    return "benchmark-session";
+                } else if ("getMaxInactiveInterval".equals(name)) {
+                    return 1800;
+                }
+                return NOT_HANDLED;
+            }
+        });
+    }
+
+    /**
+     * Creates a POST request backed by the given data.
+     *
+     * @param data
+     *            the request data
+     * @return an HTTP request
+     */
+    public static HttpServletRequest createRequest(final RequestData data) {
+        return proxy(HttpServletRequest.class, new DefaultHandler() {
+            @Override
+            protected Object handle(String name, Object[] args) {
+                if ("getPathInfo".equals(name)) {
+                    return data.pathInfo;
+                } else if ("getParameter".equals(name)) {
+                    return data.parameters.get(args[0]);
+                } else if ("getParameterMap".equals(name)) {
+                    return Collections.unmodifiableMap(data.parameters);
+                } else if ("getSession".equals(name)) {
+                    return data.session;
+                } else if ("getAttribute".equals(name)) {
+                    return data.attributes.get(args[0]);
+                } else if ("setAttribute".equals(name)) {
+                    data.attributes.put((String) args[0], args[1]);
+                } else if ("removeAttribute".equals(name)) {
+                    data.attributes.remove(args[0]);
+                } else if ("getReader".equals(name)) {
+                    return new BufferedReader(new StringReader(data.body));
+                } else if ("getLocale".equals(name)) {
+                    return Locale.ENGLISH;
+                } else if ("getMethod".equals(name)) {
+                    return "POST";
+                } else if ("getContentType".equals(name)) {
+                    return "application/json; charset=UTF-8";
+                } else if ("getCharacterEncoding".equals(name)) {
+                    return "UTF-8";
+                } else if ("getContextPath".equals(name)
+                        || "getServletPath".equals(name)) {
+                    return "";
+                } else if ("getRequestURI".equals(name)) {
+                    return data.pathInfo;
+                } else if ("getHeader".equals(name)) {
+                    return null;
+                } else if ("getRemoteHost".equals(name)
+                        || "getRemoteAddr".equals(name)) {
+                    return "127.0.0.1";
+                }
+                return NOT_HANDLED;
+            }
+        });
+    }
+
+    /**
+     * Creates a response that discards everything written to it.
+     *
+     * @param out
+     *            the output stream to use
+     * @return an HTTP response
+     */
+    public static HttpServletResponse createResponse(
+            final CountingOutputStream out) {
+        final PrintWriter writer = new PrintWriter(new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) {
+                out.count += len;
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return proxy(HttpServletResponse.class, new DefaultHandler() {
+            @Override
+            protected Object handle(String name, Object[] args) {
+                if ("getOutputStream".equals(name)) {
+                    return out;
+                } else if ("getWriter".equals(name)) {
+                    return writer;
+                } else if ("getCharacterEncoding".equals(name)) {
+                    return "UTF-8";
+                }
+                return NOT_HANDLED;
+            }
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(
+                ServletMocks.class.getClassLoader(), new Class<?>[] { type },
+                handler));
+    }
+
+    /**
+     * Invocation handler that returns default values for all methods not
+     * handled by the subclass.
+     */
+    private abstract static class DefaultHandler implements InvocationHandler {
+        protected static final Object NOT_HANDLED = new Object();
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args)
+                throws Throwable {
+            String name = method.getName();
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            } else if ("toString".equals(name)) {
+                return method.getDeclaringClass().getSimpleName() + "@"
+                        + System.identityHashCode(proxy);
+            }
+
+            Object result = handle(name, args);
+            if (result != NOT_HANDLED) {
+                return result;
+            }
+            return defaultValue(method.getReturnType());
+        }
+
+        protected abstract Object handle(String name, Object[] args);
+
+        private static Object defaultValue(Class<?> type) {
+            if (type == boolean.class) {
+                return Boolean.FALSE;
+            } else if (type == int.class) {
+                return 0;
+            } else if (type == long.class) {
+                return 0L;
+            } else if (type == java.util.Enumeration.class) {
+                return Collections.enumeration(Collections.emptyList());
+            } else if (type.isPrimitive() && type != void.class) {
+                throw new UnsupportedOperationException(
+                        "No default value for " + type);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.vaadin.benchmark.ServletMocks.CountingOutputStream;
+import com.vaadin.benchmark.ServletMocks.RequestData;
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.VaadinSession;
+
+/**
+ * Measures complete UIDL requests handled through
+ * {@link com.vaadin.server.VaadinService#handleRequest}, i.e. session lookup
+ * and locking, RPC decoding and invocation and writing the response.
+ *
+ * @author Vaadin Ltd
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UidlRequestHandlerBenchmark {
+
+    private BenchmarkEnvironment environment;
+    private RequestData requestData;
+    private String clickInvocations;
+    private CountingOutputStream out;
+
+    @Setup
+    public void setup() throws Exception {
+        environment = new BenchmarkEnvironment();
+        requestData = environment.createUidlRequestData();
+        clickInvocations = environment.createClickInvocations();
+        out = new CountingOutputStream();
+    }
+
+    @Setup(Level.Iteration)
+    public void keepAlive() {
+        // Prevent the UI from being closed as inactive during long runs
+        VaadinSession session = environment.getSession();
+        session.lock();
+        try {
+            environment.getUI()
+                    .setLastHeartbeatTimestamp(System.currentTimeMillis());
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @Benchmark
+    public long emptyRequest() throws ServiceException {
+        return handle("[]");
+    }
+
+    @Benchmark
+    public long clickRequest() throws ServiceException {
+        return handle(clickInvocations);
+    }
+
+    @Benchmark
+    public long repaintAllRequest() throws ServiceException {
+        VaadinSession session = environment.getSession();
+        session.lock();
+        try {
+            environment.getUI().getConnectorTracker().markAllConnectorsDirty();
+        } finally {
+            session.unlock();
+        }
+        return handle("[]");
+    }
+
+    private long handle(String invocations) throws ServiceException {
+        requestData.setBody(environment.createUidlMessage(invocations));
+        long before = out.getCount();
+        environment.getService().handleRequest(
+                environment.createRequest(requestData),
+                environment.createResponse(out));
+        return out.getCount() - before;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.vaadin.server.VaadinSession;
+import com.vaadin.server.communication.UidlWriter;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+/**
+ * Measures writing UIDL responses with {@link UidlWriter}, both for a full
+ * repaint of the UI and for a single changed component.
+ *
+ * @author Vaadin Ltd
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UidlWriterBenchmark {
+
+    /**
+     * Writer that discards everything but counts the characters.
+     */
+    private static class CountingWriter extends Writer {
+        private long count = 0;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(int c) {
+            count++;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Param({ "false", "true" })
+    public boolean streaming;
+
+    private BenchmarkEnvironment environment;
+    private UidlWriter uidlWriter;
+    private int counter = 0;
+
+    @Setup
+    public void setup() throws Exception {
+        environment = new BenchmarkEnvironment();
+        environment.getService().setStreamingUidlWriterEnabled(streaming);
+        uidlWriter = new UidlWriter();
+        environment.getSession().lock();
+        VaadinSession.setCurrent(environment.getSession());
+        UI.setCurrent(environment.getUI());
+    }
+
+    @TearDown
+    public void tearDown() {
+        CurrentInstance.clearAll();
+        environment.getSession().unlock();
+    }
+
+    @Benchmark
+    public long writeRepaintAll() throws IOException {
+        environment.getUI().getConnectorTracker().markAllConnectorsDirty();
+        return write(false);
+    }
+
+    @Benchmark
+    public long writeSingleChange() throws IOException {
+        environment.getUI().getButton().setCaption("Save " + counter++);
+        return write(true);
+    }
+
+    private long write(boolean async) throws IOException {
+        CountingWriter writer = new CountingWriter();
+        uidlWriter.write(environment.getUI(), writer, async);
+        return writer.count;
+    }
+}
@@ -152,7 +152,8 @@ public class MessageSender {
         if (!csrfToken.equals(ApplicationConstants.CSRF_TOKEN_DEFAULT_VALUE)) {
             payload.put(ApplicationConstants.CSRF_TOKEN, csrfToken);
         }
-        payload.put(ApplicationConstants.RPC_INVOCATIONS, reqInvocations);
+        // The ids are sent before the invocations so that a streaming reader
+        // on the server can check the message before decoding the invocations
         payload.put(ApplicationConstants.SERVER_SYNC_ID,
                 getMessageHandler().getLastSeenServerSyncId());
         payload.put(ApplicationConstants.CLIENT_TO_SERVER_ID,
@@ -164,6 +165,7 @@ public class MessageSender {
                 payload.put(key, value);
             }
         }
+        payload.put(ApplicationConstants.RPC_INVOCATIONS, reqInvocations);
 
         send(payload);
 
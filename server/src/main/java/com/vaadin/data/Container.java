@@ -640,6 +640,39 @@ public interface Container extends Serializable {
              */
             public int getRemovedItemsCount();
         }
+
+        /**
+         * An <code>Event</code> object specifying the items removed from the
+         * container as several ranges of consecutive items. This is used e.g.
+         * when the filters of a container are made more restrictive, to allow
+         * listeners to only remove the affected rows instead of refreshing
+         * all data.
+         * <p>
+         * The ranges are given in ascending order using the indexes the items
+         * had before any of them were removed. To apply the changes one range
+         * at a time, the ranges should be processed starting from the last
+         * one.
+         *
+         * @since 7.7.24
+         */
+        public interface ItemRangesRemoveEvent extends ItemSetChangeEvent {
+
+            /**
+             * Gets the index of the first removed item of each range.
+             *
+             * @return the first indexes of the removed ranges, in ascending
+             *         order
+             */
+            public int[] getFirstIndexes();
+
+            /**
+             * Gets the number of removed items in each range.
+             *
+             * @return the sizes of the removed ranges, in the same order as
+             *         {@link #getFirstIndexes()}
+             */
+            public int[] getRemovedItemsCounts();
+        }
     }
 
     /**
@@ -1151,6 +1184,82 @@ public interface Container extends Serializable {
         public void removeListener(Container.ItemSetChangeListener listener);
     }
 
+    /* Item change event */
+
+    /**
+     * An <code>Event</code> object specifying an Item of a Container whose
+     * property values have changed.
+     * <p>
+     * An item change is not an item set change: the item is not added, removed
+     * or moved.
+     *
+     * @since 7.7.24
+     */
+    public interface ItemChangeEvent extends Serializable {
+
+        /**
+         * Gets the Container containing the changed Item.
+         *
+         * @return source of the event
+         */
+        public Container getContainer();
+
+        /**
+         * Gets the identifier of the changed Item.
+         *
+         * @return the id of the item
+         */
+        public Object getItemId();
+    }
+
+    /**
+     * Container Item change listener interface.
+     *
+     * @since 7.7.24
+     */
+    public interface ItemChangeListener extends Serializable {
+
+        /**
+         * Lets the listener know that the property values of an Item in the
+         * Container have changed.
+         *
+         * @param event
+         *            the item change event
+         */
+        public void containerItemChange(Container.ItemChangeEvent event);
+    }
+
+    /**
+     * The interface for adding and removing <code>ItemChangeEvent</code>
+     * listeners. By implementing this interface a Container announces that it
+     * generates an <code>ItemChangeEvent</code> whenever a property value of
+     * one of its items is changed through the Container. This allows listening
+     * to the changes of all items without adding a
+     * {@link com.vaadin.data.Property.ValueChangeListener} to every property.
+     *
+     * @since 7.7.24
+     */
+    public interface ItemChangeNotifier extends Serializable {
+
+        /**
+         * Adds an Item change listener for the object.
+         *
+         * @param listener
+         *            listener to be added
+         */
+        public void addItemChangeListener(
+                Container.ItemChangeListener listener);
+
+        /**
+         * Removes the Item change listener from the object.
+         *
+         * @param listener
+         *            listener to be removed
+         */
+        public void removeItemChangeListener(
+                Container.ItemChangeListener listener);
+    }
+
     /* Property set change event */
 
     /**
@@ -25,6 +25,8 @@ import java.util.Map;
 
 import com.vaadin.data.Container;
 import com.vaadin.data.Container.Filterable;
+import com.vaadin.data.Container.ItemChangeListener;
+import com.vaadin.data.Container.ItemChangeNotifier;
 import com.vaadin.data.Container.PropertySetChangeNotifier;
 import com.vaadin.data.Container.SimpleFilterable;
 import com.vaadin.data.Container.Sortable;
@@ -36,6 +38,7 @@ import com.vaadin.data.Property.ValueChangeNotifier;
 import com.vaadin.data.util.MethodProperty.MethodException;
 import com.vaadin.data.util.filter.SimpleStringFilter;
 import com.vaadin.data.util.filter.UnsupportedFilterException;
+import com.vaadin.data.util.index.PropertyIndex;
 
 /**
  * An abstract base class for in-memory containers for JavaBeans.
@@ -63,7 +66,7 @@ import com.vaadin.data.util.filter.UnsupportedFilterException;
 public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
         extends AbstractInMemoryContainer<IDTYPE, String, BeanItem<BEANTYPE>>
         implements Filterable, SimpleFilterable, Sortable, ValueChangeListener,
-        PropertySetChangeNotifier {
+        PropertySetChangeNotifier, ItemChangeNotifier {
 
     /**
      * Resolver that maps beans to their (item) identifiers, removing the need
@@ -128,6 +131,65 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
 
     }
 
+    /**
+     * Listener that updates the secondary indexes of a property of an item
+     * when the property value changes.
+     */
+    private class IndexUpdater implements ValueChangeListener {
+
+        private final Object itemId;
+        private final Object propertyId;
+
+        private IndexUpdater(Object itemId, Object propertyId) {
+            this.itemId = itemId;
+            this.propertyId = propertyId;
+        }
+
+        @Override
+        public void valueChange(ValueChangeEvent event) {
+            updateIndexes(itemId, propertyId, event.getProperty().getValue());
+        }
+
+        private AbstractBeanContainer<?, ?> getContainer() {
+            return AbstractBeanContainer.this;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof AbstractBeanContainer.IndexUpdater)) {
+                return false;
+            }
+            IndexUpdater other = (IndexUpdater) obj;
+            return getContainer() == other.getContainer()
+                    && itemId.equals(other.itemId)
+                    && propertyId.equals(other.propertyId);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * itemId.hashCode() + propertyId.hashCode();
+        }
+    }
+
+    /**
+     * Listener that sends an item change event when a property value of an
+     * item changes. A single instance is shared by all the properties of an
+     * item.
+     */
+    private class ItemChangeForwarder implements ValueChangeListener {
+
+        private final Object itemId;
+
+        private ItemChangeForwarder(Object itemId) {
+            this.itemId = itemId;
+        }
+
+        @Override
+        public void valueChange(ValueChangeEvent event) {
+            fireItemChange(itemId);
+        }
+    }
+
     /**
      * The resolver that finds the item ID for a bean, or null not to use
      * automatic resolving.
@@ -216,8 +278,11 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
         internalRemoveAllItems();
 
         // detach listeners from all Items
-        for (Item item : itemIdToItem.values()) {
-            removeAllValueChangeListeners(item);
+        for (Map.Entry<IDTYPE, BeanItem<BEANTYPE>> entry : itemIdToItem
+                .entrySet()) {
+            removeAllValueChangeListeners(entry.getValue());
+            removeIndexUpdaters(entry.getKey(), entry.getValue());
+            entry.getValue().setPropertyChangeListener(null);
         }
         itemIdToItem.clear();
 
@@ -266,6 +331,8 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
         if (internalRemoveItem(itemId)) {
             // detach listeners from Item
             removeAllValueChangeListeners(item);
+            removeIndexUpdaters(itemId, item);
+            ((BeanItem<?>) item).setPropertyChangeListener(null);
 
             // remove item
             itemIdToItem.remove(itemId);
@@ -335,6 +402,27 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
         removeFilter(filter);
     }
 
+    /**
+     * Replaces a container filter with another one, re-filtering the container
+     * only once. When the new filter is more restrictive than the old one,
+     * e.g. when a character is added to the filter string of a prefix
+     * matching {@link SimpleStringFilter}, only the items visible before are
+     * checked and only the removed items are reported to listeners.
+     *
+     * @param oldFilter
+     *            the filter to remove
+     * @param newFilter
+     *            the filter to add
+     * @throws UnsupportedFilterException
+     *             if the new filter is not supported by the container
+     *
+     * @since 7.7.24
+     */
+    public void replaceContainerFilter(Filter oldFilter, Filter newFilter)
+            throws UnsupportedFilterException {
+        replaceFilter(oldFilter, newFilter);
+    }
+
     @Override
     public boolean hasContainerFilters() {
         return super.hasContainerFilters();
@@ -345,6 +433,38 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
         return super.getContainerFilters();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * An item change event is sent whenever a property value is changed
+     * through the items of this container. Changes made directly to the beans
+     * are not detected.
+     *
+     * @since 7.7.24
+     */
+    @Override
+    public void addItemChangeListener(ItemChangeListener listener) {
+        boolean listening = hasItemChangeListeners();
+        super.addItemChangeListener(listener);
+        if (!listening) {
+            for (Map.Entry<IDTYPE, BeanItem<BEANTYPE>> entry : itemIdToItem
+                    .entrySet()) {
+                entry.getValue().setPropertyChangeListener(
+                        new ItemChangeForwarder(entry.getKey()));
+            }
+        }
+    }
+
+    @Override
+    public void removeItemChangeListener(ItemChangeListener listener) {
+        super.removeItemChangeListener(listener);
+        if (!hasItemChangeListeners()) {
+            for (BeanItem<BEANTYPE> item : itemIdToItem.values()) {
+                item.setPropertyChangeListener(null);
+            }
+        }
+    }
+
     /**
      * Make this container listen to the given property provided it notifies
      * when its value changes.
@@ -393,6 +513,140 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
         }
     }
 
+    /**
+     * Makes the secondary indexes listen to value changes of the given
+     * property. The container itself is kept as the last listener so that the
+     * indexes are up to date when the container is re-filtered.
+     *
+     * @param itemId
+     *            The id of the item
+     * @param item
+     *            The {@link Item} that contains the property
+     * @param propertyId
+     *            The id of the property
+     */
+    private void addIndexUpdater(Object itemId, Item item, Object propertyId) {
+        Property<?> property = item.getItemProperty(propertyId);
+        if (property instanceof ValueChangeNotifier) {
+            ValueChangeNotifier notifier = (ValueChangeNotifier) property;
+            IndexUpdater updater = new IndexUpdater(itemId, propertyId);
+            notifier.removeValueChangeListener(this);
+            notifier.removeValueChangeListener(updater);
+            notifier.addValueChangeListener(updater);
+            if (isPropertyFiltered(propertyId)) {
+                notifier.addValueChangeListener(this);
+            }
+        }
+    }
+
+    /**
+     * Removes the index listeners from the given property.
+     *
+     * @param itemId
+     *            The id of the item
+     * @param item
+     *            The {@link Item} that contains the property
+     * @param propertyId
+     *            The id of the property
+     */
+    private void removeIndexUpdater(Object itemId, Item item,
+            Object propertyId) {
+        Property<?> property = item.getItemProperty(propertyId);
+        if (property instanceof ValueChangeNotifier) {
+            ((ValueChangeNotifier) property).removeValueChangeListener(
+                    new IndexUpdater(itemId, propertyId));
+        }
+    }
+
+    /**
+     * Removes the index listeners from all the indexed properties in the given
+     * {@link Item}.
+     *
+     * @param itemId
+     *            The id of the item
+     * @param item
+     *            The {@link Item} that contains the properties
+     */
+    private void removeIndexUpdaters(Object itemId, Item item) {
+        for (PropertyIndex index : getIndexes()) {
+            removeIndexUpdater(itemId, item, index.getPropertyId());
+        }
+    }
+
+    @Override
+    protected void addIndex(PropertyIndex index) {
+        Object propertyId = index.getPropertyId();
+        boolean listening = isPropertyIndexed(propertyId);
+        super.addIndex(index);
+        if (!listening) {
+            for (Map.Entry<IDTYPE, BeanItem<BEANTYPE>> entry : itemIdToItem
+                    .entrySet()) {
+                addIndexUpdater(entry.getKey(), entry.getValue(), propertyId);
+            }
+        }
+    }
+
+    @Override
+    protected boolean removeIndex(PropertyIndex index) {
+        if (!super.removeIndex(index)) {
+            return false;
+        }
+        Object propertyId = index.getPropertyId();
+        if (!isPropertyIndexed(propertyId)) {
+            for (Map.Entry<IDTYPE, BeanItem<BEANTYPE>> entry : itemIdToItem
+                    .entrySet()) {
+                removeIndexUpdater(entry.getKey(), entry.getValue(),
+                        propertyId);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a secondary index for a property of the container. Indexes speed up
+     * filtering large containers by only evaluating the filters for the items
+     * found using the indexes.
+     * <p>
+     * The index is kept up to date as items are added and removed and when
+     * property values are changed through the items of the container. Changes
+     * made directly to the beans are not detected.
+     *
+     * @param index
+     *            the index to add, not <code>null</code>
+     * @throws IllegalArgumentException
+     *             if the container does not have the indexed property
+     *
+     * @since 7.7.24
+     */
+    public void addContainerIndex(PropertyIndex index) {
+        addIndex(index);
+    }
+
+    /**
+     * Removes a secondary index from the container.
+     *
+     * @param index
+     *            the index to remove
+     * @return true if the index was removed, false if it was not used by the
+     *         container
+     *
+     * @since 7.7.24
+     */
+    public boolean removeContainerIndex(PropertyIndex index) {
+        return removeIndex(index);
+    }
+
+    /**
+     * Gets the secondary indexes of the container.
+     *
+     * @return an unmodifiable collection of indexes
+     *
+     * @since 7.7.24
+     */
+    public Collection<PropertyIndex> getContainerIndexes() {
+        return getIndexes();
+    }
+
     @Override
     public Collection<?> getSortableContainerPropertyIds() {
         return getSortablePropertyIds();
@@ -418,6 +672,16 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
             BeanItem<BEANTYPE> item) {
         itemIdToItem.put(itemId, item);
 
+        if (hasItemChangeListeners()) {
+            item.setPropertyChangeListener(new ItemChangeForwarder(itemId));
+        }
+
+        // add index listeners before the filtering listeners, so that the
+        // indexes are updated before the container is re-filtered
+        for (PropertyIndex index : getIndexes()) {
+            addIndexUpdater(itemId, item, index.getPropertyId());
+        }
+
         // add listeners to be able to update filtering on property
         // changes
         for (Filter filter : getFilters()) {
@@ -815,6 +1079,7 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
             NestedPropertyDescriptor<BEANTYPE> pd = new NestedPropertyDescriptor<BEANTYPE>(
                     qualifiedPropertyId, (Class<BEANTYPE>) type);
             model.put(qualifiedPropertyId, pd);
+            removeIndexes(propertyId);
             model.remove(propertyId);
             for (BeanItem<BEANTYPE> item : itemIdToItem.values()) {
                 item.addItemProperty(qualifiedPropertyId,
@@ -835,6 +1100,8 @@ public abstract class AbstractBeanContainer<IDTYPE, BEANTYPE>
             return false;
         }
 
+        removeIndexes(propertyId);
+
         // Removes the Property to Property list and types
         model.remove(propertyId);
 
@@ -49,6 +49,11 @@ public abstract class AbstractContainer implements Container {
      */
     private Collection<Container.ItemSetChangeListener> itemSetChangeListeners = null;
 
+    /**
+     * List of all container Item change event listeners.
+     */
+    private Collection<Container.ItemChangeListener> itemChangeListeners = null;
+
     /**
      * An <code>event</code> object specifying the container whose Property set
      * has changed.
@@ -91,6 +96,33 @@ public abstract class AbstractContainer implements Container {
         }
     }
 
+    /**
+     * An <code>event</code> object specifying the item whose property values
+     * have changed.
+     *
+     * @since 7.7.24
+     */
+    protected static class BaseItemChangeEvent extends EventObject
+            implements Container.ItemChangeEvent, Serializable {
+
+        private final Object itemId;
+
+        protected BaseItemChangeEvent(Container source, Object itemId) {
+            super(source);
+            this.itemId = itemId;
+        }
+
+        @Override
+        public Container getContainer() {
+            return (Container) getSource();
+        }
+
+        @Override
+        public Object getItemId() {
+            return itemId;
+        }
+    }
+
     // PropertySetChangeNotifier
 
     /**
@@ -248,6 +280,70 @@ public abstract class AbstractContainer implements Container {
         }
     }
 
+    // ItemChangeNotifier
+
+    /**
+     * Implementation of the corresponding method in
+     * {@link ItemChangeNotifier}, override with the corresponding public method
+     * and implement the interface to use this.
+     *
+     * @see ItemChangeNotifier#addItemChangeListener(Container.ItemChangeListener)
+     * @since 7.7.24
+     */
+    protected void addItemChangeListener(
+            Container.ItemChangeListener listener) {
+        if (itemChangeListeners == null) {
+            itemChangeListeners = new LinkedList<Container.ItemChangeListener>();
+        }
+        itemChangeListeners.add(listener);
+    }
+
+    /**
+     * Implementation of the corresponding method in
+     * {@link ItemChangeNotifier}, override with the corresponding public method
+     * and implement the interface to use this.
+     *
+     * @see ItemChangeNotifier#removeItemChangeListener(Container.ItemChangeListener)
+     * @since 7.7.24
+     */
+    protected void removeItemChangeListener(
+            Container.ItemChangeListener listener) {
+        if (itemChangeListeners != null) {
+            itemChangeListeners.remove(listener);
+            if (itemChangeListeners.isEmpty()) {
+                itemChangeListeners = null;
+            }
+        }
+    }
+
+    /**
+     * Checks whether there are any Item change listeners.
+     *
+     * @since 7.7.24
+     * @return <code>true</code> if there is at least one listener
+     */
+    protected boolean hasItemChangeListeners() {
+        return itemChangeListeners != null;
+    }
+
+    /**
+     * Sends an Item change event to all registered listeners.
+     *
+     * @since 7.7.24
+     * @param itemId
+     *            the id of the item whose property values have changed
+     */
+    protected void fireItemChange(Object itemId) {
+        if (itemChangeListeners != null) {
+            final Object[] l = itemChangeListeners.toArray();
+            ItemChangeEvent event = new BaseItemChangeEvent(this, itemId);
+            for (int i = 0; i < l.length; i++) {
+                ((Container.ItemChangeListener) l[i])
+                        .containerItemChange(event);
+            }
+        }
+    }
+
     /**
      * Sets the property set change listener collection. For internal use only.
      *
@@ -300,6 +396,14 @@ public abstract class AbstractContainer implements Container {
                 return Collections
                         .unmodifiableCollection(itemSetChangeListeners);
             }
+        } else if (Container.ItemChangeEvent.class
+                .isAssignableFrom(eventType)) {
+            if (itemChangeListeners == null) {
+                return Collections.EMPTY_LIST;
+            } else {
+                return Collections
+                        .unmodifiableCollection(itemChangeListeners);
+            }
         }
 
         return Collections.EMPTY_LIST;
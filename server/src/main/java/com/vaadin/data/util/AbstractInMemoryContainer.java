@@ -16,20 +16,29 @@
 package com.vaadin.data.util;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EventObject;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
 
 import com.vaadin.data.Container;
 import com.vaadin.data.Container.ItemSetChangeNotifier;
 import com.vaadin.data.Item;
+import com.vaadin.data.Property;
+import com.vaadin.data.util.filter.And;
+import com.vaadin.data.util.filter.Or;
 import com.vaadin.data.util.filter.SimpleStringFilter;
 import com.vaadin.data.util.filter.UnsupportedFilterException;
+import com.vaadin.data.util.index.PropertyIndex;
+import com.vaadin.shared.util.SharedUtil;
 
 /**
  * Abstract {@link Container} class that handles common functionality for
@@ -126,6 +135,32 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
      */
     private ItemSorter itemSorter = new DefaultItemSorter();
 
+    /**
+     * Secondary indexes used for finding the items that may pass the filters
+     * without evaluating the filters for all items.
+     */
+    private final List<PropertyIndex> indexes = new ArrayList<PropertyIndex>();
+
+    /**
+     * Positions of the items in {@link #getAllItemIds()}, used for putting the
+     * items found using the indexes in container order. Built on demand and
+     * validated when used, so it does not need to be updated when items are
+     * added, removed or sorted.
+     */
+    private transient Map<Object, Integer> itemPositions;
+
+    /**
+     * True if the filters have only been made more restrictive since the last
+     * filtering, in which case only the visible items need to be checked.
+     */
+    private boolean filterRefinement = false;
+
+    /**
+     * The event describing the changes made by the last filtering, or null to
+     * fire a generic item set change event.
+     */
+    private ItemSetChangeEvent filterChangeEvent;
+
     // Constructors
 
     /**
@@ -228,6 +263,41 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         }
     }
 
+    /**
+     * An <code>Event</code> object specifying the ranges of items removed from
+     * the container.
+     *
+     * @since 7.7.24
+     */
+    protected static class BaseItemRangesRemoveEvent extends EventObject
+            implements Container.Indexed.ItemRangesRemoveEvent {
+
+        private final int[] firstIndexes;
+        private final int[] counts;
+
+        public BaseItemRangesRemoveEvent(Container source, int[] firstIndexes,
+                int[] counts) {
+            super(source);
+            this.firstIndexes = firstIndexes;
+            this.counts = counts;
+        }
+
+        @Override
+        public Container getContainer() {
+            return (Container) getSource();
+        }
+
+        @Override
+        public int[] getFirstIndexes() {
+            return firstIndexes.clone();
+        }
+
+        @Override
+        public int[] getRemovedItemsCounts() {
+            return counts.clone();
+        }
+    }
+
     /**
      * Get an item even if filtered out.
      *
@@ -483,8 +553,16 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
      * way.
      */
     protected void filterAll() {
-        if (doFilterContainer(!getFilters().isEmpty())) {
-            fireItemSetChange();
+        boolean changed = doFilterContainer(!getFilters().isEmpty());
+        ItemSetChangeEvent event = filterChangeEvent;
+        filterRefinement = false;
+        filterChangeEvent = null;
+        if (changed) {
+            if (event != null) {
+                fireItemSetChange(event);
+            } else {
+                fireItemSetChange();
+            }
         }
     }
 
@@ -500,6 +578,10 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
      * @return true if the item set has changed as a result of the filtering
      */
     protected boolean doFilterContainer(boolean hasFilters) {
+        boolean refine = filterRefinement;
+        filterRefinement = false;
+        filterChangeEvent = null;
+
         if (!hasFilters) {
             boolean changed = getAllItemIds().size() != getVisibleItemIds()
                     .size();
@@ -516,13 +598,26 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         }
         setFilteredItemIds(new ListSet<ITEMIDTYPE>());
 
-        // Filter
+        if (refine && !wasUnfiltered) {
+            return refineFilteredItemIds(originalFilteredItemIds);
+        }
+
+        // Filter, only checking the items found using the indexes if possible
+        Set<Object> candidates = findFilterCandidates();
+        if (candidates != null && isCandidateLookupCheaper(candidates)) {
+            List<ITEMIDTYPE> filtered = filterCandidates(candidates);
+            getFilteredItemIds().addAll(filtered);
+            return (wasUnfiltered && !getAllItemIds().isEmpty())
+                    || !filtered.equals(originalFilteredItemIds);
+        }
+
         boolean equal = true;
         Iterator<ITEMIDTYPE> origIt = originalFilteredItemIds.iterator();
         for (final Iterator<ITEMIDTYPE> i = getAllItemIds().iterator(); i
                 .hasNext();) {
             final ITEMIDTYPE id = i.next();
-            if (passesFilters(id)) {
+            if ((candidates == null || candidates.contains(id))
+                    && passesFilters(id)) {
                 // filtered list comes from the full list, can use ==
                 equal = equal && origIt.hasNext() && origIt.next() == id;
                 getFilteredItemIds().add(id);
@@ -533,6 +628,131 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
                 || origIt.hasNext();
     }
 
+    /**
+     * Checks if the items found using the indexes should be filtered directly
+     * instead of going through all items of the container. This is the case
+     * when the candidates are a small part of the items and the item list
+     * supports fast random access for putting them in order.
+     */
+    private boolean isCandidateLookupCheaper(Set<Object> candidates) {
+        List<ITEMIDTYPE> allItemIds = getAllItemIds();
+        return allItemIds instanceof RandomAccess
+                && candidates.size() < allItemIds.size() / 4;
+    }
+
+    /**
+     * Checks the items found using the indexes against the filters and returns
+     * the passing items in the order of {@link #getAllItemIds()}.
+     */
+    private List<ITEMIDTYPE> filterCandidates(Set<Object> candidates) {
+        final List<ITEMIDTYPE> allItemIds = getAllItemIds();
+        final List<Integer> positions = new ArrayList<Integer>(
+                candidates.size());
+        boolean positionsRebuilt = false;
+        for (Object candidate : candidates) {
+            int position = getItemPosition(allItemIds, candidate);
+            if (position < 0 && !positionsRebuilt) {
+                // Items have been added, removed or sorted since the
+                // positions were built
+                rebuildItemPositions(allItemIds);
+                positionsRebuilt = true;
+                position = getItemPosition(allItemIds, candidate);
+            }
+            if (position >= 0 && passesFilters(allItemIds.get(position))) {
+                positions.add(position);
+            }
+        }
+        Collections.sort(positions);
+
+        List<ITEMIDTYPE> filtered = new ArrayList<ITEMIDTYPE>(
+                positions.size());
+        for (Integer position : positions) {
+            filtered.add(allItemIds.get(position));
+        }
+        return filtered;
+    }
+
+    /**
+     * Gets the cached position of an item if it is still valid.
+     *
+     * @return the position of the item, or -1 if not known
+     */
+    private int getItemPosition(List<ITEMIDTYPE> allItemIds, Object itemId) {
+        if (itemPositions == null) {
+            return -1;
+        }
+        Integer position = itemPositions.get(itemId);
+        if (position == null || position >= allItemIds.size()
+                || !allItemIds.get(position).equals(itemId)) {
+            return -1;
+        }
+        return position;
+    }
+
+    private void rebuildItemPositions(List<ITEMIDTYPE> allItemIds) {
+        itemPositions = new HashMap<Object, Integer>(allItemIds.size() * 2);
+        for (int i = 0; i < allItemIds.size(); i++) {
+            itemPositions.put(allItemIds.get(i), i);
+        }
+    }
+
+    /**
+     * Filters the previously visible items after the filters have been made
+     * more restrictive, collecting the ranges of removed items for the item
+     * set change event.
+     *
+     * @param originalFilteredItemIds
+     *            the items visible before filtering
+     * @return true if any items were removed
+     */
+    private boolean refineFilteredItemIds(
+            List<ITEMIDTYPE> originalFilteredItemIds) {
+        Set<Object> candidates = findFilterCandidates();
+        List<Integer> firstIndexes = new ArrayList<Integer>();
+        List<Integer> counts = new ArrayList<Integer>();
+        Object firstRemovedItemId = null;
+        int rangeStart = -1;
+        int index = 0;
+        for (ITEMIDTYPE id : originalFilteredItemIds) {
+            if ((candidates == null || candidates.contains(id))
+                    && passesFilters(id)) {
+                getFilteredItemIds().add(id);
+                if (rangeStart >= 0) {
+                    firstIndexes.add(rangeStart);
+                    counts.add(index - rangeStart);
+                    rangeStart = -1;
+                }
+            } else if (rangeStart < 0) {
+                rangeStart = index;
+                if (firstRemovedItemId == null) {
+                    firstRemovedItemId = id;
+                }
+            }
+            index++;
+        }
+        if (rangeStart >= 0) {
+            firstIndexes.add(rangeStart);
+            counts.add(index - rangeStart);
+        }
+
+        if (firstIndexes.isEmpty()) {
+            return false;
+        } else if (firstIndexes.size() == 1) {
+            filterChangeEvent = new BaseItemRemoveEvent(this,
+                    firstRemovedItemId, firstIndexes.get(0), counts.get(0));
+        } else {
+            int[] firstIndexArray = new int[firstIndexes.size()];
+            int[] countArray = new int[counts.size()];
+            for (int i = 0; i < firstIndexArray.length; i++) {
+                firstIndexArray[i] = firstIndexes.get(i);
+                countArray[i] = counts.get(i);
+            }
+            filterChangeEvent = new BaseItemRangesRemoveEvent(this,
+                    firstIndexArray, countArray);
+        }
+        return true;
+    }
+
     /**
      * Checks if the given itemId passes the filters set for the container. The
      * caller should make sure the itemId exists in the container. For
@@ -579,9 +799,89 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
      */
     protected void addFilter(Filter filter) throws UnsupportedFilterException {
         getFilters().add(filter);
+        // an additional filter can only hide more items
+        filterRefinement = true;
         filterAll();
     }
 
+    /**
+     * Replaces a container filter with another one and re-filters the view
+     * once. If the new filter is a refinement of the old one, e.g. a
+     * {@link SimpleStringFilter} with a longer filter string, only the items
+     * that were visible before are checked and the removed items are reported
+     * in the item set change event.
+     *
+     * This can be used to implement e.g. filtering as the user types.
+     *
+     * @param oldFilter
+     *            the filter to remove, if it is not among the container
+     *            filters, the new filter is simply added
+     * @param newFilter
+     *            the filter to add
+     * @throws UnsupportedFilterException
+     *             if the filter is detected as not supported by the container
+     *
+     * @since 7.7.24
+     */
+    protected void replaceFilter(Filter oldFilter, Filter newFilter)
+            throws UnsupportedFilterException {
+        boolean removed = false;
+        for (Iterator<Filter> iterator = getFilters().iterator(); iterator
+                .hasNext();) {
+            if (iterator.next().equals(oldFilter)) {
+                iterator.remove();
+                removed = true;
+                break;
+            }
+        }
+        getFilters().add(newFilter);
+        filterRefinement = !removed || isRefinement(newFilter, oldFilter);
+        filterAll();
+    }
+
+    /**
+     * Checks whether all items passing a filter also pass another filter.
+     * Only simple cases are detected, returning false when unsure.
+     *
+     * @param narrower
+     *            the filter that may be more restrictive
+     * @param wider
+     *            the filter that may be less restrictive
+     * @return true if narrower is known to accept a subset of the items
+     *         accepted by wider
+     */
+    private static boolean isRefinement(Filter narrower, Filter wider) {
+        if (narrower.equals(wider)) {
+            return true;
+        } else if (narrower instanceof And) {
+            for (Filter filter : ((And) narrower).getFilters()) {
+                if (isRefinement(filter, wider)) {
+                    return true;
+                }
+            }
+        } else if (wider instanceof Or) {
+            for (Filter filter : ((Or) wider).getFilters()) {
+                if (isRefinement(narrower, filter)) {
+                    return true;
+                }
+            }
+        } else if (narrower instanceof SimpleStringFilter
+                && wider instanceof SimpleStringFilter) {
+            SimpleStringFilter n = (SimpleStringFilter) narrower;
+            SimpleStringFilter w = (SimpleStringFilter) wider;
+            if (!SharedUtil.equals(n.getPropertyId(), w.getPropertyId())
+                    || n.isIgnoreCase() != w.isIgnoreCase()) {
+                return false;
+            } else if (w.isOnlyMatchPrefix()) {
+                return n.isOnlyMatchPrefix()
+                        && n.getFilterString().startsWith(w.getFilterString());
+            } else {
+                return n.getFilterString().contains(w.getFilterString());
+            }
+        }
+        return false;
+    }
+
     /**
      * Returns true if any filters have been applied to the container.
      *
@@ -679,6 +979,211 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         return Collections.emptyList();
     }
 
+    // indexes
+
+    /**
+     * Adds a secondary index used when filtering the container. The index is
+     * populated with the current values of all items and then kept up to date
+     * as items are added and removed.
+     * <p>
+     * Subclasses must call {@link #updateIndexes(Object, Object, Object)}
+     * whenever the value of an indexed property changes.
+     *
+     * @param index
+     *            the index to add, not <code>null</code>
+     * @throws IllegalArgumentException
+     *             if the container does not have the indexed property
+     *
+     * @since 7.7.24
+     */
+    protected void addIndex(PropertyIndex index) {
+        if (!getContainerPropertyIds().contains(index.getPropertyId())) {
+            throw new IllegalArgumentException(
+                    "Container has no property " + index.getPropertyId());
+        }
+        index.clear();
+        for (ITEMIDTYPE itemId : getAllItemIds()) {
+            index.add(itemId, getIndexedValue(itemId, index.getPropertyId()));
+        }
+        indexes.add(index);
+    }
+
+    /**
+     * Removes a secondary index from the container.
+     *
+     * @param index
+     *            the index to remove
+     * @return true if the index was removed, false if it was not used by the
+     *         container
+     *
+     * @since 7.7.24
+     */
+    protected boolean removeIndex(PropertyIndex index) {
+        if (indexes.remove(index)) {
+            index.clear();
+            if (indexes.isEmpty()) {
+                itemPositions = null;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes all secondary indexes of a given property from the container.
+     *
+     * @param propertyId
+     *            the id of the property
+     * @return the removed indexes
+     *
+     * @since 7.7.24
+     */
+    protected Collection<PropertyIndex> removeIndexes(Object propertyId) {
+        List<PropertyIndex> removedIndexes = new LinkedList<PropertyIndex>();
+        for (PropertyIndex index : getIndexes()) {
+            if (index.getPropertyId().equals(propertyId)) {
+                removeIndex(index);
+                removedIndexes.add(index);
+            }
+        }
+        return removedIndexes;
+    }
+
+    /**
+     * Gets the secondary indexes used by the container.
+     *
+     * @return an unmodifiable list of indexes
+     *
+     * @since 7.7.24
+     */
+    protected List<PropertyIndex> getIndexes() {
+        return Collections.unmodifiableList(new ArrayList<PropertyIndex>(
+                indexes));
+    }
+
+    /**
+     * Checks if there is a secondary index for a given property.
+     *
+     * @param propertyId
+     *            the id of the property
+     * @return true if the property is indexed
+     *
+     * @since 7.7.24
+     */
+    protected boolean isPropertyIndexed(Object propertyId) {
+        for (PropertyIndex index : indexes) {
+            if (index.getPropertyId().equals(propertyId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Updates the secondary indexes after the value of a property of an item
+     * has changed. This should be called before the container is re-filtered.
+     *
+     * @param itemId
+     *            the id of the item
+     * @param propertyId
+     *            the id of the changed property
+     * @param value
+     *            the new value of the property
+     *
+     * @since 7.7.24
+     */
+    protected void updateIndexes(Object itemId, Object propertyId,
+            Object value) {
+        for (PropertyIndex index : indexes) {
+            if (index.getPropertyId().equals(propertyId)) {
+                index.update(itemId, value);
+            }
+        }
+    }
+
+    /**
+     * Finds the items that may pass the current filters using the secondary
+     * indexes of the container. Filters are combined using {@link And} and
+     * {@link Or} junctions; filters not supported by any index do not narrow
+     * down the result. The returned items must still be checked using
+     * {@link #passesFilters(Object)}.
+     *
+     * @return the ids of the items that may pass the filters, or null if the
+     *         indexes cannot be used and all items need to be checked
+     *
+     * @since 7.7.24
+     */
+    protected Set<Object> findFilterCandidates() {
+        if (indexes.isEmpty()) {
+            return null;
+        }
+        return intersectCandidates(getFilters());
+    }
+
+    private Set<Object> findCandidates(Filter filter) {
+        if (filter instanceof And) {
+            return intersectCandidates(((And) filter).getFilters());
+        } else if (filter instanceof Or) {
+            return uniteCandidates(((Or) filter).getFilters());
+        }
+        Set<Object> best = null;
+        for (PropertyIndex index : indexes) {
+            Set<Object> candidates = index.findCandidates(filter);
+            if (candidates != null
+                    && (best == null || candidates.size() < best.size())) {
+                best = candidates;
+            }
+        }
+        return best;
+    }
+
+    private Set<Object> intersectCandidates(Collection<Filter> filters) {
+        List<Set<Object>> candidateSets = new ArrayList<Set<Object>>();
+        Set<Object> smallest = null;
+        for (Filter filter : filters) {
+            Set<Object> candidates = findCandidates(filter);
+            if (candidates != null) {
+                candidateSets.add(candidates);
+                if (smallest == null || candidates.size() < smallest.size()) {
+                    smallest = candidates;
+                }
+            }
+        }
+        if (candidateSets.size() <= 1) {
+            return smallest;
+        }
+        Set<Object> result = new HashSet<Object>(smallest);
+        for (Set<Object> candidates : candidateSets) {
+            if (candidates != smallest) {
+                result.retainAll(candidates);
+            }
+        }
+        return result;
+    }
+
+    private Set<Object> uniteCandidates(Collection<Filter> filters) {
+        if (filters.isEmpty()) {
+            return null;
+        }
+        Set<Object> result = new HashSet<Object>();
+        for (Filter filter : filters) {
+            Set<Object> candidates = findCandidates(filter);
+            if (candidates == null) {
+                // an item passing this filter could be any item
+                return null;
+            }
+            result.addAll(candidates);
+        }
+        return result;
+    }
+
+    private Object getIndexedValue(Object itemId, Object propertyId) {
+        Item item = getUnfilteredItem(itemId);
+        Property<?> property = item == null ? null
+                : item.getItemProperty(propertyId);
+        return property == null ? null : property.getValue();
+    }
+
     // sorting
 
     /**
@@ -739,12 +1244,32 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
      * Perform the sorting of the data structures in the container. This is
      * invoked when the <code>itemSorter</code> has been prepared for the sort
      * operation. Typically this method calls
-     * <code>Collections.sort(aCollection, getItemSorter())</code> on all arrays
-     * (containing item ids) that need to be sorted.
+     * {@link #sortItemIds(List)} on all lists (containing item ids) that need
+     * to be sorted.
      *
      */
     protected void doSort() {
-        Collections.sort(getAllItemIds(), getItemSorter());
+        sortItemIds(getAllItemIds());
+    }
+
+    /**
+     * Sorts a list of item ids using the item sorter of the container. If the
+     * item sorter is a {@link BulkItemSorter}, the list is sorted by the
+     * sorter, otherwise <code>Collections.sort(itemIds, getItemSorter())</code>
+     * is used.
+     *
+     * @param itemIds
+     *            the item ids to sort
+     *
+     * @since 7.7.24
+     */
+    protected <T> void sortItemIds(List<T> itemIds) {
+        ItemSorter sorter = getItemSorter();
+        if (sorter instanceof BulkItemSorter) {
+            ((BulkItemSorter) sorter).sortItemIds(itemIds);
+        } else {
+            Collections.sort(itemIds, sorter);
+        }
     }
 
     /**
@@ -778,6 +1303,9 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         if (isFiltered()) {
             getFilteredItemIds().clear();
         }
+        for (PropertyIndex index : indexes) {
+            index.clear();
+        }
     }
 
     /**
@@ -801,6 +1329,11 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         if (result && isFiltered()) {
             getFilteredItemIds().remove(itemId);
         }
+        if (result) {
+            for (PropertyIndex index : indexes) {
+                index.remove(itemId);
+            }
+        }
 
         return result;
     }
@@ -846,6 +1379,9 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         // by the caller after calling this method.
         getAllItemIds().add(position, itemId);
         registerNewItem(position, itemId, item);
+        for (PropertyIndex index : indexes) {
+            index.add(itemId, getIndexedValue(itemId, index.getPropertyId()));
+        }
 
         return item;
     }
@@ -17,19 +17,28 @@
 package com.vaadin.data.util;
 
 import java.beans.PropertyDescriptor;
+import java.lang.ref.SoftReference;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import com.vaadin.data.Property;
+import com.vaadin.data.Property.ValueChangeListener;
+import com.vaadin.data.Property.ValueChangeNotifier;
 
 /**
  * A wrapper class for adding the Item interface to any Java Bean.
+ * <p>
+ * The bean properties are introspected only once per bean class. The
+ * {@link Property} objects of an item are created when they are first
+ * requested, so items of which only a few properties are used stay small.
  *
  * @author Vaadin Ltd.
  * @since 3.0
@@ -42,6 +51,23 @@ public class BeanItem<BT> extends PropertysetItem {
      */
     private BT bean;
 
+    /**
+     * The descriptors used to create the bean properties on demand.
+     */
+    private Map<String, VaadinPropertyDescriptor<BT>> propertyDescriptors;
+
+    /**
+     * Introspected property descriptors by bean class, shared by all items.
+     * The descriptors are softly referenced as they refer to the bean class,
+     * which would otherwise prevent the class from being unloaded.
+     */
+    private static final Map<Class<?>, SoftReference<Map<String, VaadinPropertyDescriptor<?>>>> sharedPropertyDescriptors = new WeakHashMap<Class<?>, SoftReference<Map<String, VaadinPropertyDescriptor<?>>>>();
+
+    /**
+     * Listener added to all the created properties of this item, or null.
+     */
+    private ValueChangeListener propertyChangeListener;
+
     /**
      * <p>
      * Creates a new instance of <code>BeanItem</code> and adds all properties
@@ -85,7 +111,7 @@ public class BeanItem<BT> extends PropertysetItem {
      *
      */
     public BeanItem(BT bean, Class<BT> beanClass) {
-        this(bean, getPropertyDescriptors(beanClass));
+        this(bean, getSharedPropertyDescriptors(beanClass));
     }
 
     /**
@@ -104,9 +130,10 @@ public class BeanItem<BT> extends PropertysetItem {
             Map<String, VaadinPropertyDescriptor<BT>> propertyDescriptors) {
 
         this.bean = bean;
+        this.propertyDescriptors = propertyDescriptors;
 
-        for (VaadinPropertyDescriptor<BT> pd : propertyDescriptors.values()) {
-            addItemProperty(pd.getName(), pd.createProperty(bean));
+        for (String propertyId : propertyDescriptors.keySet()) {
+            addItemProperty(propertyId, null);
         }
     }
 
@@ -133,14 +160,15 @@ public class BeanItem<BT> extends PropertysetItem {
         this.bean = bean;
 
         // Create bean information
-        LinkedHashMap<String, VaadinPropertyDescriptor<BT>> pds = getPropertyDescriptors(
+        propertyDescriptors = getSharedPropertyDescriptors(
                 (Class<BT>) bean.getClass());
 
-        // Add all the bean properties as MethodProperties to this Item
+        // Add all the listed bean properties to this Item, they are created
+        // on demand
         for (Object id : propertyIds) {
-            VaadinPropertyDescriptor<BT> pd = pds.get(id);
+            VaadinPropertyDescriptor<BT> pd = propertyDescriptors.get(id);
             if (pd != null) {
-                addItemProperty(pd.getName(), pd.createProperty(bean));
+                addItemProperty(pd.getName(), null);
             }
         }
 
@@ -181,10 +209,47 @@ public class BeanItem<BT> extends PropertysetItem {
      *
      * @param beanClass
      *            the Java Bean class to get properties for.
-     * @return an ordered map from property names to property descriptors
+     * @return a new ordered map from property names to property descriptors
      */
     static <BT> LinkedHashMap<String, VaadinPropertyDescriptor<BT>> getPropertyDescriptors(
             final Class<BT> beanClass) {
+        return new LinkedHashMap<String, VaadinPropertyDescriptor<BT>>(
+                getSharedPropertyDescriptors(beanClass));
+    }
+
+    /**
+     * Gets the property descriptors of a Java Bean class from the cache shared
+     * by all bean items, introspecting the class if needed.
+     *
+     * @param beanClass
+     *            the Java Bean class to get properties for.
+     * @return an unmodifiable ordered map from property names to property
+     *         descriptors
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static <BT> Map<String, VaadinPropertyDescriptor<BT>> getSharedPropertyDescriptors(
+            final Class<BT> beanClass) {
+        SoftReference<Map<String, VaadinPropertyDescriptor<?>>> ref;
+        synchronized (sharedPropertyDescriptors) {
+            ref = sharedPropertyDescriptors.get(beanClass);
+        }
+        Map descriptors = ref == null ? null : ref.get();
+        if (descriptors == null) {
+            // Introspect outside the lock, at worst a class is introspected
+            // twice
+            descriptors = Collections
+                    .unmodifiableMap(introspectPropertyDescriptors(beanClass));
+            synchronized (sharedPropertyDescriptors) {
+                sharedPropertyDescriptors.put(beanClass,
+                        new SoftReference<Map<String, VaadinPropertyDescriptor<?>>>(
+                                descriptors));
+            }
+        }
+        return descriptors;
+    }
+
+    private static <BT> LinkedHashMap<String, VaadinPropertyDescriptor<BT>> introspectPropertyDescriptors(
+            final Class<BT> beanClass) {
         final LinkedHashMap<String, VaadinPropertyDescriptor<BT>> pdMap = new LinkedHashMap<String, VaadinPropertyDescriptor<BT>>();
 
         // Try to introspect, if it fails, we just have an empty Item
@@ -290,9 +355,9 @@ public class BeanItem<BT> extends PropertysetItem {
                             + getBean().getClass());
         }
 
-        // Remap properties
+        // Remap properties, properties not created yet will use the new bean
         for (Object propertyId : getItemPropertyIds()) {
-            Property p = getItemProperty(propertyId);
+            Property p = getCreatedItemProperty(propertyId);
             if (p instanceof MethodProperty) {
                 MethodProperty mp = (MethodProperty) p;
                 assert (mp.getInstance() == getBean());
@@ -306,4 +371,56 @@ public class BeanItem<BT> extends PropertysetItem {
 
         this.bean = bean;
     }
+
+    @Override
+    protected Property<?> createItemProperty(Object id) {
+        VaadinPropertyDescriptor<BT> pd = propertyDescriptors.get(id);
+        Property<?> property = pd == null ? null : pd.createProperty(bean);
+        addPropertyChangeListener(property);
+        return property;
+    }
+
+    @Override
+    public boolean addItemProperty(Object id, Property property) {
+        if (!super.addItemProperty(id, property)) {
+            return false;
+        }
+        addPropertyChangeListener(property);
+        return true;
+    }
+
+    /**
+     * Sets a listener that is notified of value changes of all the properties
+     * of this item, including properties created or added later. Used by bean
+     * containers for sending item change events without listening to the
+     * properties of items that are not used.
+     *
+     * @param listener
+     *            the listener to set, or <code>null</code> to remove the
+     *            current listener
+     */
+    void setPropertyChangeListener(ValueChangeListener listener) {
+        for (Object propertyId : getItemPropertyIds()) {
+            Property<?> property = getCreatedItemProperty(propertyId);
+            if (property instanceof ValueChangeNotifier) {
+                if (propertyChangeListener != null) {
+                    ((ValueChangeNotifier) property)
+                            .removeValueChangeListener(propertyChangeListener);
+                }
+                if (listener != null) {
+                    ((ValueChangeNotifier) property)
+                            .addValueChangeListener(listener);
+                }
+            }
+        }
+        propertyChangeListener = listener;
+    }
+
+    private void addPropertyChangeListener(Property<?> property) {
+        if (propertyChangeListener != null
+                && property instanceof ValueChangeNotifier) {
+            ((ValueChangeNotifier) property)
+                    .addValueChangeListener(propertyChangeListener);
+        }
+    }
 }
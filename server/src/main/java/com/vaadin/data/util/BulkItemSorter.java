@@ -0,0 +1,49 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.vaadin.data.Container.Sortable;
+
+/**
+ * An {@link ItemSorter} which can sort a whole list of item ids at once. This
+ * allows the sorter to read the sorted property values only once for each
+ * item instead of once for every comparison.
+ * <p>
+ * In-memory containers sort their item ids using
+ * {@link #sortItemIds(List)} if their item sorter implements this interface,
+ * and using {@link Collections#sort(List, java.util.Comparator)} otherwise.
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public interface BulkItemSorter extends ItemSorter {
+
+    /**
+     * Sorts a list of item ids in place using the parameters set with
+     * {@link #setSortProperties(Sortable, Object[], boolean[])}. The result
+     * must be the same as sorting the list with
+     * {@link Collections#sort(List, java.util.Comparator)} using this sorter,
+     * i.e. the sort must be stable.
+     *
+     * @param itemIds
+     *            the item ids to sort, not <code>null</code>
+     */
+    public <T> void sortItemIds(List<T> itemIds);
+
+}
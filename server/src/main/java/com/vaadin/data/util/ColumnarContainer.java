@@ -0,0 +1,1844 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EventObject;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+import com.vaadin.data.Container;
+import com.vaadin.data.Item;
+import com.vaadin.data.Property;
+import com.vaadin.data.util.filter.And;
+import com.vaadin.data.util.filter.Compare;
+import com.vaadin.data.util.filter.IsNull;
+import com.vaadin.data.util.filter.Not;
+import com.vaadin.data.util.filter.Or;
+import com.vaadin.data.util.filter.SimpleStringFilter;
+import com.vaadin.data.util.filter.UnsupportedFilterException;
+import com.vaadin.data.util.index.PropertyIndex;
+import com.vaadin.util.ReflectTools;
+
+/**
+ * An in-memory container with the same features as {@link IndexedContainer}
+ * which stores the property values column by column instead of item by item.
+ * <p>
+ * Each item is mapped to a row number and the values of each property are
+ * stored in an array indexed by the row. Properties of type {@link Integer},
+ * {@link Long}, {@link Double} and {@link Boolean} (or the corresponding
+ * primitive types) are stored in primitive arrays, and {@link String}
+ * properties are stored as references to a dictionary of the distinct values.
+ * Other types are stored in object arrays. This makes the container
+ * considerably smaller than an {@link IndexedContainer} for large data sets
+ * with few distinct values or numeric values.
+ * <p>
+ * Sorting with the default item sorter and evaluating {@link Compare},
+ * {@link IsNull} and {@link SimpleStringFilter} filters (also inside
+ * {@link And}, {@link Or} and {@link Not} filters) read the columns directly
+ * without creating items and properties. Other filters and custom item sorters
+ * are supported through the normal {@link Item} interface.
+ * <p>
+ * Unlike with {@link IndexedContainer}, the values of primitive typed
+ * properties can be set using the corresponding wrapper type.
+ *
+ * Features:
+ * <ul>
+ * <li>{@link Container.Indexed}
+ * <li>{@link Container.Ordered}
+ * <li>{@link Container.Sortable}
+ * <li>{@link Container.Filterable}
+ * <li>Sends all needed events on content changes.
+ * </ul>
+ *
+ * @see IndexedContainer
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class ColumnarContainer
+        extends AbstractInMemoryContainer<Object, Object, Item>
+        implements Container.PropertySetChangeNotifier,
+        Property.ValueChangeNotifier, Container.Sortable,
+        Container.Filterable, Container.SimpleFilterable,
+        Container.ItemChangeNotifier {
+    private static final long serialVersionUID = 1L;
+
+    /* Internal structure */
+
+    /**
+     * Ordered Property IDs.
+     */
+    private final ArrayList<Object> propertyIds = new ArrayList<Object>();
+
+    /**
+     * Property ID to type mapping.
+     */
+    private final HashMap<Object, Class<?>> types = new HashMap<Object, Class<?>>();
+
+    /**
+     * Property ID to column mapping.
+     */
+    private final HashMap<Object, Column> columns = new HashMap<Object, Column>();
+
+    /**
+     * Item ID to row mapping.
+     */
+    private final HashMap<Object, Integer> rows = new HashMap<Object, Integer>();
+
+    /**
+     * Item ID of each row.
+     */
+    private Object[] rowItemIds = new Object[16];
+
+    /**
+     * The number of rows in use, rows are kept dense by moving the last row
+     * to the place of a removed row.
+     */
+    private int rowCount = 0;
+
+    /**
+     * Set of properties that are read-only.
+     */
+    private final HashSet<Property<?>> readOnlyProperties = new HashSet<Property<?>>();
+
+    /**
+     * List of all Property value change event listeners listening all the
+     * properties.
+     */
+    private LinkedList<Property.ValueChangeListener> propertyValueChangeListeners = null;
+
+    /**
+     * Listeners interested in changes to single Properties.
+     */
+    private HashMap<Property<?>, List<Property.ValueChangeListener>> singlePropertyValueChangeListeners = null;
+
+    private HashMap<Object, Object> defaultPropertyValues;
+
+    /**
+     * Results of the string filters for each dictionary value, only kept
+     * during one filtering pass.
+     */
+    private transient HashMap<Filter, byte[]> stringFilterResults;
+
+    private final ColumnItemSorter columnItemSorter = new ColumnItemSorter();
+
+    private int nextGeneratedItemId = 1;
+
+    /* Container constructors */
+
+    public ColumnarContainer() {
+        super();
+        setItemSorter(columnItemSorter);
+    }
+
+    public ColumnarContainer(Collection<?> itemIds) {
+        this();
+        for (Object itemId : itemIds) {
+            internalAddItemAtEnd(itemId, new ColumnarContainerItem(itemId),
+                    false);
+        }
+        filterAll();
+    }
+
+    /* Container methods */
+
+    @Override
+    protected Item getUnfilteredItem(Object itemId) {
+        if (itemId != null && rows.containsKey(itemId)) {
+            return new ColumnarContainerItem(itemId);
+        }
+        return null;
+    }
+
+    @Override
+    public Collection<?> getContainerPropertyIds() {
+        return Collections.unmodifiableCollection(propertyIds);
+    }
+
+    @Override
+    public Class<?> getType(Object propertyId) {
+        return types.get(propertyId);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Property getContainerProperty(Object itemId, Object propertyId) {
+        if (!containsId(itemId) || propertyId == null
+                || !types.containsKey(propertyId)) {
+            return null;
+        }
+
+        return new ColumnarContainerProperty<Object>(itemId, propertyId);
+    }
+
+    @Override
+    public boolean addContainerProperty(Object propertyId, Class<?> type,
+            Object defaultValue) {
+
+        // Fails, if nulls are given
+        if (propertyId == null || type == null) {
+            return false;
+        }
+
+        // Fails if the Property is already present
+        if (types.containsKey(propertyId)) {
+            return false;
+        }
+
+        if (defaultValue != null) {
+            checkValueType(type, defaultValue);
+        }
+
+        Column column = createColumn(type);
+        column.ensureCapacity(rowItemIds.length);
+
+        // Adds the Property to Property list and types
+        propertyIds.add(propertyId);
+        types.put(propertyId, type);
+        columns.put(propertyId, column);
+
+        // If default value is given, set it
+        if (defaultValue != null) {
+            // for existing rows
+            for (int row = 0; row < rowCount; row++) {
+                column.set(row, defaultValue);
+            }
+            // store for next rows
+            if (defaultPropertyValues == null) {
+                defaultPropertyValues = new HashMap<Object, Object>();
+            }
+            defaultPropertyValues.put(propertyId, defaultValue);
+            if (rowCount > 0 && isPropertyFiltered(propertyId)) {
+                filterAll();
+            }
+        }
+
+        // Sends a change event
+        fireContainerPropertySetChange();
+
+        return true;
+    }
+
+    /**
+     * Creates the column used for storing the values of a property type.
+     *
+     * @param type
+     *            the type of the property
+     * @return a new empty column
+     */
+    private static Column createColumn(Class<?> type) {
+        Class<?> valueType = ReflectTools.convertPrimitiveType(type);
+        if (valueType == Integer.class) {
+            return new IntColumn();
+        } else if (valueType == Long.class) {
+            return new LongColumn();
+        } else if (valueType == Double.class) {
+            return new DoubleColumn();
+        } else if (valueType == Boolean.class) {
+            return new BooleanColumn();
+        } else if (valueType == String.class) {
+            return new StringColumn();
+        } else {
+            return new ObjectColumn();
+        }
+    }
+
+    @Override
+    public boolean removeContainerProperty(Object propertyId) {
+
+        // Fails if the Property is not present
+        if (!types.containsKey(propertyId)) {
+            return false;
+        }
+
+        // Removes the Property and its values
+        propertyIds.remove(propertyId);
+        types.remove(propertyId);
+        columns.remove(propertyId);
+        if (defaultPropertyValues != null) {
+            defaultPropertyValues.remove(propertyId);
+        }
+        removeIndexes(propertyId);
+
+        // Sends a change event
+        fireContainerPropertySetChange();
+
+        return true;
+    }
+
+    @Override
+    public boolean removeAllItems() {
+        int origSize = size();
+        Object firstItem = getFirstVisibleItem();
+
+        internalRemoveAllItems();
+
+        rows.clear();
+        rowItemIds = new Object[16];
+        rowCount = 0;
+        for (Column column : columns.values()) {
+            column.clear();
+            column.ensureCapacity(rowItemIds.length);
+        }
+
+        // fire event only if the visible view changed, regardless of whether
+        // filtered out items were removed or not
+        if (origSize != 0) {
+            // Sends a change event
+            fireItemsRemoved(0, firstItem, origSize);
+        }
+
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The item ID is generated from a sequence of Integers. The id of the first
+     * added item is 1.
+     */
+    @Override
+    public Object addItem() {
+
+        // Creates a new id
+        final Object id = generateId();
+
+        // Adds the Item into container
+        addItem(id);
+
+        return id;
+    }
+
+    @Override
+    public Item addItem(Object itemId) {
+        Item item = internalAddItemAtEnd(itemId,
+                new ColumnarContainerItem(itemId), false);
+        if (item == null) {
+            return null;
+        } else if (!isFiltered()) {
+            // always the last item
+            fireItemAdded(size() - 1, itemId, item);
+        } else if (passesFilters(itemId) && !containsId(itemId)) {
+            getFilteredItemIds().add(itemId);
+            // always the last item
+            fireItemAdded(size() - 1, itemId, item);
+        }
+        return item;
+    }
+
+    @Override
+    public boolean removeItem(Object itemId) {
+        if (itemId == null || !rows.containsKey(itemId)) {
+            return false;
+        }
+        int origSize = size();
+        int position = indexOfId(itemId);
+        if (internalRemoveItem(itemId)) {
+            removeRow(itemId);
+            // fire event only if the visible view changed, regardless of
+            // whether filtered out items were removed or not
+            if (size() != origSize) {
+                fireItemRemoved(position, itemId);
+            }
+
+            return true;
+        } else {
+            return false;
+        }
+    }
+
+    /* Container.Ordered methods */
+
+    @Override
+    public Item addItemAfter(Object previousItemId, Object newItemId) {
+        return internalAddItemAfter(previousItemId, newItemId,
+                new ColumnarContainerItem(newItemId), true);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The item ID is generated from a sequence of Integers. The id of the first
+     * added item is 1.
+     */
+    @Override
+    public Object addItemAfter(Object previousItemId) {
+
+        // Creates a new id
+        final Object id = generateId();
+
+        if (addItemAfter(previousItemId, id) != null) {
+            return id;
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public Item addItemAt(int index, Object newItemId) {
+        return internalAddItemAt(index, newItemId,
+                new ColumnarContainerItem(newItemId), true);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The item ID is generated from a sequence of Integers. The id of the first
+     * added item is 1.
+     */
+    @Override
+    public Object addItemAt(int index) {
+
+        // Creates a new id
+        final Object id = generateId();
+
+        // Adds the Item into container
+        addItemAt(index, id);
+
+        return id;
+    }
+
+    /**
+     * Generates an unique identifier for use as an item id. Guarantees that the
+     * generated id is not currently used as an id.
+     *
+     * @return a new item id
+     */
+    private Serializable generateId() {
+        Serializable id;
+        do {
+            id = Integer.valueOf(nextGeneratedItemId++);
+        } while (rows.containsKey(id));
+
+        return id;
+    }
+
+    @Override
+    protected void registerNewItem(int index, Object newItemId, Item item) {
+        int row = rowCount++;
+        if (row == rowItemIds.length) {
+            int capacity = rowItemIds.length * 3 / 2 + 1;
+            rowItemIds = Arrays.copyOf(rowItemIds, capacity);
+            for (Column column : columns.values()) {
+                column.ensureCapacity(capacity);
+            }
+        }
+        rowItemIds[row] = newItemId;
+        rows.put(newItemId, row);
+
+        if (defaultPropertyValues != null) {
+            for (Map.Entry<Object, Object> entry : defaultPropertyValues
+                    .entrySet()) {
+                columns.get(entry.getKey()).set(row, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Frees the row of a removed item by moving the values of the last row to
+     * it.
+     *
+     * @param itemId
+     *            the id of the removed item
+     */
+    private void removeRow(Object itemId) {
+        int row = rows.remove(itemId);
+        int lastRow = --rowCount;
+        if (row != lastRow) {
+            Object movedItemId = rowItemIds[lastRow];
+            rowItemIds[row] = movedItemId;
+            rows.put(movedItemId, row);
+            for (Column column : columns.values()) {
+                column.move(lastRow, row);
+            }
+        }
+        rowItemIds[lastRow] = null;
+        for (Column column : columns.values()) {
+            column.set(lastRow, null);
+        }
+    }
+
+    /**
+     * Gets the row of an item.
+     *
+     * @param itemId
+     *            the item id
+     * @return the row of the item, or -1 if there is no such item
+     */
+    private int getRow(Object itemId) {
+        Integer row = rows.get(itemId);
+        return row == null ? -1 : row.intValue();
+    }
+
+    private static void checkValueType(Class<?> type, Object value) {
+        if (!ReflectTools.convertPrimitiveType(type)
+                .isAssignableFrom(value.getClass())) {
+            throw new IllegalArgumentException("Value is of invalid type, got "
+                    + value.getClass().getName() + " but " + type.getName()
+                    + " was expected");
+        }
+    }
+
+    /* Filtering */
+
+    @Override
+    protected boolean doFilterContainer(boolean hasFilters) {
+        stringFilterResults = new HashMap<Filter, byte[]>();
+        try {
+            return super.doFilterContainer(hasFilters);
+        } finally {
+            stringFilterResults = null;
+        }
+    }
+
+    @Override
+    protected boolean passesFilters(Object itemId) {
+        int row = getRow(itemId);
+        for (Filter filter : getFilters()) {
+            if (!passesFilter(filter, itemId, row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether an item passes a filter, reading the values directly from
+     * the columns for the supported filter types.
+     *
+     * @param filter
+     *            the filter to evaluate
+     * @param itemId
+     *            the id of the item
+     * @param row
+     *            the row of the item
+     * @return true if the item passes the filter
+     */
+    private boolean passesFilter(Filter filter, Object itemId, int row) {
+        if (filter instanceof Compare) {
+            Compare compare = (Compare) filter;
+            Column column = columns.get(compare.getPropertyId());
+            Object value = compare.getValue();
+            if (column != null && value != null
+                    && value.getClass() == column.getValueType()) {
+                if (column.isNull(row)) {
+                    // null is greater than any value in Compare
+                    switch (compare.getOperation()) {
+                    case GREATER:
+                    case GREATER_OR_EQUAL:
+                        return true;
+                    default:
+                        return false;
+                    }
+                }
+                int result = column.compareTo(row, value);
+                switch (compare.getOperation()) {
+                case EQUAL:
+                    return result == 0;
+                case GREATER:
+                    return result > 0;
+                case LESS:
+                    return result < 0;
+                case GREATER_OR_EQUAL:
+                    return result >= 0;
+                case LESS_OR_EQUAL:
+                    return result <= 0;
+                }
+            }
+        } else if (filter instanceof IsNull) {
+            Column column = columns.get(((IsNull) filter).getPropertyId());
+            if (column != null) {
+                return column.isNull(row);
+            }
+        } else if (filter instanceof SimpleStringFilter) {
+            SimpleStringFilter stringFilter = (SimpleStringFilter) filter;
+            Column column = columns.get(stringFilter.getPropertyId());
+            if (column instanceof StringColumn) {
+                return passesStringFilter(stringFilter, (StringColumn) column,
+                        row);
+            } else if (column != null) {
+                return passesStringFilter(stringFilter, column.get(row));
+            }
+        } else if (filter instanceof And) {
+            for (Filter subFilter : ((And) filter).getFilters()) {
+                if (!passesFilter(subFilter, itemId, row)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (filter instanceof Or) {
+            for (Filter subFilter : ((Or) filter).getFilters()) {
+                if (passesFilter(subFilter, itemId, row)) {
+                    return true;
+                }
+            }
+            return false;
+        } else if (filter instanceof Not) {
+            return !passesFilter(((Not) filter).getFilter(), itemId, row);
+        }
+        return filter.passesFilter(itemId, getUnfilteredItem(itemId));
+    }
+
+    /**
+     * Evaluates a string filter for a row of a string column, evaluating the
+     * filter only once for each distinct string during a filtering pass.
+     */
+    private boolean passesStringFilter(SimpleStringFilter filter,
+            StringColumn column, int row) {
+        int code = column.getCode(row);
+        if (code < 0) {
+            return false;
+        } else if (stringFilterResults == null) {
+            // not filtering the whole container
+            return passesStringFilter(filter, column.getDictionaryValue(code));
+        }
+        byte[] results = stringFilterResults.get(filter);
+        if (results == null || results.length <= code) {
+            byte[] newResults = new byte[column.getDictionarySize()];
+            if (results != null) {
+                System.arraycopy(results, 0, newResults, 0, results.length);
+            }
+            results = newResults;
+            stringFilterResults.put(filter, results);
+        }
+        if (results[code] == 0) {
+            results[code] = passesStringFilter(filter,
+                    column.getDictionaryValue(code)) ? (byte) 1 : (byte) 2;
+        }
+        return results[code] == 1;
+    }
+
+    /**
+     * Evaluates a string filter for a value the same way as
+     * {@link SimpleStringFilter#passesFilter(Object, Item)}.
+     */
+    private static boolean passesStringFilter(SimpleStringFilter filter,
+            Object propertyValue) {
+        if (propertyValue == null) {
+            return false;
+        }
+        final String value = filter.isIgnoreCase()
+                ? propertyValue.toString().toLowerCase()
+                : propertyValue.toString();
+        if (filter.isOnlyMatchPrefix()) {
+            return value.startsWith(filter.getFilterString());
+        } else {
+            return value.contains(filter.getFilterString());
+        }
+    }
+
+    @Override
+    public void addContainerFilter(Object propertyId, String filterString,
+            boolean ignoreCase, boolean onlyMatchPrefix) {
+        try {
+            addFilter(new SimpleStringFilter(propertyId, filterString,
+                    ignoreCase, onlyMatchPrefix));
+        } catch (UnsupportedFilterException e) {
+            // the filter instance created here is always valid for in-memory
+            // containers
+        }
+    }
+
+    @Override
+    public void removeAllContainerFilters() {
+        removeAllFilters();
+    }
+
+    @Override
+    public void removeContainerFilters(Object propertyId) {
+        removeFilters(propertyId);
+    }
+
+    @Override
+    public void addContainerFilter(Filter filter)
+            throws UnsupportedFilterException {
+        addFilter(filter);
+    }
+
+    @Override
+    public void removeContainerFilter(Filter filter) {
+        removeFilter(filter);
+    }
+
+    /**
+     * Replaces a container filter with another one, re-filtering the container
+     * only once.
+     *
+     * @see IndexedContainer#replaceContainerFilter(Filter, Filter)
+     *
+     * @param oldFilter
+     *            the filter to remove
+     * @param newFilter
+     *            the filter to add
+     * @throws UnsupportedFilterException
+     *             if the new filter is not supported by the container
+     */
+    public void replaceContainerFilter(Filter oldFilter, Filter newFilter)
+            throws UnsupportedFilterException {
+        replaceFilter(oldFilter, newFilter);
+    }
+
+    @Override
+    public boolean hasContainerFilters() {
+        return super.hasContainerFilters();
+    }
+
+    @Override
+    public Collection<Filter> getContainerFilters() {
+        return super.getContainerFilters();
+    }
+
+    /**
+     * Adds a secondary index for a property of the container.
+     *
+     * @see IndexedContainer#addContainerIndex(PropertyIndex)
+     *
+     * @param index
+     *            the index to add, not <code>null</code>
+     * @throws IllegalArgumentException
+     *             if the container does not have the indexed property
+     */
+    public void addContainerIndex(PropertyIndex index) {
+        addIndex(index);
+    }
+
+    /**
+     * Removes a secondary index from the container.
+     *
+     * @param index
+     *            the index to remove
+     * @return true if the index was removed, false if it was not used by the
+     *         container
+     */
+    public boolean removeContainerIndex(PropertyIndex index) {
+        return removeIndex(index);
+    }
+
+    /**
+     * Gets the secondary indexes of the container.
+     *
+     * @return an unmodifiable collection of indexes
+     */
+    public Collection<PropertyIndex> getContainerIndexes() {
+        return getIndexes();
+    }
+
+    /* Sorting */
+
+    @Override
+    public void sort(Object[] propertyId, boolean[] ascending) {
+        sortContainer(propertyId, ascending);
+    }
+
+    @Override
+    public Collection<?> getSortableContainerPropertyIds() {
+        return getSortablePropertyIds();
+    }
+
+    /**
+     * Gets the item sorter of the container. By default, the container uses an
+     * item sorter which compares the values in the columns directly.
+     *
+     * @return the item sorter
+     */
+    @Override
+    public ItemSorter getItemSorter() {
+        return super.getItemSorter();
+    }
+
+    /**
+     * Sets the item sorter of the container. Setting a custom item sorter
+     * disables sorting directly on the columns.
+     *
+     * @param itemSorter
+     *            the item sorter to use, or <code>null</code> to use the
+     *            default sorter
+     */
+    @Override
+    public void setItemSorter(ItemSorter itemSorter) {
+        super.setItemSorter(itemSorter == null ? columnItemSorter : itemSorter);
+    }
+
+    /**
+     * Item sorter comparing the values of the sorted properties directly in
+     * their columns. Null values are smaller than other values like in
+     * {@link DefaultItemSorter}.
+     */
+    private class ColumnItemSorter implements BulkItemSorter {
+        private static final long serialVersionUID = 1L;
+
+        private Object[] sortPropertyIds = new Object[0];
+        private boolean[] sortDirections = new boolean[0];
+
+        @Override
+        public void setSortProperties(Sortable container, Object[] propertyId,
+                boolean[] ascending) {
+            Collection<?> sortable = container
+                    .getSortableContainerPropertyIds();
+            List<Object> ids = new ArrayList<Object>();
+            List<Boolean> directions = new ArrayList<Boolean>();
+            for (int i = 0; i < propertyId.length; i++) {
+                if (sortable.contains(propertyId[i])) {
+                    ids.add(propertyId[i]);
+                    directions.add(i < ascending.length ? ascending[i] : true);
+                }
+            }
+            sortPropertyIds = ids.toArray();
+            sortDirections = new boolean[directions.size()];
+            for (int i = 0; i < sortDirections.length; i++) {
+                sortDirections[i] = directions.get(i);
+            }
+        }
+
+        @Override
+        public int compare(Object itemId1, Object itemId2) {
+            return getRowComparator().compare(getRow(itemId1),
+                    getRow(itemId2));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> void sortItemIds(List<T> itemIds) {
+            Integer[] sortedRows = new Integer[itemIds.size()];
+            int i = 0;
+            for (T itemId : itemIds) {
+                int row = getRow(itemId);
+                if (row < 0) {
+                    // not an item of this container
+                    Collections.sort(itemIds, this);
+                    return;
+                }
+                sortedRows[i++] = row;
+            }
+            // stable like Collections.sort()
+            Arrays.sort(sortedRows, getRowComparator());
+
+            ListIterator<T> iterator = itemIds.listIterator();
+            for (Integer row : sortedRows) {
+                iterator.next();
+                iterator.set((T) rowItemIds[row]);
+            }
+        }
+
+        /**
+         * Gets a comparator for the rows of the container using the current
+         * sort properties.
+         */
+        private Comparator<Integer> getRowComparator() {
+            final Column[] sortColumns = new Column[sortPropertyIds.length];
+            for (int i = 0; i < sortColumns.length; i++) {
+                sortColumns[i] = columns.get(sortPropertyIds[i]);
+                if (sortColumns[i] != null) {
+                    sortColumns[i].prepareSort();
+                }
+            }
+            final boolean[] directions = sortDirections;
+            return new Comparator<Integer>() {
+                @Override
+                public int compare(Integer row1, Integer row2) {
+                    // rows of removed items are greater than other rows
+                    if (row1 < 0 || row2 < 0) {
+                        return row1 < 0 ? (row2 < 0 ? 0 : 1) : -1;
+                    }
+                    for (int i = 0; i < sortColumns.length; i++) {
+                        Column column = sortColumns[i];
+                        if (column == null) {
+                            continue;
+                        }
+                        int result;
+                        boolean null1 = column.isNull(row1);
+                        boolean null2 = column.isNull(row2);
+                        if (null1 || null2) {
+                            result = null1 == null2 ? 0 : (null1 ? -1 : 1);
+                        } else {
+                            result = column.compare(row1, row2);
+                        }
+                        if (result != 0) {
+                            return directions[i] ? result : -result;
+                        }
+                    }
+                    return 0;
+                }
+            };
+        }
+    }
+
+    /* Event notifiers */
+
+    /**
+     * An <code>event</code> object specifying the Property whose value has
+     * changed.
+     */
+    private static class PropertyValueChangeEvent extends EventObject
+            implements Property.ValueChangeEvent, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private PropertyValueChangeEvent(Property<?> source) {
+            super(source);
+        }
+
+        @Override
+        public Property<?> getProperty() {
+            return (Property) getSource();
+        }
+
+    }
+
+    @Override
+    public void addPropertySetChangeListener(
+            Container.PropertySetChangeListener listener) {
+        super.addPropertySetChangeListener(listener);
+    }
+
+    /**
+     * @deprecated As of 7.0, replaced by
+     *             {@link #addPropertySetChangeListener(Container.PropertySetChangeListener)}
+     **/
+    @Deprecated
+    @Override
+    public void addListener(Container.PropertySetChangeListener listener) {
+        addPropertySetChangeListener(listener);
+    }
+
+    @Override
+    public void removePropertySetChangeListener(
+            Container.PropertySetChangeListener listener) {
+        super.removePropertySetChangeListener(listener);
+    }
+
+    /**
+     * @deprecated As of 7.0, replaced by
+     *             {@link #removePropertySetChangeListener(Container.PropertySetChangeListener)}
+     **/
+    @Deprecated
+    @Override
+    public void removeListener(Container.PropertySetChangeListener listener) {
+        removePropertySetChangeListener(listener);
+    }
+
+    @Override
+    public void addValueChangeListener(Property.ValueChangeListener listener) {
+        if (propertyValueChangeListeners == null) {
+            propertyValueChangeListeners = new LinkedList<Property.ValueChangeListener>();
+        }
+        propertyValueChangeListeners.add(listener);
+    }
+
+    /**
+     * @deprecated As of 7.0, replaced by
+     *             {@link #addValueChangeListener(Property.ValueChangeListener)}
+     **/
+    @Override
+    @Deprecated
+    public void addListener(Property.ValueChangeListener listener) {
+        addValueChangeListener(listener);
+    }
+
+    @Override
+    public void removeValueChangeListener(
+            Property.ValueChangeListener listener) {
+        if (propertyValueChangeListeners != null) {
+            propertyValueChangeListeners.remove(listener);
+        }
+    }
+
+    /**
+     * @deprecated As of 7.0, replaced by
+     *             {@link #removeValueChangeListener(Property.ValueChangeListener)}
+     **/
+    @Override
+    @Deprecated
+    public void removeListener(Property.ValueChangeListener listener) {
+        removeValueChangeListener(listener);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * An item change event is sent whenever a property value is changed
+     * through the properties of this container.
+     *
+     * @since 7.7.24
+     */
+    @Override
+    public void addItemChangeListener(Container.ItemChangeListener listener) {
+        super.addItemChangeListener(listener);
+    }
+
+    @Override
+    public void removeItemChangeListener(
+            Container.ItemChangeListener listener) {
+        super.removeItemChangeListener(listener);
+    }
+
+    /**
+     * Sends a Property value change event to all interested listeners.
+     *
+     * @param source
+     *            the changed property
+     */
+    private void firePropertyValueChange(
+            ColumnarContainerProperty<?> source) {
+
+        // Sends event to listeners listening all value changes
+        if (propertyValueChangeListeners != null) {
+            final Object[] l = propertyValueChangeListeners.toArray();
+            final Property.ValueChangeEvent event = new PropertyValueChangeEvent(
+                    source);
+            for (int i = 0; i < l.length; i++) {
+                ((Property.ValueChangeListener) l[i]).valueChange(event);
+            }
+        }
+
+        // Sends event to single property value change listeners
+        if (singlePropertyValueChangeListeners != null) {
+            final List<Property.ValueChangeListener> listenerList = singlePropertyValueChangeListeners
+                    .get(source);
+            if (listenerList != null) {
+                final Property.ValueChangeEvent event = new PropertyValueChangeEvent(
+                        source);
+                Object[] listeners = listenerList.toArray();
+                for (int i = 0; i < listeners.length; i++) {
+                    ((Property.ValueChangeListener) listeners[i])
+                            .valueChange(event);
+                }
+            }
+        }
+
+        fireItemChange(source.itemId);
+    }
+
+    @Override
+    public Collection<?> getListeners(Class<?> eventType) {
+        if (Property.ValueChangeEvent.class.isAssignableFrom(eventType)) {
+            if (propertyValueChangeListeners == null) {
+                return Collections.EMPTY_LIST;
+            } else {
+                return Collections
+                        .unmodifiableCollection(propertyValueChangeListeners);
+            }
+        }
+        return super.getListeners(eventType);
+    }
+
+    private void addSinglePropertyChangeListener(
+            ColumnarContainerProperty<?> property,
+            Property.ValueChangeListener listener) {
+        if (listener != null) {
+            if (singlePropertyValueChangeListeners == null) {
+                singlePropertyValueChangeListeners = new HashMap<Property<?>, List<Property.ValueChangeListener>>();
+            }
+            List<Property.ValueChangeListener> listenerList = singlePropertyValueChangeListeners
+                    .get(property);
+            if (listenerList == null) {
+                listenerList = new LinkedList<Property.ValueChangeListener>();
+                singlePropertyValueChangeListeners.put(property, listenerList);
+            }
+            listenerList.add(listener);
+        }
+    }
+
+    private void removeSinglePropertyChangeListener(
+            ColumnarContainerProperty<?> property,
+            Property.ValueChangeListener listener) {
+        if (listener != null && singlePropertyValueChangeListeners != null) {
+            List<Property.ValueChangeListener> listenerList = singlePropertyValueChangeListeners
+                    .get(property);
+            if (listenerList != null) {
+                listenerList.remove(listener);
+                if (listenerList.isEmpty()) {
+                    singlePropertyValueChangeListeners.remove(property);
+                }
+            }
+            if (singlePropertyValueChangeListeners.isEmpty()) {
+                singlePropertyValueChangeListeners = null;
+            }
+        }
+    }
+
+    /* Internal Item and Property implementations */
+
+    /**
+     * An {@link Item} reading its properties from the columns of the
+     * container.
+     */
+    private class ColumnarContainerItem implements Item {
+        private static final long serialVersionUID = 1L;
+
+        private final Object itemId;
+
+        private ColumnarContainerItem(Object itemId) {
+            this.itemId = itemId;
+        }
+
+        @Override
+        public Property<?> getItemProperty(Object id) {
+            if (id == null || !types.containsKey(id)) {
+                return null;
+            }
+
+            return new ColumnarContainerProperty<Object>(itemId, id);
+        }
+
+        @Override
+        public Collection<?> getItemPropertyIds() {
+            return Collections.unmodifiableCollection(propertyIds);
+        }
+
+        @Override
+        public String toString() {
+            String retValue = "";
+
+            for (final Iterator<?> i = propertyIds.iterator(); i.hasNext();) {
+                final Object propertyId = i.next();
+                retValue += getItemProperty(propertyId).getValue();
+                if (i.hasNext()) {
+                    retValue += " ";
+                }
+            }
+
+            return retValue;
+        }
+
+        @Override
+        public int hashCode() {
+            return itemId.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null
+                    || !obj.getClass().equals(ColumnarContainerItem.class)) {
+                return false;
+            }
+            final ColumnarContainerItem other = (ColumnarContainerItem) obj;
+            return getHost() == other.getHost() && itemId.equals(other.itemId);
+        }
+
+        private ColumnarContainer getHost() {
+            return ColumnarContainer.this;
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public boolean addItemProperty(Object id, Property property)
+                throws UnsupportedOperationException {
+            throw new UnsupportedOperationException("Columnar container item "
+                    + "does not support adding new properties");
+        }
+
+        @Override
+        public boolean removeItemProperty(Object id)
+                throws UnsupportedOperationException {
+            throw new UnsupportedOperationException(
+                    "Columnar container item does not support property removal");
+        }
+
+    }
+
+    /**
+     * A {@link Property} reading and writing a value in a column of the
+     * container.
+     */
+    private class ColumnarContainerProperty<T>
+            implements Property<T>, Property.ValueChangeNotifier {
+        private static final long serialVersionUID = 1L;
+
+        private final Object itemId;
+
+        private final Object propertyId;
+
+        private ColumnarContainerProperty(Object itemId, Object propertyId) {
+            if (itemId == null || propertyId == null) {
+                // Null ids are not accepted
+                throw new NullPointerException(
+                        "Container item or property ids can not be null");
+            }
+            this.propertyId = propertyId;
+            this.itemId = itemId;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Class<T> getType() {
+            return (Class<T>) types.get(propertyId);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T getValue() {
+            return (T) columns.get(propertyId).get(getRow(itemId));
+        }
+
+        @Override
+        public boolean isReadOnly() {
+            return readOnlyProperties.contains(this);
+        }
+
+        @Override
+        public void setReadOnly(boolean newStatus) {
+            if (newStatus) {
+                readOnlyProperties.add(this);
+            } else {
+                readOnlyProperties.remove(this);
+            }
+        }
+
+        @Override
+        public void setValue(Object newValue)
+                throws Property.ReadOnlyException {
+            // Support null values on all types
+            if (newValue != null) {
+                checkValueType(getType(), newValue);
+            }
+            columns.get(propertyId).set(getRow(itemId), newValue);
+
+            updateIndexes(itemId, propertyId, newValue);
+
+            // update the container filtering if this property is being filtered
+            if (isPropertyFiltered(propertyId)) {
+                filterAll();
+            }
+
+            firePropertyValueChange(this);
+        }
+
+        /**
+         * @deprecated As of 7.0. To get the property value, use
+         *             {@link #getValue()} instead (and possibly toString on
+         *             that)
+         */
+        @Deprecated
+        @Override
+        public String toString() {
+            if (!LegacyPropertyHelper.isLegacyToStringEnabled()) {
+                return super.toString();
+            } else {
+                return LegacyPropertyHelper.legacyPropertyToString(this);
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return itemId.hashCode() ^ propertyId.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null || !obj.getClass()
+                    .equals(ColumnarContainerProperty.class)) {
+                return false;
+            }
+            final ColumnarContainerProperty<?> other = (ColumnarContainerProperty<?>) obj;
+            return other.getHost() == getHost()
+                    && other.propertyId.equals(propertyId)
+                    && other.itemId.equals(itemId);
+        }
+
+        @Override
+        public void addValueChangeListener(
+                Property.ValueChangeListener listener) {
+            addSinglePropertyChangeListener(this, listener);
+        }
+
+        /**
+         * @deprecated As of 7.0, replaced by
+         *             {@link #addValueChangeListener(Property.ValueChangeListener)}
+         **/
+        @Override
+        @Deprecated
+        public void addListener(Property.ValueChangeListener listener) {
+            addValueChangeListener(listener);
+        }
+
+        @Override
+        public void removeValueChangeListener(
+                Property.ValueChangeListener listener) {
+            removeSinglePropertyChangeListener(this, listener);
+        }
+
+        /**
+         * @deprecated As of 7.0, replaced by
+         *             {@link #removeValueChangeListener(Property.ValueChangeListener)}
+         **/
+        @Override
+        @Deprecated
+        public void removeListener(Property.ValueChangeListener listener) {
+            removeValueChangeListener(listener);
+        }
+
+        private ColumnarContainer getHost() {
+            return ColumnarContainer.this;
+        }
+
+    }
+
+    /* Column implementations */
+
+    /**
+     * The values of one property for all rows.
+     */
+    private static abstract class Column implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Gets the class of the non-null values in this column.
+         */
+        abstract Class<?> getValueType();
+
+        /**
+         * Makes room for at least the given number of rows.
+         */
+        abstract void ensureCapacity(int capacity);
+
+        abstract Object get(int row);
+
+        /**
+         * Sets the value of a row, the value is <code>null</code> or of the
+         * value type of the column.
+         */
+        abstract void set(int row, Object value);
+
+        abstract boolean isNull(int row);
+
+        /**
+         * Copies the value of a row to another row.
+         */
+        abstract void move(int fromRow, int toRow);
+
+        /**
+         * Compares the non-null values of two rows.
+         */
+        abstract int compare(int row1, int row2);
+
+        /**
+         * Compares the non-null value of a row with a value of the value type
+         * of the column.
+         */
+        abstract int compareTo(int row, Object value);
+
+        /**
+         * Removes all values.
+         */
+        abstract void clear();
+
+        /**
+         * Called before the column is used for sorting.
+         */
+        void prepareSort() {
+        }
+    }
+
+    /**
+     * Base class for columns of primitive values, keeping track of the null
+     * values separately.
+     */
+    private static abstract class PrimitiveColumn extends Column {
+        private static final long serialVersionUID = 1L;
+
+        protected final BitSet nulls = new BitSet();
+
+        @Override
+        void set(int row, Object value) {
+            if (value == null) {
+                nulls.set(row);
+            } else {
+                nulls.clear(row);
+                setValue(row, value);
+            }
+        }
+
+        abstract void setValue(int row, Object value);
+
+        @Override
+        boolean isNull(int row) {
+            return nulls.get(row);
+        }
+
+        @Override
+        Object get(int row) {
+            return nulls.get(row) ? null : getValue(row);
+        }
+
+        abstract Object getValue(int row);
+
+        @Override
+        void move(int fromRow, int toRow) {
+            nulls.set(toRow, nulls.get(fromRow));
+            moveValue(fromRow, toRow);
+        }
+
+        abstract void moveValue(int fromRow, int toRow);
+
+        @Override
+        void ensureCapacity(int capacity) {
+            int oldCapacity = getCapacity();
+            if (capacity > oldCapacity) {
+                setCapacity(capacity);
+                // new rows are null
+                nulls.set(oldCapacity, capacity);
+            }
+        }
+
+        abstract int getCapacity();
+
+        abstract void setCapacity(int capacity);
+
+        @Override
+        void clear() {
+            nulls.clear();
+            setCapacity(0);
+        }
+    }
+
+    private static class IntColumn extends PrimitiveColumn {
+        private static final long serialVersionUID = 1L;
+
+        private int[] values = new int[0];
+
+        @Override
+        Class<?> getValueType() {
+            return Integer.class;
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values[row] = ((Integer) value).intValue();
+        }
+
+        @Override
+        Object getValue(int row) {
+            return Integer.valueOf(values[row]);
+        }
+
+        @Override
+        void moveValue(int fromRow, int toRow) {
+            values[toRow] = values[fromRow];
+        }
+
+        @Override
+        int compare(int row1, int row2) {
+            return compareValues(values[row1], values[row2]);
+        }
+
+        @Override
+        int compareTo(int row, Object value) {
+            return compareValues(values[row], ((Integer) value).intValue());
+        }
+
+        private static int compareValues(int value1, int value2) {
+            return value1 < value2 ? -1 : (value1 == value2 ? 0 : 1);
+        }
+
+        @Override
+        int getCapacity() {
+            return values.length;
+        }
+
+        @Override
+        void setCapacity(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    private static class LongColumn extends PrimitiveColumn {
+        private static final long serialVersionUID = 1L;
+
+        private long[] values = new long[0];
+
+        @Override
+        Class<?> getValueType() {
+            return Long.class;
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values[row] = ((Long) value).longValue();
+        }
+
+        @Override
+        Object getValue(int row) {
+            return Long.valueOf(values[row]);
+        }
+
+        @Override
+        void moveValue(int fromRow, int toRow) {
+            values[toRow] = values[fromRow];
+        }
+
+        @Override
+        int compare(int row1, int row2) {
+            return compareValues(values[row1], values[row2]);
+        }
+
+        @Override
+        int compareTo(int row, Object value) {
+            return compareValues(values[row], ((Long) value).longValue());
+        }
+
+        private static int compareValues(long value1, long value2) {
+            return value1 < value2 ? -1 : (value1 == value2 ? 0 : 1);
+        }
+
+        @Override
+        int getCapacity() {
+            return values.length;
+        }
+
+        @Override
+        void setCapacity(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    private static class DoubleColumn extends PrimitiveColumn {
+        private static final long serialVersionUID = 1L;
+
+        private double[] values = new double[0];
+
+        @Override
+        Class<?> getValueType() {
+            return Double.class;
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values[row] = ((Double) value).doubleValue();
+        }
+
+        @Override
+        Object getValue(int row) {
+            return Double.valueOf(values[row]);
+        }
+
+        @Override
+        void moveValue(int fromRow, int toRow) {
+            values[toRow] = values[fromRow];
+        }
+
+        @Override
+        int compare(int row1, int row2) {
+            // same ordering as Double.compareTo()
+            return Double.compare(values[row1], values[row2]);
+        }
+
+        @Override
+        int compareTo(int row, Object value) {
+            return Double.compare(values[row], ((Double) value).doubleValue());
+        }
+
+        @Override
+        int getCapacity() {
+            return values.length;
+        }
+
+        @Override
+        void setCapacity(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    private static class BooleanColumn extends PrimitiveColumn {
+        private static final long serialVersionUID = 1L;
+
+        private final BitSet values = new BitSet();
+        private int capacity = 0;
+
+        @Override
+        Class<?> getValueType() {
+            return Boolean.class;
+        }
+
+        @Override
+        void setValue(int row, Object value) {
+            values.set(row, ((Boolean) value).booleanValue());
+        }
+
+        @Override
+        Object getValue(int row) {
+            return Boolean.valueOf(values.get(row));
+        }
+
+        @Override
+        void moveValue(int fromRow, int toRow) {
+            values.set(toRow, values.get(fromRow));
+        }
+
+        @Override
+        int compare(int row1, int row2) {
+            return compareValues(values.get(row1), values.get(row2));
+        }
+
+        @Override
+        int compareTo(int row, Object value) {
+            return compareValues(values.get(row), ((Boolean) value).booleanValue());
+        }
+
+        private static int compareValues(boolean value1, boolean value2) {
+            // same ordering as Boolean.compareTo()
+            return value1 == value2 ? 0 : (value1 ? 1 : -1);
+        }
+
+        @Override
+        int getCapacity() {
+            return capacity;
+        }
+
+        @Override
+        void setCapacity(int capacity) {
+            if (capacity < this.capacity) {
+                values.clear(capacity, this.capacity);
+            }
+            this.capacity = capacity;
+        }
+    }
+
+    /**
+     * Column of strings stored as indexes to a dictionary of distinct values.
+     * A string is removed from the dictionary when the last row using it is
+     * removed or changed.
+     */
+    private static class StringColumn extends Column {
+        private static final long serialVersionUID = 1L;
+
+        private int[] codes = new int[0];
+        private final ArrayList<String> dictionary = new ArrayList<String>();
+        private final HashMap<String, Integer> codesByString = new HashMap<String, Integer>();
+
+        /**
+         * The number of rows using each dictionary value. A value is removed
+         * from the dictionary and its code is reused when no row uses it.
+         */
+        private int[] referenceCounts = new int[0];
+        private final ArrayList<Integer> freeCodes = new ArrayList<Integer>();
+
+        /**
+         * The sort order of each dictionary value, only valid while sorting.
+         */
+        private transient int[] ranks;
+
+        @Override
+        Class<?> getValueType() {
+            return String.class;
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            int oldCapacity = codes.length;
+            if (capacity > oldCapacity) {
+                codes = Arrays.copyOf(codes, capacity);
+                Arrays.fill(codes, oldCapacity, capacity, -1);
+            }
+        }
+
+        int getCode(int row) {
+            return codes[row];
+        }
+
+        int getDictionarySize() {
+            return dictionary.size();
+        }
+
+        String getDictionaryValue(int code) {
+            return dictionary.get(code);
+        }
+
+        @Override
+        Object get(int row) {
+            int code = codes[row];
+            return code < 0 ? null : dictionary.get(code);
+        }
+
+        @Override
+        void set(int row, Object value) {
+            int code = value == null ? -1 : getOrAddCode((String) value);
+            setCode(row, code);
+        }
+
+        private int getOrAddCode(String value) {
+            Integer code = codesByString.get(value);
+            if (code != null) {
+                return code.intValue();
+            }
+            int newCode;
+            if (freeCodes.isEmpty()) {
+                newCode = dictionary.size();
+                dictionary.add(value);
+                if (newCode >= referenceCounts.length) {
+                    referenceCounts = Arrays.copyOf(referenceCounts,
+                            Math.max(16, referenceCounts.length * 2));
+                }
+            } else {
+                newCode = freeCodes.remove(freeCodes.size() - 1).intValue();
+                dictionary.set(newCode, value);
+            }
+            codesByString.put(value, Integer.valueOf(newCode));
+            ranks = null;
+            return newCode;
+        }
+
+        private void setCode(int row, int code) {
+            int oldCode = codes[row];
+            if (oldCode == code) {
+                return;
+            }
+            if (code >= 0) {
+                referenceCounts[code]++;
+            }
+            codes[row] = code;
+            if (oldCode >= 0 && --referenceCounts[oldCode] == 0) {
+                codesByString.remove(dictionary.get(oldCode));
+                dictionary.set(oldCode, null);
+                freeCodes.add(Integer.valueOf(oldCode));
+            }
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return codes[row] < 0;
+        }
+
+        @Override
+        void move(int fromRow, int toRow) {
+            setCode(toRow, codes[fromRow]);
+        }
+
+        @Override
+        void prepareSort() {
+            if (ranks == null) {
+                // Unused codes are left out, their rank is never read
+                Integer[] sortedCodes = new Integer[codesByString.size()];
+                int index = 0;
+                for (int i = 0; i < dictionary.size(); i++) {
+                    if (dictionary.get(i) != null) {
+                        sortedCodes[index++] = i;
+                    }
+                }
+                Arrays.sort(sortedCodes, new Comparator<Integer>() {
+                    @Override
+                    public int compare(Integer code1, Integer code2) {
+                        return dictionary.get(code1)
+                                .compareTo(dictionary.get(code2));
+                    }
+                });
+                int[] newRanks = new int[dictionary.size()];
+                for (int i = 0; i < sortedCodes.length; i++) {
+                    newRanks[sortedCodes[i]] = i;
+                }
+                ranks = newRanks;
+            }
+        }
+
+        @Override
+        int compare(int row1, int row2) {
+            int code1 = codes[row1];
+            int code2 = codes[row2];
+            if (code1 == code2) {
+                return 0;
+            } else if (ranks != null) {
+                return ranks[code1] < ranks[code2] ? -1 : 1;
+            } else {
+                return dictionary.get(code1).compareTo(dictionary.get(code2));
+            }
+        }
+
+        @Override
+        int compareTo(int row, Object value) {
+            return dictionary.get(codes[row]).compareTo((String) value);
+        }
+
+        @Override
+        void clear() {
+            codes = new int[0];
+            dictionary.clear();
+            codesByString.clear();
+            referenceCounts = new int[0];
+            freeCodes.clear();
+            ranks = null;
+        }
+    }
+
+    /**
+     * Column of values of any other type.
+     */
+    private static class ObjectColumn extends Column {
+        private static final long serialVersionUID = 1L;
+
+        private Object[] values = new Object[0];
+
+        @Override
+        Class<?> getValueType() {
+            // compared through the filters and the Comparable interface
+            return null;
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (capacity > values.length) {
+                values = Arrays.copyOf(values, capacity);
+            }
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        void set(int row, Object value) {
+            values[row] = value;
+        }
+
+        @Override
+        boolean isNull(int row) {
+            return values[row] == null;
+        }
+
+        @Override
+        void move(int fromRow, int toRow) {
+            values[toRow] = values[fromRow];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        int compare(int row1, int row2) {
+            return ((Comparable<Object>) values[row1]).compareTo(values[row2]);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        int compareTo(int row, Object value) {
+            return ((Comparable<Object>) values[row]).compareTo(value);
+        }
+
+        @Override
+        void clear() {
+            values = new Object[0];
+        }
+    }
+}
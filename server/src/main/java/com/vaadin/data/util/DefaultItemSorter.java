@@ -17,9 +17,12 @@ package com.vaadin.data.util;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.ListIterator;
 
 import com.vaadin.data.Container;
 import com.vaadin.data.Container.Sortable;
@@ -36,9 +39,12 @@ import com.vaadin.data.Property;
  * A Comparator is used for comparing the individual <code>Property</code>
  * values. The comparator can be set using the constructor. If no comparator is
  * provided a default comparator is used.
+ * <p>
+ * When sorting a list of item ids with {@link #sortItemIds(List)}, the values
+ * of the sorted properties are read only once for each item.
  *
  */
-public class DefaultItemSorter implements ItemSorter {
+public class DefaultItemSorter implements BulkItemSorter {
 
     private java.lang.Object[] sortPropertyIds;
     private boolean[] sortDirections;
@@ -153,6 +159,99 @@ public class DefaultItemSorter implements ItemSorter {
         return r;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The values of the sorted properties are read once for each item, after
+     * which the items are sorted by comparing the values with the property
+     * value comparator. If a subclass overrides {@link #compare(Object, Object)}
+     * or {@link #compareProperty(Object, boolean, Item, Item)}, the list is
+     * sorted using {@link #compare(Object, Object)} instead.
+     *
+     * @since 7.7.24
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> void sortItemIds(List<T> itemIds) {
+        if (isComparisonOverridden()) {
+            Collections.sort(itemIds, this);
+            return;
+        }
+
+        // The item id followed by the sort property values, or only the item
+        // id if there is no item
+        Object[][] keys = new Object[itemIds.size()][];
+        int index = 0;
+        for (T itemId : itemIds) {
+            Item item = container.getItem(itemId);
+            Object[] key = new Object[item == null ? 1
+                    : sortPropertyIds.length + 1];
+            key[0] = itemId;
+            if (item != null) {
+                for (int i = 0; i < sortPropertyIds.length; i++) {
+                    Property<?> property = item
+                            .getItemProperty(sortPropertyIds[i]);
+                    key[i + 1] = property == null ? null : property.getValue();
+                }
+            }
+            keys[index++] = key;
+        }
+
+        // Arrays.sort() is stable like Collections.sort()
+        Arrays.sort(keys, new Comparator<Object[]>() {
+            @Override
+            public int compare(Object[] key1, Object[] key2) {
+                // Missing items are greater than other items like in
+                // DefaultItemSorter.compare()
+                if (key1.length == 1 || key2.length == 1) {
+                    return key1.length == key2.length ? 0
+                            : (key1.length == 1 ? 1 : -1);
+                }
+                for (int i = 0; i < sortPropertyIds.length; i++) {
+                    int result = sortDirections[i]
+                            ? propertyValueComparator.compare(key1[i + 1],
+                                    key2[i + 1])
+                            : propertyValueComparator.compare(key2[i + 1],
+                                    key1[i + 1]);
+                    if (result != 0) {
+                        return result;
+                    }
+                }
+                return 0;
+            }
+        });
+
+        ListIterator<T> iterator = itemIds.listIterator();
+        for (Object[] key : keys) {
+            iterator.next();
+            iterator.set((T) key[0]);
+        }
+    }
+
+    /**
+     * Checks whether a subclass changes how two items are compared, in which
+     * case the property values cannot be read in advance.
+     */
+    private boolean isComparisonOverridden() {
+        for (Class<?> type = getClass(); type != DefaultItemSorter.class; type = type
+                .getSuperclass()) {
+            try {
+                type.getDeclaredMethod("compare", Object.class, Object.class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // not overridden in this class
+            }
+            try {
+                type.getDeclaredMethod("compareProperty", Object.class,
+                        boolean.class, Item.class, Item.class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // not overridden in this class
+            }
+        }
+        return false;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -277,6 +277,38 @@ public class GeneratedPropertyContainer extends AbstractContainer
 
     }
 
+    /**
+     * Item ranges remove event fired when the wrapped container fires one.
+     *
+     * @since 7.7.24
+     */
+    protected class GeneratedItemRangesRemoveEvent
+            implements ItemRangesRemoveEvent {
+
+        private final int[] firstIndexes;
+        private final int[] counts;
+
+        protected GeneratedItemRangesRemoveEvent(ItemRangesRemoveEvent event) {
+            firstIndexes = event.getFirstIndexes();
+            counts = event.getRemovedItemsCounts();
+        }
+
+        @Override
+        public Container getContainer() {
+            return GeneratedPropertyContainer.this;
+        }
+
+        @Override
+        public int[] getFirstIndexes() {
+            return firstIndexes.clone();
+        }
+
+        @Override
+        public int[] getRemovedItemsCounts() {
+            return counts.clone();
+        }
+    }
+
     /**
      * Constructor for GeneratedPropertyContainer.
      *
@@ -314,6 +346,10 @@ public class GeneratedPropertyContainer extends AbstractContainer
                                 final ItemRemoveEvent removeEvent = (ItemRemoveEvent) event;
                                 fireItemSetChange(new GeneratedItemRemoveEvent(
                                         removeEvent));
+                            } else if (event instanceof ItemRangesRemoveEvent) {
+                                fireItemSetChange(
+                                        new GeneratedItemRangesRemoveEvent(
+                                                (ItemRangesRemoveEvent) event));
                             } else {
                                 fireItemSetChange();
                             }
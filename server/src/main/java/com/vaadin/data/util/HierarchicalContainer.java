@@ -630,9 +630,9 @@ public class HierarchicalContainer extends IndexedContainer
     protected void doSort() {
         super.doSort();
 
-        Collections.sort(roots, getItemSorter());
+        sortItemIds(roots);
         for (LinkedList<Object> childList : children.values()) {
-            Collections.sort(childList, getItemSorter());
+            sortItemIds(childList);
         }
     }
 
@@ -815,6 +815,15 @@ public class HierarchicalContainer extends IndexedContainer
         }
     }
 
+    @Override
+    protected Set<Object> findFilterCandidates() {
+        if (filterOverride != null) {
+            // the items to include have already been determined
+            return filterOverride;
+        }
+        return super.findFilterCandidates();
+    }
+
     private static final Logger getLogger() {
         return Logger.getLogger(HierarchicalContainer.class.getName());
     }
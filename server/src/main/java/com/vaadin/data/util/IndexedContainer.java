@@ -35,6 +35,7 @@ import com.vaadin.data.Item;
 import com.vaadin.data.Property;
 import com.vaadin.data.util.filter.SimpleStringFilter;
 import com.vaadin.data.util.filter.UnsupportedFilterException;
+import com.vaadin.data.util.index.PropertyIndex;
 
 /**
  * An implementation of the <code>{@link Container.Indexed}</code> interface
@@ -64,7 +65,8 @@ public class IndexedContainer
         extends AbstractInMemoryContainer<Object, Object, Item>
         implements Container.PropertySetChangeNotifier,
         Property.ValueChangeNotifier, Container.Sortable, Cloneable,
-        Container.Filterable, Container.SimpleFilterable {
+        Container.Filterable, Container.SimpleFilterable,
+        Container.ItemChangeNotifier {
 
     /* Internal structure */
 
@@ -305,6 +307,7 @@ public class IndexedContainer
         if (defaultPropertyValues != null) {
             defaultPropertyValues.remove(propertyId);
         }
+        removeIndexes(propertyId);
 
         // If remove the Property from all Items
         for (final Iterator<Object> i = getAllItemIds().iterator(); i
@@ -511,6 +514,25 @@ public class IndexedContainer
         removeValueChangeListener(listener);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * An item change event is sent whenever a property value is changed
+     * through the properties of this container.
+     *
+     * @since 7.7.24
+     */
+    @Override
+    public void addItemChangeListener(Container.ItemChangeListener listener) {
+        super.addItemChangeListener(listener);
+    }
+
+    @Override
+    public void removeItemChangeListener(
+            Container.ItemChangeListener listener) {
+        super.removeItemChangeListener(listener);
+    }
+
     /**
      * Sends a Property value change event to all interested listeners.
      *
@@ -548,6 +570,7 @@ public class IndexedContainer
             }
         }
 
+        fireItemChange(source.itemId);
     }
 
     @Override
@@ -859,6 +882,8 @@ public class IndexedContainer
                                 + getType().getName() + " was expected");
             }
 
+            updateIndexes(itemId, propertyId, newValue);
+
             // update the container filtering if this property is being filtered
             if (isPropertyFiltered(propertyId)) {
                 filterAll();
@@ -1093,6 +1118,27 @@ public class IndexedContainer
         removeFilter(filter);
     }
 
+    /**
+     * Replaces a container filter with another one, re-filtering the container
+     * only once. When the new filter is more restrictive than the old one,
+     * e.g. when a character is added to the filter string of a prefix
+     * matching {@link SimpleStringFilter}, only the items visible before are
+     * checked and only the removed items are reported to listeners.
+     *
+     * @param oldFilter
+     *            the filter to remove
+     * @param newFilter
+     *            the filter to add
+     * @throws UnsupportedFilterException
+     *             if the new filter is not supported by the container
+     *
+     * @since 7.7.24
+     */
+    public void replaceContainerFilter(Filter oldFilter, Filter newFilter)
+            throws UnsupportedFilterException {
+        replaceFilter(oldFilter, newFilter);
+    }
+
     @Override
     public boolean hasContainerFilters() {
         return super.hasContainerFilters();
@@ -1103,4 +1149,46 @@ public class IndexedContainer
         return super.getContainerFilters();
     }
 
+    /**
+     * Adds a secondary index for a property of the container. Indexes speed up
+     * filtering large containers by only evaluating the filters for the items
+     * found using the indexes. The index is kept up to date as items are
+     * added, removed and modified.
+     *
+     * @param index
+     *            the index to add, not <code>null</code>
+     * @throws IllegalArgumentException
+     *             if the container does not have the indexed property
+     *
+     * @since 7.7.24
+     */
+    public void addContainerIndex(PropertyIndex index) {
+        addIndex(index);
+    }
+
+    /**
+     * Removes a secondary index from the container.
+     *
+     * @param index
+     *            the index to remove
+     * @return true if the index was removed, false if it was not used by the
+     *         container
+     *
+     * @since 7.7.24
+     */
+    public boolean removeContainerIndex(PropertyIndex index) {
+        return removeIndex(index);
+    }
+
+    /**
+     * Gets the secondary indexes of the container.
+     *
+     * @return an unmodifiable collection of indexes
+     *
+     * @since 7.7.24
+     */
+    public Collection<PropertyIndex> getContainerIndexes() {
+        return getIndexes();
+    }
+
 }
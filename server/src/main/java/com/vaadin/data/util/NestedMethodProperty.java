@@ -110,6 +110,24 @@ public class NestedMethodProperty<T> extends AbstractProperty<T> {
         initialize(instanceClass, propertyName);
     }
 
+    /**
+     * Creates a nested method property for a given object instance using the
+     * methods already resolved by another nested method property for the same
+     * bean class and property name.
+     *
+     * @param instance
+     *            top-level bean to which the property applies
+     * @param resolved
+     *            property whose getter and setter methods to use
+     */
+    NestedMethodProperty(Object instance, NestedMethodProperty<T> resolved) {
+        this.instance = instance;
+        propertyName = resolved.propertyName;
+        getMethods = resolved.getMethods;
+        setMethod = resolved.setMethod;
+        type = resolved.type;
+    }
+
     /**
      * Initializes most of the internal fields based on the top-level bean
      * instance and property name (dot-separated string).
@@ -35,6 +35,14 @@ public class NestedPropertyDescriptor<BT>
     private final String name;
     private final Class<?> propertyType;
 
+    private final Class<BT> beanType;
+
+    /**
+     * Property without a bean whose resolved methods are shared by the
+     * properties created for beans of exactly the top-level bean type.
+     */
+    private transient NestedMethodProperty<Object> resolvedProperty;
+
     /**
      * Creates a property descriptor that can create MethodProperty instances to
      * access the underlying bean property.
@@ -49,9 +57,11 @@ public class NestedPropertyDescriptor<BT>
     public NestedPropertyDescriptor(String name, Class<BT> beanType)
             throws IllegalArgumentException {
         this.name = name;
-        NestedMethodProperty<?> property = new NestedMethodProperty<Object>(
+        NestedMethodProperty<Object> property = new NestedMethodProperty<Object>(
                 beanType, name);
         this.propertyType = property.getType();
+        this.beanType = beanType;
+        resolvedProperty = property;
     }
 
     @Override
@@ -66,7 +76,17 @@ public class NestedPropertyDescriptor<BT>
 
     @Override
     public Property<?> createProperty(BT bean) {
-        return new NestedMethodProperty<Object>(bean, name);
+        if (bean.getClass() != beanType) {
+            // Methods overridden in a subclass may have a different type
+            return new NestedMethodProperty<Object>(bean, name);
+        }
+        NestedMethodProperty<Object> resolved = resolvedProperty;
+        if (resolved == null) {
+            // the resolved methods are not serialized
+            resolved = new NestedMethodProperty<Object>(beanType, name);
+            resolvedProperty = resolved;
+        }
+        return new NestedMethodProperty<Object>(bean, resolved);
     }
 
 }
@@ -63,15 +63,63 @@ public class PropertysetItem
      * Item. If the Item does not contain the Property, <code>null</code> is
      * returned.
      *
+     * <p>
+     * If the Property has been added as <code>null</code>, it is created with
+     * {@link #createItemProperty(Object)} when first requested.
+     *
      * @param id
      *            the identifier of the Property to get.
      * @return the Property with the given ID or <code>null</code>
      */
     @Override
     public Property getItemProperty(Object id) {
+        Property<?> property = map.get(id);
+        if (property == null && map.containsKey(id)) {
+            property = createItemProperty(id);
+            if (property != null) {
+                map.put(id, property);
+            }
+        }
+        return property;
+    }
+
+    /**
+     * Creates the Property for an id that has been added to this item without
+     * a Property. This allows subclasses to only create the Properties that
+     * are actually used. The default implementation returns <code>null</code>.
+     *
+     * @since 7.7.24
+     * @param id
+     *            the identifier of the Property to create
+     * @return the created Property or <code>null</code>
+     */
+    protected Property<?> createItemProperty(Object id) {
+        return null;
+    }
+
+    /**
+     * Gets the Property corresponding to the given Property ID without
+     * creating it if it has not been created yet.
+     *
+     * @param id
+     *            the identifier of the Property to get
+     * @return the Property or <code>null</code> if there is no such Property
+     *         or it has not been created
+     */
+    Property<?> getCreatedItemProperty(Object id) {
         return map.get(id);
     }
 
+    /**
+     * Creates all the Properties of this item which have not been created
+     * yet.
+     */
+    private void createAllItemProperties() {
+        for (Object id : list) {
+            getItemProperty(id);
+        }
+    }
+
     /**
      * Gets the collection of IDs of all Properties stored in the Item.
      *
@@ -99,9 +147,10 @@ public class PropertysetItem
     public boolean removeItemProperty(Object id) {
 
         // Cant remove missing properties
-        if (map.remove(id) == null) {
+        if (!map.containsKey(id)) {
             return false;
         }
+        map.remove(id);
         list.remove(id);
 
         // Send change events
@@ -295,6 +344,8 @@ public class PropertysetItem
     @Override
     public Object clone() throws CloneNotSupportedException {
 
+        createAllItemProperties();
+
         final PropertysetItem npsi = new PropertysetItem();
 
         npsi.list = list != null ? (LinkedList<Object>) list.clone() : null;
@@ -321,6 +372,9 @@ public class PropertysetItem
 
         final PropertysetItem other = (PropertysetItem) obj;
 
+        createAllItemProperties();
+        other.createAllItemProperties();
+
         if (other.list != list) {
             if (other.list == null) {
                 return false;
@@ -365,6 +419,8 @@ public class PropertysetItem
     @Override
     public int hashCode() {
 
+        createAllItemProperties();
+
         return (list == null ? 0 : list.hashCode())
                 ^ (map == null ? 0 : map.hashCode())
                 ^ ((propertySetChangeListeners == null
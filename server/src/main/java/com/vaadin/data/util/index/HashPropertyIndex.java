@@ -0,0 +1,97 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.index;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.filter.Compare;
+import com.vaadin.data.util.filter.IsNull;
+
+/**
+ * A hash based {@link PropertyIndex} which finds the items for
+ * {@link Compare.Equal} and {@link IsNull} filters in constant time.
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class HashPropertyIndex extends PropertyIndex {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<Object, Set<Object>> idsByValue = new HashMap<Object, Set<Object>>();
+
+    /**
+     * Creates a hash index for the given property.
+     *
+     * @param propertyId
+     *            the id of the property to index, not <code>null</code>
+     */
+    public HashPropertyIndex(Object propertyId) {
+        super(propertyId);
+    }
+
+    @Override
+    public Set<Object> findCandidates(Filter filter) {
+        if (filter instanceof Compare.Equal) {
+            Compare.Equal equal = (Compare.Equal) filter;
+            if (isIndexedProperty(equal.getPropertyId())) {
+                return readOnly(idsByValue.get(normalize(equal.getValue())));
+            }
+        } else if (filter instanceof IsNull) {
+            if (isIndexedProperty(((IsNull) filter).getPropertyId())) {
+                return readOnly(idsByValue.get(null));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected void addValue(Object itemId, Object value) {
+        addId(idsByValue, normalize(value), itemId);
+    }
+
+    @Override
+    protected void removeValue(Object itemId, Object value) {
+        removeId(idsByValue, normalize(value), itemId);
+    }
+
+    @Override
+    protected void clearValues() {
+        idsByValue.clear();
+    }
+
+    /**
+     * Converts a value to the key used in the hash map. Values that are equal
+     * according to <code>compareTo</code> must have equal keys.
+     *
+     * @param value
+     *            the value, may be <code>null</code>
+     * @return the hash key for the value
+     */
+    protected Object normalize(Object value) {
+        if (value instanceof BigDecimal) {
+            // BigDecimal.equals() also compares the scale
+            BigDecimal decimal = (BigDecimal) value;
+            return decimal.signum() == 0 ? BigDecimal.ZERO
+                    : decimal.stripTrailingZeros();
+        }
+        return value;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.index;
+
+import java.util.HashSet;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.filter.Like;
+import com.vaadin.data.util.filter.SimpleStringFilter;
+
+/**
+ * A {@link PropertyIndex} on the string representation of the property values
+ * which finds the items for prefix matching {@link SimpleStringFilter}s and
+ * for {@link Like} filters whose pattern starts with a literal prefix, such as
+ * <code>"abc%"</code>.
+ * <p>
+ * The strings are kept in sorted maps so that all strings with a given prefix
+ * are found with one range lookup. The maps for case insensitive matching are
+ * only created when such a filter is first used.
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class PrefixPropertyIndex extends PropertyIndex {
+
+    private static final long serialVersionUID = 1L;
+
+    private final TreeMap<String, Set<Object>> idsByString = new TreeMap<String, Set<Object>>();
+    private TreeMap<String, Set<Object>> idsByLowerCase;
+    private TreeMap<String, Set<Object>> idsByUpperCase;
+
+    /**
+     * Creates a prefix index for the given property.
+     *
+     * @param propertyId
+     *            the id of the property to index, not <code>null</code>
+     */
+    public PrefixPropertyIndex(Object propertyId) {
+        super(propertyId);
+    }
+
+    @Override
+    public Set<Object> findCandidates(Filter filter) {
+        if (filter instanceof SimpleStringFilter) {
+            SimpleStringFilter stringFilter = (SimpleStringFilter) filter;
+            if (!isIndexedProperty(stringFilter.getPropertyId())
+                    || !stringFilter.isOnlyMatchPrefix()) {
+                return null;
+            }
+            // the filter string is already in lower case if ignoring case
+            if (stringFilter.isIgnoreCase()) {
+                return findPrefix(getLowerCaseMap(),
+                        stringFilter.getFilterString());
+            } else {
+                return findPrefix(idsByString, stringFilter.getFilterString());
+            }
+        } else if (filter instanceof Like) {
+            Like like = (Like) filter;
+            if (!isIndexedProperty(like.getPropertyId())) {
+                return null;
+            }
+            String prefix = getLiteralPrefix(like.getValue());
+            if (prefix == null) {
+                return null;
+            } else if (like.isCaseSensitive()) {
+                return findPrefix(idsByString, prefix);
+            } else {
+                return findPrefix(getUpperCaseMap(), prefix.toUpperCase());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the prefix that all strings matching a {@link Like} pattern start
+     * with. Patterns which contain other special characters than the
+     * <code>%</code> wildcard are not supported, since {@link Like} evaluates
+     * them as regular expressions.
+     *
+     * @param pattern
+     *            the pattern
+     * @return the literal prefix or <code>null</code> if the pattern does not
+     *         start with a supported literal prefix
+     */
+    private static String getLiteralPrefix(String pattern) {
+        if (pattern == null) {
+            return null;
+        }
+        int prefixLength = -1;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '%') {
+                if (prefixLength < 0) {
+                    prefixLength = i;
+                }
+            } else if (!Character.isLetterOrDigit(c) && c != ' ' && c != '_'
+                    && c != '-') {
+                return null;
+            }
+        }
+        if (prefixLength < 0) {
+            prefixLength = pattern.length();
+        }
+        return prefixLength == 0 ? null : pattern.substring(0, prefixLength);
+    }
+
+    private static Set<Object> findPrefix(TreeMap<String, Set<Object>> map,
+            String prefix) {
+        Set<Object> result = new HashSet<Object>();
+        for (Entry<String, Set<Object>> entry : map.tailMap(prefix, true)
+                .entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            result.addAll(entry.getValue());
+        }
+        return result;
+    }
+
+    private TreeMap<String, Set<Object>> getLowerCaseMap() {
+        if (idsByLowerCase == null) {
+            idsByLowerCase = new TreeMap<String, Set<Object>>();
+            for (Entry<Object, Object> entry : getValues().entrySet()) {
+                if (entry.getValue() != null) {
+                    addId(idsByLowerCase,
+                            entry.getValue().toString().toLowerCase(),
+                            entry.getKey());
+                }
+            }
+        }
+        return idsByLowerCase;
+    }
+
+    private TreeMap<String, Set<Object>> getUpperCaseMap() {
+        if (idsByUpperCase == null) {
+            idsByUpperCase = new TreeMap<String, Set<Object>>();
+            for (Entry<Object, Object> entry : getValues().entrySet()) {
+                if (entry.getValue() != null) {
+                    addId(idsByUpperCase,
+                            entry.getValue().toString().toUpperCase(),
+                            entry.getKey());
+                }
+            }
+        }
+        return idsByUpperCase;
+    }
+
+    @Override
+    protected void addValue(Object itemId, Object value) {
+        // null values never pass string filters
+        if (value == null) {
+            return;
+        }
+        String string = value.toString();
+        addId(idsByString, string, itemId);
+        if (idsByLowerCase != null) {
+            addId(idsByLowerCase, string.toLowerCase(), itemId);
+        }
+        if (idsByUpperCase != null) {
+            addId(idsByUpperCase, string.toUpperCase(), itemId);
+        }
+    }
+
+    @Override
+    protected void removeValue(Object itemId, Object value) {
+        if (value == null) {
+            return;
+        }
+        String string = value.toString();
+        removeId(idsByString, string, itemId);
+        if (idsByLowerCase != null) {
+            removeId(idsByLowerCase, string.toLowerCase(), itemId);
+        }
+        if (idsByUpperCase != null) {
+            removeId(idsByUpperCase, string.toUpperCase(), itemId);
+        }
+    }
+
+    @Override
+    protected void clearValues() {
+        idsByString.clear();
+        idsByLowerCase = null;
+        idsByUpperCase = null;
+    }
+}
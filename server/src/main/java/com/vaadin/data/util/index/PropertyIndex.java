@@ -0,0 +1,258 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.index;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.AbstractInMemoryContainer;
+
+/**
+ * A secondary index on the values of one property of an in-memory container.
+ * An index is used to find the items that may pass a filter without
+ * evaluating the filter for every item in the container.
+ * <p>
+ * The container keeps the index up to date when items are added or removed
+ * and when the values of the indexed property change. The index only narrows
+ * down the items to check: the filters are still evaluated for each candidate
+ * item, so an index may return more items than actually pass a filter, but it
+ * must never leave out an item that passes it.
+ * <p>
+ * The indexed values should be immutable. Values of the same property should
+ * have an <code>equals</code> method that is consistent with their
+ * <code>compareTo</code> method, as is the case for strings, numbers, dates
+ * and enums.
+ *
+ * @see AbstractInMemoryContainer
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public abstract class PropertyIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Object propertyId;
+
+    /**
+     * The current value of each indexed item.
+     */
+    private final Map<Object, Object> values = new HashMap<Object, Object>();
+
+    /**
+     * Creates an index for the given property.
+     *
+     * @param propertyId
+     *            the id of the property to index, not <code>null</code>
+     */
+    protected PropertyIndex(Object propertyId) {
+        if (propertyId == null) {
+            throw new IllegalArgumentException("Property id must not be null");
+        }
+        this.propertyId = propertyId;
+    }
+
+    /**
+     * Gets the id of the indexed property.
+     *
+     * @return the property id
+     */
+    public Object getPropertyId() {
+        return propertyId;
+    }
+
+    /**
+     * Adds an item to the index. If the item is already in the index, its
+     * value is updated.
+     *
+     * @param itemId
+     *            the id of the item
+     * @param value
+     *            the value of the indexed property of the item
+     */
+    public void add(Object itemId, Object value) {
+        if (values.containsKey(itemId)) {
+            update(itemId, value);
+        } else {
+            values.put(itemId, value);
+            addValue(itemId, value);
+        }
+    }
+
+    /**
+     * Updates the value of an item in the index. Does nothing if the item is
+     * not in the index.
+     *
+     * @param itemId
+     *            the id of the item
+     * @param value
+     *            the new value of the indexed property of the item
+     */
+    public void update(Object itemId, Object value) {
+        if (!values.containsKey(itemId)) {
+            return;
+        }
+        Object oldValue = values.put(itemId, value);
+        if (oldValue == value) {
+            return;
+        }
+        removeValue(itemId, oldValue);
+        addValue(itemId, value);
+    }
+
+    /**
+     * Removes an item from the index.
+     *
+     * @param itemId
+     *            the id of the item
+     */
+    public void remove(Object itemId) {
+        if (values.containsKey(itemId)) {
+            removeValue(itemId, values.remove(itemId));
+        }
+    }
+
+    /**
+     * Removes all items from the index.
+     */
+    public void clear() {
+        values.clear();
+        clearValues();
+    }
+
+    /**
+     * Gets the number of items in the index.
+     *
+     * @return the number of indexed items
+     */
+    public int size() {
+        return values.size();
+    }
+
+    /**
+     * Gets the indexed values of all items.
+     *
+     * @return an unmodifiable map from item ids to their values
+     */
+    protected Map<Object, Object> getValues() {
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Checks whether a filter targets the indexed property.
+     *
+     * @param filterPropertyId
+     *            the property id of the filter
+     * @return <code>true</code> if the filter is for the indexed property
+     */
+    protected boolean isIndexedProperty(Object filterPropertyId) {
+        return propertyId.equals(filterPropertyId);
+    }
+
+    /**
+     * Finds the items that may pass the given filter. The returned set must
+     * contain every indexed item that passes the filter. It must not be
+     * modified by the caller.
+     *
+     * @param filter
+     *            the filter, not a junction of filters
+     * @return the ids of the candidate items, or <code>null</code> if the
+     *         index cannot be used for the filter
+     */
+    public abstract Set<Object> findCandidates(Filter filter);
+
+    /**
+     * Adds an item with the given value to the index structures.
+     *
+     * @param itemId
+     *            the id of the item
+     * @param value
+     *            the value of the item, may be <code>null</code>
+     */
+    protected abstract void addValue(Object itemId, Object value);
+
+    /**
+     * Removes an item with the given value from the index structures.
+     *
+     * @param itemId
+     *            the id of the item
+     * @param value
+     *            the value the item was added with, may be <code>null</code>
+     */
+    protected abstract void removeValue(Object itemId, Object value);
+
+    /**
+     * Removes all items from the index structures.
+     */
+    protected abstract void clearValues();
+
+    /**
+     * Adds an item id to the id set of the given key in a map.
+     *
+     * @param map
+     *            the map from keys to item id sets
+     * @param key
+     *            the key
+     * @param itemId
+     *            the item id to add
+     */
+    static <K> void addId(Map<K, Set<Object>> map, K key, Object itemId) {
+        Set<Object> ids = map.get(key);
+        if (ids == null) {
+            ids = new HashSet<Object>();
+            map.put(key, ids);
+        }
+        ids.add(itemId);
+    }
+
+    /**
+     * Removes an item id from the id set of the given key in a map, removing
+     * the key when its set becomes empty.
+     *
+     * @param map
+     *            the map from keys to item id sets
+     * @param key
+     *            the key
+     * @param itemId
+     *            the item id to remove
+     */
+    static <K> void removeId(Map<K, Set<Object>> map, K key, Object itemId) {
+        Set<Object> ids = map.get(key);
+        if (ids != null && ids.remove(itemId) && ids.isEmpty()) {
+            map.remove(key);
+        }
+    }
+
+    /**
+     * Returns an unmodifiable view of an id set, or an empty set for
+     * <code>null</code>.
+     *
+     * @param ids
+     *            the id set or <code>null</code>
+     * @return the read only id set
+     */
+    static Set<Object> readOnly(Set<Object> ids) {
+        if (ids == null) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(ids);
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.index;
+
+import java.util.HashSet;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.filter.Between;
+import com.vaadin.data.util.filter.Compare;
+import com.vaadin.data.util.filter.IsNull;
+
+/**
+ * A sorted {@link PropertyIndex} which finds the items for {@link Compare}
+ * filters, {@link Between} and {@link IsNull} filters by looking up a range of
+ * values.
+ * <p>
+ * All non-null values of the indexed property must be of the same
+ * {@link Comparable} class. If an item has a value of another class, the index
+ * is not used for filtering until it is cleared.
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class SortedPropertyIndex extends PropertyIndex {
+
+    private static final long serialVersionUID = 1L;
+
+    private final TreeMap<Object, Set<Object>> idsByValue = new TreeMap<Object, Set<Object>>();
+    private final Set<Object> nullIds = new HashSet<Object>();
+
+    private Class<?> valueType;
+    private boolean unusable = false;
+
+    /**
+     * Creates a sorted index for the given property.
+     *
+     * @param propertyId
+     *            the id of the property to index, not <code>null</code>
+     */
+    public SortedPropertyIndex(Object propertyId) {
+        super(propertyId);
+    }
+
+    @Override
+    public Set<Object> findCandidates(Filter filter) {
+        if (unusable) {
+            return null;
+        }
+        if (filter instanceof Compare) {
+            Compare compare = (Compare) filter;
+            if (isIndexedProperty(compare.getPropertyId())) {
+                return findCandidates(compare);
+            }
+        } else if (filter instanceof Between) {
+            Between between = (Between) filter;
+            if (isIndexedProperty(between.getPropertyId())) {
+                return findCandidates(between);
+            }
+        } else if (filter instanceof IsNull) {
+            if (isIndexedProperty(((IsNull) filter).getPropertyId())) {
+                return readOnly(nullIds);
+            }
+        }
+        return null;
+    }
+
+    private Set<Object> findCandidates(Compare compare) {
+        Object value = compare.getValue();
+        if (!isComparable(value)) {
+            return null;
+        }
+        switch (compare.getOperation()) {
+        case EQUAL:
+            return readOnly(idsByValue.get(value));
+        case GREATER:
+            // null values are greater than any other value in Compare
+            return collect(idsByValue.tailMap(value, false), true);
+        case GREATER_OR_EQUAL:
+            return collect(idsByValue.tailMap(value, true), true);
+        case LESS:
+            return collect(idsByValue.headMap(value, false), false);
+        case LESS_OR_EQUAL:
+            return collect(idsByValue.headMap(value, true), false);
+        }
+        return null;
+    }
+
+    private Set<Object> findCandidates(Between between) {
+        Object start = between.getStartValue();
+        Object end = between.getEndValue();
+        if (start == null && end == null) {
+            return null;
+        } else if (start != null && !isComparable(start)) {
+            return null;
+        } else if (end != null && !isComparable(end)) {
+            return null;
+        }
+
+        NavigableMap<Object, Set<Object>> range = idsByValue;
+        if (start != null) {
+            range = range.tailMap(start, true);
+        }
+        if (end != null) {
+            range = range.headMap(end, true);
+        }
+        return collect(range, false);
+    }
+
+    /**
+     * Checks whether a filter value can be compared with the indexed values.
+     */
+    private boolean isComparable(Object value) {
+        return value != null
+                && (valueType == null || valueType == value.getClass());
+    }
+
+    private Set<Object> collect(NavigableMap<Object, Set<Object>> range,
+            boolean includeNulls) {
+        Set<Object> result = new HashSet<Object>();
+        for (Set<Object> ids : range.values()) {
+            result.addAll(ids);
+        }
+        if (includeNulls) {
+            result.addAll(nullIds);
+        }
+        return result;
+    }
+
+    @Override
+    protected void addValue(Object itemId, Object value) {
+        if (value == null) {
+            nullIds.add(itemId);
+        } else if (!unusable) {
+            if (valueType == null && value instanceof Comparable) {
+                valueType = value.getClass();
+            }
+            if (valueType == value.getClass()) {
+                addId(idsByValue, value, itemId);
+            } else {
+                // Values that cannot be ordered, drop the tree
+                unusable = true;
+                idsByValue.clear();
+            }
+        }
+    }
+
+    @Override
+    protected void removeValue(Object itemId, Object value) {
+        if (value == null) {
+            nullIds.remove(itemId);
+        } else if (!unusable) {
+            removeId(idsByValue, value, itemId);
+        }
+    }
+
+    @Override
+    protected void clearValues() {
+        idsByValue.clear();
+        nullIds.clear();
+        valueType = null;
+        unusable = false;
+    }
+}
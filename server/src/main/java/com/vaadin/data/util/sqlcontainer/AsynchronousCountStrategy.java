@@ -0,0 +1,196 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.query.QueryDelegate;
+import com.vaadin.data.util.sqlcontainer.query.TableQuery;
+import com.vaadin.data.util.sqlcontainer.query.generator.StatementHelper;
+import com.vaadin.server.VaadinSession;
+
+/**
+ * A {@link CountStrategy} that counts the rows in the background. While a
+ * count is running, the container keeps reporting the last known size. When
+ * the count completes with a different result, the container is refreshed,
+ * which fires an item set change event so that components showing the
+ * container fetch the new size.
+ * <p>
+ * If the count was started while a {@link VaadinSession} was current, the
+ * container is refreshed using {@link VaadinSession#access(Runnable)} so that
+ * the session is locked while the event is fired. Otherwise the container is
+ * refreshed directly from the background thread.
+ * <p>
+ * The background count uses its own connection from the connection pool of
+ * the query. Only containers using a {@link TableQuery} are counted in the
+ * background; other query delegates, and the first count when no size is
+ * known yet, are counted synchronously. The executor is not serialized, so a
+ * deserialized strategy counts synchronously.
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class AsynchronousCountStrategy implements CountStrategy {
+
+    private final transient Executor executor;
+
+    /* Count statement and parameters of the last result */
+    private List<Object> resultKey;
+    private int result;
+    /* Whether the last result has been computed but not yet returned */
+    private boolean resultFresh;
+    /* Count statement and parameters of the running count */
+    private List<Object> pendingKey;
+
+    /**
+     * Creates a new strategy that counts rows using the given executor.
+     *
+     * @param executor
+     *            the executor to run the counts in, not <code>null</code>
+     */
+    public AsynchronousCountStrategy(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must not be null.");
+        }
+        this.executor = executor;
+    }
+
+    @Override
+    public int getCount(SQLContainer container, QueryDelegate query)
+            throws SQLException {
+        if (executor == null || !(query instanceof TableQuery)) {
+            return query.getCount();
+        }
+        TableQuery tableQuery = (TableQuery) query;
+        StatementHelper sh = tableQuery.getCountStatement();
+        List<Object> key = new ArrayList<Object>(sh.getParameterValues());
+        key.add(0, sh.getQueryString());
+
+        synchronized (this) {
+            if (resultKey != null) {
+                if (!resultFresh || !key.equals(resultKey)) {
+                    if (!key.equals(pendingKey)) {
+                        pendingKey = key;
+                        executor.execute(createCountTask(container,
+                                tableQuery.getConnectionPool(), sh, key));
+                    }
+                }
+                resultFresh = false;
+                return result;
+            }
+        }
+
+        int count = query.getCount();
+        synchronized (this) {
+            resultKey = key;
+            result = count;
+            resultFresh = false;
+        }
+        return count;
+    }
+
+    /**
+     * Checks whether a count is currently running in the background.
+     *
+     * @return <code>true</code> if a count is running, otherwise
+     *         <code>false</code>
+     */
+    public synchronized boolean isCounting() {
+        return pendingKey != null;
+    }
+
+    private Runnable createCountTask(final SQLContainer container,
+            final JDBCConnectionPool pool, final StatementHelper sh,
+            final List<Object> key) {
+        final VaadinSession session = VaadinSession.getCurrent();
+        return new Runnable() {
+            @Override
+            public void run() {
+                int count;
+                try {
+                    Connection conn = pool.reserveConnection();
+                    try {
+                        count = ((Number) SQLUtil.executeScalarQuery(conn, sh))
+                                .intValue();
+                    } finally {
+                        pool.releaseConnection(conn);
+                    }
+                } catch (SQLException e) {
+                    getLogger().log(Level.WARNING, "Failed to count rows", e);
+                    countFailed(key);
+                    return;
+                } catch (RuntimeException e) {
+                    countFailed(key);
+                    throw e;
+                }
+                if (countCompleted(key, count)) {
+                    refresh(container, session);
+                }
+            }
+        };
+    }
+
+    private synchronized void countFailed(List<Object> key) {
+        if (key.equals(pendingKey)) {
+            pendingKey = null;
+        }
+    }
+
+    /**
+     * Stores the result of a background count.
+     *
+     * @return <code>true</code> if the container should be refreshed,
+     *         <code>false</code> if the result is outdated or the container
+     *         already reports the same size
+     */
+    private synchronized boolean countCompleted(List<Object> key, int count) {
+        if (!key.equals(pendingKey)) {
+            // Filters have changed after the count was started
+            return false;
+        }
+        pendingKey = null;
+        boolean changed = !key.equals(resultKey) || count != result;
+        resultKey = key;
+        result = count;
+        resultFresh = true;
+        return changed;
+    }
+
+    private static void refresh(final SQLContainer container,
+            VaadinSession session) {
+        if (session == null) {
+            container.refresh();
+        } else {
+            session.access(new Runnable() {
+                @Override
+                public void run() {
+                    container.refresh();
+                }
+            });
+        }
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(AsynchronousCountStrategy.class.getName());
+    }
+}
@@ -19,6 +19,7 @@ import java.io.Serializable;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import com.vaadin.data.util.sqlcontainer.query.FreeformQuery;
@@ -37,6 +38,13 @@ class CacheFlushNotifier implements Serializable {
     private static List<WeakReference<SQLContainer>> allInstances = new ArrayList<WeakReference<SQLContainer>>();
     private static ReferenceQueue<SQLContainer> deadInstances = new ReferenceQueue<SQLContainer>();
 
+    /*
+     * Shared row caches are invalidated whenever any container writes to a
+     * table, also by containers that don't use them. Unlike the container
+     * list, this is used by several sessions concurrently.
+     */
+    private static final List<WeakReference<SharedRowCache>> sharedRowCaches = new ArrayList<WeakReference<SharedRowCache>>();
+
     /**
      * Adds the given SQLContainer to the cache flush notification receiver list
      *
@@ -62,6 +70,53 @@ class CacheFlushNotifier implements Serializable {
         }
     }
 
+    /**
+     * Adds the given shared row cache to the caches that are invalidated when
+     * a container writes to a table.
+     *
+     * @param cache
+     *            the shared row cache to add
+     */
+    public static void addSharedRowCache(SharedRowCache cache) {
+        synchronized (sharedRowCaches) {
+            Iterator<WeakReference<SharedRowCache>> i = sharedRowCaches
+                    .iterator();
+            while (i.hasNext()) {
+                if (i.next().get() == null) {
+                    i.remove();
+                }
+            }
+            sharedRowCaches.add(new WeakReference<SharedRowCache>(cache));
+        }
+    }
+
+    /**
+     * Invalidates the pages of the table of the given container in all shared
+     * row caches.
+     *
+     * @param c
+     *            SQLContainer that has written to its table
+     */
+    public static void invalidateSharedRowCaches(SQLContainer c) {
+        QueryDelegate qd = c.getQueryDelegate();
+        if (!(qd instanceof TableQuery)) {
+            return;
+        }
+        TableQuery query = (TableQuery) qd;
+        List<SharedRowCache> caches = new ArrayList<SharedRowCache>();
+        synchronized (sharedRowCaches) {
+            for (WeakReference<SharedRowCache> wr : sharedRowCaches) {
+                SharedRowCache cache = wr.get();
+                if (cache != null) {
+                    caches.add(cache);
+                }
+            }
+        }
+        for (SharedRowCache cache : caches) {
+            cache.invalidate(query.getConnectionPool(), query.getTableName());
+        }
+    }
+
     /**
      * Iterates through the instances and notifies containers which are
      * connected to the same table or are using the same query string.
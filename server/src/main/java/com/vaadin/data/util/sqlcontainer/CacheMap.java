@@ -28,6 +28,22 @@ class CacheMap<K, V> extends LinkedHashMap<K, V> {
     private int cacheLimit = SQLContainer.CACHE_RATIO
             * SQLContainer.DEFAULT_PAGE_LENGTH;
 
+    CacheMap() {
+        super();
+    }
+
+    /**
+     * Creates a cache map with the given ordering mode.
+     *
+     * @param accessOrder
+     *            <code>true</code> to evict the least recently accessed entry
+     *            first, <code>false</code> to evict the eldest inserted entry
+     *            first
+     */
+    CacheMap(boolean accessOrder) {
+        super(16, 0.75f, accessOrder);
+    }
+
     @Override
     protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
         return size() > cacheLimit;
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer;
+
+import java.io.Serializable;
+import java.sql.SQLException;
+
+import com.vaadin.data.util.sqlcontainer.query.QueryDelegate;
+
+/**
+ * Determines how {@link SQLContainer} obtains the number of rows in its data
+ * source. The container asks for the count whenever its size has been marked
+ * dirty or the previous count has expired.
+ * <p>
+ * A strategy may keep state about the container it counts for, so an instance
+ * should only be used by one container.
+ *
+ * @see SQLContainer#setCountStrategy(CountStrategy)
+ * @see ExactCountStrategy
+ * @see AsynchronousCountStrategy
+ * @see EstimatedCountStrategy
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public interface CountStrategy extends Serializable {
+
+    /**
+     * Gets the number of rows that the container should report as its size.
+     *
+     * @param container
+     *            the container requesting the count
+     * @param query
+     *            the query delegate of the container, with the current filters
+     *            and ordering already set
+     * @return the number of rows
+     * @throws SQLException
+     *             if the count could not be obtained
+     */
+    public int getCount(SQLContainer container, QueryDelegate query)
+            throws SQLException;
+}
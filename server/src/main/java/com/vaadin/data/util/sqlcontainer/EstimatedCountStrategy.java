@@ -0,0 +1,168 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.query.QueryDelegate;
+import com.vaadin.data.util.sqlcontainer.query.TableQuery;
+import com.vaadin.data.util.sqlcontainer.query.generator.StatementHelper;
+
+/**
+ * A {@link CountStrategy} that uses the row count estimate kept in the table
+ * statistics of the database instead of counting the rows. Reading the
+ * statistics takes constant time regardless of the size of the table, but the
+ * result is only as accurate as the statistics, which are typically updated
+ * when the table is analyzed.
+ * <p>
+ * Estimates are only used for containers that use a {@link TableQuery} and
+ * have no filters, since the statistics describe the whole table. In all other
+ * cases, and if the database is not supported or has no statistics for the
+ * table, the count is obtained using the fallback strategy.
+ * <p>
+ * PostgreSQL, MySQL, Oracle, Microsoft SQL Server and HSQLDB are supported.
+ * Other databases can be supported by overriding
+ * {@link #createEstimateStatement(String, TableQuery)}.
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class EstimatedCountStrategy implements CountStrategy {
+
+    private final CountStrategy fallback;
+
+    /**
+     * Creates a new strategy that falls back to an exact count.
+     */
+    public EstimatedCountStrategy() {
+        this(new ExactCountStrategy());
+    }
+
+    /**
+     * Creates a new strategy with the given fallback strategy.
+     *
+     * @param fallback
+     *            the strategy to use when no estimate is available, not
+     *            <code>null</code>
+     */
+    public EstimatedCountStrategy(CountStrategy fallback) {
+        if (fallback == null) {
+            throw new IllegalArgumentException(
+                    "Fallback strategy must not be null.");
+        }
+        this.fallback = fallback;
+    }
+
+    @Override
+    public int getCount(SQLContainer container, QueryDelegate query)
+            throws SQLException {
+        if (query instanceof TableQuery
+                && container.getContainerFilters().isEmpty()) {
+            long estimate = getEstimate((TableQuery) query);
+            if (estimate >= 0) {
+                return (int) Math.min(estimate, Integer.MAX_VALUE);
+            }
+        }
+        return fallback.getCount(container, query);
+    }
+
+    private long getEstimate(TableQuery query) throws SQLException {
+        JDBCConnectionPool pool = query.getConnectionPool();
+        Connection conn = pool.reserveConnection();
+        try {
+            StatementHelper sh = createEstimateStatement(
+                    conn.getMetaData().getDatabaseProductName(), query);
+            if (sh == null) {
+                return -1;
+            }
+            Object estimate = SQLUtil.executeScalarQuery(conn, sh);
+            if (estimate instanceof Number) {
+                return ((Number) estimate).longValue();
+            }
+            return -1;
+        } catch (SQLException e) {
+            // Missing privileges for the statistics views etc.
+            getLogger().log(Level.FINE,
+                    "Failed to read row count estimate, counting rows", e);
+            return -1;
+        } finally {
+            pool.releaseConnection(conn);
+        }
+    }
+
+    /**
+     * Creates the statement that reads the row count estimate of the table of
+     * the given query. The statement must return a single numeric value, which
+     * is <code>null</code> or negative if no estimate is available.
+     *
+     * @param databaseProductName
+     *            the database product name reported by the JDBC driver
+     * @param query
+     *            the query whose table to estimate
+     * @return the statement, or <code>null</code> if the database is not
+     *         supported
+     */
+    protected StatementHelper createEstimateStatement(
+            String databaseProductName, TableQuery query) {
+        String table = query.getTableName();
+        String schema = query.getSchemaName();
+        StatementHelper sh = new StatementHelper();
+        if (databaseProductName.startsWith("PostgreSQL")) {
+            sh.setQueryString("SELECT c.reltuples FROM pg_class c"
+                    + " JOIN pg_namespace n ON n.oid = c.relnamespace"
+                    + " WHERE lower(c.relname) = lower(?) AND "
+                    + (schema == null ? "pg_table_is_visible(c.oid)"
+                            : "lower(n.nspname) = lower(?)"));
+        } else if (databaseProductName.startsWith("MySQL")
+                || databaseProductName.startsWith("MariaDB")) {
+            sh.setQueryString("SELECT TABLE_ROWS FROM information_schema.TABLES"
+                    + " WHERE TABLE_NAME = ? AND TABLE_SCHEMA = "
+                    + (schema == null ? "DATABASE()" : "?"));
+        } else if (databaseProductName.startsWith("Oracle")) {
+            sh.setQueryString("SELECT NUM_ROWS FROM ALL_TABLES"
+                    + " WHERE TABLE_NAME = UPPER(?) AND OWNER = "
+                    + (schema == null ? "USER" : "UPPER(?)"));
+        } else if (databaseProductName.startsWith("Microsoft SQL Server")) {
+            sh.setQueryString("SELECT SUM(p.rows) FROM sys.partitions p"
+                    + " WHERE p.object_id = OBJECT_ID(?)"
+                    + " AND p.index_id IN (0, 1)");
+            sh.addParameterValue(
+                    schema == null ? table : schema + "." + table);
+            return sh;
+        } else if (databaseProductName.startsWith("HSQL")) {
+            sh.setQueryString("SELECT CARDINALITY"
+                    + " FROM INFORMATION_SCHEMA.SYSTEM_TABLESTATS"
+                    + " WHERE UPPER(TABLE_NAME) = UPPER(?) AND "
+                    + (schema == null ? "TABLE_SCHEMA = CURRENT_SCHEMA"
+                            : "UPPER(TABLE_SCHEMA) = UPPER(?)"));
+        } else {
+            return null;
+        }
+        sh.addParameterValue(table);
+        if (schema != null) {
+            sh.addParameterValue(schema);
+        }
+        return sh;
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(EstimatedCountStrategy.class.getName());
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer;
+
+import java.sql.SQLException;
+
+import com.vaadin.data.util.sqlcontainer.query.QueryDelegate;
+
+/**
+ * The default {@link CountStrategy}. Counts the rows synchronously using
+ * {@link QueryDelegate#getCount()}, which gives an exact count but blocks the
+ * calling thread for as long as the database needs to count the rows.
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class ExactCountStrategy implements CountStrategy {
+
+    @Override
+    public int getCount(SQLContainer container, QueryDelegate query)
+            throws SQLException {
+        return query.getCount();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer;
+
+import java.io.Serializable;
+import java.util.Iterator;
+
+/**
+ * The default {@link RowCache}. Holds at most the configured number of items
+ * and evicts the least recently used item when the capacity is exceeded.
+ * Optionally, items can be expired after a fixed time to live, after which
+ * they are fetched again from the database the next time they are accessed.
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class LRURowCache implements RowCache {
+
+    private static class Entry implements Serializable {
+        private final RowItem item;
+        private final long created;
+
+        private Entry(RowItem item, long created) {
+            this.item = item;
+            this.created = created;
+        }
+    }
+
+    private final CacheMap<Object, Entry> entries = new CacheMap<Object, Entry>(
+            true);
+    private long timeToLive;
+
+    /**
+     * Creates a new cache without a time to live.
+     */
+    public LRURowCache() {
+        this(0);
+    }
+
+    /**
+     * Creates a new cache which expires items after the given time.
+     *
+     * @param timeToLiveMillis
+     *            the time in milliseconds after which cached items are
+     *            fetched again, or 0 to keep items until they are evicted
+     */
+    public LRURowCache(long timeToLiveMillis) {
+        setTimeToLive(timeToLiveMillis);
+    }
+
+    /**
+     * Sets the time after which cached items are fetched again from the
+     * database.
+     *
+     * @param timeToLiveMillis
+     *            the time to live in milliseconds, or 0 to keep items until
+     *            they are evicted
+     */
+    public void setTimeToLive(long timeToLiveMillis) {
+        if (timeToLiveMillis < 0) {
+            throw new IllegalArgumentException(
+                    "Time to live must not be negative");
+        }
+        timeToLive = timeToLiveMillis;
+    }
+
+    /**
+     * Gets the time after which cached items are fetched again from the
+     * database.
+     *
+     * @return the time to live in milliseconds, or 0 if items are kept until
+     *         they are evicted
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Gets the number of items the cache can hold.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return entries.getCacheLimit();
+    }
+
+    @Override
+    public RowItem get(Object rowId) {
+        Entry entry = entries.get(rowId);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry, System.currentTimeMillis())) {
+            entries.remove(rowId);
+            return null;
+        }
+        return entry.item;
+    }
+
+    @Override
+    public boolean contains(Object rowId) {
+        return get(rowId) != null;
+    }
+
+    @Override
+    public void put(RowId rowId, RowItem item) {
+        entries.put(rowId, new Entry(item, System.currentTimeMillis()));
+    }
+
+    @Override
+    public void remove(Object rowId) {
+        entries.remove(rowId);
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (timeToLive > 0) {
+            long now = System.currentTimeMillis();
+            Iterator<Entry> i = entries.values().iterator();
+            while (i.hasNext()) {
+                if (isExpired(i.next(), now)) {
+                    i.remove();
+                }
+            }
+        }
+        return entries.isEmpty();
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        entries.setCacheLimit(capacity);
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return timeToLive > 0 && now - entry.created >= timeToLive;
+    }
+}
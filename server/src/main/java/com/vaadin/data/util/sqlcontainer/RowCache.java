@@ -0,0 +1,96 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer;
+
+import java.io.Serializable;
+
+/**
+ * Cache of the {@link RowItem}s fetched by one {@link SQLContainer}. The
+ * container fills the cache one page at a time and looks up items from it
+ * before querying the database.
+ * <p>
+ * A row cache is only used by one container and does not need to be thread
+ * safe. Implementations may drop entries at any time, in which case the
+ * container fetches the page containing the item again.
+ *
+ * @see SQLContainer#setRowCache(RowCache)
+ * @see LRURowCache
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public interface RowCache extends Serializable {
+
+    /**
+     * Gets the cached item with the given id.
+     *
+     * @param rowId
+     *            the id of the item
+     * @return the cached item, or <code>null</code> if the item is not cached
+     */
+    public RowItem get(Object rowId);
+
+    /**
+     * Checks whether an item with the given id is cached.
+     *
+     * @param rowId
+     *            the id of the item
+     * @return <code>true</code> if the item is cached, otherwise
+     *         <code>false</code>
+     */
+    public boolean contains(Object rowId);
+
+    /**
+     * Adds an item to the cache, replacing any previous item with the same id.
+     *
+     * @param rowId
+     *            the id of the item, not <code>null</code>
+     * @param item
+     *            the item to cache, not <code>null</code>
+     */
+    public void put(RowId rowId, RowItem item);
+
+    /**
+     * Removes the item with the given id from the cache.
+     *
+     * @param rowId
+     *            the id of the item
+     */
+    public void remove(Object rowId);
+
+    /**
+     * Removes all items from the cache.
+     */
+    public void clear();
+
+    /**
+     * Checks whether the cache contains any items.
+     *
+     * @return <code>true</code> if no items are cached, otherwise
+     *         <code>false</code>
+     */
+    public boolean isEmpty();
+
+    /**
+     * Sets the number of items the cache should be able to hold. The container
+     * calls this whenever its page length changes so that at least one fetched
+     * page fits in the cache.
+     *
+     * @param capacity
+     *            the number of items, a positive number
+     */
+    public void setCapacity(int capacity);
+}
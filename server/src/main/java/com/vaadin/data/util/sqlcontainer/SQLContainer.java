@@ -47,7 +47,8 @@ import com.vaadin.data.util.sqlcontainer.query.generator.MSSQLGenerator;
 import com.vaadin.data.util.sqlcontainer.query.generator.OracleGenerator;
 
 public class SQLContainer implements Container, Container.Filterable,
-        Container.Indexed, Container.Sortable, Container.ItemSetChangeNotifier {
+        Container.Indexed, Container.Sortable, Container.ItemSetChangeNotifier,
+        Container.ItemChangeNotifier {
 
     /** Query delegate */
     private QueryDelegate queryDelegate;
@@ -66,7 +67,13 @@ public class SQLContainer implements Container, Container.Filterable,
 
     /** Item and index caches */
     private final Map<Integer, RowId> itemIndexes = new HashMap<Integer, RowId>();
-    private final CacheMap<RowId, RowItem> cachedItems = new CacheMap<RowId, RowItem>();
+    private RowCache rowCache = new LRURowCache();
+
+    /** Page cache shared with other containers, null if not used */
+    private SharedRowCache sharedRowCache;
+
+    /** Number of rows placed in the row cache by the last page fetch */
+    private int pageRowCount;
 
     /** Container properties = column names, data types and statuses */
     private final List<String> propertyIds = new ArrayList<String>();
@@ -94,12 +101,18 @@ public class SQLContainer implements Container, Container.Filterable,
     private boolean sizeDirty = true;
     private Date sizeUpdated = new Date();
 
+    /** Strategy used to count the rows in the data source */
+    private CountStrategy countStrategy = new ExactCountStrategy();
+
     /** Starting row number of the currently fetched page */
     private int currentOffset;
 
     /** ItemSetChangeListeners */
     private LinkedList<Container.ItemSetChangeListener> itemSetChangeListeners;
 
+    /** ItemChangeListeners */
+    private LinkedList<Container.ItemChangeListener> itemChangeListeners;
+
     /**
      * Temporary storage for modified items and items to be removed and added
      */
@@ -134,7 +147,7 @@ public class SQLContainer implements Container, Container.Filterable,
         }
         queryDelegate = delegate;
         getPropertyIds();
-        cachedItems.setCacheLimit(CACHE_RATIO * getPageLength() + cacheOverlap);
+        rowCache.setCapacity(CACHE_RATIO * getPageLength() + cacheOverlap);
     }
 
     /**************************************/
@@ -182,9 +195,7 @@ public class SQLContainer implements Container, Container.Filterable,
                     queryDelegate.commit();
                 }
                 refresh();
-                if (notificationsEnabled) {
-                    CacheFlushNotifier.notifyOfCacheFlush(this);
-                }
+                notifyOfCacheFlush();
                 getLogger().log(Level.FINER, "Row added to DB...");
                 return itemId;
             } catch (SQLException e) {
@@ -211,7 +222,7 @@ public class SQLContainer implements Container, Container.Filterable,
             return false;
         }
 
-        if (cachedItems.containsKey(itemId)) {
+        if (rowCache.contains(itemId)) {
             return true;
         } else {
             for (RowItem item : addedItems) {
@@ -257,7 +268,8 @@ public class SQLContainer implements Container, Container.Filterable,
 
     @Override
     public Item getItem(Object itemId) {
-        if (!cachedItems.containsKey(itemId)) {
+        RowItem cached = rowCache.get(itemId);
+        if (cached == null) {
             int index = indexOfId(itemId);
             if (index >= size) {
                 // The index is in the added items
@@ -271,9 +283,10 @@ public class SQLContainer implements Container, Container.Filterable,
             } else {
                 // load the item into cache
                 updateOffsetAndCache(index);
+                cached = rowCache.get(itemId);
             }
         }
-        return cachedItems.get(itemId);
+        return cached;
     }
 
     /**
@@ -285,14 +298,15 @@ public class SQLContainer implements Container, Container.Filterable,
      * @return the item represented by itemId.
      */
     public Item getItemUnfiltered(Object itemId) {
-        if (!cachedItems.containsKey(itemId)) {
+        RowItem cached = rowCache.get(itemId);
+        if (cached == null) {
             for (RowItem item : addedItems) {
                 if (item.getId().equals(itemId)) {
                     return item;
                 }
             }
         }
-        return cachedItems.get(itemId);
+        return cached;
     }
 
     /**
@@ -394,9 +408,7 @@ public class SQLContainer implements Container, Container.Filterable,
                 boolean success = queryDelegate.removeRow((RowItem) i);
                 queryDelegate.commit();
                 refresh();
-                if (notificationsEnabled) {
-                    CacheFlushNotifier.notifyOfCacheFlush(this);
-                }
+                notifyOfCacheFlush();
                 if (success) {
                     getLogger().log(Level.FINER, "Row removed from DB...");
                 }
@@ -426,7 +438,7 @@ public class SQLContainer implements Container, Container.Filterable,
             }
         } else {
             removedItems.put((RowId) itemId, (RowItem) getItem(itemId));
-            cachedItems.remove(itemId);
+            rowCache.remove(itemId);
             refresh();
             return true;
         }
@@ -448,9 +460,7 @@ public class SQLContainer implements Container, Container.Filterable,
                     queryDelegate.commit();
                     getLogger().log(Level.FINER, "All rows removed from DB...");
                     refresh();
-                    if (notificationsEnabled) {
-                        CacheFlushNotifier.notifyOfCacheFlush(this);
-                    }
+                    notifyOfCacheFlush();
                 } else {
                     queryDelegate.rollback();
                 }
@@ -479,7 +489,7 @@ public class SQLContainer implements Container, Container.Filterable,
         } else {
             for (Object id : getItemIds()) {
                 removedItems.put((RowId) id, (RowItem) getItem(id));
-                cachedItems.remove(id);
+                rowCache.remove(id);
             }
             refresh();
             return true;
@@ -591,7 +601,7 @@ public class SQLContainer implements Container, Container.Filterable,
         if (!containsId(itemId)) {
             return -1;
         }
-        if (cachedItems.isEmpty()) {
+        if (rowCache.isEmpty()) {
             getPage();
         }
         // this protects against infinite looping
@@ -792,7 +802,7 @@ public class SQLContainer implements Container, Container.Filterable,
             sizeDirty = true;
         }
         currentOffset = 0;
-        cachedItems.clear();
+        rowCache.clear();
         itemIndexes.clear();
         fireContentsChange();
     }
@@ -860,7 +870,7 @@ public class SQLContainer implements Container, Container.Filterable,
     private void setPageLengthInternal(int pageLength) {
         this.pageLength = pageLength > 0 ? pageLength : DEFAULT_PAGE_LENGTH;
         cacheOverlap = getPageLength();
-        cachedItems.setCacheLimit(CACHE_RATIO * getPageLength() + cacheOverlap);
+        rowCache.setCapacity(CACHE_RATIO * getPageLength() + cacheOverlap);
     }
 
     /**
@@ -938,9 +948,7 @@ public class SQLContainer implements Container, Container.Filterable,
             addedItems.clear();
             modifiedItems.clear();
             refresh();
-            if (notificationsEnabled) {
-                CacheFlushNotifier.notifyOfCacheFlush(this);
-            }
+            notifyOfCacheFlush();
         } catch (SQLException e) {
             queryDelegate.rollback();
             throw e;
@@ -985,9 +993,7 @@ public class SQLContainer implements Container, Container.Filterable,
                                     + "' has been externally modified.");
                 }
                 queryDelegate.commit();
-                if (notificationsEnabled) {
-                    CacheFlushNotifier.notifyOfCacheFlush(this);
-                }
+                notifyOfCacheFlush();
                 getLogger().log(Level.FINER, "Row updated to DB...");
             } catch (SQLException e) {
                 getLogger().log(Level.WARNING,
@@ -1006,6 +1012,7 @@ public class SQLContainer implements Container, Container.Filterable,
                 modifiedItems.add(changedItem);
             }
         }
+        fireItemChange(changedItem.getId());
     }
 
     /**
@@ -1026,11 +1033,57 @@ public class SQLContainer implements Container, Container.Filterable,
             currentOffset = 0;
         }
 
-        if (oldOffset == currentOffset && !cachedItems.isEmpty()) {
+        if (oldOffset == currentOffset && isPageCached()) {
             return;
         }
 
-        getPage();
+        getPage(getSeekRow());
+    }
+
+    /**
+     * Checks whether all rows of the page starting from the current offset are
+     * still in the row cache. Rows may have expired or been evicted
+     * individually.
+     *
+     * @return <code>true</code> if no row of the page needs to be fetched
+     */
+    private boolean isPageCached() {
+        if (rowCache.isEmpty()) {
+            return false;
+        }
+        for (int i = currentOffset; i < currentOffset
+                + pageRowCount; i++) {
+            RowId id = itemIndexes.get(i);
+            if (id == null || !rowCache.contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the cached row directly preceding the current offset, after which
+     * the next page can be fetched using keyset pagination.
+     *
+     * @return the row preceding the current offset, or <code>null</code> if
+     *         the page must be fetched using the offset
+     */
+    private RowItem getSeekRow() {
+        if (currentOffset == 0 || !(queryDelegate instanceof TableQuery)
+                || !((TableQuery) queryDelegate).isKeysetPagingEnabled()
+                || !removedItems.isEmpty()) {
+            return null;
+        }
+        RowId previousId = itemIndexes.get(currentOffset - 1);
+        if (previousId == null) {
+            return null;
+        }
+        RowItem previous = rowCache.get(previousId);
+        if (previous == null || previous.isModified()) {
+            // Modified values may not match the database
+            return null;
+        }
+        return previous;
     }
 
     /**
@@ -1054,7 +1107,7 @@ public class SQLContainer implements Container, Container.Filterable,
                 getLogger().log(Level.FINE,
                         "The query delegate doesn't support sorting", e);
             }
-            int newSize = queryDelegate.getCount();
+            int newSize = countStrategy.getCount(this, queryDelegate);
             sizeUpdated = new Date();
             sizeDirty = false;
             if (newSize != size) {
@@ -1171,35 +1224,162 @@ public class SQLContainer implements Container, Container.Filterable,
      * identification of RowItems.
      */
     private void getPage() {
+        getPage(null);
+    }
+
+    /**
+     * Fetches a page like {@link #getPage()}, using keyset pagination if a
+     * preceding row is given and the query delegate supports it.
+     *
+     * @param seekRow
+     *            the row directly preceding the page, or <code>null</code> to
+     *            fetch the page using the offset
+     */
+    private void getPage(RowItem seekRow) {
         updateCount();
-        ResultSet rs = null;
-        ResultSetMetaData rsmd = null;
-        cachedItems.clear();
+        rowCache.clear();
         itemIndexes.clear();
         try {
-            try {
-                queryDelegate.setOrderBy(sorters);
-            } catch (UnsupportedOperationException e) {
-                /* The query delegate doesn't support sorting. */
-                /* No need to do anything. */
-                getLogger().log(Level.FINE,
-                        "The query delegate doesn't support sorting", e);
+            queryDelegate.setOrderBy(sorters);
+        } catch (UnsupportedOperationException e) {
+            /* The query delegate doesn't support sorting. */
+            /* No need to do anything. */
+            getLogger().log(Level.FINE,
+                    "The query delegate doesn't support sorting", e);
+        }
+        int fetchedRows = pageLength * CACHE_RATIO + cacheOverlap;
+        if (seekRow != null && !((TableQuery) queryDelegate)
+                .isKeysetPagingApplicable(seekRow)) {
+            seekRow = null;
+        }
+        SharedRowCache.PageKey key = null;
+        SharedRowCache.Page page = null;
+        long generation = 0;
+        if (sharedRowCache != null && queryDelegate instanceof TableQuery) {
+            key = SharedRowCache.createKey((TableQuery) queryDelegate,
+                    currentOffset, fetchedRows);
+            generation = sharedRowCache.getGeneration(key);
+            page = sharedRowCache.get(key);
+        }
+        if (page == null) {
+            page = fetchPage(fetchedRows, seekRow);
+            if (key != null && seekRow == null) {
+                /*
+                 * Not added if the table was written to in the meantime. Pages
+                 * fetched using keyset pagination are not added since rows
+                 * may have been inserted or removed before the seek row, so
+                 * they do not necessarily start at the offset of the key.
+                 */
+                sharedRowCache.put(key, page, generation);
+            }
+            getLogger().log(Level.FINER, "Fetched {0} rows starting from {1}",
+                    new Object[] { fetchedRows, currentOffset });
+        }
+
+        /* Create new items and column properties */
+        int rowCount = currentOffset;
+        if (!queryDelegate.implementationRespectsPagingLimits()) {
+            rowCount = currentOffset = 0;
+            setPageLengthInternal(size);
+        }
+        String[] columnLabels = page.getColumnLabels();
+        List<RowId> rowIds = page.getRowIds();
+        List<Object[]> rowValues = page.getRowValues();
+        for (int row = 0; row < rowIds.size(); row++) {
+            RowId id = rowIds.get(row);
+            if (removedItems.containsKey(id)) {
+                continue;
+            }
+            Object[] values = rowValues.get(row);
+            List<ColumnProperty> itemProperties = new ArrayList<ColumnProperty>();
+            List<String> propertiesToAdd = new ArrayList<String>(propertyIds);
+            for (int i = 0; i < columnLabels.length; i++) {
+                String colName = columnLabels[i];
+                if (colName == null) {
+                    continue;
+                }
+                Object value = values[i];
+                if (key != null) {
+                    // The values are shared with other containers
+                    value = SharedRowCache.copyValue(value);
+                }
+                Class<?> type = value != null ? value.getClass()
+                        : Object.class;
+                if (value == null) {
+                    for (String propName : propertyTypes.keySet()) {
+                        if (propName.equals(colName)) {
+                            type = propertyTypes.get(propName);
+                            break;
+                        }
+                    }
+                }
+                /*
+                 * In case there are more than one column with the same name,
+                 * add only the first one. This can easily happen if you join
+                 * many tables where each table has an ID column.
+                 */
+                if (propertiesToAdd.contains(colName)) {
+                    ColumnProperty cp = new ColumnProperty(colName,
+                            propertyReadOnly.get(colName),
+                            propertyPersistable.get(colName),
+                            propertyNullable.get(colName),
+                            propertyPrimaryKey.get(colName), value, type);
+                    itemProperties.add(cp);
+                    propertiesToAdd.remove(colName);
+                }
+            }
+            /* Cache item */
+            itemIndexes.put(rowCount, id);
+
+            // if an item with the id is contained in the modified
+            // cache, then use this record and add it to the cached
+            // items. Otherwise create a new item
+            int modifiedIndex = indexInModifiedCache(id);
+            if (modifiedIndex != -1) {
+                rowCache.put(id, modifiedItems.get(modifiedIndex));
+            } else {
+                rowCache.put(id, new RowItem(this, id, itemProperties));
             }
+
+            rowCount++;
+        }
+        pageRowCount = rowCount - currentOffset;
+    }
+
+    /**
+     * Reads the rows of the current page from the data source. The values of
+     * columns that are not valid property ids are not read and their labels
+     * are left <code>null</code>.
+     *
+     * @param fetchedRows
+     *            the number of rows to fetch
+     * @param seekRow
+     *            the row directly preceding the page if keyset pagination is
+     *            applicable, or <code>null</code> to fetch the page using the
+     *            offset
+     * @return the raw contents of the page
+     */
+    private SharedRowCache.Page fetchPage(int fetchedRows, RowItem seekRow) {
+        ResultSet rs = null;
+        try {
             queryDelegate.beginTransaction();
-            int fetchedRows = pageLength * CACHE_RATIO + cacheOverlap;
-            rs = queryDelegate.getResults(currentOffset, fetchedRows);
-            rsmd = rs.getMetaData();
+            if (seekRow != null) {
+                rs = ((TableQuery) queryDelegate).getResultsAfter(seekRow,
+                        fetchedRows);
+            } else {
+                rs = queryDelegate.getResults(currentOffset, fetchedRows);
+            }
+            ResultSetMetaData rsmd = rs.getMetaData();
             List<String> pKeys = queryDelegate.getPrimaryKeyColumns();
-            // }
-            /* Create new items and column properties */
-            ColumnProperty cp = null;
-            int rowCount = currentOffset;
-            if (!queryDelegate.implementationRespectsPagingLimits()) {
-                rowCount = currentOffset = 0;
-                setPageLengthInternal(size);
+            String[] columnLabels = new String[rsmd.getColumnCount()];
+            for (int i = 1; i <= columnLabels.length; i++) {
+                if (isColumnIdentifierValid(rsmd.getColumnLabel(i))) {
+                    columnLabels[i - 1] = rsmd.getColumnLabel(i);
+                }
             }
+            List<RowId> rowIds = new ArrayList<RowId>();
+            List<Object[]> rowValues = new ArrayList<Object[]>();
             while (rs.next()) {
-                List<ColumnProperty> itemProperties = new ArrayList<ColumnProperty>();
                 /* Generate row itemId based on primary key(s) */
                 Object[] itemId = new Object[pKeys.size()];
                 for (int i = 0; i < pKeys.size(); i++) {
@@ -1211,65 +1391,19 @@ public class SQLContainer implements Container, Container.Filterable,
                 } else {
                     id = new RowId(itemId);
                 }
-                List<String> propertiesToAdd = new ArrayList<String>(
-                        propertyIds);
-                if (!removedItems.containsKey(id)) {
-                    for (int i = 1; i <= rsmd.getColumnCount(); i++) {
-                        if (!isColumnIdentifierValid(rsmd.getColumnLabel(i))) {
-                            continue;
-                        }
-                        String colName = rsmd.getColumnLabel(i);
-                        Object value = rs.getObject(i);
-                        Class<?> type = value != null ? value.getClass()
-                                : Object.class;
-                        if (value == null) {
-                            for (String propName : propertyTypes.keySet()) {
-                                if (propName.equals(rsmd.getColumnLabel(i))) {
-                                    type = propertyTypes.get(propName);
-                                    break;
-                                }
-                            }
-                        }
-                        /*
-                         * In case there are more than one column with the same
-                         * name, add only the first one. This can easily happen
-                         * if you join many tables where each table has an ID
-                         * column.
-                         */
-                        if (propertiesToAdd.contains(colName)) {
-
-                            cp = new ColumnProperty(colName,
-                                    propertyReadOnly.get(colName),
-                                    propertyPersistable.get(colName),
-                                    propertyNullable.get(colName),
-                                    propertyPrimaryKey.get(colName), value,
-                                    type);
-                            itemProperties.add(cp);
-                            propertiesToAdd.remove(colName);
-                        }
+                Object[] values = new Object[columnLabels.length];
+                for (int i = 0; i < columnLabels.length; i++) {
+                    if (columnLabels[i] != null) {
+                        values[i] = rs.getObject(i + 1);
                     }
-                    /* Cache item */
-                    itemIndexes.put(rowCount, id);
-
-                    // if an item with the id is contained in the modified
-                    // cache, then use this record and add it to the cached
-                    // items. Otherwise create a new item
-                    int modifiedIndex = indexInModifiedCache(id);
-                    if (modifiedIndex != -1) {
-                        cachedItems.put(id, modifiedItems.get(modifiedIndex));
-                    } else {
-                        cachedItems.put(id,
-                                new RowItem(this, id, itemProperties));
-                    }
-
-                    rowCount++;
                 }
+                rowIds.add(id);
+                rowValues.add(values);
             }
             rs.getStatement().close();
             rs.close();
             queryDelegate.commit();
-            getLogger().log(Level.FINER, "Fetched {0} rows starting from {1}",
-                    new Object[] { fetchedRows, currentOffset });
+            return new SharedRowCache.Page(columnLabels, rowIds, rowValues);
         } catch (SQLException e) {
             getLogger().log(Level.WARNING, "Failed to fetch rows, rolling back",
                     e);
@@ -1480,6 +1614,80 @@ public class SQLContainer implements Container, Container.Filterable,
         }
     }
 
+    /***************************************/
+    /** ITEMCHANGENOTIFIER IMPLEMENTATION **/
+    /***************************************/
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * An item change event is sent whenever the value of a property of an item
+     * is changed, both in auto commit mode and when the change is buffered.
+     *
+     * @since 7.7.24
+     */
+    @Override
+    public void addItemChangeListener(Container.ItemChangeListener listener) {
+        if (itemChangeListeners == null) {
+            itemChangeListeners = new LinkedList<Container.ItemChangeListener>();
+        }
+        itemChangeListeners.add(listener);
+    }
+
+    @Override
+    public void removeItemChangeListener(
+            Container.ItemChangeListener listener) {
+        if (itemChangeListeners != null) {
+            itemChangeListeners.remove(listener);
+        }
+    }
+
+    /**
+     * Sends an item change event to all registered listeners.
+     *
+     * @since 7.7.24
+     * @param itemId
+     *            the id of the changed item
+     */
+    protected void fireItemChange(Object itemId) {
+        if (itemChangeListeners != null) {
+            final Object[] l = itemChangeListeners.toArray();
+            final Container.ItemChangeEvent event = new SQLContainer.ItemChangeEvent(
+                    this, itemId);
+            for (int i = 0; i < l.length; i++) {
+                ((Container.ItemChangeListener) l[i])
+                        .containerItemChange(event);
+            }
+        }
+    }
+
+    /**
+     * Simple ItemChangeEvent implementation.
+     *
+     * @since 7.7.24
+     */
+    @SuppressWarnings("serial")
+    public static class ItemChangeEvent extends EventObject
+            implements Container.ItemChangeEvent {
+
+        private final Object itemId;
+
+        private ItemChangeEvent(SQLContainer source, Object itemId) {
+            super(source);
+            this.itemId = itemId;
+        }
+
+        @Override
+        public Container getContainer() {
+            return (Container) getSource();
+        }
+
+        @Override
+        public Object getItemId() {
+            return itemId;
+        }
+    }
+
     /**************************************************/
     /** ROWIDCHANGELISTENER PASSING TO QUERYDELEGATE **/
     /**************************************************/
@@ -1537,6 +1745,105 @@ public class SQLContainer implements Container, Container.Filterable,
         }
     }
 
+    /**
+     * Invalidates the pages of this container's table in all shared row caches
+     * and, if enabled, notifies other containers that their caches may have
+     * become stale.
+     */
+    private void notifyOfCacheFlush() {
+        CacheFlushNotifier.invalidateSharedRowCaches(this);
+        if (notificationsEnabled) {
+            CacheFlushNotifier.notifyOfCacheFlush(this);
+        }
+    }
+
+    /**
+     * Sets the cache used for the items fetched by this container. By default
+     * an {@link LRURowCache} without a time to live is used.
+     * <p>
+     * As a side effect the container will be refreshed.
+     *
+     * @param rowCache
+     *            the row cache to use, not <code>null</code>
+     * @since 7.7.24
+     */
+    public void setRowCache(RowCache rowCache) {
+        if (rowCache == null) {
+            throw new IllegalArgumentException("Row cache must not be null.");
+        }
+        this.rowCache = rowCache;
+        rowCache.setCapacity(CACHE_RATIO * getPageLength() + cacheOverlap);
+        refresh();
+    }
+
+    /**
+     * Gets the cache used for the items fetched by this container.
+     *
+     * @return the row cache, not <code>null</code>
+     * @since 7.7.24
+     */
+    public RowCache getRowCache() {
+        return rowCache;
+    }
+
+    /**
+     * Sets a page cache shared with other containers. When set, the rows of a
+     * page are taken from the shared cache if another container has already
+     * fetched the same page with the same filters and sorting, and the pages
+     * of the table are invalidated whenever this container writes to it.
+     * <p>
+     * The shared cache is only used if the query delegate is a
+     * {@link TableQuery}. As a side effect the container will be refreshed.
+     *
+     * @param sharedRowCache
+     *            the shared cache to use, or <code>null</code> to always fetch
+     *            pages from the database
+     * @since 7.7.24
+     */
+    public void setSharedRowCache(SharedRowCache sharedRowCache) {
+        this.sharedRowCache = sharedRowCache;
+        refresh();
+    }
+
+    /**
+     * Gets the page cache shared with other containers.
+     *
+     * @return the shared row cache, or <code>null</code> if not used
+     * @since 7.7.24
+     */
+    public SharedRowCache getSharedRowCache() {
+        return sharedRowCache;
+    }
+
+    /**
+     * Sets the strategy used to count the rows in the data source. By default
+     * an {@link ExactCountStrategy} is used.
+     * <p>
+     * As a side effect the container will be refreshed.
+     *
+     * @param countStrategy
+     *            the count strategy to use, not <code>null</code>
+     * @since 7.7.24
+     */
+    public void setCountStrategy(CountStrategy countStrategy) {
+        if (countStrategy == null) {
+            throw new IllegalArgumentException(
+                    "Count strategy must not be null.");
+        }
+        this.countStrategy = countStrategy;
+        refresh();
+    }
+
+    /**
+     * Gets the strategy used to count the rows in the data source.
+     *
+     * @return the count strategy, not <code>null</code>
+     * @since 7.7.24
+     */
+    public CountStrategy getCountStrategy() {
+        return countStrategy;
+    }
+
     /******************************************/
     /** Referencing mechanism implementation **/
     /******************************************/
@@ -16,6 +16,12 @@
 package com.vaadin.data.util.sqlcontainer;
 
 import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import com.vaadin.data.util.sqlcontainer.query.generator.StatementHelper;
 
 public class SQLUtil implements Serializable {
     /**
@@ -48,4 +54,35 @@ public class SQLUtil implements Serializable {
         fixedConstant = fixedConstant.replaceAll("\\\"", "\\\\\"");
         return fixedConstant;
     }
+
+    /**
+     * Executes a query returning a single value using the given connection.
+     *
+     * @param conn
+     *            the connection to use
+     * @param sh
+     *            the statement to execute
+     * @return the value of the first column of the first row, or
+     *         <code>null</code> if the query returned no rows
+     * @throws SQLException
+     *             if the query fails
+     */
+    static Object executeScalarQuery(Connection conn, StatementHelper sh)
+            throws SQLException {
+        PreparedStatement pstmt = conn.prepareStatement(sh.getQueryString());
+        ResultSet rs = null;
+        try {
+            sh.setParameterValuesToStatement(pstmt);
+            rs = pstmt.executeQuery();
+            return rs.next() ? rs.getObject(1) : null;
+        } finally {
+            try {
+                if (rs != null) {
+                    rs.close();
+                }
+            } finally {
+                pstmt.close();
+            }
+        }
+    }
 }
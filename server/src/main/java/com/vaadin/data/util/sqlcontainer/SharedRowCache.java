@@ -0,0 +1,420 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.query.TableQuery;
+import com.vaadin.data.util.sqlcontainer.query.generator.StatementHelper;
+
+/**
+ * A cache of fetched pages that can be shared by all {@link SQLContainer}s of
+ * an application, e.g. by storing one instance in a static field. Containers
+ * that show the same table with the same filters, sorting and offset reuse the
+ * rows fetched by each other instead of querying the database again.
+ * <p>
+ * Only the raw column values of the rows are shared. Each container still
+ * creates its own {@link RowItem}s from the shared values, so modifying an
+ * item in one container never affects other containers.
+ * <p>
+ * The pages of a table are invalidated whenever any {@link SQLContainer}
+ * writes to that table. Changes made to the database by other means are
+ * visible only after the pages have expired or after {@link #invalidate}
+ * has been called, so a time to live should be used unless all writes go
+ * through containers.
+ * <p>
+ * Pages fetched through different connection pools are never shared, even if
+ * the table names match. Mutable values such as dates and byte arrays are
+ * copied for each container. Only containers using a {@link TableQuery} use
+ * the shared cache. This class
+ * is thread safe. The cached pages are not serialized; a deserialized instance
+ * is empty and is no longer shared with the original instance.
+ *
+ * @see SQLContainer#setSharedRowCache(SharedRowCache)
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class SharedRowCache implements Serializable {
+
+    /**
+     * The default maximum number of pages held in the cache.
+     */
+    public static final int DEFAULT_MAX_PAGES = 1000;
+
+    /**
+     * Identifies one page of one table with given filters and sorting, fetched
+     * through a given connection pool.
+     */
+    static class PageKey implements Serializable {
+        private final JDBCConnectionPool connectionPool;
+        private final String tableName;
+        private final String queryString;
+        private final List<Object> parameters;
+
+        PageKey(JDBCConnectionPool connectionPool, String tableName,
+                StatementHelper statement) {
+            this.connectionPool = connectionPool;
+            this.tableName = tableName;
+            queryString = statement.getQueryString();
+            parameters = new ArrayList<Object>(
+                    statement.getParameterValues());
+        }
+
+        JDBCConnectionPool getConnectionPool() {
+            return connectionPool;
+        }
+
+        String getTableName() {
+            return tableName;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PageKey)) {
+                return false;
+            }
+            PageKey other = (PageKey) obj;
+            // Pools are compared by identity, they don't define equality
+            return connectionPool == other.connectionPool
+                    && tableName.equals(other.tableName)
+                    && queryString.equals(other.queryString)
+                    && parameters.equals(other.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(connectionPool)
+                    + queryString.hashCode()) + parameters.hashCode();
+        }
+    }
+
+    /**
+     * The raw contents of one fetched page.
+     */
+    static class Page implements Serializable {
+        private final String[] columnLabels;
+        private final List<RowId> rowIds;
+        private final List<Object[]> rowValues;
+        private final long created = System.currentTimeMillis();
+
+        Page(String[] columnLabels, List<RowId> rowIds,
+                List<Object[]> rowValues) {
+            this.columnLabels = columnLabels;
+            this.rowIds = rowIds;
+            this.rowValues = rowValues;
+        }
+
+        String[] getColumnLabels() {
+            return columnLabels;
+        }
+
+        List<RowId> getRowIds() {
+            return rowIds;
+        }
+
+        /**
+         * Gets the column values of the rows. The arrays must not be
+         * modified.
+         *
+         * @return the values of each row, in the order of the column labels
+         */
+        List<Object[]> getRowValues() {
+            return rowValues;
+        }
+    }
+
+    private final int maxPages;
+    private final long timeToLive;
+
+    private transient CacheMap<PageKey, Page> pages;
+
+    /*
+     * Incremented whenever the pages of a table are invalidated, so that pages
+     * fetched before the invalidation are not added afterwards. Guarded by
+     * pages. Keys are lower case table names.
+     */
+    private transient Map<String, Long> tableGenerations;
+    private transient long invalidateAllCount;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a new cache holding at most {@link #DEFAULT_MAX_PAGES} pages
+     * without a time to live.
+     */
+    public SharedRowCache() {
+        this(DEFAULT_MAX_PAGES, 0);
+    }
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxPages
+     *            the maximum number of pages to hold, the least recently used
+     *            page is evicted when this is exceeded
+     * @param timeToLiveMillis
+     *            the time in milliseconds after which a cached page is
+     *            fetched again, or 0 to keep pages until they are evicted or
+     *            invalidated
+     */
+    public SharedRowCache(int maxPages, long timeToLiveMillis) {
+        if (maxPages <= 0) {
+            throw new IllegalArgumentException(
+                    "The maximum number of pages must be positive");
+        }
+        if (timeToLiveMillis < 0) {
+            throw new IllegalArgumentException(
+                    "Time to live must not be negative");
+        }
+        this.maxPages = maxPages;
+        timeToLive = timeToLiveMillis;
+        createPages();
+    }
+
+    private void createPages() {
+        pages = new CacheMap<PageKey, Page>(true);
+        pages.setCacheLimit(maxPages);
+        tableGenerations = new HashMap<String, Long>();
+        CacheFlushNotifier.addSharedRowCache(this);
+    }
+
+    /**
+     * Creates the key of the page that the given query would fetch with its
+     * current filters and sorting.
+     *
+     * @param query
+     *            the query
+     * @param offset
+     *            the index of the first row
+     * @param pageLength
+     *            the number of rows
+     * @return the page key
+     */
+    static PageKey createKey(TableQuery query, int offset, int pageLength) {
+        return new PageKey(query.getConnectionPool(), query.getTableName(),
+                query.getSelectStatement(offset, pageLength));
+    }
+
+    /**
+     * Gets the current generation of the table of the given page. The
+     * generation changes whenever the pages of the table are invalidated.
+     *
+     * @param key
+     *            the key of the page
+     * @return the current generation of the table
+     */
+    long getGeneration(PageKey key) {
+        synchronized (pages) {
+            Long generation = tableGenerations
+                    .get(key.getTableName().toLowerCase());
+            // Both counters only grow, so the sum changes if either changes
+            return invalidateAllCount
+                    + (generation == null ? 0 : generation.longValue());
+        }
+    }
+
+    /**
+     * Gets a cached page.
+     *
+     * @param key
+     *            the key of the page
+     * @return the page, or <code>null</code> if the page is not cached or has
+     *         expired
+     */
+    Page get(PageKey key) {
+        Page page;
+        synchronized (pages) {
+            page = pages.get(key);
+            if (page != null && isExpired(page, System.currentTimeMillis())) {
+                pages.remove(key);
+                page = null;
+            }
+        }
+        if (page == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return page;
+    }
+
+    /**
+     * Adds a fetched page to the cache, unless the pages of the table have
+     * been invalidated after the page was fetched.
+     *
+     * @param key
+     *            the key of the page
+     * @param page
+     *            the page
+     * @param generation
+     *            the {@link #getGeneration(PageKey) generation} of the table
+     *            before the page was fetched
+     */
+    void put(PageKey key, Page page, long generation) {
+        synchronized (pages) {
+            if (getGeneration(key) == generation) {
+                pages.put(key, page);
+            }
+        }
+    }
+
+    /**
+     * Removes all cached pages of the given table. The table name is compared
+     * ignoring case, since the name may have been converted to upper case when
+     * the query read the table metadata.
+     *
+     * @param tableName
+     *            the name of the table
+     */
+    public void invalidate(String tableName) {
+        invalidate(null, tableName);
+    }
+
+    /**
+     * Removes the cached pages of the given table fetched through the given
+     * connection pool.
+     *
+     * @param connectionPool
+     *            the connection pool, or <code>null</code> to invalidate the
+     *            pages of all pools
+     * @param tableName
+     *            the name of the table
+     */
+    void invalidate(JDBCConnectionPool connectionPool, String tableName) {
+        synchronized (pages) {
+            String key = tableName.toLowerCase();
+            Long generation = tableGenerations.get(key);
+            tableGenerations.put(key, Long.valueOf(
+                    generation == null ? 1 : generation.longValue() + 1));
+            Iterator<PageKey> i = pages.keySet().iterator();
+            while (i.hasNext()) {
+                PageKey pageKey = i.next();
+                if ((connectionPool == null
+                        || pageKey.getConnectionPool() == connectionPool)
+                        && pageKey.getTableName()
+                                .equalsIgnoreCase(tableName)) {
+                    i.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all cached pages.
+     */
+    public void invalidateAll() {
+        synchronized (pages) {
+            invalidateAllCount++;
+            pages.clear();
+        }
+    }
+
+    /**
+     * Gets the number of pages currently in the cache, including pages that
+     * have expired but not yet been removed.
+     *
+     * @return the number of cached pages
+     */
+    public int getPageCount() {
+        synchronized (pages) {
+            return pages.size();
+        }
+    }
+
+    /**
+     * Gets the maximum number of pages held in the cache.
+     *
+     * @return the maximum number of pages
+     */
+    public int getMaxPages() {
+        return maxPages;
+    }
+
+    /**
+     * Gets the time after which a cached page is fetched again.
+     *
+     * @return the time to live in milliseconds, or 0 if pages are kept until
+     *         they are evicted or invalidated
+     */
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    /**
+     * Gets the number of page lookups that were served from the cache.
+     *
+     * @return the number of cache hits
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of page lookups that required a database query.
+     *
+     * @return the number of cache misses
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * Copies a cached value that could be modified by the container using it,
+     * so that the modification would not be visible to other containers.
+     *
+     * @param value
+     *            the cached value
+     * @return a copy of mutable values, otherwise the value itself
+     */
+    static Object copyValue(Object value) {
+        if (value instanceof Date) {
+            // Also preserves the nanoseconds of a Timestamp
+            return ((Date) value).clone();
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).clone();
+        }
+        return value;
+    }
+
+    private boolean isExpired(Page page, long now) {
+        return timeToLive > 0 && now - page.created >= timeToLive;
+    }
+
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        createPages();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[pages=" + getPageCount()
+                + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+                + "]";
+    }
+}
@@ -167,6 +167,16 @@ public abstract class AbstractTransactionalQuery implements Serializable {
         return connectionPool.reserveConnection();
     }
 
+    /**
+     * Returns the connection pool used by this query.
+     *
+     * @return the connection pool
+     * @since 7.7.24
+     */
+    public JDBCConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
     protected boolean isInTransaction() {
         return activeConnection != null;
     }
@@ -26,13 +26,16 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EventObject;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.vaadin.data.Container.Filter;
+import com.vaadin.data.Property;
 import com.vaadin.data.util.filter.Compare.Equal;
 import com.vaadin.data.util.sqlcontainer.ColumnProperty;
 import com.vaadin.data.util.sqlcontainer.OptimisticLockException;
@@ -42,6 +45,7 @@ import com.vaadin.data.util.sqlcontainer.SQLUtil;
 import com.vaadin.data.util.sqlcontainer.TemporaryRowId;
 import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
 import com.vaadin.data.util.sqlcontainer.query.generator.DefaultSQLGenerator;
+import com.vaadin.data.util.sqlcontainer.query.generator.KeysetPagination;
 import com.vaadin.data.util.sqlcontainer.query.generator.MSSQLGenerator;
 import com.vaadin.data.util.sqlcontainer.query.generator.SQLGenerator;
 import com.vaadin.data.util.sqlcontainer.query.generator.StatementHelper;
@@ -64,6 +68,10 @@ public class TableQuery extends AbstractTransactionalQuery
      * Primary key column name(s) in the table.
      */
     private List<String> primaryKeyColumns;
+    /**
+     * Columns declared NOT NULL in the table, upper case.
+     */
+    private final Set<String> notNullColumns = new HashSet<String>();
     /**
      * Version column name in the table.
      */
@@ -76,6 +84,9 @@ public class TableQuery extends AbstractTransactionalQuery
     /** SQLGenerator instance to use for generating queries */
     private SQLGenerator sqlGenerator;
 
+    /** Whether sequential pages may be fetched using keyset pagination */
+    private boolean keysetPagingEnabled = false;
+
     /** Row ID change listeners */
     private LinkedList<RowIdChangeListener> rowIdChangeListeners;
     /** Row ID change events, stored until commit() is called */
@@ -192,8 +203,7 @@ public class TableQuery extends AbstractTransactionalQuery
     @Override
     public int getCount() throws SQLException {
         getLogger().log(Level.FINE, "Fetching count...");
-        StatementHelper sh = sqlGenerator.generateSelectQuery(
-                getFullTableName(), filters, null, 0, 0, "COUNT(*)");
+        StatementHelper sh = getCountStatement();
         boolean shouldCloseTransaction = false;
         if (!isInTransaction()) {
             shouldCloseTransaction = true;
@@ -220,26 +230,150 @@ public class TableQuery extends AbstractTransactionalQuery
         return count;
     }
 
+    /**
+     * Generates the statement that {@link #getCount()} executes with the
+     * current filters.
+     *
+     * @return the count statement
+     * @since 7.7.24
+     */
+    public StatementHelper getCountStatement() {
+        return sqlGenerator.generateSelectQuery(getFullTableName(), filters,
+                null, 0, 0, "COUNT(*)");
+    }
+
     @Override
     public ResultSet getResults(int offset, int pagelength)
             throws SQLException {
-        StatementHelper sh;
-        /*
-         * If no ordering is explicitly set, results will be ordered by the
-         * first primary key column.
-         */
+        return executeQuery(getSelectStatement(offset, pagelength));
+    }
+
+    /**
+     * Generates the statement that {@link #getResults(int, int)} executes with
+     * the current filters and ordering.
+     *
+     * @param offset
+     *            the index of the first row to fetch
+     * @param pagelength
+     *            the number of rows to fetch
+     * @return the select statement
+     * @since 7.7.24
+     */
+    public StatementHelper getSelectStatement(int offset, int pagelength) {
+        return sqlGenerator.generateSelectQuery(getFullTableName(), filters,
+                getEffectiveOrderBy(), offset, pagelength, null);
+    }
+
+    /**
+     * Returns the ordering used in queries. If no ordering is explicitly set,
+     * results will be ordered by the primary key columns.
+     */
+    private List<OrderBy> getEffectiveOrderBy() {
         if (orderBys == null || orderBys.isEmpty()) {
             List<OrderBy> ob = new ArrayList<OrderBy>();
             for (int i = 0; i < primaryKeyColumns.size(); i++) {
                 ob.add(new OrderBy(primaryKeyColumns.get(i), true));
             }
-            sh = sqlGenerator.generateSelectQuery(getFullTableName(), filters,
-                    ob, offset, pagelength, null);
-        } else {
-            sh = sqlGenerator.generateSelectQuery(getFullTableName(), filters,
-                    orderBys, offset, pagelength, null);
+            return ob;
         }
-        return executeQuery(sh);
+        return orderBys;
+    }
+
+    /**
+     * Enables or disables keyset pagination. When enabled, a page that
+     * directly follows a previously fetched row can be fetched using
+     * {@link #getResultsAfter(RowItem, int)}, which selects the rows after
+     * that row in the sort order instead of skipping rows using an offset.
+     * This keeps fetching pages deep into a large table fast.
+     * <p>
+     * Keyset pagination is only used when the ordering includes all primary
+     * key columns, which is always the case when no ordering has been set,
+     * and all ordering columns are declared NOT NULL. Rows with
+     * <code>null</code> values would otherwise be skipped on databases that
+     * sort them last. Disabled by default.
+     *
+     * @param keysetPagingEnabled
+     *            <code>true</code> to enable keyset pagination
+     * @since 7.7.24
+     */
+    public void setKeysetPagingEnabled(boolean keysetPagingEnabled) {
+        this.keysetPagingEnabled = keysetPagingEnabled;
+    }
+
+    /**
+     * Returns whether keyset pagination is enabled.
+     *
+     * @return <code>true</code> if keyset pagination is enabled
+     * @since 7.7.24
+     */
+    public boolean isKeysetPagingEnabled() {
+        return keysetPagingEnabled;
+    }
+
+    /**
+     * Checks whether the rows following the given row can be fetched using
+     * {@link #getResultsAfter(RowItem, int)} with the current ordering.
+     *
+     * @param lastRow
+     *            the last row of the previous page
+     * @return <code>true</code> if keyset pagination is enabled, the ordering
+     *         includes all primary key columns, all ordering columns are
+     *         declared NOT NULL and the row has a value for all ordering
+     *         columns, otherwise <code>false</code>
+     * @since 7.7.24
+     */
+    public boolean isKeysetPagingApplicable(RowItem lastRow) {
+        if (!keysetPagingEnabled) {
+            return false;
+        }
+        List<OrderBy> ob = getEffectiveOrderBy();
+        if (!KeysetPagination.isApplicable(ob, primaryKeyColumns)) {
+            return false;
+        }
+        for (OrderBy o : ob) {
+            if (!notNullColumns.contains(o.getColumn().toUpperCase())) {
+                // The seek condition can't handle null values
+                return false;
+            }
+            Property<?> p = lastRow.getItemProperty(o.getColumn());
+            if (p == null || p.getValue() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fetches the rows that follow the given row in the current ordering,
+     * using the current filters.
+     *
+     * @param lastRow
+     *            the last row of the previous page
+     * @param pagelength
+     *            the number of rows to fetch
+     * @return the result set
+     * @throws IllegalStateException
+     *             if keyset pagination is not applicable for the row
+     * @throws SQLException
+     *             if the query fails
+     * @see #isKeysetPagingApplicable(RowItem)
+     * @since 7.7.24
+     */
+    public ResultSet getResultsAfter(RowItem lastRow, int pagelength)
+            throws SQLException {
+        if (!isKeysetPagingApplicable(lastRow)) {
+            throw new IllegalStateException(
+                    "Keyset pagination is not applicable.");
+        }
+        List<OrderBy> ob = getEffectiveOrderBy();
+        Object[] lastValues = new Object[ob.size()];
+        for (int i = 0; i < lastValues.length; i++) {
+            lastValues[i] = lastRow.getItemProperty(ob.get(i).getColumn())
+                    .getValue();
+        }
+        return executeQuery(KeysetPagination.generateSelectQuery(sqlGenerator,
+                getFullTableName(), filters, ob, lastValues, pagelength,
+                null));
     }
 
     @Override
@@ -580,6 +714,7 @@ public class TableQuery extends AbstractTransactionalQuery
                 if (!names.isEmpty()) {
                     primaryKeyColumns = names;
                 }
+                readNotNullColumns(dbmd);
                 if (primaryKeyColumns == null || primaryKeyColumns.isEmpty()) {
                     throw new IllegalArgumentException(
                             "Primary key constraints have not been defined for the table \""
@@ -614,6 +749,43 @@ public class TableQuery extends AbstractTransactionalQuery
         }
     }
 
+    /**
+     * Reads the columns that are declared NOT NULL, which can safely be used
+     * for keyset pagination. Primary key columns are never null.
+     */
+    private void readNotNullColumns(DatabaseMetaData dbmd) {
+        notNullColumns.clear();
+        if (primaryKeyColumns != null) {
+            for (String column : primaryKeyColumns) {
+                notNullColumns.add(column.toUpperCase());
+            }
+        }
+        ResultSet columns = null;
+        try {
+            columns = dbmd.getColumns(catalogName, schemaName, tableName,
+                    null);
+            while (columns != null && columns.next()) {
+                if (columns.getInt(
+                        "NULLABLE") == DatabaseMetaData.columnNoNulls) {
+                    notNullColumns.add(
+                            columns.getString("COLUMN_NAME").toUpperCase());
+                }
+            }
+        } catch (SQLException e) {
+            // Keyset pagination is then only used when ordering by the
+            // primary key
+            getLogger().log(Level.FINE,
+                    "Failed to read the nullability of the columns", e);
+        } finally {
+            if (columns != null) {
+                try {
+                    columns.close();
+                } catch (SQLException ignore) {
+                }
+            }
+        }
+    }
+
     private RowId getNewRowId(RowItem row, ResultSet genKeys) {
         try {
             /* Fetch primary key values and generate a map out of them. */
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.util.sqlcontainer.query.generator;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.util.filter.And;
+import com.vaadin.data.util.filter.Compare;
+import com.vaadin.data.util.filter.Or;
+import com.vaadin.data.util.sqlcontainer.query.OrderBy;
+
+/**
+ * Generates keyset (seek) pagination queries. Instead of skipping a number of
+ * rows using an offset, a keyset query selects the rows that come after the
+ * last row of the previous page in the sort order. The database can then find
+ * the first row of the page using an index, which makes fetching a page
+ * equally fast regardless of how deep into the result it is.
+ * <p>
+ * Keyset pagination requires a total ordering, so it can only be used when the
+ * ordering includes all primary key columns. The ordering columns must also be
+ * declared NOT NULL, since the seek condition does not match rows with
+ * <code>null</code> values. The seek condition is expressed
+ * using the standard filters, so the queries can be generated with any
+ * {@link SQLGenerator}.
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class KeysetPagination implements Serializable {
+
+    private KeysetPagination() {
+        // Only static helpers
+    }
+
+    /**
+     * Checks whether keyset pagination can be used with the given ordering.
+     *
+     * @param orderBys
+     *            the ordering of the query
+     * @param primaryKeyColumns
+     *            the primary key columns of the table
+     * @return <code>true</code> if the ordering includes all primary key
+     *         columns, otherwise <code>false</code>
+     */
+    public static boolean isApplicable(List<OrderBy> orderBys,
+            List<String> primaryKeyColumns) {
+        if (orderBys == null || primaryKeyColumns == null
+                || primaryKeyColumns.isEmpty()) {
+            return false;
+        }
+        for (String column : primaryKeyColumns) {
+            boolean found = false;
+            for (OrderBy orderBy : orderBys) {
+                if (orderBy.getColumn().equals(column)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a filter that accepts the rows that come after the given values
+     * in the given ordering. For the ordering <code>a ASC, b DESC</code> and the
+     * values <code>x, y</code>, the filter is
+     * <code>a &gt; x OR (a = x AND b &lt; y)</code>.
+     *
+     * @param orderBys
+     *            the ordering, not empty
+     * @param lastValues
+     *            the values of the ordering columns in the last row of the
+     *            previous page, none of them <code>null</code>
+     * @return the seek filter
+     */
+    public static Filter createSeekFilter(List<OrderBy> orderBys,
+            Object[] lastValues) {
+        if (orderBys.isEmpty() || orderBys.size() != lastValues.length) {
+            throw new IllegalArgumentException(
+                    "A value must be given for each ordering column.");
+        }
+        List<Filter> alternatives = new ArrayList<Filter>();
+        for (int i = 0; i < orderBys.size(); i++) {
+            Filter[] conditions = new Filter[i + 1];
+            for (int j = 0; j < i; j++) {
+                conditions[j] = new Compare.Equal(orderBys.get(j).getColumn(),
+                        lastValues[j]);
+            }
+            OrderBy orderBy = orderBys.get(i);
+            if (lastValues[i] == null) {
+                throw new IllegalArgumentException(
+                        "Keyset pagination does not support null values.");
+            }
+            if (orderBy.isAscending()) {
+                conditions[i] = new Compare.Greater(orderBy.getColumn(),
+                        lastValues[i]);
+            } else {
+                conditions[i] = new Compare.Less(orderBy.getColumn(),
+                        lastValues[i]);
+            }
+            alternatives.add(
+                    conditions.length == 1 ? conditions[0] : new And(conditions));
+        }
+        if (alternatives.size() == 1) {
+            return alternatives.get(0);
+        }
+        return new Or(alternatives.toArray(new Filter[alternatives.size()]));
+    }
+
+    /**
+     * Generates a SELECT query for the page that follows the row with the
+     * given values.
+     *
+     * @param generator
+     *            the SQL generator to use
+     * @param tableName
+     *            name of the table queried
+     * @param filters
+     *            the filters of the query, may be <code>null</code>
+     * @param orderBys
+     *            the ordering of the query, which must include all primary key
+     *            columns
+     * @param lastValues
+     *            the values of the ordering columns in the last row of the
+     *            previous page
+     * @param pagelength
+     *            the number of rows to be returned
+     * @param toSelect
+     *            string containing what to select, e.g. "*"
+     * @return StatementHelper instance containing the query string for a
+     *         PreparedStatement and the values required for the parameters
+     */
+    public static StatementHelper generateSelectQuery(SQLGenerator generator,
+            String tableName, List<Filter> filters, List<OrderBy> orderBys,
+            Object[] lastValues, int pagelength, String toSelect) {
+        List<Filter> seekFilters = new ArrayList<Filter>();
+        if (filters != null) {
+            seekFilters.addAll(filters);
+        }
+        seekFilters.add(createSeekFilter(orderBys, lastValues));
+        return generator.generateSelectQuery(tableName, seekFilters, orderBys,
+                0, pagelength, toSelect);
+    }
+}
@@ -136,7 +136,7 @@ public abstract class AbstractClientConnector
     @Override
     public void markAsDirty() {
         assert getSession() == null
-                || getSession().hasLock() : buildLockAssertMessage(
+                || getSession().hasUILock() : buildLockAssertMessage(
                         "markAsDirty()");
         UI uI = getUI();
         if (uI != null) {
@@ -251,7 +251,7 @@ public abstract class AbstractClientConnector
      */
     protected SharedState getState(boolean markAsDirty) {
         assert getSession() == null
-                || getSession().hasLock() : buildLockAssertMessage(
+                || getSession().hasUILock() : buildLockAssertMessage(
                         "getState()");
 
         if (null == sharedState) {
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics about the tasks enqueued using
+ * {@link VaadinSession#access(Runnable)} for one session. This includes tasks
+ * enqueued using {@link com.vaadin.ui.UI#access(Runnable)} unless
+ * {@link VaadinService#isUILockingEnabled() UI locking} is enabled. The queue
+ * is purged in batches, each batch being run while holding the session lock
+ * once and followed by one push for each UI with automatic push.
+ * <p>
+ * All methods are thread safe and can be called without holding the session
+ * lock.
+ *
+ * @see VaadinSession#getAccessQueueStatistics()
+ * @see VaadinService#getAccessBatchDelay()
+ * @see VaadinService#getAccessBatchSize()
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class AccessQueueStatistics implements Serializable {
+
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final AtomicLong executedTasks = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Records that a task has been added to the queue.
+     */
+    void taskEnqueued() {
+        int depth = queueDepth.incrementAndGet();
+        int max;
+        while (depth > (max = maxQueueDepth.get())) {
+            if (maxQueueDepth.compareAndSet(max, depth)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Records that a task has been removed from the queue.
+     *
+     * @param waitNanos
+     *            the time the task spent in the queue, in nanoseconds
+     * @param executed
+     *            <code>true</code> if the task was run, <code>false</code> if
+     *            it had been cancelled
+     */
+    void taskDequeued(long waitNanos, boolean executed) {
+        queueDepth.decrementAndGet();
+        if (!executed) {
+            return;
+        }
+        executedTasks.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        long max;
+        while (waitNanos > (max = maxWaitNanos.get())) {
+            if (maxWaitNanos.compareAndSet(max, waitNanos)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Records that a batch of tasks has been run.
+     */
+    void batchCompleted() {
+        batches.incrementAndGet();
+    }
+
+    /**
+     * Gets the number of tasks currently waiting in the queue.
+     *
+     * @return the current queue depth
+     */
+    public int getQueueDepth() {
+        // Tasks added directly to the queue are not counted when enqueued
+        return Math.max(0, queueDepth.get());
+    }
+
+    /**
+     * Gets the highest number of tasks that have been waiting in the queue at
+     * the same time.
+     *
+     * @return the maximum queue depth
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    /**
+     * Gets the number of tasks that have been run.
+     *
+     * @return the number of executed tasks
+     */
+    public long getExecutedTaskCount() {
+        return executedTasks.get();
+    }
+
+    /**
+     * Gets the number of batches in which tasks have been run.
+     *
+     * @return the number of batches
+     */
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    /**
+     * Gets the average number of tasks run in one batch.
+     *
+     * @return the average batch size, or 0 if no batches have been run
+     */
+    public double getAverageBatchSize() {
+        long batchCount = batches.get();
+        if (batchCount == 0) {
+            return 0;
+        }
+        return (double) executedTasks.get() / batchCount;
+    }
+
+    /**
+     * Gets the total time executed tasks have spent waiting in the queue.
+     *
+     * @param unit
+     *            the unit of the returned time
+     * @return the total wait time
+     */
+    public long getTotalWaitTime(TimeUnit unit) {
+        return unit.convert(totalWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the longest time an executed task has spent waiting in the queue.
+     *
+     * @param unit
+     *            the unit of the returned time
+     * @return the maximum wait time
+     */
+    public long getMaxWaitTime(TimeUnit unit) {
+        return unit.convert(maxWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the average time executed tasks have spent waiting in the queue.
+     *
+     * @param unit
+     *            the unit of the returned time
+     * @return the average wait time, or 0 if no tasks have been run
+     */
+    public long getAverageWaitTime(TimeUnit unit) {
+        long tasks = executedTasks.get();
+        if (tasks == 0) {
+            return 0;
+        }
+        return unit.convert(totalWaitNanos.get() / tasks,
+                TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[queueDepth=" + getQueueDepth()
+                + ", maxQueueDepth=" + getMaxQueueDepth() + ", executedTasks="
+                + getExecutedTaskCount() + ", batches=" + getBatchCount()
+                + ", maxWaitMillis=" + getMaxWaitTime(TimeUnit.MILLISECONDS)
+                + "]";
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A {@link SessionSerializer} producing smaller output than standard Java
+ * serialization, intended for replicating sessions between the servers of a
+ * cluster.
+ * <p>
+ * Instead of the full description of each class, only the class name and a
+ * hash of the serialized fields of the class are written. The names of classes
+ * commonly found in sessions are replaced by an index to a built-in
+ * dictionary. The output can optionally be compressed.
+ * <p>
+ * When reading, the classes available on the reading server are used to
+ * interpret the data. A session can therefore only be read by a server where
+ * the serialized fields of every class in the session are the same as on the
+ * server that wrote it, which is the case for servers running the same version
+ * of an application. An {@link InvalidClassException} is thrown if a class has
+ * changed.
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class CompactSessionSerializer implements SessionSerializer {
+
+    private static final int MAGIC = 0x56534331;
+
+    private static final int FLAG_COMPRESSED = 1;
+
+    private static final int NAMED_CLASS = 0;
+
+    private static final int COMMON_CLASS = 1;
+
+    /**
+     * Names of classes commonly found in sessions. The names are referenced by
+     * their index in the serialized data, so new names must only be added to
+     * the end.
+     */
+    private static final String[] COMMON_CLASSES = {
+            "java.lang.Boolean", "java.lang.Integer", "java.lang.Long",
+            "java.lang.Double", "java.lang.Float", "java.lang.Number",
+            "java.lang.Enum", "java.lang.Object", "java.util.ArrayList",
+            "java.util.LinkedList", "java.util.HashMap",
+            "java.util.LinkedHashMap", "java.util.HashSet",
+            "java.util.LinkedHashSet", "java.util.TreeMap",
+            "java.util.Locale", "java.util.Date",
+            "java.util.concurrent.ConcurrentHashMap",
+            "java.util.concurrent.ConcurrentHashMap$Segment",
+            "java.util.concurrent.locks.ReentrantLock",
+            "java.util.concurrent.locks.ReentrantLock$Sync",
+            "java.util.concurrent.locks.ReentrantLock$NonfairSync",
+            "java.util.concurrent.locks.AbstractQueuedSynchronizer",
+            "java.util.concurrent.locks.AbstractOwnableSynchronizer",
+            "[Ljava.lang.Object;", "[Ljava.lang.String;", "[Ljava.lang.Class;",
+            "com.vaadin.server.VaadinSession",
+            "com.vaadin.server.AbstractClientConnector",
+            "com.vaadin.server.AbstractExtension",
+            "com.vaadin.server.ClientMethodInvocation",
+            "com.vaadin.server.communication.ServerRpcHandler",
+            "com.vaadin.server.ServerRpcMethodInvocation",
+            "com.vaadin.event.EventRouter", "com.vaadin.event.ListenerMethod",
+            "com.vaadin.ui.UI", "com.vaadin.ui.ConnectorTracker",
+            "com.vaadin.ui.AbstractComponent",
+            "com.vaadin.ui.AbstractSingleComponentContainer",
+            "com.vaadin.ui.AbstractComponentContainer",
+            "com.vaadin.ui.AbstractLayout",
+            "com.vaadin.ui.AbstractOrderedLayout",
+            "com.vaadin.ui.VerticalLayout", "com.vaadin.ui.HorizontalLayout",
+            "com.vaadin.ui.CssLayout", "com.vaadin.ui.Panel",
+            "com.vaadin.ui.Window", "com.vaadin.ui.Label",
+            "com.vaadin.ui.Button", "com.vaadin.ui.AbstractField",
+            "com.vaadin.ui.AbstractTextField", "com.vaadin.ui.TextField",
+            "com.vaadin.ui.Alignment", "com.vaadin.ui.Notification",
+            "com.vaadin.server.Page", "com.vaadin.server.Sizeable$Unit",
+            "com.vaadin.shared.ui.label.ContentMode",
+            "com.vaadin.shared.communication.SharedState",
+            "com.vaadin.shared.AbstractComponentState",
+            "com.vaadin.shared.communication.MethodInvocation",
+            "com.vaadin.shared.ui.ui.UIState" };
+
+    private static final Map<String, Integer> COMMON_CLASS_INDEXES = new HashMap<String, Integer>();
+
+    private static final Map<String, Class<?>> PRIMITIVE_CLASSES = new HashMap<String, Class<?>>();
+
+    static {
+        for (int i = 0; i < COMMON_CLASSES.length; i++) {
+            COMMON_CLASS_INDEXES.put(COMMON_CLASSES[i], i);
+        }
+        for (Class<?> type : new Class<?>[] { boolean.class, byte.class,
+                char.class, short.class, int.class, long.class, float.class,
+                double.class, void.class }) {
+            PRIMITIVE_CLASSES.put(type.getName(), type);
+        }
+    }
+
+    private final boolean compressed;
+
+    /**
+     * Creates a serializer which compresses its output.
+     */
+    public CompactSessionSerializer() {
+        this(true);
+    }
+
+    /**
+     * Creates a serializer.
+     *
+     * @param compressed
+     *            <code>true</code> to compress the output,
+     *            <code>false</code> to write it uncompressed
+     */
+    public CompactSessionSerializer(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * Checks whether the output of this serializer is compressed. Sessions
+     * are read correctly regardless of this setting.
+     *
+     * @return <code>true</code> if the output is compressed
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    @Override
+    public void writeSession(VaadinSession session, OutputStream out)
+            throws IOException {
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(MAGIC);
+        header.writeByte(compressed ? FLAG_COMPRESSED : 0);
+        header.flush();
+
+        if (compressed) {
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try {
+                DeflaterOutputStream deflaterStream = new DeflaterOutputStream(
+                        out, deflater);
+                writeObject(session, deflaterStream);
+                deflaterStream.finish();
+            } finally {
+                deflater.end();
+            }
+        } else {
+            writeObject(session, out);
+        }
+    }
+
+    private static void writeObject(Object object, OutputStream out)
+            throws IOException {
+        ObjectOutputStream oos = new CompactObjectOutputStream(out);
+        oos.writeObject(object);
+        oos.flush();
+    }
+
+    @Override
+    public VaadinSession readSession(InputStream in)
+            throws IOException, ClassNotFoundException {
+        DataInputStream header = new DataInputStream(in);
+        if (header.readInt() != MAGIC) {
+            throw new StreamCorruptedException(
+                    "Not a session written by "
+                            + CompactSessionSerializer.class.getSimpleName());
+        }
+        int flags = header.readByte();
+
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            Inflater inflater = new Inflater();
+            try {
+                return readObject(new InflaterInputStream(in, inflater));
+            } finally {
+                inflater.end();
+            }
+        } else {
+            return readObject(in);
+        }
+    }
+
+    private static VaadinSession readObject(InputStream in)
+            throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = new CompactObjectInputStream(in);
+        return (VaadinSession) ois.readObject();
+    }
+
+    /**
+     * Computes a hash of the serialized fields of a class, used for detecting
+     * classes that have changed since the data was written.
+     */
+    private static int getLayoutHash(ObjectStreamClass desc) {
+        long serialVersionUID = desc.getSerialVersionUID();
+        int hash = (int) (serialVersionUID ^ (serialVersionUID >>> 32));
+        for (ObjectStreamField field : desc.getFields()) {
+            hash = 31 * hash + field.getName().hashCode();
+            hash = 31 * hash + field.getTypeCode();
+            if (!field.isPrimitive()) {
+                hash = 31 * hash + field.getTypeString().hashCode();
+            }
+        }
+        return hash;
+    }
+
+    private static Class<?> loadClass(String name)
+            throws ClassNotFoundException {
+        Class<?> primitive = PRIMITIVE_CLASSES.get(name);
+        if (primitive != null) {
+            return primitive;
+        }
+        ClassLoader contextClassLoader = Thread.currentThread()
+                .getContextClassLoader();
+        if (contextClassLoader != null) {
+            try {
+                return Class.forName(name, false, contextClassLoader);
+            } catch (ClassNotFoundException e) {
+                // Try the class loader of the framework
+            }
+        }
+        return Class.forName(name, false,
+                CompactSessionSerializer.class.getClassLoader());
+    }
+
+    private static class CompactObjectOutputStream extends ObjectOutputStream {
+
+        public CompactObjectOutputStream(OutputStream out) throws IOException {
+            super(out);
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc)
+                throws IOException {
+            String name = desc.getName();
+            Integer index = COMMON_CLASS_INDEXES.get(name);
+            if (index != null) {
+                writeByte(COMMON_CLASS);
+                writeShort(index.intValue());
+            } else {
+                writeByte(NAMED_CLASS);
+                writeUTF(name);
+            }
+            writeInt(getLayoutHash(desc));
+        }
+    }
+
+    private static class CompactObjectInputStream extends ObjectInputStream {
+
+        public CompactObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor()
+                throws IOException, ClassNotFoundException {
+            String name;
+            int type = readByte();
+            if (type == COMMON_CLASS) {
+                int index = readShort();
+                if (index < 0 || index >= COMMON_CLASSES.length) {
+                    throw new StreamCorruptedException(
+                            "Unknown class index " + index);
+                }
+                name = COMMON_CLASSES[index];
+            } else if (type == NAMED_CLASS) {
+                name = readUTF();
+            } else {
+                throw new StreamCorruptedException(
+                        "Unknown class descriptor type " + type);
+            }
+            int layoutHash = readInt();
+
+            ObjectStreamClass desc = ObjectStreamClass
+                    .lookupAny(loadClass(name));
+            if (getLayoutHash(desc) != layoutHash) {
+                throw new InvalidClassException(name,
+                        "The serialized fields of the class have changed since the session was written");
+            }
+            return desc;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc)
+                throws IOException, ClassNotFoundException {
+            return loadClass(desc.getName());
+        }
+    }
+}
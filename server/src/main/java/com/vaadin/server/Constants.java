@@ -141,6 +141,79 @@ public interface Constants {
      */
     static final String SERVLET_PARAMETER_LEGACY_DESIGN_PREFIX = "legacyDesignPrefix";
 
+    /**
+     * Name of system or context property for writing UIDL responses with a
+     * streaming JSON writer instead of first building and stringifying JSON
+     * trees. The default value is <code>false</code>.
+     *
+     * @see VaadinService#isStreamingUidlWriterEnabled()
+     * @since 7.7.24
+     */
+    static final String SERVLET_PARAMETER_STREAMING_UIDL_WRITER = "streamingUidlWriter";
+
+    /**
+     * Name of system or context property for reading RPC requests with a
+     * streaming JSON reader instead of first reading the whole request into a
+     * string. The default value is <code>false</code>.
+     *
+     * @see VaadinService#isStreamingRpcReaderEnabled()
+     * @since 7.7.24
+     */
+    static final String SERVLET_PARAMETER_STREAMING_RPC_READER = "streamingRpcReader";
+
+    /**
+     * Name of system or context property for the maximum size of an RPC
+     * request in characters. The default value is <code>0</code>, which means
+     * that the size is not limited.
+     *
+     * @see VaadinService#getMaxRpcPayloadSize()
+     * @since 7.7.24
+     */
+    static final String SERVLET_PARAMETER_MAX_RPC_PAYLOAD_SIZE = "maxRpcPayloadSize";
+
+    /**
+     * Name of system or context property for the time window in milliseconds
+     * during which asynchronous pushes are coalesced into one message. The
+     * default value is <code>0</code>, i.e. every push is sent right away.
+     *
+     * @see VaadinService#getPushCoalescingWindow()
+     * @since 7.7.24
+     */
+    static final String SERVLET_PARAMETER_PUSH_COALESCING_WINDOW = "pushCoalescingWindow";
+
+    /**
+     * Name of system or context property for giving each UI its own lock
+     * instead of protecting all UIs of a session with the session lock. The
+     * default value is <code>false</code>.
+     *
+     * @see VaadinService#isUILockingEnabled()
+     * @since 7.7.24
+     */
+    static final String SERVLET_PARAMETER_UI_LOCKING = "uiLocking";
+
+    /**
+     * Name of system or context property for the time in milliseconds to wait
+     * for more tasks before purging the queue of tasks submitted using
+     * {@link VaadinSession#access(Runnable)} from a thread that doesn't hold
+     * the session lock. The default value is <code>0</code>, i.e. the queue is
+     * purged right away.
+     *
+     * @see VaadinService#getAccessBatchDelay()
+     * @since 7.7.24
+     */
+    static final String SERVLET_PARAMETER_ACCESS_BATCH_DELAY = "accessBatchDelay";
+
+    /**
+     * Name of system or context property for the maximum number of tasks
+     * submitted using {@link VaadinSession#access(Runnable)} that are run
+     * while holding the session lock once. The default value is
+     * <code>0</code>, i.e. no limit.
+     *
+     * @see VaadinService#getAccessBatchSize()
+     * @since 7.7.24
+     */
+    static final String SERVLET_PARAMETER_ACCESS_BATCH_SIZE = "accessBatchSize";
+
     // Configurable parameter names
     static final String PARAMETER_VAADIN_RESOURCES = "Resources";
 
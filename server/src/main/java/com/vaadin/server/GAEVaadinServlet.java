@@ -19,8 +19,6 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.NotSerializableException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -248,9 +246,7 @@ public class GAEVaadinServlet extends VaadinServlet {
             // serialize
             started = new Date().getTime();
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutputStream oos = new ObjectOutputStream(baos);
-            oos.writeObject(ctx);
-            oos.flush();
+            getService().getSessionSerializer().writeSession(ctx, baos);
             byte[] bytes = baos.toByteArray();
 
             started = new Date().getTime();
@@ -335,10 +331,9 @@ public class GAEVaadinServlet extends VaadinServlet {
         }
         if (serializedAC != null) {
             ByteArrayInputStream bais = new ByteArrayInputStream(serializedAC);
-            ObjectInputStream ois;
             try {
-                ois = new ObjectInputStream(bais);
-                VaadinSession vaadinSession = (VaadinSession) ois.readObject();
+                VaadinSession vaadinSession = getService()
+                        .getSessionSerializer().readSession(bais);
                 getService().storeSession(vaadinSession,
                         new WrappedHttpSession(session));
             } catch (IOException e) {
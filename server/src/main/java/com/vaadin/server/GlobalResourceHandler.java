@@ -60,6 +60,11 @@ public class GlobalResourceHandler implements RequestHandler {
     private final Map<String, ConnectorResource> legacyResources = new HashMap<String, ConnectorResource>();
     private int nextLegacyId = 0;
 
+    /*
+     * The public methods are synchronized since connectors of different UIs
+     * may register resources concurrently when UI locking is enabled.
+     */
+
     // APP/global/[uiid]/[type]/[id]
     private static final Pattern pattern = Pattern
             .compile("^/?" + ApplicationConstants.APP_PATH + '/'
@@ -97,7 +102,9 @@ public class GlobalResourceHandler implements RequestHandler {
             oldInstances = CurrentInstance.setCurrent(ui);
             ConnectorResource resource;
             if (LEGACY_TYPE.equals(type)) {
-                resource = legacyResources.get(key);
+                synchronized (this) {
+                    resource = legacyResources.get(key);
+                }
             } else {
                 return error(request, response, "Unknown global resource type "
                         + type + " in requested path " + pathInfo);
@@ -136,7 +143,8 @@ public class GlobalResourceHandler implements RequestHandler {
      * @param ownerConnector
      *            the connector to which the resource belongs
      */
-    public void register(Resource resource, ClientConnector ownerConnector) {
+    public synchronized void register(Resource resource,
+            ClientConnector ownerConnector) {
         if (resource instanceof ConnectorResource) {
             if (!(ownerConnector instanceof LegacyComponent)) {
                 throw new IllegalArgumentException(
@@ -189,7 +197,7 @@ public class GlobalResourceHandler implements RequestHandler {
      * @return an URI string, or <code>null</code> if the resource is not
      *         registered.
      */
-    public String getUri(ClientConnector connector,
+    public synchronized String getUri(ClientConnector connector,
             ConnectorResource resource) {
         // app://APP/global/[ui]/[type]/[id]
         String uri = legacyResourceKeys.get(resource);
@@ -211,7 +219,7 @@ public class GlobalResourceHandler implements RequestHandler {
      *            the connector for which any registered resources can be
      *            released.
      */
-    public void unregisterConnector(ClientConnector connector) {
+    public synchronized void unregisterConnector(ClientConnector connector) {
         Set<Resource> set = usedResources.remove(connector);
         if (set == null) {
             return;
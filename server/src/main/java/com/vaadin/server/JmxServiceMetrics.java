@@ -0,0 +1,390 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.vaadin.ui.UI;
+
+/**
+ * A {@link ServiceMetrics} implementation that collects counts, means and
+ * maximums of the measurements and exposes them through JMX as a
+ * {@link ServiceMetricsMXBean}.
+ * <p>
+ * Use {@link #register(VaadinService)} to start collecting the metrics of a
+ * service, e.g. in {@link VaadinServlet#servletInitialized()}. The MBean is
+ * registered in the platform MBean server with the name
+ * <code>com.vaadin:type=ServiceMetrics,name=&lt;name&gt;</code> and
+ * unregistered when the service is destroyed.
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class JmxServiceMetrics implements ServiceMetrics, ServiceMetricsMXBean {
+
+    /**
+     * The count, sum and maximum of a measured value.
+     */
+    private static class Statistic implements Serializable {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long value) {
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long oldMax;
+            while ((oldMax = max.get()) < value
+                    && !max.compareAndSet(oldMax, value)) {
+                // Retry
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getSum() {
+            return sum.get();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            long n = count.get();
+            return n == 0 ? 0 : (double) sum.get() / n;
+        }
+
+        public void reset() {
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+    }
+
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final ObjectName objectName;
+
+    private final ConcurrentMap<String, Statistic> requestTimes = new ConcurrentHashMap<String, Statistic>();
+    private final Statistic lockWaitTimes = new Statistic();
+    private final Statistic lockHoldTimes = new Statistic();
+    private final Statistic responseWriteTimes = new Statistic();
+    private final Statistic responseLengths = new Statistic();
+    private final Statistic dirtyConnectors = new Statistic();
+    private final ConcurrentMap<String, Statistic> rpcTimes = new ConcurrentHashMap<String, Statistic>();
+    private final Statistic pushLatencies = new Statistic();
+    private final AtomicLong pushBytes = new AtomicLong();
+    private final Statistic uploadTimes = new Statistic();
+    private final AtomicLong uploadBytes = new AtomicLong();
+
+    /**
+     * Creates a JMX metrics instance with the given name.
+     *
+     * @param name
+     *            the name used in the object name of the MBean, not
+     *            <code>null</code>
+     */
+    public JmxServiceMetrics(String name) {
+        try {
+            objectName = new ObjectName("com.vaadin:type=ServiceMetrics,name="
+                    + ObjectName.quote(name));
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Invalid name " + name, e);
+        }
+    }
+
+    /**
+     * Gets the name of the MBean.
+     *
+     * @return the object name
+     */
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * Sets this instance as the metrics of the given service and registers it
+     * in the platform MBean server. The MBean is unregistered when the service
+     * is destroyed.
+     *
+     * @param service
+     *            the service to measure
+     */
+    public void register(VaadinService service) {
+        service.setMetrics(this);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            getLogger().log(Level.WARNING,
+                    "Could not register service metrics " + objectName, e);
+            return;
+        }
+        service.addServiceDestroyListener(new ServiceDestroyListener() {
+            @Override
+            public void serviceDestroy(ServiceDestroyEvent event) {
+                unregister();
+            }
+        });
+    }
+
+    /**
+     * Unregisters the MBean from the platform MBean server.
+     */
+    public void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            getLogger().log(Level.WARNING,
+                    "Could not unregister service metrics " + objectName, e);
+        }
+    }
+
+    private static void record(ConcurrentMap<String, Statistic> map,
+            Class<?> type, long value) {
+        String key = type.getName();
+        Statistic statistic = map.get(key);
+        if (statistic == null) {
+            Statistic newStatistic = new Statistic();
+            statistic = map.putIfAbsent(key, newStatistic);
+            if (statistic == null) {
+                statistic = newStatistic;
+            }
+        }
+        statistic.record(value);
+    }
+
+    private static double toMillis(double nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public void requestHandled(RequestHandler handler, long duration) {
+        record(requestTimes, handler.getClass(), duration);
+    }
+
+    @Override
+    public void sessionLockAcquired(VaadinSession session, long waitTime) {
+        lockWaitTimes.record(waitTime);
+    }
+
+    @Override
+    public void sessionLockReleased(VaadinSession session, long holdTime) {
+        lockHoldTimes.record(holdTime);
+    }
+
+    @Override
+    public void responseWritten(UI ui, int dirtyConnectors, long length,
+            long duration) {
+        responseWriteTimes.record(duration);
+        this.dirtyConnectors.record(dirtyConnectors);
+        if (length >= 0) {
+            responseLengths.record(length);
+        }
+    }
+
+    @Override
+    public void rpcInvoked(ClientConnector connector, long duration) {
+        record(rpcTimes, connector.getClass(), duration);
+    }
+
+    @Override
+    public void pushSent(UI ui, long bytes, long latency) {
+        pushLatencies.record(latency);
+        pushBytes.addAndGet(bytes);
+    }
+
+    @Override
+    public void uploadCompleted(long bytes, long duration) {
+        uploadTimes.record(duration);
+        uploadBytes.addAndGet(bytes);
+    }
+
+    @Override
+    public Map<String, Long> getRequestCounts() {
+        Map<String, Long> counts = new TreeMap<String, Long>();
+        for (Map.Entry<String, Statistic> entry : requestTimes.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().getCount());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getMeanRequestTimes() {
+        Map<String, Double> means = new TreeMap<String, Double>();
+        for (Map.Entry<String, Statistic> entry : requestTimes.entrySet()) {
+            means.put(entry.getKey(), toMillis(entry.getValue().getMean()));
+        }
+        return means;
+    }
+
+    @Override
+    public Map<String, Double> getMaxRequestTimes() {
+        Map<String, Double> maximums = new TreeMap<String, Double>();
+        for (Map.Entry<String, Statistic> entry : requestTimes.entrySet()) {
+            maximums.put(entry.getKey(), toMillis(entry.getValue().getMax()));
+        }
+        return maximums;
+    }
+
+    @Override
+    public long getSessionLockCount() {
+        return lockWaitTimes.getCount();
+    }
+
+    @Override
+    public double getMeanSessionLockWaitTime() {
+        return toMillis(lockWaitTimes.getMean());
+    }
+
+    @Override
+    public double getMaxSessionLockWaitTime() {
+        return toMillis(lockWaitTimes.getMax());
+    }
+
+    @Override
+    public double getMeanSessionLockHoldTime() {
+        return toMillis(lockHoldTimes.getMean());
+    }
+
+    @Override
+    public double getMaxSessionLockHoldTime() {
+        return toMillis(lockHoldTimes.getMax());
+    }
+
+    @Override
+    public long getResponseCount() {
+        return responseWriteTimes.getCount();
+    }
+
+    @Override
+    public double getMeanResponseWriteTime() {
+        return toMillis(responseWriteTimes.getMean());
+    }
+
+    @Override
+    public double getMaxResponseWriteTime() {
+        return toMillis(responseWriteTimes.getMax());
+    }
+
+    @Override
+    public double getMeanResponseLength() {
+        return responseLengths.getMean();
+    }
+
+    @Override
+    public double getMeanDirtyConnectors() {
+        return dirtyConnectors.getMean();
+    }
+
+    @Override
+    public long getMaxDirtyConnectors() {
+        return dirtyConnectors.getMax();
+    }
+
+    @Override
+    public Map<String, Long> getRpcInvocationCounts() {
+        Map<String, Long> counts = new TreeMap<String, Long>();
+        for (Map.Entry<String, Statistic> entry : rpcTimes.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().getCount());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getMeanRpcInvocationTimes() {
+        Map<String, Double> means = new TreeMap<String, Double>();
+        for (Map.Entry<String, Statistic> entry : rpcTimes.entrySet()) {
+            means.put(entry.getKey(), toMillis(entry.getValue().getMean()));
+        }
+        return means;
+    }
+
+    @Override
+    public long getPushCount() {
+        return pushLatencies.getCount();
+    }
+
+    @Override
+    public long getPushBytes() {
+        return pushBytes.get();
+    }
+
+    @Override
+    public double getMeanPushLatency() {
+        return toMillis(pushLatencies.getMean());
+    }
+
+    @Override
+    public double getMaxPushLatency() {
+        return toMillis(pushLatencies.getMax());
+    }
+
+    @Override
+    public long getUploadCount() {
+        return uploadTimes.getCount();
+    }
+
+    @Override
+    public long getUploadBytes() {
+        return uploadBytes.get();
+    }
+
+    @Override
+    public double getUploadThroughput() {
+        double seconds = toMillis(uploadTimes.getSum()) / 1000;
+        return seconds == 0 ? 0 : uploadBytes.get() / seconds;
+    }
+
+    @Override
+    public void reset() {
+        // Not atomic, but good enough for monitoring
+        requestTimes.clear();
+        rpcTimes.clear();
+        for (Statistic statistic : new Statistic[] { lockWaitTimes,
+                lockHoldTimes, responseWriteTimes, responseLengths,
+                dirtyConnectors, pushLatencies, uploadTimes }) {
+            statistic.reset();
+        }
+        pushBytes.set(0);
+        uploadBytes.set(0);
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(JmxServiceMetrics.class.getName());
+    }
+}
@@ -152,14 +152,16 @@ public class JsonCodec implements Serializable {
 
     private static class MethodProperty implements BeanProperty {
         private final PropertyDescriptor pd;
+        private final Method readMethod;
 
         public MethodProperty(PropertyDescriptor pd) {
             this.pd = pd;
+            // PropertyDescriptor resolves the method on every call
+            readMethod = pd.getReadMethod();
         }
 
         @Override
         public Object getValue(Object bean) throws Exception {
-            Method readMethod = pd.getReadMethod();
             return readMethod.invoke(bean);
         }
 
@@ -193,11 +195,200 @@ public class JsonCodec implements Serializable {
 
         @Override
         public Type getType() {
-            return pd.getReadMethod().getGenericReturnType();
+            return readMethod.getGenericReturnType();
         }
 
     }
 
+    /**
+     * Encodes objects of one bean type. The properties of the type are looked
+     * up and classified once when the encoder is created, so encoding an
+     * object only reads the property values and compares them to the
+     * reference value. Properties of primitive types are read without boxing,
+     * and unchanged scalar values reuse the immutable JSON value from the
+     * reference instead of allocating a new one.
+     */
+    private static class ObjectEncoder implements Serializable {
+        /** Any property type, encoded based on the runtime value. */
+        private static final int KIND_OBJECT = 0;
+        /** A primitive boolean field. */
+        private static final int KIND_BOOLEAN_FIELD = 1;
+        /** A primitive field encoded as a JSON number. */
+        private static final int KIND_NUMBER_FIELD = 2;
+
+        private final Class<?> type;
+        private final BeanProperty[] properties;
+        private final String[] names;
+        private final Type[] types;
+        private final Field[] fields;
+        private final int[] kinds;
+        private final String duplicateName;
+
+        public ObjectEncoder(Class<?> type) throws IntrospectionException {
+            this.type = type;
+            Collection<BeanProperty> beanProperties = getProperties(type);
+            int count = beanProperties.size();
+            properties = new BeanProperty[count];
+            names = new String[count];
+            types = new Type[count];
+            fields = new Field[count];
+            kinds = new int[count];
+
+            Set<String> seenNames = new HashSet<String>();
+            String duplicate = null;
+            int i = 0;
+            for (BeanProperty property : beanProperties) {
+                properties[i] = property;
+                names[i] = property.getName();
+                // We can't use PropertyDescriptor.getPropertyType() as it does
+                // not support generics
+                types[i] = property.getType();
+                if (property instanceof FieldProperty) {
+                    fields[i] = ((FieldProperty) property).field;
+                    kinds[i] = getFieldKind(fields[i].getType());
+                }
+                if (!seenNames.add(names[i]) && duplicate == null) {
+                    duplicate = names[i];
+                }
+                i++;
+            }
+            duplicateName = duplicate;
+        }
+
+        private static int getFieldKind(Class<?> fieldType) {
+            if (fieldType == boolean.class) {
+                return KIND_BOOLEAN_FIELD;
+            } else if (fieldType == int.class || fieldType == long.class
+                    || fieldType == double.class || fieldType == float.class
+                    || fieldType == short.class || fieldType == byte.class) {
+                // Read using Field.getDouble, which widens the value in the
+                // same way as Number.doubleValue
+                return KIND_NUMBER_FIELD;
+            } else {
+                return KIND_OBJECT;
+            }
+        }
+
+        public EncodeResult encode(Object value, JsonObject referenceValue,
+                ConnectorTracker connectorTracker) {
+            JsonObject encoded = Json.createObject();
+            JsonObject diff = Json.createObject();
+
+            try {
+                if (duplicateName != null) {
+                    throw new RuntimeException("Can't encode " + type.getName()
+                            + " as it has multiple properties with the name "
+                            + duplicateName.toLowerCase()
+                            + ". This can happen if there are getters and setters for a public field (the framework can't know which to ignore) or if there are properties with only casing distinguishing between the names (e.g. getFoo() and getFOO())");
+                }
+
+                for (int i = 0; i < properties.length; i++) {
+                    String fieldName = names[i];
+
+                    JsonValue fieldReference;
+                    if (referenceValue != null) {
+                        fieldReference = referenceValue.get(fieldName);
+                        if (fieldReference instanceof JsonNull) {
+                            fieldReference = null;
+                        }
+                    } else {
+                        fieldReference = null;
+                    }
+
+                    JsonValue encodedValue;
+                    switch (kinds[i]) {
+                    case KIND_BOOLEAN_FIELD:
+                        encodedValue = encodeBoolean(
+                                fields[i].getBoolean(value), fieldReference);
+                        break;
+                    case KIND_NUMBER_FIELD:
+                        encodedValue = encodeNumber(fields[i].getDouble(value),
+                                fieldReference);
+                        break;
+                    default:
+                        Object fieldValue = properties[i].getValue(value);
+                        encodedValue = encodeScalar(fieldValue,
+                                fieldReference);
+                        if (encodedValue == null) {
+                            EncodeResult encodeResult = JsonCodec.encode(
+                                    fieldValue, fieldReference, types[i],
+                                    connectorTracker);
+                            encodedValue = encodeResult.getEncodedValue();
+                            encoded.put(fieldName, encodedValue);
+                            if (valueChanged(encodedValue, fieldReference)) {
+                                diff.put(fieldName,
+                                        encodeResult.getDiffOrValue());
+                            }
+                            continue;
+                        }
+                    }
+
+                    encoded.put(fieldName, encodedValue);
+                    // Scalars equal to the reference are the reference value
+                    if (encodedValue != fieldReference) {
+                        diff.put(fieldName, encodedValue);
+                    }
+                }
+            } catch (Exception e) {
+                // TODO: Should exceptions be handled in a different way?
+                throw new RuntimeException(e);
+            }
+            return new EncodeResult(encoded, diff);
+        }
+
+        /**
+         * Encodes strings, booleans, numbers and enums the same way as
+         * {@link JsonCodec#encode(Object, JsonValue, Type, ConnectorTracker)}
+         * but returns the reference value if it is equal to the encoded value.
+         *
+         * @return the encoded value, or <code>null</code> if the value is not
+         *         of a scalar type
+         */
+        private static JsonValue encodeScalar(Object value,
+                JsonValue reference) {
+            if (value instanceof String) {
+                return encodeString((String) value, reference);
+            } else if (value instanceof Boolean) {
+                return encodeBoolean(((Boolean) value).booleanValue(),
+                        reference);
+            } else if (value instanceof Number) {
+                return encodeNumber(((Number) value).doubleValue(), reference);
+            } else if (value instanceof Enum && !(value instanceof Collection
+                    || value instanceof Map || value instanceof Connector)) {
+                return encodeString(((Enum<?>) value).name(), reference);
+            } else {
+                return null;
+            }
+        }
+
+        private static JsonValue encodeString(String value,
+                JsonValue reference) {
+            if (reference != null && reference.getType() == JsonType.STRING
+                    && value.equals(reference.asString())) {
+                return reference;
+            }
+            return Json.create(value);
+        }
+
+        private static JsonValue encodeBoolean(boolean value,
+                JsonValue reference) {
+            if (reference != null && reference.getType() == JsonType.BOOLEAN
+                    && value == reference.asBoolean()) {
+                return reference;
+            }
+            return Json.create(value);
+        }
+
+        private static JsonValue encodeNumber(double value,
+                JsonValue reference) {
+            if (reference != null && reference.getType() == JsonType.NUMBER
+                    && value == reference.asNumber()) {
+                return reference;
+            }
+            return Json.create(value);
+        }
+    }
+
     /**
      * Cache the collection of bean properties for a given type to avoid doing a
      * quite expensive lookup multiple times. Will be used from any thread that
@@ -206,6 +397,12 @@ public class JsonCodec implements Serializable {
      */
     private static ConcurrentMap<Class<?>, Collection<BeanProperty>> typePropertyCache = new ConcurrentHashMap<Class<?>, Collection<BeanProperty>>();
 
+    /**
+     * Cache of the encoders for bean types, see {@link ObjectEncoder}. Used
+     * from any thread in the same way as {@link #typePropertyCache}.
+     */
+    private static ConcurrentMap<Class<?>, ObjectEncoder> typeEncoderCache = new ConcurrentHashMap<Class<?>, ObjectEncoder>();
+
     private static Map<Class<?>, String> typeToTransportType = new HashMap<Class<?>, String>();
 
     /**
@@ -718,49 +915,18 @@ public class JsonCodec implements Serializable {
      */
     private static EncodeResult encodeObject(Object value, Class<?> valueType,
             JsonObject referenceValue, ConnectorTracker connectorTracker) {
-        JsonObject encoded = Json.createObject();
-        JsonObject diff = Json.createObject();
-
-        try {
-            for (BeanProperty property : getProperties(valueType)) {
-                String fieldName = property.getName();
-                // We can't use PropertyDescriptor.getPropertyType() as it does
-                // not support generics
-                Type fieldType = property.getType();
-                Object fieldValue = property.getValue(value);
-
-                if (encoded.hasKey(fieldName)) {
-                    throw new RuntimeException("Can't encode "
-                            + valueType.getName()
-                            + " as it has multiple properties with the name "
-                            + fieldName.toLowerCase()
-                            + ". This can happen if there are getters and setters for a public field (the framework can't know which to ignore) or if there are properties with only casing distinguishing between the names (e.g. getFoo() and getFOO())");
-                }
-
-                JsonValue fieldReference;
-                if (referenceValue != null) {
-                    fieldReference = referenceValue.get(fieldName);
-                    if (fieldReference instanceof JsonNull) {
-                        fieldReference = null;
-                    }
-                } else {
-                    fieldReference = null;
-                }
-
-                EncodeResult encodeResult = encode(fieldValue, fieldReference,
-                        fieldType, connectorTracker);
-                encoded.put(fieldName, encodeResult.getEncodedValue());
-
-                if (valueChanged(encodeResult.getEncodedValue(),
-                        fieldReference)) {
-                    diff.put(fieldName, encodeResult.getDiffOrValue());
-                }
+        ObjectEncoder encoder = typeEncoderCache.get(valueType);
+        if (encoder == null) {
+            try {
+                encoder = new ObjectEncoder(valueType);
+            } catch (IntrospectionException e) {
+                throw new RuntimeException(e);
             }
-        } catch (Exception e) {
-            // TODO: Should exceptions be handled in a different way?
-            throw new RuntimeException(e);
+            // Doesn't matter if the same encoder is created multiple times
+            // from different threads
+            typeEncoderCache.put(valueType, encoder);
         }
-        return new EncodeResult(encoded, diff);
+        return encoder.encode(value, referenceValue, connectorTracker);
     }
 
     /**
@@ -171,7 +171,7 @@ public class LegacyCommunicationManager implements Serializable {
         return publishedFileContexts;
     }
 
-    private String registerPublishedFile(String name, Class<?> context) {
+    private synchronized String registerPublishedFile(String name, Class<?> context) {
         // Add to map of names accepted by servePublishedFile
         if (publishedFileContexts.containsKey(name)) {
             Class<?> oldContext = publishedFileContexts.get(name);
@@ -191,7 +191,7 @@ public class LegacyCommunicationManager implements Serializable {
      * @deprecated As of 7.1. See #11410.
      */
     @Deprecated
-    public ClientCache getClientCache(final UI uI) {
+    public synchronized ClientCache getClientCache(final UI uI) {
         Integer uiId = Integer.valueOf(uI.getUIId());
         ClientCache cache = uiToClientCache.get(uiId);
         if (cache == null) {
@@ -216,7 +216,7 @@ public class LegacyCommunicationManager implements Serializable {
      * @deprecated because this cleanup is only needed for a deprecated feature
      */
     @Deprecated
-    private void removeClientCache(UI uI) {
+    private synchronized void removeClientCache(UI uI) {
         Integer uiId = Integer.valueOf(uI.getUIId());
         uiToClientCache.remove(uiId);
     }
@@ -336,7 +336,7 @@ public class LegacyCommunicationManager implements Serializable {
      * @deprecated As of 7.1. Will be removed in the future.
      */
     @Deprecated
-    public String getTagForType(Class<? extends ClientConnector> class1) {
+    public synchronized String getTagForType(Class<? extends ClientConnector> class1) {
         Integer id = typeToKey.get(class1);
         if (id == null) {
             id = nextTypeKey++;
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import com.vaadin.ui.UI;
+
+/**
+ * A {@link ServiceMetrics} implementation that discards all measurements. This
+ * is used by default. This singleton is accessed using {@link #get()}.
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class NoOpServiceMetrics implements ServiceMetrics {
+
+    private static final NoOpServiceMetrics instance = new NoOpServiceMetrics();
+
+    private NoOpServiceMetrics() {
+        // Singleton
+    }
+
+    /**
+     * Gets the instance.
+     *
+     * @return the no-op service metrics
+     */
+    public static ServiceMetrics get() {
+        return instance;
+    }
+
+    @Override
+    public void requestHandled(RequestHandler handler, long duration) {
+    }
+
+    @Override
+    public void sessionLockAcquired(VaadinSession session, long waitTime) {
+    }
+
+    @Override
+    public void sessionLockReleased(VaadinSession session, long holdTime) {
+    }
+
+    @Override
+    public void responseWritten(UI ui, int dirtyConnectors, long length,
+            long duration) {
+    }
+
+    @Override
+    public void rpcInvoked(ClientConnector connector, long duration) {
+    }
+
+    @Override
+    public void pushSent(UI ui, long bytes, long latency) {
+    }
+
+    @Override
+    public void uploadCompleted(long bytes, long duration) {
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.shared.communication.ServerRpc;
+
+/**
+ * The methods of a {@link ServerRpc} interface, resolved once per interface
+ * so that handling an RPC invocation does not need to search for the method
+ * or inspect its parameter types.
+ * <p>
+ * Methods are looked up by name and parameter count, which is all the
+ * information the client sends about the invoked method.
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class ServerRpcDispatchTable {
+
+    private static final Map<Class<?>, ServerRpcDispatchTable> tables = new ConcurrentHashMap<Class<?>, ServerRpcDispatchTable>(
+            128, 0.75f, 1);
+
+    /**
+     * A single method of an RPC interface.
+     *
+     * @since 7.7.24
+     */
+    public static class RpcMethod {
+        private final Method method;
+        private final Type[] parameterTypes;
+
+        private RpcMethod(Method method) {
+            this.method = method;
+            parameterTypes = method.getGenericParameterTypes();
+            try {
+                // Skip the access check done by every Method.invoke call
+                method.setAccessible(true);
+            } catch (SecurityException e) {
+                getLogger().log(Level.FINE,
+                        "Could not make " + method + " accessible", e);
+            }
+        }
+
+        /**
+         * Gets the reflected method.
+         *
+         * @return the method, not <code>null</code>
+         */
+        public Method getMethod() {
+            return method;
+        }
+
+        /**
+         * Gets the generic parameter types of the method. The returned array
+         * is shared and must not be modified.
+         *
+         * @return the generic parameter types
+         */
+        public Type[] getParameterTypes() {
+            return parameterTypes;
+        }
+
+        /**
+         * Invokes the method.
+         *
+         * @param target
+         *            the RPC implementation to invoke the method on
+         * @param arguments
+         *            the decoded arguments
+         * @throws IllegalAccessException
+         *             if the method is not accessible
+         * @throws InvocationTargetException
+         *             if the invoked method throws an exception
+         */
+        public void invoke(Object target, Object[] arguments)
+                throws IllegalAccessException, InvocationTargetException {
+            method.invoke(target, arguments);
+        }
+    }
+
+    /**
+     * Methods by name, indexed by parameter count.
+     */
+    private final Map<String, RpcMethod[]> methods = new HashMap<String, RpcMethod[]>();
+
+    private ServerRpcDispatchTable(Class<?> rpcInterface) {
+        for (Method method : rpcInterface.getMethods()) {
+            int parameterCount = method.getParameterTypes().length;
+            RpcMethod[] overloads = methods.get(method.getName());
+            if (overloads == null) {
+                overloads = new RpcMethod[parameterCount + 1];
+            } else if (overloads.length <= parameterCount) {
+                RpcMethod[] larger = new RpcMethod[parameterCount + 1];
+                System.arraycopy(overloads, 0, larger, 0, overloads.length);
+                overloads = larger;
+            }
+            // Like the client, only use the first method found with a given
+            // name and parameter count
+            if (overloads[parameterCount] == null) {
+                overloads[parameterCount] = new RpcMethod(method);
+            }
+            methods.put(method.getName(), overloads);
+        }
+    }
+
+    /**
+     * Gets the dispatch table of an RPC interface. The table is created the
+     * first time it is requested and shared after that.
+     *
+     * @param rpcInterface
+     *            the RPC interface, not <code>null</code>
+     * @return the dispatch table for the interface
+     */
+    public static ServerRpcDispatchTable get(
+            Class<? extends ServerRpc> rpcInterface) {
+        ServerRpcDispatchTable table = tables.get(rpcInterface);
+        if (table == null) {
+            // Creating the table twice in a race is harmless
+            table = new ServerRpcDispatchTable(rpcInterface);
+            tables.put(rpcInterface, table);
+        }
+        return table;
+    }
+
+    /**
+     * Finds a method by name and parameter count.
+     *
+     * @param methodName
+     *            the name of the method
+     * @param parameterCount
+     *            the number of parameters the method takes
+     * @return the method, or <code>null</code> if there is no such method
+     */
+    public RpcMethod getMethod(String methodName, int parameterCount) {
+        RpcMethod[] overloads = methods.get(methodName);
+        if (overloads == null || parameterCount < 0
+                || parameterCount >= overloads.length) {
+            return null;
+        }
+        return overloads[parameterCount];
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(ServerRpcDispatchTable.class.getName());
+    }
+}
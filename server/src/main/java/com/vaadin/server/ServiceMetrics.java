@@ -0,0 +1,121 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+
+import com.vaadin.ui.UI;
+
+/**
+ * Receives timing and size measurements from the hot paths of a
+ * {@link VaadinService}. A metrics implementation can be set using
+ * {@link VaadinService#setMetrics(ServiceMetrics)}; by default the
+ * measurements are discarded by {@link NoOpServiceMetrics}.
+ * <p>
+ * The methods are called from request threads and background threads
+ * concurrently, often while the session is locked, so implementations must be
+ * thread safe and return quickly. All durations are in nanoseconds.
+ *
+ * @see JmxServiceMetrics
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public interface ServiceMetrics extends Serializable {
+
+    /**
+     * Called after a request handler has handled a request.
+     *
+     * @param handler
+     *            the request handler that handled the request
+     * @param duration
+     *            the time spent in the request handler
+     */
+    public void requestHandled(RequestHandler handler, long duration);
+
+    /**
+     * Called when the lock of a session has been acquired by a thread that
+     * did not hold it before.
+     *
+     * @param session
+     *            the locked session
+     * @param waitTime
+     *            the time spent waiting for the lock
+     */
+    public void sessionLockAcquired(VaadinSession session, long waitTime);
+
+    /**
+     * Called when the lock of a session is released by the thread holding it.
+     *
+     * @param session
+     *            the session
+     * @param holdTime
+     *            the time the lock was held
+     */
+    public void sessionLockReleased(VaadinSession session, long holdTime);
+
+    /**
+     * Called after the changes of a UI have been written as a UIDL response
+     * or push message.
+     *
+     * @param ui
+     *            the UI
+     * @param dirtyConnectors
+     *            the number of connectors that were written
+     * @param length
+     *            the length of the written message in characters, or
+     *            <code>-1</code> if not known
+     * @param duration
+     *            the time spent writing the changes
+     */
+    public void responseWritten(UI ui, int dirtyConnectors, long length,
+            long duration);
+
+    /**
+     * Called after a server RPC call or legacy variable change has been
+     * invoked on a connector.
+     *
+     * @param connector
+     *            the target connector
+     * @param duration
+     *            the time spent in the invocation
+     */
+    public void rpcInvoked(ClientConnector connector, long duration);
+
+    /**
+     * Called after a push message has been sent to the client.
+     *
+     * @param ui
+     *            the pushed UI
+     * @param bytes
+     *            the size of the message in bytes
+     * @param latency
+     *            the time from the first push request to sending the message,
+     *            including any delay caused by a disconnected client or push
+     *            coalescing
+     */
+    public void pushSent(UI ui, long bytes, long latency);
+
+    /**
+     * Called after a file upload has been streamed to its receiver.
+     *
+     * @param bytes
+     *            the number of received bytes
+     * @param duration
+     *            the time spent receiving the upload
+     */
+    public void uploadCompleted(long bytes, long duration);
+}
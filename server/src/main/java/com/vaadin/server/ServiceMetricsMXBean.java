@@ -0,0 +1,195 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.Map;
+
+/**
+ * The management interface of {@link JmxServiceMetrics}. All times are in
+ * milliseconds.
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public interface ServiceMetricsMXBean {
+
+    /**
+     * Gets the number of handled requests per request handler class.
+     *
+     * @return map from request handler class names to request counts
+     */
+    public Map<String, Long> getRequestCounts();
+
+    /**
+     * Gets the mean time spent handling a request per request handler class.
+     *
+     * @return map from request handler class names to mean times
+     */
+    public Map<String, Double> getMeanRequestTimes();
+
+    /**
+     * Gets the maximum time spent handling a request per request handler
+     * class.
+     *
+     * @return map from request handler class names to maximum times
+     */
+    public Map<String, Double> getMaxRequestTimes();
+
+    /**
+     * Gets the number of times a session lock has been acquired.
+     *
+     * @return the session lock count
+     */
+    public long getSessionLockCount();
+
+    /**
+     * Gets the mean time spent waiting for a session lock.
+     *
+     * @return the mean lock wait time
+     */
+    public double getMeanSessionLockWaitTime();
+
+    /**
+     * Gets the maximum time spent waiting for a session lock.
+     *
+     * @return the maximum lock wait time
+     */
+    public double getMaxSessionLockWaitTime();
+
+    /**
+     * Gets the mean time a session lock has been held.
+     *
+     * @return the mean lock hold time
+     */
+    public double getMeanSessionLockHoldTime();
+
+    /**
+     * Gets the maximum time a session lock has been held.
+     *
+     * @return the maximum lock hold time
+     */
+    public double getMaxSessionLockHoldTime();
+
+    /**
+     * Gets the number of written UIDL responses and push messages.
+     *
+     * @return the response count
+     */
+    public long getResponseCount();
+
+    /**
+     * Gets the mean time spent writing a response.
+     *
+     * @return the mean response write time
+     */
+    public double getMeanResponseWriteTime();
+
+    /**
+     * Gets the maximum time spent writing a response.
+     *
+     * @return the maximum response write time
+     */
+    public double getMaxResponseWriteTime();
+
+    /**
+     * Gets the mean length of a response in characters.
+     *
+     * @return the mean response length
+     */
+    public double getMeanResponseLength();
+
+    /**
+     * Gets the mean number of connectors written in a response.
+     *
+     * @return the mean dirty connector count
+     */
+    public double getMeanDirtyConnectors();
+
+    /**
+     * Gets the maximum number of connectors written in a response.
+     *
+     * @return the maximum dirty connector count
+     */
+    public long getMaxDirtyConnectors();
+
+    /**
+     * Gets the number of RPC invocations per connector class.
+     *
+     * @return map from connector class names to invocation counts
+     */
+    public Map<String, Long> getRpcInvocationCounts();
+
+    /**
+     * Gets the mean time spent in an RPC invocation per connector class.
+     *
+     * @return map from connector class names to mean invocation times
+     */
+    public Map<String, Double> getMeanRpcInvocationTimes();
+
+    /**
+     * Gets the number of sent push messages.
+     *
+     * @return the push message count
+     */
+    public long getPushCount();
+
+    /**
+     * Gets the total size of the sent push messages in bytes.
+     *
+     * @return the number of pushed bytes
+     */
+    public long getPushBytes();
+
+    /**
+     * Gets the mean latency of a push.
+     *
+     * @return the mean push latency
+     */
+    public double getMeanPushLatency();
+
+    /**
+     * Gets the maximum latency of a push.
+     *
+     * @return the maximum push latency
+     */
+    public double getMaxPushLatency();
+
+    /**
+     * Gets the number of completed uploads.
+     *
+     * @return the upload count
+     */
+    public long getUploadCount();
+
+    /**
+     * Gets the total number of uploaded bytes.
+     *
+     * @return the number of uploaded bytes
+     */
+    public long getUploadBytes();
+
+    /**
+     * Gets the mean throughput of uploads in bytes per second.
+     *
+     * @return the upload throughput
+     */
+    public double getUploadThroughput();
+
+    /**
+     * Resets all measurements.
+     */
+    public void reset();
+}
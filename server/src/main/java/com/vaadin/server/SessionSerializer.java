@@ -0,0 +1,69 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+
+/**
+ * Writes and reads a {@link VaadinSession} to and from a byte stream, e.g. to
+ * replicate the session to other servers in a cluster or to persist it in a
+ * data store.
+ * <p>
+ * The serializer used by a service can be changed using
+ * {@link VaadinService#setSessionSerializer(SessionSerializer)}. A session
+ * must be read using the same kind of serializer it was written with.
+ *
+ * @see JavaSessionSerializer
+ * @see CompactSessionSerializer
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public interface SessionSerializer extends Serializable {
+
+    /**
+     * Writes the given session to a stream. The stream is not closed.
+     *
+     * @param session
+     *            the session to write, not <code>null</code>
+     * @param out
+     *            the stream to write to, not <code>null</code>
+     * @throws IOException
+     *             if the session could not be written, e.g. because it
+     *             contains objects that are not serializable
+     */
+    public void writeSession(VaadinSession session, OutputStream out)
+            throws IOException;
+
+    /**
+     * Reads a session written by {@link #writeSession} from a stream. The
+     * stream is not closed.
+     *
+     * @param in
+     *            the stream to read from, not <code>null</code>
+     * @return the session read from the stream
+     * @throws IOException
+     *             if the data is not a valid session or reading the stream
+     *             fails
+     * @throws ClassNotFoundException
+     *             if a class of an object in the session cannot be found
+     */
+    public VaadinSession readSession(InputStream in)
+            throws IOException, ClassNotFoundException;
+}
@@ -0,0 +1,446 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caches the metadata and, for small files, the contents of static resources
+ * served by {@link VaadinServlet} from the VAADIN directory.
+ * <p>
+ * The metadata of a resource (modification time, length, ETag and the
+ * available precompressed variants) is resolved once when the resource is
+ * first requested. Resources that are not larger than the configured file size
+ * limit are kept in memory as long as the total size of the cached contents
+ * stays within the configured limit. Larger resources on the file system are
+ * written using a {@link FileChannel}.
+ * <p>
+ * Cached resources are never revalidated, so the cache should only be used
+ * when the resources do not change while the application is running, i.e. in
+ * production mode.
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class StaticResourceCache implements Serializable {
+
+    /**
+     * The default maximum size of a single resource kept in memory, in bytes.
+     */
+    public static final int DEFAULT_MAX_CACHED_FILE_SIZE = 128 * 1024;
+
+    /**
+     * The default maximum total size of the resources kept in memory, in
+     * bytes.
+     */
+    public static final long DEFAULT_MAX_CACHE_SIZE = 16 * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 32 * 1024;
+
+    /**
+     * Metadata and optionally cached contents of a single static resource.
+     */
+    public static class StaticResource implements Serializable {
+
+        private final URL url;
+        private final File file;
+        private final long lastModified;
+        private final long length;
+        private final String eTag;
+
+        private final StaticResourceCache cache;
+        private final ConcurrentMap<String, StaticResource> variants = new ConcurrentHashMap<String, StaticResource>();
+        private volatile byte[] content;
+        private volatile boolean contentResolved;
+
+        private StaticResource(URL url, StaticResourceCache cache)
+                throws IOException {
+            this.url = url;
+            this.cache = cache;
+            file = toFile(url);
+            if (file != null) {
+                if (!file.isFile()) {
+                    throw new FileNotFoundException(url.toExternalForm());
+                }
+                lastModified = file.lastModified();
+                length = file.length();
+            } else {
+                URLConnection connection = url.openConnection();
+                // Opening the stream also verifies that the resource exists
+                InputStream is = connection.getInputStream();
+                try {
+                    lastModified = connection.getLastModified();
+                    length = connection.getContentLength();
+                } finally {
+                    is.close();
+                }
+            }
+            if (lastModified > 0 && length >= 0) {
+                eTag = "\"" + Long.toHexString(length) + "-"
+                        + Long.toHexString(lastModified) + "\"";
+            } else {
+                eTag = null;
+            }
+        }
+
+        /**
+         * Gets the URL of the resource.
+         *
+         * @return the resource URL
+         */
+        public URL getUrl() {
+            return url;
+        }
+
+        /**
+         * Gets the modification time of the resource, without milliseconds.
+         *
+         * @return the last modification timestamp, or 0 if not known
+         */
+        public long getLastModified() {
+            // Remove milliseconds to avoid comparison problems (milliseconds
+            // are not returned by the browser in the "If-Modified-Since"
+            // header).
+            return lastModified - lastModified % 1000;
+        }
+
+        /**
+         * Gets the length of the resource in bytes.
+         *
+         * @return the length of the resource, or -1 if not known
+         */
+        public long getLength() {
+            return length;
+        }
+
+        /**
+         * Gets the entity tag of the resource, derived from its length and
+         * modification time.
+         *
+         * @return the quoted entity tag, or <code>null</code> if the length or
+         *         modification time is not known
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        /**
+         * Gets a variant of this resource, found by appending the given suffix
+         * to the URL, e.g. a gzip compressed variant with the suffix
+         * <code>.gz</code>. The result is remembered, so the variant is looked
+         * up only once if this resource is cached.
+         *
+         * @param suffix
+         *            the suffix of the variant
+         * @return the variant, or <code>null</code> if it does not exist
+         */
+        public StaticResource getVariant(String suffix) {
+            StaticResource variant = variants.get(suffix);
+            if (variant == null) {
+                variant = this;
+                try {
+                    URL variantUrl = new URL(url.toExternalForm() + suffix);
+                    variant = new StaticResource(variantUrl, cache);
+                } catch (FileNotFoundException e) {
+                    // No such variant
+                } catch (IOException e) {
+                    getLogger().log(Level.FINE, "Unexpected exception looking for "
+                            + suffix + " variant of resource " + url, e);
+                }
+                if (cache != null) {
+                    StaticResource existing = variants.putIfAbsent(suffix,
+                            variant);
+                    if (existing != null) {
+                        variant = existing;
+                    }
+                }
+            }
+            // The resource itself is used as the marker for a missing variant
+            return variant == this ? null : variant;
+        }
+
+        /**
+         * Writes a range of the contents of the resource to a stream.
+         *
+         * @param out
+         *            the stream to write to
+         * @param start
+         *            the index of the first byte to write
+         * @param count
+         *            the number of bytes to write, or -1 to write everything
+         *            after the start index
+         * @throws IOException
+         *             if reading the resource or writing to the stream fails
+         */
+        public void write(OutputStream out, long start, long count)
+                throws IOException {
+            byte[] bytes = getContent();
+            if (bytes != null) {
+                long available = Math.max(0, bytes.length - start);
+                if (count < 0 || count > available) {
+                    count = available;
+                }
+                if (count > 0) {
+                    out.write(bytes, (int) start, (int) count);
+                }
+            } else if (file != null) {
+                writeFile(out, start, count);
+            } else {
+                writeStream(out, start, count);
+            }
+        }
+
+        private byte[] getContent() throws IOException {
+            if (contentResolved || cache == null) {
+                return content;
+            }
+            synchronized (this) {
+                if (!contentResolved) {
+                    if (length >= 0 && length <= cache.maxCachedFileSize
+                            && cache.reserve(length)) {
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+                                (int) length);
+                        try {
+                            if (file != null) {
+                                writeFile(bytes, 0, -1);
+                            } else {
+                                writeStream(bytes, 0, -1);
+                            }
+                        } catch (IOException e) {
+                            cache.release(length);
+                            throw e;
+                        }
+                        content = bytes.toByteArray();
+                    }
+                    contentResolved = true;
+                }
+            }
+            return content;
+        }
+
+        private void writeFile(OutputStream out, long start, long count)
+                throws IOException {
+            FileInputStream is = new FileInputStream(file);
+            try {
+                FileChannel channel = is.getChannel();
+                long end = count < 0 ? channel.size() : start + count;
+                WritableByteChannel target = Channels.newChannel(out);
+                long position = start;
+                while (position < end) {
+                    long written = channel.transferTo(position, end - position,
+                            target);
+                    if (written <= 0) {
+                        // File was truncated after the length was resolved
+                        break;
+                    }
+                    position += written;
+                }
+            } finally {
+                is.close();
+            }
+        }
+
+        private void writeStream(OutputStream out, long start, long count)
+                throws IOException {
+            InputStream is = url.openStream();
+            try {
+                while (start > 0) {
+                    long skipped = is.skip(start);
+                    if (skipped <= 0) {
+                        return;
+                    }
+                    start -= skipped;
+                }
+                byte[] buffer = new byte[BUFFER_SIZE];
+                long remaining = count < 0 ? Long.MAX_VALUE : count;
+                while (remaining > 0) {
+                    int bytes = is.read(buffer, 0,
+                            (int) Math.min(buffer.length, remaining));
+                    if (bytes < 0) {
+                        break;
+                    }
+                    out.write(buffer, 0, bytes);
+                    remaining -= bytes;
+                }
+            } finally {
+                is.close();
+            }
+        }
+
+        private static File toFile(URL url) {
+            if (!"file".equals(url.getProtocol())) {
+                return null;
+            }
+            try {
+                return new File(url.toURI());
+            } catch (URISyntaxException e) {
+                return null;
+            } catch (IllegalArgumentException e) {
+                // URI with query or fragment
+                return null;
+            }
+        }
+    }
+
+    private final int maxCachedFileSize;
+    private final long maxCacheSize;
+    private final AtomicLong cachedBytes = new AtomicLong();
+    private final ConcurrentMap<String, URL> urls = new ConcurrentHashMap<String, URL>();
+    private final ConcurrentMap<String, StaticResource> resources = new ConcurrentHashMap<String, StaticResource>();
+
+    /**
+     * Creates a cache with the default size limits.
+     */
+    public StaticResourceCache() {
+        this(DEFAULT_MAX_CACHED_FILE_SIZE, DEFAULT_MAX_CACHE_SIZE);
+    }
+
+    /**
+     * Creates a cache with the given size limits.
+     *
+     * @param maxCachedFileSize
+     *            the maximum size in bytes of a single resource kept in
+     *            memory, 0 to keep no contents in memory
+     * @param maxCacheSize
+     *            the maximum total size in bytes of the resources kept in
+     *            memory
+     */
+    public StaticResourceCache(int maxCachedFileSize, long maxCacheSize) {
+        this.maxCachedFileSize = maxCachedFileSize;
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    /**
+     * Gets the cached URL of the given file name.
+     *
+     * @param filename
+     *            the name of the file, starting with /VAADIN/
+     * @return the URL of the file, or <code>null</code> if not cached
+     */
+    public URL getUrl(String filename) {
+        return urls.get(filename);
+    }
+
+    /**
+     * Stores the URL a file name was resolved to.
+     *
+     * @param filename
+     *            the name of the file, starting with /VAADIN/
+     * @param url
+     *            the URL of the file, not <code>null</code>
+     */
+    public void putUrl(String filename, URL url) {
+        urls.put(filename, url);
+    }
+
+    /**
+     * Gets the cached resource for the given URL, resolving its metadata if it
+     * has not yet been cached.
+     *
+     * @param url
+     *            the URL of the resource
+     * @return the resource
+     * @throws FileNotFoundException
+     *             if the resource does not exist
+     * @throws IOException
+     *             if resolving the metadata fails
+     */
+    public StaticResource getResource(URL url) throws IOException {
+        String key = url.toExternalForm();
+        StaticResource resource = resources.get(key);
+        if (resource == null) {
+            resource = new StaticResource(url, this);
+            StaticResource existing = resources.putIfAbsent(key, resource);
+            if (existing != null) {
+                resource = existing;
+            }
+        }
+        return resource;
+    }
+
+    /**
+     * Creates an uncached resource for the given URL. The metadata is resolved
+     * immediately, but neither the contents nor the variants are remembered.
+     *
+     * @param url
+     *            the URL of the resource
+     * @return the resource
+     * @throws FileNotFoundException
+     *             if the resource does not exist
+     * @throws IOException
+     *             if resolving the metadata fails
+     */
+    public static StaticResource createUncachedResource(URL url)
+            throws IOException {
+        return new StaticResource(url, null);
+    }
+
+    /**
+     * Gets the total size of the resource contents kept in memory.
+     *
+     * @return the number of cached bytes
+     */
+    public long getCachedBytes() {
+        return cachedBytes.get();
+    }
+
+    /**
+     * Removes all resources from the cache.
+     */
+    public void clear() {
+        urls.clear();
+        resources.clear();
+        cachedBytes.set(0);
+    }
+
+    private boolean reserve(long bytes) {
+        while (true) {
+            long current = cachedBytes.get();
+            if (current + bytes > maxCacheSize) {
+                return false;
+            }
+            if (cachedBytes.compareAndSet(current, current + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    private void release(long bytes) {
+        cachedBytes.addAndGet(-bytes);
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(StaticResourceCache.class.getName());
+    }
+}
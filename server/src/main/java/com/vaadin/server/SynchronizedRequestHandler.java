@@ -16,12 +16,20 @@
 package com.vaadin.server;
 
 import java.io.IOException;
+import java.util.concurrent.locks.Lock;
+
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
 
 /**
  * RequestHandler which takes care of locking and unlocking of the VaadinSession
  * automatically. The session is locked before
  * {@link #synchronizedHandleRequest(VaadinSession, VaadinRequest, VaadinResponse)}
  * is called and unlocked after it has completed.
+ * <p>
+ * If {@link VaadinService#isUILockingEnabled() UI locking} is enabled and
+ * {@link #findUIToLock(VaadinSession, VaadinRequest)} identifies the UI that
+ * the request is targeted at, only that UI is locked instead of the session.
  *
  * @author Vaadin Ltd
  * @version @VERSION@
@@ -36,6 +44,38 @@ public abstract class SynchronizedRequestHandler implements RequestHandler {
             return false;
         }
 
+        if (session.getService().isUILockingEnabled()) {
+            UI ui;
+            Lock sharedLock = session.getUIAccessLock().readLock();
+            sharedLock.lock();
+            try {
+                ui = findUIToLock(session, request);
+            } finally {
+                sharedLock.unlock();
+            }
+            if (ui != null) {
+                try {
+                    ui.lock();
+                    if (ui.getSession() != session) {
+                        // Removed after it was found
+                        ui.unlock();
+                        ui = null;
+                    }
+                } catch (UIDetachedException e) {
+                    // Removed after it was found, handle with the session lock
+                    ui = null;
+                }
+            }
+            if (ui != null) {
+                try {
+                    return synchronizedHandleRequest(session, request,
+                            response);
+                } finally {
+                    ui.unlock();
+                }
+            }
+        }
+
         session.lock();
         try {
             return synchronizedHandleRequest(session, request, response);
@@ -44,6 +84,27 @@ public abstract class SynchronizedRequestHandler implements RequestHandler {
         }
     }
 
+    /**
+     * Finds the UI that the request is targeted at if it is enough to lock
+     * only that UI instead of the whole session for handling the request. This
+     * is only used if {@link VaadinService#isUILockingEnabled() UI locking} is
+     * enabled. The default implementation returns <code>null</code>, which
+     * means that the session is locked.
+     * <p>
+     * This method is called while holding a shared lock that prevents
+     * concurrent modifications of the session, but not of its UIs.
+     *
+     * @since 7.7.24
+     * @param session
+     *            the session for the request
+     * @param request
+     *            the request to handle
+     * @return the UI to lock, or <code>null</code> to lock the session
+     */
+    protected UI findUIToLock(VaadinSession session, VaadinRequest request) {
+        return null;
+    }
+
     /**
      * Identical to
      * {@link #handleRequest(VaadinSession, VaadinRequest, VaadinResponse)}
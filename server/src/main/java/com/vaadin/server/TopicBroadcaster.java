@@ -0,0 +1,259 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.vaadin.server.ClientConnector.DetachEvent;
+import com.vaadin.server.ClientConnector.DetachListener;
+import com.vaadin.shared.communication.PushMode;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
+
+/**
+ * Publishes messages to the UIs that have subscribed to a topic. This replaces
+ * the common pattern of looping over UIs and calling
+ * {@link UI#access(Runnable)} for each of them.
+ * <p>
+ * A published message is delivered to each subscribed UI using
+ * {@link UI#access(Runnable)}, so the listeners can update the UI directly.
+ * If the session of the UI is not locked by another thread, the message is
+ * delivered right away in the publishing thread, otherwise it is delivered
+ * when the lock is released. With access batching enabled, the messages are
+ * delivered in the background threads of the {@link VaadinService}. UIs using
+ * {@link PushMode#AUTOMATIC automatic push} are pushed when the lock is
+ * released, and UIs using {@link PushMode#MANUAL manual push} are pushed
+ * right after the listener has been run.
+ * <p>
+ * Messages published from one thread are delivered to each UI in the order
+ * they were published. The subscriptions of a UI are removed when the UI is
+ * detached.
+ *
+ * @see VaadinService#getTopicBroadcaster()
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class TopicBroadcaster implements Serializable {
+
+    /**
+     * A listener that receives messages published to a topic.
+     *
+     * @since 7.7.24
+     */
+    public interface BroadcastListener extends Serializable {
+        /**
+         * Called when a message is published to a topic the listener has
+         * subscribed to. The UI is locked while this method is called.
+         *
+         * @param topic
+         *            the topic of the message
+         * @param message
+         *            the published message
+         */
+        public void broadcastReceived(String topic, Object message);
+    }
+
+    private static class Subscription implements Serializable {
+        private final UI ui;
+        private final BroadcastListener listener;
+
+        public Subscription(UI ui, BroadcastListener listener) {
+            this.ui = ui;
+            this.listener = listener;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Subscription)) {
+                return false;
+            }
+            Subscription other = (Subscription) obj;
+            return ui == other.ui && listener.equals(other.listener);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(ui) + listener.hashCode();
+        }
+    }
+
+    /**
+     * Removes the subscriptions of a UI when it is detached. Stateless so that
+     * the same UI is not given several listeners and so that serializing the
+     * UI does not drag the broadcaster along.
+     */
+    private static class SubscriptionRemover implements DetachListener {
+        @Override
+        public void detach(DetachEvent event) {
+            UI ui = (UI) event.getConnector();
+            VaadinSession session = ui.getSession();
+            if (session != null) {
+                session.getService().getTopicBroadcaster()
+                        .removeSubscriptions(ui);
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof SubscriptionRemover;
+        }
+
+        @Override
+        public int hashCode() {
+            return SubscriptionRemover.class.hashCode();
+        }
+    }
+
+    private static final SubscriptionRemover SUBSCRIPTION_REMOVER = new SubscriptionRemover();
+
+    private final ConcurrentHashMap<String, Set<Subscription>> subscriptions = new ConcurrentHashMap<String, Set<Subscription>>();
+
+    /**
+     * Creates a broadcaster for the given service.
+     *
+     * @param service
+     *            the vaadin service, not <code>null</code>
+     */
+    public TopicBroadcaster(VaadinService service) {
+        if (service == null) {
+            throw new IllegalArgumentException("Service cannot be null");
+        }
+    }
+
+    /**
+     * Subscribes a UI to a topic. The listener is called with the UI locked
+     * whenever a message is published to the topic. The subscription is
+     * removed when the UI is detached.
+     * <p>
+     * This method must be called with the UI locked, e.g. from the
+     * {@link UI#init(com.vaadin.server.VaadinRequest) init} method of the UI
+     * or inside {@link UI#access(Runnable)}.
+     *
+     * @param topic
+     *            the topic, not <code>null</code>
+     * @param ui
+     *            the UI to update, not <code>null</code>
+     * @param listener
+     *            the listener to call, not <code>null</code>
+     */
+    public void subscribe(String topic, UI ui, BroadcastListener listener) {
+        if (topic == null || ui == null || listener == null) {
+            throw new IllegalArgumentException(
+                    "Topic, UI and listener cannot be null");
+        }
+        Set<Subscription> topicSubscriptions = subscriptions.get(topic);
+        if (topicSubscriptions == null) {
+            Set<Subscription> newSubscriptions = Collections
+                    .newSetFromMap(new ConcurrentHashMap<Subscription, Boolean>());
+            topicSubscriptions = subscriptions.putIfAbsent(topic,
+                    newSubscriptions);
+            if (topicSubscriptions == null) {
+                topicSubscriptions = newSubscriptions;
+            }
+        }
+        if (topicSubscriptions.add(new Subscription(ui, listener))) {
+            ui.addDetachListener(SUBSCRIPTION_REMOVER);
+        }
+    }
+
+    /**
+     * Removes a subscription added using
+     * {@link #subscribe(String, UI, BroadcastListener)}.
+     *
+     * @param topic
+     *            the topic
+     * @param ui
+     *            the subscribed UI
+     * @param listener
+     *            the subscribed listener
+     */
+    public void unsubscribe(String topic, UI ui, BroadcastListener listener) {
+        Set<Subscription> topicSubscriptions = subscriptions.get(topic);
+        if (topicSubscriptions != null) {
+            topicSubscriptions.remove(new Subscription(ui, listener));
+        }
+    }
+
+    /**
+     * Removes all subscriptions of a UI.
+     *
+     * @param ui
+     *            the UI to unsubscribe
+     */
+    public void removeSubscriptions(UI ui) {
+        for (Set<Subscription> topicSubscriptions : subscriptions.values()) {
+            Iterator<Subscription> iterator = topicSubscriptions.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().ui == ui) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of subscriptions to a topic.
+     *
+     * @param topic
+     *            the topic
+     * @return the number of subscriptions
+     */
+    public int getSubscriptionCount(String topic) {
+        Set<Subscription> topicSubscriptions = subscriptions.get(topic);
+        return topicSubscriptions == null ? 0 : topicSubscriptions.size();
+    }
+
+    /**
+     * Publishes a message to all subscribers of a topic. The message is
+     * delivered to each subscribed UI using {@link UI#access(Runnable)}.
+     *
+     * @param topic
+     *            the topic, not <code>null</code>
+     * @param message
+     *            the message to publish
+     */
+    public void publish(final String topic, final Object message) {
+        Set<Subscription> topicSubscriptions = subscriptions.get(topic);
+        if (topicSubscriptions == null) {
+            return;
+        }
+
+        for (final Subscription subscription : topicSubscriptions) {
+            final UI ui = subscription.ui;
+            try {
+                ui.access(new Runnable() {
+                    @Override
+                    public void run() {
+                        subscription.listener.broadcastReceived(topic,
+                                message);
+                        if (ui.getPushConfiguration()
+                                .getPushMode() == PushMode.MANUAL) {
+                            ui.push();
+                        }
+                    }
+                });
+            } catch (UIDetachedException e) {
+                // Detached before the detach listener had removed it
+                topicSubscriptions.remove(subscription);
+            }
+        }
+    }
+}
@@ -36,9 +36,16 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
@@ -64,6 +71,7 @@ import com.vaadin.shared.ApplicationConstants;
 import com.vaadin.shared.JsonConstants;
 import com.vaadin.shared.ui.ui.UIConstants;
 import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
 import com.vaadin.util.CurrentInstance;
 import com.vaadin.util.ReflectTools;
 
@@ -134,6 +142,15 @@ public abstract class VaadinService implements Serializable {
 
     private ClassLoader classLoader;
 
+    private SessionSerializer sessionSerializer = new JavaSessionSerializer();
+
+    /**
+     * Not serialized as the subscriptions refer to UIs of all sessions.
+     */
+    private transient TopicBroadcaster topicBroadcaster;
+
+    private ServiceMetrics metrics = NoOpServiceMetrics.get();
+
     private Iterable<RequestHandler> requestHandlers;
 
     private Boolean atmosphereAvailable = null;
@@ -150,6 +167,25 @@ public abstract class VaadinService implements Serializable {
      */
     private boolean initialized = false;
 
+    private boolean streamingUidlWriterEnabled;
+
+    private boolean streamingRpcReaderEnabled;
+
+    private int maxRpcPayloadSize;
+
+    private int pushCoalescingWindow;
+
+    private boolean uiLockingEnabled;
+
+    private long accessBatchDelay;
+
+    private int accessBatchSize;
+
+    /**
+     * Runs scheduled purges of access queues, created when first needed.
+     */
+    private transient ScheduledExecutorService accessExecutor;
+
     /**
      * Creates a new vaadin service based on a deployment configuration
      *
@@ -180,6 +216,53 @@ public abstract class VaadinService implements Serializable {
         if (getClassLoader() == null) {
             setDefaultClassLoader();
         }
+
+        streamingUidlWriterEnabled = Boolean.parseBoolean(
+                getDeploymentConfiguration().getApplicationOrSystemProperty(
+                        Constants.SERVLET_PARAMETER_STREAMING_UIDL_WRITER,
+                        "false"));
+        streamingRpcReaderEnabled = Boolean.parseBoolean(
+                getDeploymentConfiguration().getApplicationOrSystemProperty(
+                        Constants.SERVLET_PARAMETER_STREAMING_RPC_READER,
+                        "false"));
+        try {
+            maxRpcPayloadSize = Integer.parseInt(getDeploymentConfiguration()
+                    .getApplicationOrSystemProperty(
+                            Constants.SERVLET_PARAMETER_MAX_RPC_PAYLOAD_SIZE,
+                            "0"));
+        } catch (NumberFormatException e) {
+            getLogger().warning(
+                    "Maximum RPC payload size must be an integer, the size is not limited");
+            maxRpcPayloadSize = 0;
+        }
+        try {
+            pushCoalescingWindow = Integer.parseInt(getDeploymentConfiguration()
+                    .getApplicationOrSystemProperty(
+                            Constants.SERVLET_PARAMETER_PUSH_COALESCING_WINDOW,
+                            "0"));
+        } catch (NumberFormatException e) {
+            getLogger().warning(
+                    "Push coalescing window must be an integer, pushes are not coalesced");
+            pushCoalescingWindow = 0;
+        }
+        uiLockingEnabled = Boolean.parseBoolean(
+                getDeploymentConfiguration().getApplicationOrSystemProperty(
+                        Constants.SERVLET_PARAMETER_UI_LOCKING, "false"));
+        try {
+            accessBatchDelay = Long.parseLong(getDeploymentConfiguration()
+                    .getApplicationOrSystemProperty(
+                            Constants.SERVLET_PARAMETER_ACCESS_BATCH_DELAY,
+                            "0"));
+            accessBatchSize = Integer.parseInt(getDeploymentConfiguration()
+                    .getApplicationOrSystemProperty(
+                            Constants.SERVLET_PARAMETER_ACCESS_BATCH_SIZE,
+                            "0"));
+        } catch (NumberFormatException e) {
+            getLogger().warning(
+                    "Access batch delay and size must be integers, access batching is disabled");
+            accessBatchDelay = 0;
+            accessBatchSize = 0;
+        }
     }
 
     /**
@@ -328,6 +411,282 @@ public abstract class VaadinService implements Serializable {
         return deploymentConfiguration;
     }
 
+    /**
+     * Checks whether UIDL responses are written using a streaming JSON writer.
+     * In streaming mode,
+     * {@link com.vaadin.server.communication.UidlWriter UidlWriter} and its
+     * section writers emit JSON tokens directly to the response writer instead
+     * of first building JSON trees and converting them to strings. The
+     * produced output is the same in both modes.
+     * <p>
+     * The initial value is read from the
+     * {@value Constants#SERVLET_PARAMETER_STREAMING_UIDL_WRITER} init
+     * parameter.
+     *
+     * @return <code>true</code> if the streaming writer is used,
+     *         <code>false</code> otherwise
+     * @since 7.7.24
+     */
+    public boolean isStreamingUidlWriterEnabled() {
+        return streamingUidlWriterEnabled;
+    }
+
+    /**
+     * Sets whether UIDL responses should be written using a streaming JSON
+     * writer.
+     *
+     * @see #isStreamingUidlWriterEnabled()
+     *
+     * @param streamingUidlWriterEnabled
+     *            <code>true</code> to use the streaming writer,
+     *            <code>false</code> to build JSON trees
+     * @since 7.7.24
+     */
+    public void setStreamingUidlWriterEnabled(
+            boolean streamingUidlWriterEnabled) {
+        this.streamingUidlWriterEnabled = streamingUidlWriterEnabled;
+    }
+
+    /**
+     * Checks whether RPC requests are read using a streaming JSON reader. In
+     * streaming mode,
+     * {@link com.vaadin.server.communication.ServerRpcHandler
+     * ServerRpcHandler} decodes the invocations one by one directly from the
+     * request instead of first reading the whole request into a string and
+     * parsing it into a JSON tree.
+     * <p>
+     * In streaming mode, the invocations are handled using
+     * {@link com.vaadin.server.communication.ServerRpcHandler#handleInvocations(UI, List)
+     * handleInvocations(UI, List)}, so overriding the JSON based
+     * <code>handleInvocations</code> method has no effect.
+     * <p>
+     * The initial value is read from the
+     * {@value Constants#SERVLET_PARAMETER_STREAMING_RPC_READER} init
+     * parameter.
+     *
+     * @return <code>true</code> if the streaming reader is used,
+     *         <code>false</code> otherwise
+     * @since 7.7.24
+     */
+    public boolean isStreamingRpcReaderEnabled() {
+        return streamingRpcReaderEnabled;
+    }
+
+    /**
+     * Sets whether RPC requests should be read using a streaming JSON reader.
+     *
+     * @see #isStreamingRpcReaderEnabled()
+     *
+     * @param streamingRpcReaderEnabled
+     *            <code>true</code> to use the streaming reader,
+     *            <code>false</code> to build JSON trees
+     * @since 7.7.24
+     */
+    public void setStreamingRpcReaderEnabled(
+            boolean streamingRpcReaderEnabled) {
+        this.streamingRpcReaderEnabled = streamingRpcReaderEnabled;
+    }
+
+    /**
+     * Gets the maximum size of an RPC request in characters. Reading a larger
+     * request fails with an {@link IOException}, which protects the server
+     * from running out of memory because of oversized messages.
+     * <p>
+     * The initial value is read from the
+     * {@value Constants#SERVLET_PARAMETER_MAX_RPC_PAYLOAD_SIZE} init
+     * parameter.
+     *
+     * @return the maximum payload size, or <code>0</code> if the size is not
+     *         limited
+     * @since 7.7.24
+     */
+    public int getMaxRpcPayloadSize() {
+        return maxRpcPayloadSize;
+    }
+
+    /**
+     * Sets the maximum size of an RPC request in characters.
+     *
+     * @see #getMaxRpcPayloadSize()
+     *
+     * @param maxRpcPayloadSize
+     *            the maximum payload size, or <code>0</code> to not limit the
+     *            size
+     * @since 7.7.24
+     */
+    public void setMaxRpcPayloadSize(int maxRpcPayloadSize) {
+        if (maxRpcPayloadSize < 0) {
+            throw new IllegalArgumentException(
+                    "Maximum payload size cannot be negative");
+        }
+        this.maxRpcPayloadSize = maxRpcPayloadSize;
+    }
+
+    /**
+     * Gets the time window in milliseconds during which asynchronous pushes
+     * are coalesced into one message. After a push message has been sent to a
+     * UI, the changes of further pushes within the window are collected and
+     * sent together when the window has passed. This reduces the number of
+     * messages when UIs are updated frequently from background threads.
+     * Responses to client requests are never delayed.
+     * <p>
+     * The initial value is read from the
+     * {@value Constants#SERVLET_PARAMETER_PUSH_COALESCING_WINDOW} init
+     * parameter.
+     *
+     * @return the coalescing window in milliseconds, or <code>0</code> if
+     *         every push is sent right away
+     * @since 7.7.24
+     */
+    public int getPushCoalescingWindow() {
+        return pushCoalescingWindow;
+    }
+
+    /**
+     * Sets the time window in milliseconds during which asynchronous pushes
+     * are coalesced into one message.
+     *
+     * @see #getPushCoalescingWindow()
+     *
+     * @param pushCoalescingWindow
+     *            the coalescing window in milliseconds, or <code>0</code> to
+     *            send every push right away
+     * @since 7.7.24
+     */
+    public void setPushCoalescingWindow(int pushCoalescingWindow) {
+        if (pushCoalescingWindow < 0) {
+            throw new IllegalArgumentException(
+                    "Coalescing window cannot be negative");
+        }
+        this.pushCoalescingWindow = pushCoalescingWindow;
+    }
+
+    /**
+     * Checks whether each UI is protected by its own lock instead of the
+     * session lock.
+     * <p>
+     * When UI locking is enabled, UIDL, heartbeat and push requests and
+     * {@link UI#access(Runnable)} tasks only lock the UI they target, so that
+     * slow requests in one browser tab do not block the other tabs of the same
+     * session. Locking the session still gives exclusive access to the session
+     * and all its UIs, and waits until no UI is locked. The following
+     * restrictions apply while holding the lock of a UI:
+     * <ul>
+     * <li>The session can not be locked, e.g. using
+     * {@link VaadinSession#accessSynchronously(Runnable)}; use
+     * {@link VaadinSession#access(Runnable)} instead.</li>
+     * <li>Other UIs of the same session can not be locked; use
+     * {@link UI#access(Runnable)} instead.</li>
+     * </ul>
+     * Both cases throw an {@link IllegalStateException} to avoid deadlocks.
+     * Session-wide operations such as {@link VaadinSession#close() closing}
+     * the session or adding request handlers also require the session lock,
+     * so they should be done in a {@link VaadinSession#access(Runnable)} task.
+     * The default value is <code>false</code>.
+     *
+     * @see Constants#SERVLET_PARAMETER_UI_LOCKING
+     * @see UI#lock()
+     *
+     * @return <code>true</code> if each UI has its own lock,
+     *         <code>false</code> if all UIs are protected by the session lock
+     * @since 7.7.24
+     */
+    public boolean isUILockingEnabled() {
+        return uiLockingEnabled;
+    }
+
+    /**
+     * Sets whether each UI should be protected by its own lock instead of the
+     * session lock. This should be configured before any session is created,
+     * as changing it while sessions are in use breaks their locking.
+     *
+     * @see #isUILockingEnabled()
+     *
+     * @param uiLockingEnabled
+     *            <code>true</code> to give each UI its own lock,
+     *            <code>false</code> to protect all UIs with the session lock
+     * @since 7.7.24
+     */
+    public void setUILockingEnabled(boolean uiLockingEnabled) {
+        this.uiLockingEnabled = uiLockingEnabled;
+    }
+
+    /**
+     * Gets the time to wait for more tasks before purging the access queue of
+     * a session that is not locked.
+     * <p>
+     * By default, a task submitted using {@link VaadinSession#access(Runnable)}
+     * or {@link UI#access(Runnable)} from a background thread is run right away
+     * if the session is not locked, and changes are pushed after each task.
+     * With a positive delay, the queue is instead purged by a framework thread
+     * after the delay, so that all tasks submitted in the meantime are run
+     * while holding the session lock once and followed by one push for each
+     * UI with automatic push.
+     *
+     * @see Constants#SERVLET_PARAMETER_ACCESS_BATCH_DELAY
+     * @see VaadinSession#getAccessQueueStatistics()
+     *
+     * @return the delay in milliseconds, <code>0</code> to purge the queue
+     *         right away
+     * @since 7.7.24
+     */
+    public long getAccessBatchDelay() {
+        return accessBatchDelay;
+    }
+
+    /**
+     * Sets the time to wait for more tasks before purging the access queue of
+     * a session that is not locked.
+     *
+     * @see #getAccessBatchDelay()
+     *
+     * @param accessBatchDelay
+     *            the delay in milliseconds, <code>0</code> to purge the queue
+     *            right away
+     * @since 7.7.24
+     */
+    public void setAccessBatchDelay(long accessBatchDelay) {
+        if (accessBatchDelay < 0) {
+            throw new IllegalArgumentException(
+                    "Access batch delay cannot be negative");
+        }
+        this.accessBatchDelay = accessBatchDelay;
+    }
+
+    /**
+     * Gets the maximum number of access tasks that are run while holding the
+     * session lock once. If there are more tasks in the queue, the remaining
+     * tasks are run in new batches by a framework thread, so that request
+     * threads waiting for the lock are not delayed by a long queue.
+     *
+     * @see Constants#SERVLET_PARAMETER_ACCESS_BATCH_SIZE
+     * @see #getAccessBatchDelay()
+     *
+     * @return the maximum batch size, <code>0</code> for no limit
+     * @since 7.7.24
+     */
+    public int getAccessBatchSize() {
+        return accessBatchSize;
+    }
+
+    /**
+     * Sets the maximum number of access tasks that are run while holding the
+     * session lock once.
+     *
+     * @see #getAccessBatchSize()
+     *
+     * @param accessBatchSize
+     *            the maximum batch size, <code>0</code> for no limit
+     * @since 7.7.24
+     */
+    public void setAccessBatchSize(int accessBatchSize) {
+        if (accessBatchSize < 0) {
+            throw new IllegalArgumentException(
+                    "Access batch size cannot be negative");
+        }
+        this.accessBatchSize = accessBatchSize;
+    }
+
     /**
      * Sets the system messages provider to use for getting system messages to
      * display to users of this service.
@@ -364,6 +723,91 @@ public abstract class VaadinService implements Serializable {
         return systemMessagesProvider;
     }
 
+    /**
+     * Sets the serializer used for writing sessions of this service to a byte
+     * stream and reading them back, e.g. for storing sessions outside the
+     * servlet container.
+     *
+     * @see #getSessionSerializer()
+     *
+     * @since 7.7.24
+     * @param sessionSerializer
+     *            the session serializer; <code>null</code> is not allowed.
+     */
+    public void setSessionSerializer(SessionSerializer sessionSerializer) {
+        if (sessionSerializer == null) {
+            throw new IllegalArgumentException(
+                    "SessionSerializer can not be null.");
+        }
+        this.sessionSerializer = sessionSerializer;
+    }
+
+    /**
+     * Gets the serializer used for writing sessions of this service to a byte
+     * stream and reading them back.
+     * <p>
+     * By default, a {@link JavaSessionSerializer} using standard Java
+     * serialization is used.
+     * </p>
+     *
+     * @see #setSessionSerializer(SessionSerializer)
+     * @see CompactSessionSerializer
+     *
+     * @since 7.7.24
+     * @return the session serializer; not <code>null</code>
+     */
+    public SessionSerializer getSessionSerializer() {
+        return sessionSerializer;
+    }
+
+    /**
+     * Gets the broadcaster for publishing messages to UIs of all sessions of
+     * this service. The broadcaster is created when first requested.
+     *
+     * @since 7.7.24
+     * @return the topic broadcaster, not <code>null</code>
+     */
+    public synchronized TopicBroadcaster getTopicBroadcaster() {
+        if (topicBroadcaster == null) {
+            topicBroadcaster = new TopicBroadcaster(this);
+        }
+        return topicBroadcaster;
+    }
+
+    /**
+     * Sets the metrics implementation that receives timing and size
+     * measurements from request handling, session locking, response writing,
+     * RPC invocations, push and uploads. Sessions report their lock times to
+     * the metrics they got when last loaded or stored by this service.
+     *
+     * @see JmxServiceMetrics
+     *
+     * @since 7.7.24
+     * @param metrics
+     *            the service metrics, not <code>null</code>
+     */
+    public void setMetrics(ServiceMetrics metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException("Metrics cannot be null");
+        }
+        this.metrics = metrics;
+    }
+
+    /**
+     * Gets the metrics implementation that receives measurements from this
+     * service. By default, a {@link NoOpServiceMetrics} discarding all
+     * measurements is used.
+     *
+     * @see #setMetrics(ServiceMetrics)
+     *
+     * @since 7.7.24
+     * @return the service metrics, not <code>null</code>
+     */
+    public ServiceMetrics getMetrics() {
+        // The field is not initialized in mocked services
+        return metrics != null ? metrics : NoOpServiceMetrics.get();
+    }
+
     /**
      * Gets the system message to use for a specific locale. This method may
      * also be implemented to use information from current instances of various
@@ -714,10 +1158,10 @@ public abstract class VaadinService implements Serializable {
                     URL_PARAMETER_CLOSE_APPLICATION);
 
             if (closeApplication) {
-                closeSession(session, request.getWrappedSession(false));
+                closeSessionExclusively(session, request);
                 return null;
             } else if (restartApplication) {
-                closeSession(session, request.getWrappedSession(false));
+                closeSessionExclusively(session, request);
                 return createAndRegisterSession(request);
             } else {
                 return session;
@@ -777,6 +1221,13 @@ public abstract class VaadinService implements Serializable {
         session.setConfiguration(getDeploymentConfiguration());
         session.setCommunicationManager(
                 new LegacyCommunicationManager(session));
+        if (isUILockingEnabled()) {
+            /*
+             * Registering the handler requires the session lock, which can't
+             * be acquired later on by threads holding only the lock of a UI.
+             */
+            session.getGlobalResourceHandler(true);
+        }
 
         ServletPortletHelper.initDefaultUIProvider(session, this);
         onVaadinSessionStarted(request, session);
@@ -828,6 +1279,21 @@ public abstract class VaadinService implements Serializable {
         ServletPortletHelper.checkUiProviders(session, this);
     }
 
+    /**
+     * Closes a session found for a request. The session is locked using
+     * {@link VaadinSession#lock()} so that the session is not closed while
+     * other threads are handling requests holding only the lock of a UI.
+     */
+    private void closeSessionExclusively(VaadinSession vaadinSession,
+            VaadinRequest request) {
+        vaadinSession.lock();
+        try {
+            closeSession(vaadinSession, request.getWrappedSession(false));
+        } finally {
+            vaadinSession.unlock();
+        }
+    }
+
     private void closeSession(VaadinSession vaadinSession,
             WrappedSession session) {
         if (vaadinSession == null) {
@@ -1308,6 +1774,13 @@ public abstract class VaadinService implements Serializable {
                 return true;
             }
         }
+        if (isUILockingEnabled()) {
+            ReentrantLock uiLock = ui.getLockInstance();
+            if (uiLock.isLocked() || uiLock.hasQueuedThreads()) {
+                // Same as above, but for the lock of this UI only
+                return true;
+            }
+        }
 
         // Check timeout
         long now = System.currentTimeMillis();
@@ -1375,14 +1848,31 @@ public abstract class VaadinService implements Serializable {
             VaadinSession session) {
         if (session != null) {
             assert VaadinSession.getCurrent() == session;
-            session.lock();
-            try {
-                cleanupSession(session);
-                final long duration = (System.nanoTime() - (Long) request
-                        .getAttribute(REQUEST_START_TIME_ATTRIBUTE)) / 1000000;
+            final long duration = (System.nanoTime()
+                    - (Long) request.getAttribute(REQUEST_START_TIME_ATTRIBUTE))
+                    / 1000000;
+            if (isUILockingEnabled()) {
+                /*
+                 * Waiting for the session lock would make concurrent requests
+                 * to different UIs wait for each other after all. The cleanup
+                 * is done by some later request if the session is busy.
+                 */
+                if (tryLockSession(session)) {
+                    try {
+                        cleanupSession(session);
+                    } finally {
+                        session.unlock();
+                    }
+                }
                 session.setLastRequestDuration(duration);
-            } finally {
-                session.unlock();
+            } else {
+                session.lock();
+                try {
+                    cleanupSession(session);
+                    session.setLastRequestDuration(duration);
+                } finally {
+                    session.unlock();
+                }
             }
         }
         CurrentInstance.clearAll();
@@ -1435,7 +1925,10 @@ public abstract class VaadinService implements Serializable {
             }
 
             for (RequestHandler handler : getRequestHandlers()) {
+                long start = System.nanoTime();
                 if (handler.handleRequest(vaadinSession, request, response)) {
+                    getMetrics().requestHandled(handler,
+                            System.nanoTime() - start);
                     return;
                 }
             }
@@ -1797,6 +2290,7 @@ public abstract class VaadinService implements Serializable {
     public Future<Void> accessSession(VaadinSession session,
             Runnable runnable) {
         FutureAccess future = new FutureAccess(session, runnable);
+        session.getAccessQueueStatistics().taskEnqueued();
         session.getPendingAccessQueue().add(future);
 
         ensureAccessQueuePurged(session);
@@ -1809,13 +2303,21 @@ public abstract class VaadinService implements Serializable {
      * If the session is currently locked by the current thread or some other
      * thread, the queue will be purged when the session is unlocked. If the
      * lock is not held by any thread, it is acquired and the queue is purged
-     * right away.
+     * right away, or by a framework thread after the
+     * {@link #getAccessBatchDelay() access batch delay} if access batching is
+     * enabled.
      *
      * @since 7.1.2
      * @param session
      *            the session for which the access queue should be purged
      */
     public void ensureAccessQueuePurged(VaadinSession session) {
+        if (accessBatchDelay > 0 || accessBatchSize > 0) {
+            if (!session.hasLock()) {
+                scheduleAccessQueuePurge(session);
+            }
+            return;
+        }
         /*
          * If no thread is currently holding the lock, pending changes for UIs
          * with automatic push would not be processed and pushed until the next
@@ -1829,14 +2331,136 @@ public abstract class VaadinService implements Serializable {
          * thread and we acquire it, we just release it again to purge the queue
          * right away.
          */
+        if (tryLockSession(session)) {
+            // unlock triggers runPendingAccessTasks
+            session.unlock();
+        }
+    }
+
+    /**
+     * Purges the access queue of the session after the access batch delay,
+     * unless a purge is already scheduled.
+     */
+    private void scheduleAccessQueuePurge(final VaadinSession session) {
+        final AtomicBoolean scheduled = session.getAccessPurgeScheduled();
+        if (!scheduled.compareAndSet(false, true)) {
+            // Tasks enqueued until then are run in the scheduled batch
+            return;
+        }
+        Runnable purge = new Runnable() {
+            @Override
+            public void run() {
+                scheduled.set(false);
+                // If the lock is held, the queue is purged on unlock
+                if (tryLockSession(session)) {
+                    session.unlock();
+                }
+            }
+        };
+        scheduleTask(purge, accessBatchDelay);
+    }
+
+    /**
+     * Runs a task in a background thread of this service after the given
+     * delay. The task is run without holding any session lock, so it should
+     * use {@link VaadinSession#access(Runnable)} or
+     * {@link UI#access(Runnable)} for accessing the session. If the service
+     * is being destroyed, the task is run right away in the calling thread.
+     * <p>
+     * The threads are shared by all sessions of the service and are also used
+     * by the framework, e.g. for purging access queues and for coalesced
+     * pushes. Tasks should therefore be short and must not block; long
+     * running work should be done using an executor of the application. The
+     * threads are daemon threads that are stopped when the service is
+     * {@link #destroy() destroyed}.
+     *
+     * @since 7.7.24
+     * @param task
+     *            the task to run, not <code>null</code>
+     * @param delay
+     *            the delay in milliseconds
+     */
+    public void scheduleTask(Runnable task, long delay) {
+        try {
+            getAccessExecutor().schedule(task, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    private synchronized ScheduledExecutorService getAccessExecutor() {
+        if (accessExecutor == null) {
+            accessExecutor = Executors.newScheduledThreadPool(
+                    Runtime.getRuntime().availableProcessors(),
+                    new AccessThreadFactory());
+        }
+        return accessExecutor;
+    }
+
+    /**
+     * Creates daemon threads for purging access queues so that the threads do
+     * not prevent shutting down the JVM.
+     */
+    private static class AccessThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r,
+                    "vaadin-access-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Tries to lock the given session without waiting. This fails also if any
+     * UI of the session is locked when UI locking is enabled.
+     *
+     * @param session
+     *            the session to lock
+     * @return <code>true</code> if the session was locked and must be unlocked
+     *         using {@link VaadinSession#unlock()}, <code>false</code> if the
+     *         lock could not be acquired
+     */
+    private boolean tryLockSession(VaadinSession session) {
         try {
             // tryLock() would be shorter, but it does not guarantee fairness
-            if (session.getLockInstance().tryLock(0, TimeUnit.SECONDS)) {
-                // unlock triggers runPendingAccessTasks
-                session.unlock();
+            if (!session.getLockInstance().tryLock(0, TimeUnit.SECONDS)) {
+                return false;
             }
+            if (!session.getUIAccessLock().writeLock().tryLock(0,
+                    TimeUnit.SECONDS)) {
+                session.getLockInstance().unlock();
+                return false;
+            }
+            session.lockAcquired(System.nanoTime());
+            return true;
         } catch (InterruptedException e) {
             // Just ignore
+            return false;
+        }
+    }
+
+    /**
+     * Makes sure the pending access queue is purged for the provided UI when
+     * {@link #isUILockingEnabled() UI locking} is enabled. If the UI is
+     * currently locked by the current thread or some other thread, the queue
+     * will be purged when the UI is unlocked. If the lock is not held by any
+     * thread, it is acquired and the queue is purged right away.
+     *
+     * @since 7.7.24
+     * @param ui
+     *            the UI for which the access queue should be purged
+     */
+    public void ensureAccessQueuePurged(UI ui) {
+        try {
+            if (ui.tryLock()) {
+                // unlock triggers runPendingAccessTasks
+                ui.unlock();
+            }
+        } catch (UIDetachedException e) {
+            // Nothing to purge for a detached UI
         }
     }
 
@@ -1854,7 +2478,33 @@ public abstract class VaadinService implements Serializable {
     public void runPendingAccessTasks(VaadinSession session) {
         assert session.hasLock();
 
-        if (session.getPendingAccessQueue().isEmpty()) {
+        runPendingAccessTasks(session, session.getPendingAccessQueue(),
+                accessBatchSize, session.getAccessQueueStatistics());
+    }
+
+    /**
+     * Purges the queue of pending access invocations enqueued with
+     * {@link UI#access(Runnable)} when {@link #isUILockingEnabled() UI
+     * locking} is enabled.
+     * <p>
+     * This method is automatically run by the framework at appropriate
+     * situations and is not intended to be used by application developers.
+     *
+     * @param ui
+     *            the UI to purge the queue for
+     * @since 7.7.24
+     */
+    public void runPendingAccessTasks(UI ui) {
+        VaadinSession session = ui.getSession();
+        assert session == null || session.hasUILock();
+
+        runPendingAccessTasks(session, ui.getPendingAccessQueue(), 0, null);
+    }
+
+    private void runPendingAccessTasks(VaadinSession session,
+            Queue<FutureAccess> queue, int maxTasks,
+            AccessQueueStatistics statistics) {
+        if (queue.isEmpty()) {
             return;
         }
 
@@ -1862,10 +2512,21 @@ public abstract class VaadinService implements Serializable {
                 .getInstances(false);
 
         FutureAccess pendingAccess;
+        int taskCount = 0;
         try {
-            while ((pendingAccess = session.getPendingAccessQueue()
-                    .poll()) != null) {
+            /*
+             * Remaining tasks are left in the queue when the batch is full, and
+             * are run after the lock has been released once.
+             */
+            while ((maxTasks <= 0 || taskCount < maxTasks)
+                    && (pendingAccess = queue.poll()) != null) {
+                if (statistics != null) {
+                    statistics.taskDequeued(
+                            System.nanoTime() - pendingAccess.getCreationTime(),
+                            !pendingAccess.isCancelled());
+                }
                 if (!pendingAccess.isCancelled()) {
+                    taskCount++;
                     CurrentInstance.clearAll();
                     CurrentInstance.restoreInstances(
                             pendingAccess.getCurrentInstances());
@@ -1880,6 +2541,9 @@ public abstract class VaadinService implements Serializable {
                     }
                 }
             }
+            if (statistics != null && taskCount > 0) {
+                statistics.batchCompleted();
+            }
         } finally {
             CurrentInstance.clearAll();
             CurrentInstance.restoreInstances(oldInstances);
@@ -1929,6 +2593,11 @@ public abstract class VaadinService implements Serializable {
      */
     public void destroy() {
         eventRouter.fireEvent(new ServiceDestroyEvent(this));
+        synchronized (this) {
+            if (accessExecutor != null) {
+                accessExecutor.shutdown();
+            }
+        }
     }
 
     /**
@@ -1998,12 +2667,15 @@ public abstract class VaadinService implements Serializable {
      * @return the VaadinSession in the HTTP session or null if not found
      */
     protected VaadinSession loadSession(WrappedSession wrappedSession) {
-        assert VaadinSession.hasLock(this, wrappedSession);
+        boolean sessionLocked = VaadinSession.hasLock(this, wrappedSession);
+        assert sessionLocked || isUILockingEnabled();
 
         VaadinSession vaadinSession = readFromHttpSession(wrappedSession);
         if (vaadinSession == null) {
             return null;
         }
+        // With UI locking, holding the lock of a UI of the session suffices
+        assert sessionLocked || vaadinSession.hasUILock();
         vaadinSession.refreshTransients(wrappedSession, this);
         return vaadinSession;
     }
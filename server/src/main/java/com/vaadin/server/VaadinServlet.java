@@ -30,18 +30,25 @@ import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.net.URLConnection;
 import java.net.URLDecoder;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -54,6 +61,7 @@ import javax.servlet.http.HttpServletResponse;
 import com.vaadin.annotations.VaadinServletConfiguration;
 import com.vaadin.annotations.VaadinServletConfiguration.InitParameterName;
 import com.vaadin.sass.internal.ScssStylesheet;
+import com.vaadin.server.StaticResourceCache.StaticResource;
 import com.vaadin.server.communication.ServletUIInitHandler;
 import com.vaadin.shared.ApplicationConstants;
 import com.vaadin.shared.JsonConstants;
@@ -180,6 +188,29 @@ public class VaadinServlet extends HttpServlet implements Constants {
             return scssFileName;
         }
 
+        /**
+         * Creates a copy of this entry with the same css but with the current
+         * timestamp of the source files, used to keep serving the last
+         * successfully compiled css when the compilation fails.
+         */
+        public ScssCacheEntry refresh() {
+            return new ScssCacheEntry(scssFileName, css, sourceUris);
+        }
+
+    }
+
+    /**
+     * Creates the daemon thread used for compiling scss files in the
+     * background.
+     */
+    private static class ScssCompilerThreadFactory
+            implements ThreadFactory, Serializable {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Vaadin scss compiler");
+            thread.setDaemon(true);
+            return thread;
+        }
     }
 
     private VaadinServletService servletService;
@@ -232,6 +263,10 @@ public class VaadinServlet extends HttpServlet implements Constants {
         // Sets current service even though there are no request and response
         servletService.setCurrentInstances(null, null);
 
+        if (!deploymentConfiguration.isProductionMode()) {
+            precompileScssThemes();
+        }
+
         servletInitialized();
 
         CurrentInstance.clearAll();
@@ -680,15 +715,41 @@ public class VaadinServlet extends HttpServlet implements Constants {
      * This is a workaround needed as the scss compiler currently is not thread
      * safe (#10292).
      * <p>
-     * In addition, this is also used to protect the cached compilation results.
+     * In addition, this is also used to prevent reading and writing the
+     * persisted compilation results simultaneously.
      */
     private static final Object SCSS_MUTEX = new Object();
 
     /**
-     * Global cache of scss compilation results. This map is protected from
-     * concurrent access by {@link #SCSS_MUTEX}.
+     * Global cache of scss compilation results.
+     */
+    private final ConcurrentMap<String, ScssCacheEntry> scssCache = new ConcurrentHashMap<String, ScssCacheEntry>();
+
+    /**
+     * The names of the scss files currently waiting for compilation in the
+     * background.
+     */
+    private final Set<String> pendingScssCompilations = Collections
+            .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /**
+     * The interval in seconds between checks for modified scss files.
+     */
+    private static final int SCSS_WATCH_INTERVAL = 2;
+
+    /**
+     * Compiles scss files in the background in development mode, created when
+     * first needed.
+     */
+    private transient volatile ScheduledExecutorService scssCompiler;
+
+    private volatile StaticResourceCache staticResourceCache;
+
+    /**
+     * Returned by {@link #getRequestedRange} if the requested range cannot be
+     * served.
      */
-    private final Map<String, ScssCacheEntry> scssCache = new HashMap<String, ScssCacheEntry>();
+    static final long[] UNSATISFIABLE_RANGE = new long[0];
 
     /**
      * Keeps track of whether a warning about not being able to persist cache
@@ -764,7 +825,11 @@ public class VaadinServlet extends HttpServlet implements Constants {
             throws IOException, ServletException {
 
         final ServletContext sc = getServletContext();
-        URL resourceUrl = findResourceURL(filename);
+        StaticResourceCache cache = getStaticResourceCache();
+        URL resourceUrl = cache != null ? cache.getUrl(filename) : null;
+        if (resourceUrl == null) {
+            resourceUrl = findResourceURL(filename);
+        }
 
         if (resourceUrl == null) {
             // File not found, if this was a css request we still look for a
@@ -791,6 +856,9 @@ public class VaadinServlet extends HttpServlet implements Constants {
             response.setStatus(HttpServletResponse.SC_FORBIDDEN);
             return;
         }
+        if (cache != null) {
+            cache.putUrl(filename, resourceUrl);
+        }
 
         String cacheControl = "public, max-age=0, must-revalidate";
         int resourceCacheTime = getCacheTime(filename);
@@ -802,41 +870,22 @@ public class VaadinServlet extends HttpServlet implements Constants {
                 System.currentTimeMillis() + (resourceCacheTime * 1000));
 
         // Find the modification timestamp
-        long lastModifiedTime = 0;
-        URLConnection connection = null;
+        StaticResource resource;
         try {
-            connection = resourceUrl.openConnection();
-            lastModifiedTime = connection.getLastModified();
-            // Remove milliseconds to avoid comparison problems (milliseconds
-            // are not returned by the browser in the "If-Modified-Since"
-            // header).
-            lastModifiedTime = lastModifiedTime - lastModifiedTime % 1000;
-            response.setDateHeader("Last-Modified", lastModifiedTime);
-
-            if (browserHasNewestVersion(request, lastModifiedTime)) {
-                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-                return;
-            }
-        } catch (Exception e) {
-            // Failed to find out last modified timestamp. Continue without it.
-            getLogger().log(Level.FINEST,
-                    "Failed to find out last modified timestamp. Continuing without it.",
-                    e);
-        } finally {
-            try {
-                // Explicitly close the input stream to prevent it
-                // from remaining hanging
-                // http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=4257700
-                InputStream is = connection.getInputStream();
-                if (is != null) {
-                    is.close();
-                }
-            } catch (FileNotFoundException e) {
-                // Not logging when the file does not exist.
-            } catch (IOException e) {
-                getLogger().log(Level.INFO,
-                        "Error closing URLConnection input stream", e);
-            }
+            resource = getStaticResource(resourceUrl);
+        } catch (FileNotFoundException e) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        long lastModifiedTime = resource.getLastModified();
+        response.setDateHeader("Last-Modified", lastModifiedTime);
+
+        // If-None-Match takes precedence over If-Modified-Since, it is checked
+        // when writing the response
+        if (request.getHeader("If-None-Match") == null
+                && browserHasNewestVersion(request, lastModifiedTime)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
         }
 
         // Set type mime type if we can determine it based on the filename
@@ -900,53 +949,196 @@ public class VaadinServlet extends HttpServlet implements Constants {
     protected void writeStaticResourceResponse(HttpServletRequest request,
             HttpServletResponse response, URL resourceUrl) throws IOException {
 
-        URLConnection connection = null;
-        InputStream is = null;
-        String urlStr = resourceUrl.toExternalForm();
+        StaticResource resource;
+        try {
+            resource = getStaticResource(resourceUrl);
+        } catch (FileNotFoundException e) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
 
+        StaticResource served = resource;
+        String urlStr = resourceUrl.toExternalForm();
         if (allowServePrecompressedResource(request, urlStr)) {
-            // try to serve a precompressed version if available
-            try {
-                connection = new URL(urlStr + ".gz").openConnection();
-                is = connection.getInputStream();
-                // set gzip headers
-                response.setHeader("Content-Encoding", "gzip");
-            } catch (IOException e) {
-                // NOP: will be still tried with non gzipped version
-            } catch (Exception e) {
-                getLogger().log(Level.FINE,
-                        "Unexpected exception looking for gzipped version of resource "
-                                + urlStr,
-                        e);
+            // serve a precompressed version if available
+            String accept = request.getHeader("Accept-Encoding");
+            String encoding = "br";
+            StaticResource variant = null;
+            if (accept != null && accept.contains(encoding)) {
+                variant = resource.getVariant(".br");
+            }
+            if (variant == null) {
+                encoding = "gzip";
+                variant = resource.getVariant(".gz");
+            }
+            if (variant != null) {
+                response.setHeader("Content-Encoding", encoding);
+                response.setHeader("Vary", "Accept-Encoding");
+                served = variant;
             }
         }
-        if (is == null) {
-            // precompressed resource not available, get non compressed
-            connection = resourceUrl.openConnection();
-            try {
-                is = connection.getInputStream();
-            } catch (FileNotFoundException e) {
-                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+
+        String eTag = served.getETag();
+        if (eTag != null) {
+            response.setHeader("ETag", eTag);
+            if (matchesETag(request.getHeader("If-None-Match"), eTag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
                 return;
             }
         }
 
-        try {
-            int length = connection.getContentLength();
-            if (length >= 0) {
-                response.setContentLength(length);
+        long length = served.getLength();
+        long start = 0;
+        long count = length;
+        if (served == resource && length >= 0) {
+            // Byte ranges are only supported for uncompressed content
+            response.setHeader("Accept-Ranges", "bytes");
+            long[] range = getRequestedRange(request, eTag, length);
+            if (range == UNSATISFIABLE_RANGE) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.setStatus(
+                        HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            } else if (range != null) {
+                start = range[0];
+                count = range[1] - range[0] + 1;
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader("Content-Range",
+                        "bytes " + range[0] + "-" + range[1] + "/" + length);
+            }
+        }
+
+        if (count >= 0) {
+            if (count <= Integer.MAX_VALUE) {
+                response.setContentLength((int) count);
+            } else {
+                response.setHeader("Content-Length", String.valueOf(count));
+            }
+        }
+        served.write(response.getOutputStream(), start, count);
+    }
+
+    /**
+     * Gets the metadata of a static resource, from the static resource cache
+     * in production mode.
+     */
+    private StaticResource getStaticResource(URL resourceUrl)
+            throws IOException {
+        StaticResourceCache cache = getStaticResourceCache();
+        if (cache != null) {
+            return cache.getResource(resourceUrl);
+        }
+        return StaticResourceCache.createUncachedResource(resourceUrl);
+    }
+
+    /**
+     * Gets the cache for static resources, or <code>null</code> if static
+     * resources should not be cached because the servlet is not running in
+     * production mode.
+     */
+    private StaticResourceCache getStaticResourceCache() {
+        VaadinServletService service = getService();
+        if (service == null
+                || !service.getDeploymentConfiguration().isProductionMode()) {
+            return null;
+        }
+        if (staticResourceCache == null) {
+            synchronized (this) {
+                if (staticResourceCache == null) {
+                    staticResourceCache = createStaticResourceCache();
+                }
+            }
+        }
+        return staticResourceCache;
+    }
+
+    /**
+     * Creates the cache used for the metadata and contents of static resources
+     * in the VAADIN directory in production mode. Can be overridden to change
+     * the size limits of the cache.
+     *
+     * @since 7.7.24
+     * @return a new static resource cache, not <code>null</code>
+     */
+    protected StaticResourceCache createStaticResourceCache() {
+        return new StaticResourceCache();
+    }
+
+    /**
+     * Checks whether an If-None-Match header matches the given entity tag,
+     * using the weak comparison.
+     */
+    private static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
             }
-        } catch (Throwable e) {
-            // This can be ignored, content length header is not required.
-            // Need to close the input stream because of
-            // http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=4257700 to
-            // prevent it from hanging, but that is done below.
         }
+        return false;
+    }
 
+    /**
+     * Parses the single byte range requested by the Range header.
+     *
+     * @return the first and last index of the range,
+     *         {@link #UNSATISFIABLE_RANGE} if the range is outside the
+     *         resource or <code>null</code> if the whole resource should be
+     *         sent
+     */
+    static long[] getRequestedRange(HttpServletRequest request, String eTag,
+            long length) {
+        String range = request.getHeader("Range");
+        if (range == null || !range.startsWith("bytes=")) {
+            return null;
+        }
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange != null && !ifRange.trim().equals(eTag)) {
+            // The resource has changed, send all of it
+            return null;
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0 || spec.indexOf(',') >= 0) {
+            // Multiple ranges are not supported, send the whole resource
+            return null;
+        }
         try {
-            streamContent(response, is);
-        } finally {
-            is.close();
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end = length - 1;
+            if (first.isEmpty()) {
+                if (last.isEmpty()) {
+                    return null;
+                }
+                // The last N bytes
+                start = Math.max(0, length - Long.parseLong(last));
+                if (start == length) {
+                    return UNSATISFIABLE_RANGE;
+                }
+            } else {
+                start = Long.parseLong(first);
+                if (!last.isEmpty()) {
+                    long requestedEnd = Long.parseLong(last);
+                    if (requestedEnd < start) {
+                        return null;
+                    }
+                    end = Math.min(end, requestedEnd);
+                }
+            }
+            if (start >= length) {
+                return UNSATISFIABLE_RANGE;
+            }
+            return new long[] { start, end };
+        } catch (NumberFormatException e) {
+            return null;
         }
     }
 
@@ -955,8 +1147,10 @@ public class VaadinServlet extends HttpServlet implements Constants {
      * version of the given static resource. If this method returns true, the
      * suffix {@code .gz} is appended to the URL and the corresponding resource
      * is served if it exists. It is assumed that the compression method used is
-     * gzip. If this method returns false or a compressed version is not found,
-     * the original URL is used.
+     * gzip. If the request also indicates that the client accepts brotli
+     * compressed responses, a version with the suffix {@code .br} is preferred.
+     * If this method returns false or a compressed version is not found, the
+     * original URL is used.
      *
      * The base implementation of this method returns true if and only if the
      * request indicates that the client accepts gzip compressed responses and
@@ -978,16 +1172,6 @@ public class VaadinServlet extends HttpServlet implements Constants {
                 || url.endsWith(".css") || url.endsWith(".html"));
     }
 
-    private void streamContent(HttpServletResponse response, InputStream is)
-            throws IOException {
-        final OutputStream os = response.getOutputStream();
-        final byte buffer[] = new byte[DEFAULT_BUFFER_SIZE];
-        int bytes;
-        while ((bytes = is.read(buffer)) >= 0) {
-            os.write(buffer, 0, bytes);
-        }
-    }
-
     /**
      * Finds the given resource from the web content folder or using the class
      * loader.
@@ -1049,36 +1233,187 @@ public class VaadinServlet extends HttpServlet implements Constants {
             return true;
         }
 
+        ScssCacheEntry cacheEntry = scssCache.get(scssFilename);
+        if (cacheEntry == null || !cacheEntry.isStillValid()) {
+            if (cacheEntry != null
+                    && scheduleScssCompilation(scssFilename)) {
+                // Serve the last compiled css until the background
+                // compilation has finished
+                getLogger().log(Level.FINE,
+                        "Serving previously compiled {0} while recompiling",
+                        filename);
+            } else {
+                cacheEntry = compileScss(scssFilename);
+            }
+        }
+
+        if (cacheEntry == null) {
+            // compilation did not produce any result, but logged a message
+            return false;
+        }
+
+        // This is for development mode only so instruct the browser to
+        // never cache it
+        response.setHeader("Cache-Control", "no-cache");
+        final String mimetype = getService().getMimeType(filename);
+        writeResponse(response, mimetype, cacheEntry.getCss());
+
+        return true;
+    }
+
+    /**
+     * Gets an up to date compilation result for the given scss file, from the
+     * persisted cache if possible and otherwise by compiling it. If the
+     * compilation fails, the last successfully compiled css is kept.
+     *
+     * @param scssFilename
+     *            the scss file, starting with /VAADIN/
+     * @return the cache entry, or <code>null</code> if the file could not be
+     *         compiled
+     */
+    private ScssCacheEntry compileScss(String scssFilename)
+            throws IOException {
+        ServletContext sc = getServletContext();
+        String filename = scssFilename.substring(0, scssFilename.length() - 5)
+                + ".css";
         synchronized (SCSS_MUTEX) {
-            ScssCacheEntry cacheEntry = scssCache.get(scssFilename);
+            ScssCacheEntry previous = scssCache.get(scssFilename);
+            if (previous != null && previous.isStillValid()) {
+                // Compiled by another thread while waiting for the mutex
+                return previous;
+            }
 
-            if (cacheEntry == null) {
-                try {
-                    cacheEntry = loadPersistedScssCache(scssFilename, sc);
-                } catch (Exception e) {
-                    getLogger().log(Level.WARNING,
-                            "Could not read persisted scss cache", e);
-                }
+            ScssCacheEntry cacheEntry = null;
+            try {
+                cacheEntry = loadPersistedScssCache(scssFilename, sc);
+            } catch (Exception e) {
+                getLogger().log(Level.WARNING,
+                        "Could not read persisted scss cache", e);
             }
 
             if (cacheEntry == null || !cacheEntry.isStillValid()) {
                 cacheEntry = compileScssOnTheFly(filename, scssFilename, sc);
-                persistCacheEntry(cacheEntry);
+                if (cacheEntry != null) {
+                    persistCacheEntry(cacheEntry);
+                } else if (previous != null) {
+                    // Keep the last good css until the sources change again
+                    cacheEntry = previous.refresh();
+                }
+            }
+            if (cacheEntry != null) {
+                scssCache.put(scssFilename, cacheEntry);
             }
-            scssCache.put(scssFilename, cacheEntry);
+            return cacheEntry;
+        }
+    }
 
-            if (cacheEntry == null) {
-                // compilation did not produce any result, but logged a message
+    /**
+     * Schedules a compilation of the given scss file in the background, unless
+     * one is already pending.
+     *
+     * @param scssFilename
+     *            the scss file, starting with /VAADIN/
+     * @return <code>true</code> if the file is being compiled in the
+     *         background, <code>false</code> if background compilation is not
+     *         available
+     */
+    private boolean scheduleScssCompilation(final String scssFilename) {
+        ScheduledExecutorService compiler = getScssCompiler();
+        if (compiler == null) {
+            return false;
+        }
+        if (pendingScssCompilations.add(scssFilename)) {
+            try {
+                compiler.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            compileScss(scssFilename);
+                        } catch (Exception e) {
+                            getLogger().log(Level.WARNING,
+                                    "Scss compilation of " + scssFilename
+                                            + " failed",
+                                    e);
+                        } finally {
+                            pendingScssCompilations.remove(scssFilename);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The servlet is being destroyed
+                pendingScssCompilations.remove(scssFilename);
                 return false;
             }
+        }
+        return true;
+    }
 
-            // This is for development mode only so instruct the browser to
-            // never cache it
-            response.setHeader("Cache-Control", "no-cache");
-            final String mimetype = getService().getMimeType(filename);
-            writeResponse(response, mimetype, cacheEntry.getCss());
+    /**
+     * Gets the executor compiling scss files in the background, starting it
+     * and the watcher for modified scss files if not yet running.
+     *
+     * @return the executor, or <code>null</code> if the servlet has been
+     *         destroyed
+     */
+    private ScheduledExecutorService getScssCompiler() {
+        if (scssCompiler == null) {
+            synchronized (pendingScssCompilations) {
+                if (scssCompiler == null) {
+                    ScheduledExecutorService compiler = Executors
+                            .newSingleThreadScheduledExecutor(
+                                    new ScssCompilerThreadFactory());
+                    // Recompile modified files before they are requested
+                    compiler.scheduleWithFixedDelay(new Runnable() {
+                        @Override
+                        public void run() {
+                            for (Map.Entry<String, ScssCacheEntry> entry : scssCache
+                                    .entrySet()) {
+                                ScssCacheEntry cacheEntry = entry.getValue();
+                                // Entries with missing sources are compiled
+                                // when requested
+                                if (cacheEntry.timestamp != -1
+                                        && !cacheEntry.isStillValid()) {
+                                    scheduleScssCompilation(entry.getKey());
+                                }
+                            }
+                        }
+                    }, SCSS_WATCH_INTERVAL, SCSS_WATCH_INTERVAL,
+                            TimeUnit.SECONDS);
+                    scssCompiler = compiler;
+                }
+            }
+        }
+        if (scssCompiler.isShutdown()) {
+            return null;
+        }
+        return scssCompiler;
+    }
 
-            return true;
+    /**
+     * Starts compiling the themes in the VAADIN/themes directory of the web
+     * application that have a styles.scss file but no styles.css file, so that
+     * the compiled css is ready when it is first requested.
+     */
+    private void precompileScssThemes() {
+        Set<String> themePaths = getServletContext()
+                .getResourcePaths("/VAADIN/themes/");
+        if (themePaths == null) {
+            return;
+        }
+        for (String themePath : themePaths) {
+            if (!themePath.endsWith("/")) {
+                continue;
+            }
+            String scssFilename = themePath + "styles.scss";
+            try {
+                if (findResourceURL(themePath + "styles.css") == null
+                        && findResourceURL(scssFilename) != null) {
+                    scheduleScssCompilation(scssFilename);
+                }
+            } catch (IOException e) {
+                getLogger().log(Level.FINE,
+                        "Could not check theme " + themePath, e);
+            }
         }
     }
 
@@ -1379,6 +1714,9 @@ public class VaadinServlet extends HttpServlet implements Constants {
     @Override
     public void destroy() {
         super.destroy();
+        if (scssCompiler != null) {
+            scssCompiler.shutdownNow();
+        }
         getService().destroy();
     }
 
@@ -1399,10 +1737,23 @@ public class VaadinServlet extends HttpServlet implements Constants {
 
         String cacheEntryJsonString = cacheEntry.asJson();
 
+        // Write to a temporary file first so that other servers sharing the
+        // directory never read a partially written cache file
+        File tempFile = new File(cacheFile.getParentFile(),
+                cacheFile.getName() + "." + System.nanoTime() + ".tmp");
         try {
-            writeFile(cacheEntryJsonString, cacheFile,
+            writeFile(cacheEntryJsonString, tempFile,
                     Charset.forName("UTF-8"));
+            if (!tempFile.renameTo(cacheFile)) {
+                // Renaming over an existing file fails on some platforms
+                cacheFile.delete();
+                if (!tempFile.renameTo(cacheFile)) {
+                    throw new IOException("Could not rename " + tempFile
+                            + " to " + cacheFile);
+                }
+            }
         } catch (IOException e) {
+            tempFile.delete();
             getLogger().log(Level.WARNING,
                     "Error persisting scss cache " + cacheFile, e);
         }
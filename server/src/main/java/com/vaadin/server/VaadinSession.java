@@ -21,6 +21,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -33,12 +34,15 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -91,6 +95,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
                 .getInstances(true);
         private final VaadinSession session;
         private Runnable runnable;
+        private final long creationTime = System.nanoTime();
 
         /**
          * Creates an instance for the given runnable
@@ -136,6 +141,19 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
             return instances;
         }
 
+        /**
+         * Gets the time when this task was created, used for measuring how long
+         * the task waits in the queue.
+         *
+         * @see System#nanoTime()
+         *
+         * @return the creation time in nanoseconds
+         * @since 7.7.24
+         */
+        public long getCreationTime() {
+            return creationTime;
+        }
+
         /**
          * Handles exceptions thrown during the execution of this task.
          *
@@ -245,6 +263,12 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
 
     private DragAndDropService dragAndDropService;
 
+    /*
+     * Only used when UI locking is enabled, so that drag and drop requests to
+     * different UIs can be handled concurrently.
+     */
+    private final Map<Integer, DragAndDropService> uiDragAndDropServices = new ConcurrentHashMap<Integer, DragAndDropService>();
+
     private LegacyCommunicationManager communicationManager;
 
     private long cumulativeRequestDuration = 0;
@@ -272,6 +296,32 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     private transient ConcurrentLinkedQueue<FutureAccess> pendingAccessQueue = new ConcurrentLinkedQueue<FutureAccess>();
 
+    /*
+     * Only used when UI locking is enabled. Holding the lock of a UI implies
+     * holding the read lock, locking the session takes the write lock.
+     */
+    private transient ReentrantReadWriteLock uiAccessLock = new ReentrantReadWriteLock();
+
+    private transient AccessQueueStatistics accessQueueStatistics = new AccessQueueStatistics();
+
+    /*
+     * The System.nanoTime() when the session lock was acquired, only used by
+     * the thread holding the lock.
+     */
+    private transient long lockTime = 0;
+
+    /*
+     * The metrics of the service, refreshed whenever the service loads or
+     * stores this session so that locking does not need to call the service.
+     */
+    private transient ServiceMetrics metrics;
+
+    /*
+     * Set while a purge of the access queue is scheduled to be run later, to
+     * run all tasks enqueued in the meantime in the same batch.
+     */
+    private transient AtomicBoolean accessPurgeScheduled = new AtomicBoolean();
+
     /**
      * Creates a new VaadinSession tied to a VaadinService.
      *
@@ -335,7 +385,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     @Deprecated
     public WebBrowser getBrowser() {
-        assert hasLock();
+        assert hasUILock();
         return browser;
     }
 
@@ -344,8 +394,10 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *         milliseconds.
      */
     public long getCumulativeRequestDuration() {
-        assert hasLock();
-        return cumulativeRequestDuration;
+        assert hasUILock();
+        synchronized (this) {
+            return cumulativeRequestDuration;
+        }
     }
 
     /**
@@ -356,9 +408,13 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *            The time spent in the last request, in milliseconds.
      */
     public void setLastRequestDuration(long time) {
-        assert hasLock();
-        lastRequestDuration = time;
-        cumulativeRequestDuration += time;
+        // With UI locking, requests to different UIs end concurrently without
+        // holding the session lock
+        assert hasLock() || isUILockingEnabled();
+        synchronized (this) {
+            lastRequestDuration = time;
+            cumulativeRequestDuration += time;
+        }
     }
 
     /**
@@ -366,8 +422,10 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *         milliseconds.
      */
     public long getLastRequestDuration() {
-        assert hasLock();
-        return lastRequestDuration;
+        assert hasUILock();
+        synchronized (this) {
+            return lastRequestDuration;
+        }
     }
 
     /**
@@ -379,8 +437,10 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *
      */
     public void setLastRequestTimestamp(long timestamp) {
-        assert hasLock();
-        lastRequestTimestamp = timestamp;
+        assert hasUILock();
+        synchronized (this) {
+            lastRequestTimestamp = timestamp;
+        }
     }
 
     /**
@@ -390,8 +450,10 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *         the epoch.
      */
     public long getLastRequestTimestamp() {
-        assert hasLock();
-        return lastRequestTimestamp;
+        assert hasUILock();
+        synchronized (this) {
+            return lastRequestTimestamp;
+        }
     }
 
     /**
@@ -417,7 +479,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     @Deprecated
     public LegacyCommunicationManager getCommunicationManager() {
-        assert hasLock();
+        assert hasUILock();
         return communicationManager;
     }
 
@@ -428,6 +490,33 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         return dragAndDropService;
     }
 
+    /**
+     * Gets the drag and drop service that handles drag and drop requests from
+     * the given UI. If {@link VaadinService#isUILockingEnabled() UI locking}
+     * is enabled, each UI has its own service since requests to different UIs
+     * are handled concurrently. Otherwise, the service is shared by all UIs of
+     * the session.
+     *
+     * @param ui
+     *            the UI to get the service for, not <code>null</code>
+     * @return the drag and drop service, not <code>null</code>
+     * @since 7.7.24
+     */
+    public DragAndDropService getDragAndDropService(UI ui) {
+        if (!isUILockingEnabled()) {
+            return getDragAndDropService();
+        }
+        assert hasUILock();
+        Integer uiId = Integer.valueOf(ui.getUIId());
+        DragAndDropService service = uiDragAndDropServices.get(uiId);
+        if (service == null) {
+            // Only the thread holding the lock of the UI gets here
+            service = new DragAndDropService(this);
+            uiDragAndDropServices.put(uiId, service);
+        }
+        return service;
+    }
+
     /**
      * Loads the VaadinSession for the given service and WrappedSession from the
      * HTTP session.
@@ -508,8 +597,11 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
     private void refreshLock() {
         assert lock == null || lock == service.getSessionLock(
                 session) : "Cannot change the lock from one instance to another";
-                assert hasLock(service, session);
-                lock = service.getSessionLock(session);
+        // With UI locking, the session is refreshed also while holding only
+        // the lock of a UI
+        assert hasLock(service, session)
+                || uiAccessLock.getReadHoldCount() > 0;
+        lock = service.getSessionLock(session);
     }
 
     public void setCommunicationManager(
@@ -537,7 +629,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @return the deployment configuration
      */
     public DeploymentConfiguration getConfiguration() {
-        assert hasLock();
+        assert hasUILock();
         return configuration;
     }
 
@@ -550,7 +642,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @return the locale of this session.
      */
     public Locale getLocale() {
-        assert hasLock();
+        assert hasUILock();
         if (locale != null) {
             return locale;
         }
@@ -578,7 +670,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @return the current error handler
      */
     public ErrorHandler getErrorHandler() {
-        assert hasLock();
+        assert hasUILock();
         return errorHandler;
     }
 
@@ -601,7 +693,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @return The converter factory used in the session
      */
     public ConverterFactory getConverterFactory() {
-        assert hasLock();
+        assert hasUILock();
         return converterFactory;
     }
 
@@ -679,7 +771,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @since 7.0
      */
     public Collection<RequestHandler> getRequestHandlers() {
-        assert hasLock();
+        assert hasUILock();
         return Collections.unmodifiableCollection(requestHandlers);
     }
 
@@ -739,7 +831,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @since 7.0
      */
     public Collection<UI> getUIs() {
-        assert hasLock();
+        assert hasUILock();
         return Collections.unmodifiableCollection(uIs.values());
     }
 
@@ -766,8 +858,12 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     @Deprecated
     public String createConnectorId(ClientConnector connector) {
-        assert hasLock();
-        return String.valueOf(connectorIdSequence++);
+        assert hasUILock();
+        // Connectors may be attached concurrently in different UIs when UI
+        // locking is enabled
+        synchronized (embedIdMap) {
+            return String.valueOf(connectorIdSequence++);
+        }
     }
 
     /**
@@ -781,7 +877,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @return The UI with the given id or null if not found
      */
     public UI getUIById(int uiId) {
-        assert hasLock();
+        assert hasUILock();
         return uIs.get(uiId);
     }
 
@@ -790,12 +886,29 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *
      * @return true if the thread has exclusive access, false otherwise
      * @since 7.1
+     * @see #hasUILock()
      */
     public boolean hasLock() {
         ReentrantLock l = ((ReentrantLock) getLockInstance());
         return l.isHeldByCurrentThread();
     }
 
+    /**
+     * Checks if the current thread may access the UIs of this session. This is
+     * the case if the thread holds the session lock, or the lock of a UI of
+     * this session when {@link VaadinService#isUILockingEnabled() UI locking}
+     * is enabled. Several threads may hold the locks of different UIs at the
+     * same time, so state that is shared by the whole session may only be
+     * modified when {@link #hasLock()} is <code>true</code>.
+     *
+     * @return true if the thread may access the UIs of this session, false
+     *         otherwise
+     * @since 7.7.24
+     */
+    public boolean hasUILock() {
+        return hasLock() || uiAccessLock.getReadHoldCount() > 0;
+    }
+
     /**
      * Checks if the current thread has exclusive access to the given
      * WrappedSession.
@@ -878,6 +991,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         Integer id = Integer.valueOf(ui.getUIId());
         ui.setSession(null);
         uIs.remove(id);
+        uiDragAndDropServices.remove(id);
         String embedId = ui.getEmbedId();
         if (embedId != null && id.equals(embedIdMap.get(embedId))) {
             embedIdMap.remove(embedId);
@@ -903,8 +1017,11 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     public GlobalResourceHandler getGlobalResourceHandler(
             boolean createOnDemand) {
-        assert hasLock();
+        assert hasUILock();
         if (globalResourceHandler == null && createOnDemand) {
+            // Created eagerly when UI locking is enabled, see
+            // VaadinService.createAndRegisterSession
+            assert hasLock();
             globalResourceHandler = new GlobalResourceHandler();
             addRequestHandler(globalResourceHandler);
         }
@@ -968,12 +1085,67 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * {@link #getLockInstance()} can be used if more control over the locking
      * is required.
      *
+     * <p>
+     * If {@link VaadinService#isUILockingEnabled() UI locking} is enabled,
+     * this method also waits until no UI of this session is locked by another
+     * thread.
+     *
      * @see #unlock()
      * @see #getLockInstance()
      * @see #hasLock()
+     *
+     * @throws IllegalStateException
+     *             if UI locking is enabled and the current thread holds the
+     *             lock of a UI of this session but not the session lock
      */
     public void lock() {
+        if (uiAccessLock.getReadHoldCount() > 0
+                && !uiAccessLock.isWriteLockedByCurrentThread()) {
+            throw new IllegalStateException(
+                    "Can't lock the session while a UI of the session is locked by the same thread. This restriction is intended to help avoid deadlocks.");
+        }
+        long start = System.nanoTime();
         getLockInstance().lock();
+        // Waits for threads holding the lock of a UI. Uncontended unless UI
+        // locking is enabled.
+        uiAccessLock.writeLock().lock();
+        lockAcquired(start);
+    }
+
+    /**
+     * Reports the lock wait time to the service metrics when the current
+     * thread has acquired the session lock it did not hold before.
+     *
+     * @param waitStart
+     *            the {@link System#nanoTime()} when the thread started
+     *            waiting for the lock
+     */
+    void lockAcquired(long waitStart) {
+        if (metrics != null
+                && ((ReentrantLock) getLockInstance()).getHoldCount() == 1) {
+            lockTime = System.nanoTime();
+            metrics.sessionLockAcquired(this, lockTime - waitStart);
+        }
+    }
+
+    private boolean isUILockingEnabled() {
+        return service != null && service.isUILockingEnabled();
+    }
+
+    /**
+     * Gets the read-write lock that coordinates the session lock with the
+     * locks of individual UIs when {@link VaadinService#isUILockingEnabled()
+     * UI locking} is enabled. A thread holding the lock of a UI also holds the
+     * read lock, while a thread holding the session lock also holds the write
+     * lock.
+     * <p>
+     * This is meant for framework internal use.
+     *
+     * @return the UI access lock, not <code>null</code>
+     * @since 7.7.24
+     */
+    public ReentrantReadWriteLock getUIAccessLock() {
+        return uiAccessLock;
     }
 
     /**
@@ -990,6 +1162,8 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
     public void unlock() {
         assert hasLock();
         boolean ultimateRelease = false;
+        List<UI> uisWithPendingAccess = null;
+        boolean writeLocked = uiAccessLock.isWriteLockedByCurrentThread();
         try {
             /*
              * Run pending tasks and push if the reentrant lock will actually be
@@ -1000,6 +1174,10 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
                 getService().runPendingAccessTasks(this);
 
                 for (UI ui : getUIs()) {
+                    // Only used with UI locking
+                    if (!ui.getPendingAccessQueue().isEmpty()) {
+                        getService().runPendingAccessTasks(ui);
+                    }
                     if (ui.getPushConfiguration()
                             .getPushMode() == PushMode.AUTOMATIC) {
                         Map<Class<?>, CurrentInstance> oldCurrent = CurrentInstance
@@ -1023,9 +1201,25 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
                                         + ui.getUIId(),
                                         e);
                     }
+                    if (!ui.getPendingAccessQueue().isEmpty()) {
+                        if (uisWithPendingAccess == null) {
+                            uisWithPendingAccess = new ArrayList<UI>();
+                        }
+                        uisWithPendingAccess.add(ui);
+                    }
                 }
             }
         } finally {
+            if (ultimateRelease && lockTime != 0) {
+                if (metrics != null) {
+                    metrics.sessionLockReleased(this,
+                            System.nanoTime() - lockTime);
+                }
+                lockTime = 0;
+            }
+            if (writeLocked) {
+                uiAccessLock.writeLock().unlock();
+            }
             getLockInstance().unlock();
         }
 
@@ -1040,6 +1234,11 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         if (ultimateRelease && !getPendingAccessQueue().isEmpty()) {
             getService().ensureAccessQueuePurged(this);
         }
+        if (uisWithPendingAccess != null) {
+            for (UI ui : uisWithPendingAccess) {
+                getService().ensureAccessQueuePurged(ui);
+            }
+        }
     }
 
     /**
@@ -1058,14 +1257,18 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *            remove a previous association.
      */
     public void setAttribute(String name, Object value) {
-        assert hasLock();
+        assert hasUILock();
         if (name == null) {
             throw new IllegalArgumentException("name can not be null");
         }
-        if (value != null) {
-            attributes.put(name, value);
-        } else {
-            attributes.remove(name);
+        // Attributes may be used concurrently from different UIs when UI
+        // locking is enabled
+        synchronized (attributes) {
+            if (value != null) {
+                attributes.put(name, value);
+            } else {
+                attributes.remove(name);
+            }
         }
     }
 
@@ -1091,7 +1294,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *            remove a previous association.
      */
     public <T> void setAttribute(Class<T> type, T value) {
-        assert hasLock();
+        assert hasUILock();
         if (type == null) {
             throw new IllegalArgumentException("type can not be null");
         }
@@ -1115,11 +1318,13 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *         it has been set to null.
      */
     public Object getAttribute(String name) {
-        assert hasLock();
+        assert hasUILock();
         if (name == null) {
             throw new IllegalArgumentException("name can not be null");
         }
-        return attributes.get(name);
+        synchronized (attributes) {
+            return attributes.get(name);
+        }
     }
 
     /**
@@ -1142,7 +1347,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      *         it has been set to null.
      */
     public <T> T getAttribute(Class<T> type) {
-        assert hasLock();
+        assert hasUILock();
         if (type == null) {
             throw new IllegalArgumentException("type can not be null");
         }
@@ -1226,7 +1431,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @return an unmodifiable list of UI providers
      */
     public List<UIProvider> getUIProviders() {
-        assert hasLock();
+        assert hasUILock();
         return Collections.unmodifiableList(uiProviders);
     }
 
@@ -1269,7 +1474,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     @Deprecated
     public boolean isClosing() {
-        assert hasLock();
+        assert hasUILock();
         return state == State.CLOSING || state == State.CLOSED;
     }
 
@@ -1280,7 +1485,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @return the current state
      */
     public State getState() {
-        assert hasLock();
+        assert hasUILock();
         return state;
     }
 
@@ -1418,6 +1623,23 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         return pendingAccessQueue;
     }
 
+    /**
+     * Gets statistics about the tasks submitted using
+     * {@link #access(Runnable)}. It is safe to call this method and use the
+     * returned object without holding the {@link #lock() session lock}.
+     *
+     * @since 7.7.24
+     *
+     * @return the access queue statistics, not <code>null</code>
+     */
+    public AccessQueueStatistics getAccessQueueStatistics() {
+        return accessQueueStatistics;
+    }
+
+    AtomicBoolean getAccessPurgeScheduled() {
+        return accessPurgeScheduled;
+    }
+
     /**
      * Gets the CSRF token (aka double submit cookie) that is used to protect
      * against Cross Site Request Forgery attacks.
@@ -1426,7 +1648,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @return the csrf token string
      */
     public String getCsrfToken() {
-        assert hasLock();
+        assert hasUILock();
         return csrfToken;
     }
 
@@ -1438,7 +1660,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @since 7.7.11
      */
     public String getPushId() {
-        assert hasLock();
+        assert hasUILock();
         return pushId;
     }
 
@@ -1452,6 +1674,9 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         try {
             stream.defaultReadObject();
             pendingAccessQueue = new ConcurrentLinkedQueue<FutureAccess>();
+            uiAccessLock = new ReentrantReadWriteLock();
+            accessQueueStatistics = new AccessQueueStatistics();
+            accessPurgeScheduled = new AtomicBoolean();
         } finally {
             CurrentInstance.restoreInstances(old);
         }
@@ -1513,6 +1738,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
             VaadinService vaadinService) {
         session = wrappedSession;
         service = vaadinService;
+        metrics = vaadinService.getMetrics();
         refreshLock();
     }
 
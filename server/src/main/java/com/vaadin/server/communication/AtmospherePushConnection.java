@@ -26,6 +26,7 @@ import java.io.Writer;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -35,8 +36,12 @@ import org.atmosphere.cpr.AtmosphereResource;
 import org.atmosphere.cpr.AtmosphereResource.TRANSPORT;
 import org.atmosphere.util.Version;
 
+import com.vaadin.server.ServiceMetrics;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinSession;
 import com.vaadin.shared.communication.PushConstants;
 import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
 
 /**
  * A {@link PushConnection} implementation using the Atmosphere push support
@@ -137,6 +142,21 @@ public class AtmospherePushConnection implements PushConnection {
     private transient FragmentedMessage incomingMessage;
     private transient Future<Object> outgoingMessage;
 
+    /**
+     * Whether a push of coalesced changes has been scheduled.
+     */
+    private transient boolean flushScheduled = false;
+    private transient long lastPushTime = 0;
+    /**
+     * The {@link System#nanoTime()} of the first push since the last sent
+     * message, or <code>0</code> if no push is pending.
+     */
+    private transient long pushRequestTime = 0;
+
+    private final AtomicLong messagesSent = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong coalescedPushes = new AtomicLong();
+
     public AtmospherePushConnection(UI ui) {
         this.ui = ui;
     }
@@ -149,27 +169,108 @@ public class AtmospherePushConnection implements PushConnection {
     /**
      * Pushes pending state changes and client RPC calls to the client. If
      * {@code isConnected()} is false, defers the push until a connection is
-     * established.
+     * established. Asynchronous pushes are delayed if a
+     * {@link VaadinService#getPushCoalescingWindow() coalescing window} is
+     * set and the previous push was sent within the window.
      *
      * @param async
      *            True if this push asynchronously originates from the server,
      *            false if it is a response to a client request.
      */
     public void push(boolean async) {
+        if (pushRequestTime == 0) {
+            pushRequestTime = System.nanoTime();
+        }
         if (!isConnected()) {
             if (async && state != State.RESPONSE_PENDING) {
                 state = State.PUSH_PENDING;
             } else {
                 state = State.RESPONSE_PENDING;
             }
+        } else if (async && deferPush()) {
+            coalescedPushes.incrementAndGet();
         } else {
-            try {
-                Writer writer = new StringWriter();
-                new UidlWriter().write(getUI(), writer, async);
-                sendMessage("for(;;);[{" + writer.toString() + "}]");
-            } catch (Exception e) {
-                throw new RuntimeException("Push failed", e);
+            sendPush(async);
+        }
+    }
+
+    private void sendPush(boolean async) {
+        try {
+            Writer writer = new StringWriter();
+            new UidlWriter().write(getUI(), writer, async);
+            String message = "for(;;);[{" + writer.toString() + "}]";
+            sendMessage(message);
+            lastPushTime = System.currentTimeMillis();
+
+            int bytes = getUtf8Length(message);
+            messagesSent.incrementAndGet();
+            bytesSent.addAndGet(bytes);
+            VaadinSession session = getUI().getSession();
+            ServiceMetrics metrics = session != null
+                    ? session.getService().getMetrics() : null;
+            if (metrics != null && pushRequestTime != 0) {
+                metrics.pushSent(getUI(), bytes,
+                        System.nanoTime() - pushRequestTime);
             }
+            pushRequestTime = 0;
+        } catch (Exception e) {
+            throw new RuntimeException("Push failed", e);
+        }
+    }
+
+    /**
+     * Checks whether an asynchronous push should be delayed to be sent
+     * together with later changes, and schedules sending it if needed.
+     *
+     * @return <code>true</code> if the push was delayed, <code>false</code>
+     *         if it should be sent right away
+     */
+    private boolean deferPush() {
+        UI ui = getUI();
+        VaadinSession session = ui.getSession();
+        if (session == null || ui.isClosing()) {
+            return false;
+        }
+        int window = session.getService().getPushCoalescingWindow();
+        if (window <= 0) {
+            return false;
+        }
+        if (flushScheduled) {
+            // The changes are sent with the scheduled push
+            return true;
+        }
+        long delay = lastPushTime + window - System.currentTimeMillis();
+        if (delay <= 0) {
+            return false;
+        }
+        flushScheduled = true;
+        session.getService().scheduleTask(new Runnable() {
+            @Override
+            public void run() {
+                flushCoalescedPush();
+            }
+        }, delay);
+        return true;
+    }
+
+    private void flushCoalescedPush() {
+        try {
+            getUI().access(new Runnable() {
+                @Override
+                public void run() {
+                    flushScheduled = false;
+                    if (getUI().getConnectorTracker().hasDirtyConnectors()) {
+                        /*
+                         * If the connection was lost during the window, the
+                         * changes are pushed once the client reconnects
+                         */
+                        push(true);
+                    }
+                }
+            });
+        } catch (UIDetachedException e) {
+            // Nothing to push for a detached UI
+            flushScheduled = false;
         }
     }
 
@@ -187,6 +288,60 @@ public class AtmospherePushConnection implements PushConnection {
                 getResource());
     }
 
+    /**
+     * Calculates the length of a string in UTF-8 without encoding it.
+     */
+    static int getUtf8Length(String string) {
+        int length = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800 || (c >= Character.MIN_SURROGATE
+                    && c <= Character.MAX_SURROGATE)) {
+                // A surrogate pair is encoded as four bytes
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Returns the number of messages sent to the client through this
+     * connection.
+     *
+     * @since 7.7.24
+     * @return the number of sent messages
+     */
+    public long getMessagesSent() {
+        return messagesSent.get();
+    }
+
+    /**
+     * Returns the total size of the messages sent to the client through this
+     * connection, in bytes of UTF-8 encoded text.
+     *
+     * @since 7.7.24
+     * @return the number of sent bytes
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /**
+     * Returns the number of asynchronous pushes that were delayed and sent
+     * together with other changes because of the
+     * {@link VaadinService#getPushCoalescingWindow() coalescing window}.
+     *
+     * @since 7.7.24
+     * @return the number of coalesced pushes
+     */
+    public long getCoalescedPushes() {
+        return coalescedPushes.get();
+    }
+
     /**
      * Reads and buffers a (possibly partial) message. If a complete message was
      * received, or if the call resulted in the completion of a partially
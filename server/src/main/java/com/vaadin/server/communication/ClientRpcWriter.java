@@ -106,6 +106,54 @@ public class ClientRpcWriter implements Serializable {
         writer.write(JsonUtil.stringify(rpcCalls));
     }
 
+    /**
+     * Writes a JSON object containing all pending client RPC invocations in the
+     * given UI directly to the given JSON stream. The output is identical to
+     * {@link #write(UI, Writer)}.
+     *
+     * @param ui
+     *            The {@link UI} whose RPC calls to write.
+     * @param json
+     *            The JSON stream to write to.
+     * @throws IOException
+     *             If the serialization fails.
+     * @since 7.7.24
+     */
+    public void write(UI ui, JsonStreamWriter json) throws IOException {
+
+        Collection<ClientMethodInvocation> pendingInvocations = collectPendingRpcCalls(
+                ui.getConnectorTracker().getDirtyVisibleConnectors());
+
+        json.beginArray();
+        for (ClientMethodInvocation invocation : pendingInvocations) {
+            try {
+                json.beginArray();
+                json.value(invocation.getConnector().getConnectorId());
+                json.value(invocation.getInterfaceName());
+                json.value(invocation.getMethodName());
+                json.beginArray();
+                Type[] parameterTypes = invocation.getParameterTypes();
+                Object[] parameters = invocation.getParameters();
+                for (int i = 0; i < parameterTypes.length; ++i) {
+                    EncodeResult encodeResult = JsonCodec.encode(parameters[i],
+                            null, parameterTypes[i], ui.getConnectorTracker());
+                    json.value(encodeResult.getEncodedValue());
+                }
+                json.endArray();
+                json.endArray();
+            } catch (JsonException e) {
+                throw new PaintException(
+                        "Failed to serialize RPC method call parameters for connector "
+                                + invocation.getConnector().getConnectorId()
+                                + " method " + invocation.getInterfaceName()
+                                + "." + invocation.getMethodName() + ": "
+                                + e.getMessage(),
+                        e);
+            }
+        }
+        json.endArray();
+    }
+
     /**
      * Collects all pending RPC calls from listed {@link ClientConnector}s and
      * clears their RPC queues.
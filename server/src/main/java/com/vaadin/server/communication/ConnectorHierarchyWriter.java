@@ -19,7 +19,11 @@ package com.vaadin.server.communication;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.vaadin.server.AbstractClientConnector;
@@ -97,6 +101,72 @@ public class ConnectorHierarchyWriter implements Serializable {
         writer.write(JsonUtil.stringify(hierarchyInfo));
     }
 
+    /**
+     * Writes a JSON object containing the connector hierarchy (parent-child
+     * mappings) of the dirty connectors in the given UI directly to the given
+     * JSON stream. The output is identical to
+     * {@link #write(UI, Writer, Set)}.
+     *
+     * @param ui
+     *            The {@link UI} whose hierarchy to write.
+     * @param json
+     *            The JSON stream to write to.
+     * @param stateUpdateConnectors
+     *            connector ids with state changes
+     * @throws IOException
+     *             If the serialization fails.
+     * @since 7.7.24
+     */
+    public void write(UI ui, JsonStreamWriter json,
+            Set<String> stateUpdateConnectors) throws IOException {
+
+        Collection<ClientConnector> dirtyVisibleConnectors = ui
+                .getConnectorTracker().getDirtyVisibleConnectors();
+
+        Map<String, List<String>> hierarchyInfo = new LinkedHashMap<String, List<String>>();
+        for (ClientConnector connector : dirtyVisibleConnectors) {
+            String connectorId = connector.getConnectorId();
+            List<String> children = new ArrayList<String>();
+
+            for (ClientConnector child : AbstractClientConnector
+                    .getAllChildrenIterable(connector)) {
+                if (LegacyCommunicationManager
+                        .isConnectorVisibleToClient(child)) {
+                    children.add(child.getConnectorId());
+                }
+            }
+
+            // Omit for leaf nodes with state changes
+            if (!children.isEmpty()
+                    || !stateUpdateConnectors.contains(connectorId)) {
+                hierarchyInfo.put(connectorId, children);
+            }
+        }
+        // Dummy assert just for conditionally storing away data that will be
+        // used by the real assert later on
+        assert storeSentHierarchy(toJson(hierarchyInfo), stateUpdateConnectors);
+
+        json.beginObject();
+        for (String connectorId : JsonStreamWriter
+                .getStringifyOrder(hierarchyInfo.keySet())) {
+            json.name(connectorId).stringArray(hierarchyInfo.get(connectorId));
+        }
+        json.endObject();
+    }
+
+    private static JsonObject toJson(Map<String, List<String>> hierarchyInfo) {
+        JsonObject json = Json.createObject();
+        for (Map.Entry<String, List<String>> entry : hierarchyInfo
+                .entrySet()) {
+            JsonArray children = Json.createArray();
+            for (String childId : entry.getValue()) {
+                children.set(children.length(), childId);
+            }
+            json.put(entry.getKey(), children);
+        }
+        return json;
+    }
+
     private boolean storeSentHierarchy(JsonObject hierarchyInfo,
             Set<String> stateUpdateConnectors) {
         VaadinRequest request = VaadinService.getCurrentRequest();
@@ -20,6 +20,8 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.io.Writer;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.PaintException;
@@ -73,4 +75,39 @@ public class ConnectorTypeWriter implements Serializable {
         }
         writer.write(JsonUtil.stringify(connectorTypes));
     }
+
+    /**
+     * Writes a JSON object containing connector-ID-to-type-ID mappings for each
+     * dirty Connector in the given UI directly to the given JSON stream. The
+     * output is identical to {@link #write(UI, Writer, PaintTarget)}.
+     *
+     * @param ui
+     *            The {@link UI} containing dirty connectors
+     * @param json
+     *            The JSON stream to write to.
+     * @param target
+     *            The paint target containing the connector type IDs.
+     * @throws IOException
+     *             If the serialization fails.
+     * @since 7.7.24
+     */
+    public void write(UI ui, JsonStreamWriter json, PaintTarget target)
+            throws IOException {
+
+        Collection<ClientConnector> dirtyVisibleConnectors = ui
+                .getConnectorTracker().getDirtyVisibleConnectors();
+
+        Map<String, String> connectorTypes = new LinkedHashMap<String, String>();
+        for (ClientConnector connector : dirtyVisibleConnectors) {
+            connectorTypes.put(connector.getConnectorId(),
+                    target.getTag(connector));
+        }
+
+        json.beginObject();
+        for (String connectorId : JsonStreamWriter
+                .getStringifyOrder(connectorTypes.keySet())) {
+            json.name(connectorId).value(connectorTypes.get(connectorId));
+        }
+        json.endObject();
+    }
 }
@@ -16,6 +16,7 @@
 
 package com.vaadin.server.communication;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -23,12 +24,15 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.charset.Charset;
 import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.NoInputStreamException;
 import com.vaadin.server.NoOutputStreamException;
 import com.vaadin.server.RequestHandler;
+import com.vaadin.server.ServiceMetrics;
 import com.vaadin.server.ServletPortletHelper;
 import com.vaadin.server.StreamVariable;
 import com.vaadin.server.StreamVariable.StreamingEndEvent;
@@ -36,10 +40,12 @@ import com.vaadin.server.StreamVariable.StreamingErrorEvent;
 import com.vaadin.server.UploadException;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinSession;
 import com.vaadin.shared.ApplicationConstants;
 import com.vaadin.ui.Component;
 import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
 import com.vaadin.ui.Upload.FailedEvent;
 
 /**
@@ -52,152 +58,158 @@ public class FileUploadHandler implements RequestHandler {
 
     /**
      * Stream that extracts content from another stream until the boundary
-     * string is encountered.
+     * string is encountered. The content is read from the other stream in
+     * blocks and scanned for the boundary in a buffer, so the other stream may
+     * be read past the boundary.
      *
      * Public only for unit tests, should be considered private for all other
      * purposes.
      */
     public static class SimpleMultiPartInputStream extends InputStream {
 
+        private final byte[] boundary;
+
+        private final InputStream realInputStream;
+
+        private final byte[] buffer;
+
         /**
-         * Counter of how many characters have been matched to boundary string
-         * from the stream
+         * Index of the next byte to return from the buffer.
          */
-        int matchedCount = -1;
+        private int position = 0;
 
         /**
-         * Used as pointer when returning bytes after partly matched boundary
-         * string.
+         * Index after the last byte read into the buffer.
          */
-        int curBoundaryIndex = 0;
+        private int limit = 0;
+
         /**
-         * The byte found after a "promising start for boundary"
+         * Index before which the buffer is known not to contain the start of
+         * the boundary.
          */
-        private int bufferedByte = -1;
-        private boolean atTheEnd = false;
-
-        private final char[] boundary;
+        private int scanned = 0;
 
-        private final InputStream realInputStream;
+        /**
+         * Index of the boundary in the buffer, or -1 if not yet found.
+         */
+        private int boundaryIndex = -1;
 
         public SimpleMultiPartInputStream(InputStream realInputStream,
                 String boundaryString) {
-            boundary = (CRLF + DASHDASH + boundaryString).toCharArray();
+            this(realInputStream, boundaryString,
+                    DEFAULT_UPLOAD_BUFFER_SIZE);
+        }
+
+        /**
+         * Creates a stream reading from the given stream until the given
+         * boundary, using a buffer of the given size.
+         *
+         * @param realInputStream
+         *            the stream to read from
+         * @param boundaryString
+         *            the mime boundary
+         * @param bufferSize
+         *            the size of the buffer in bytes
+         * @since 7.7.24
+         */
+        public SimpleMultiPartInputStream(InputStream realInputStream,
+                String boundaryString, int bufferSize) {
+            boundary = (CRLF + DASHDASH + boundaryString)
+                    .getBytes(Charset.forName("ISO-8859-1"));
             this.realInputStream = realInputStream;
+            buffer = new byte[Math.max(bufferSize, 2 * boundary.length)];
         }
 
         @Override
         public int read() throws IOException {
-            if (atTheEnd) {
+            if (fill() <= 0) {
                 // End boundary reached, nothing more to read
                 return -1;
-            } else if (bufferedByte >= 0) {
-                /* Purge partially matched boundary if there was such */
-                return getBuffered();
-            } else if (matchedCount != -1) {
-                /*
-                 * Special case where last "failed" matching ended with first
-                 * character from boundary string
-                 */
-                return matchForBoundary();
-            } else {
-                int fromActualStream = realInputStream.read();
-                if (fromActualStream == -1) {
-                    // unexpected end of stream
-                    throw new IOException(
-                            "The multipart stream ended unexpectedly");
-                }
-                if (boundary[0] == fromActualStream) {
-                    /*
-                     * If matches the first character in boundary string, start
-                     * checking if the boundary is fetched.
-                     */
-                    return matchForBoundary();
-                }
-                return fromActualStream;
             }
+            return buffer[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int count = fill();
+            if (count <= 0) {
+                return -1;
+            }
+            count = Math.min(count, len);
+            System.arraycopy(buffer, position, b, off, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            if (boundaryIndex >= 0) {
+                return boundaryIndex - position;
+            }
+            return Math.max(0, scanned - position);
         }
 
         /**
-         * Reads the input to expect a boundary string. Expects that the first
-         * character has already been matched.
+         * Reads data into the buffer until some bytes before the boundary are
+         * available or the boundary is at the current position.
          *
-         * @return -1 if the boundary was matched, else returns the first byte
-         *         from boundary
+         * @return the number of bytes that can be returned, 0 if the boundary
+         *         has been reached
          * @throws IOException
+         *             if the stream ends before the boundary
          */
-        private int matchForBoundary() throws IOException {
-            matchedCount = 0;
-            /*
-             * Going to "buffered mode". Read until full boundary match or a
-             * different character.
-             */
+        private int fill() throws IOException {
             while (true) {
-                matchedCount++;
-                if (matchedCount == boundary.length) {
-                    /*
-                     * The whole boundary matched so we have reached the end of
-                     * file
-                     */
-                    atTheEnd = true;
-                    return -1;
+                if (boundaryIndex >= 0) {
+                    return boundaryIndex - position;
+                }
+                int searchFrom = Math.max(position, scanned);
+                int found = indexOfBoundary(searchFrom);
+                if (found >= 0) {
+                    boundaryIndex = found;
+                    return found - position;
                 }
-                int fromActualStream = realInputStream.read();
-                if (fromActualStream != boundary[matchedCount]) {
-                    /*
-                     * Did not find full boundary, cache the mismatching byte
-                     * and start returning the partially matched boundary.
-                     */
-                    bufferedByte = fromActualStream;
-                    return getBuffered();
+                // The end of the buffer may contain the start of the boundary
+                scanned = Math.max(searchFrom, limit - boundary.length + 1);
+                if (scanned > position) {
+                    return scanned - position;
                 }
+
+                if (position > 0) {
+                    System.arraycopy(buffer, position, buffer, 0,
+                            limit - position);
+                    limit -= position;
+                    scanned -= position;
+                    position = 0;
+                }
+                int read = realInputStream.read(buffer, limit,
+                        buffer.length - limit);
+                if (read == -1) {
+                    throw new IOException(
+                            "The multipart stream ended unexpectedly");
+                }
+                limit += read;
             }
         }
 
-        /**
-         * Returns the partly matched boundary string and the byte following
-         * that.
-         *
-         * @return
-         * @throws IOException
-         */
-        private int getBuffered() throws IOException {
-            int b;
-            if (matchedCount == 0) {
-                // The boundary has been returned, return the buffered byte.
-                b = bufferedByte;
-                bufferedByte = -1;
-                matchedCount = -1;
-            } else {
-                b = boundary[curBoundaryIndex++];
-                if (curBoundaryIndex == matchedCount) {
-                    // The full boundary has been returned, remaining is the
-                    // char that did not match the boundary.
-
-                    curBoundaryIndex = 0;
-                    if (bufferedByte != boundary[0]) {
-                        /*
-                         * next call for getBuffered will return the
-                         * bufferedByte that came after the partial boundary
-                         * match
-                         */
-                        matchedCount = 0;
-                    } else {
-                        /*
-                         * Special case where buffered byte again matches the
-                         * boundaryString. This could be the start of the real
-                         * end boundary.
-                         */
-                        matchedCount = 0;
-                        bufferedByte = -1;
+        private int indexOfBoundary(int from) {
+            int last = limit - boundary.length;
+            byte first = boundary[0];
+            outer: for (int i = from; i <= last; i++) {
+                if (buffer[i] != first) {
+                    continue;
+                }
+                for (int j = 1; j < boundary.length; j++) {
+                    if (buffer[i + j] != boundary[j]) {
+                        continue outer;
                     }
                 }
+                return i;
             }
-            if (b == -1) {
-                throw new IOException(
-                        "The multipart stream ended unexpectedly");
-            }
-            return b;
+            return -1;
         }
     }
 
@@ -230,10 +242,12 @@ public class FileUploadHandler implements RequestHandler {
 
     private static final String DASHDASH = "--";
 
-    /*
-     * Same as in apache commons file upload library that was previously used.
+    /**
+     * The default size of the buffers used for reading uploaded data.
+     *
+     * @since 7.7.24
      */
-    private static final int MAX_UPLOAD_BUFFER_SIZE = 4 * 1024;
+    public static final int DEFAULT_UPLOAD_BUFFER_SIZE = 64 * 1024;
 
     /* Minimum interval which will be used for streaming progress events. */
     public static final int DEFAULT_STREAMING_PROGRESS_EVENT_INTERVAL_MS = 500;
@@ -350,7 +364,8 @@ public class FileUploadHandler implements RequestHandler {
         // multipart parsing, supports only one file for request, but that is
         // fine for our current terminal
 
-        final InputStream inputStream = request.getInputStream();
+        final InputStream inputStream = new BufferedInputStream(
+                request.getInputStream(), getUploadBufferSize());
 
         long contentLength = getContentLength(request);
 
@@ -399,7 +414,7 @@ public class FileUploadHandler implements RequestHandler {
          * foot and split to a top level helper class.
          */
         InputStream simpleMultiPartReader = new SimpleMultiPartInputStream(
-                inputStream, boundary);
+                inputStream, boundary, getUploadBufferSize());
 
         /*
          * Should report only the filename even if the browser sends the path
@@ -461,8 +476,9 @@ public class FileUploadHandler implements RequestHandler {
             // Store ui reference so we can do cleanup even if connector is
             // detached in some event handler
             UI ui = connector.getUI();
-            boolean forgetVariable = streamToReceiver(session, inputStream,
-                    streamVariable, filename, mimeType, contentLength);
+            boolean forgetVariable = streamToReceiver(session, ui,
+                    inputStream, streamVariable, filename, mimeType,
+                    contentLength);
             if (forgetVariable) {
                 cleanStreamVariable(session, ui, connector, variableName);
             }
@@ -538,6 +554,20 @@ public class FileUploadHandler implements RequestHandler {
             final InputStream in, StreamVariable streamVariable,
             String filename, String type, long contentLength)
             throws UploadException {
+        return streamToReceiver(session, null, in, streamVariable, filename,
+                type, contentLength);
+    }
+
+    /**
+     * Streams the data to the receiver. Progress events are delivered through
+     * {@link UI#access(Runnable)} if the UI is known, and otherwise through
+     * {@link VaadinSession#access(Runnable)}, so that reading the data never
+     * waits for the session lock.
+     */
+    private boolean streamToReceiver(VaadinSession session, UI ui,
+            final InputStream in, StreamVariable streamVariable,
+            String filename, String type, long contentLength)
+            throws UploadException {
         if (streamVariable == null) {
             throw new IllegalStateException(
                     "StreamVariable for the post not found");
@@ -547,6 +577,8 @@ public class FileUploadHandler implements RequestHandler {
         long totalBytes = 0;
         StreamingStartEventImpl startedEvent = new StreamingStartEventImpl(
                 filename, type, contentLength);
+        ProgressEventDispatcher progressDispatcher = new ProgressEventDispatcher(
+                streamVariable, filename, type, contentLength);
         try {
             boolean listenProgress;
             session.lock();
@@ -568,7 +600,8 @@ public class FileUploadHandler implements RequestHandler {
                 throw new NoInputStreamException();
             }
 
-            final byte buffer[] = new byte[MAX_UPLOAD_BUFFER_SIZE];
+            long start = System.nanoTime();
+            final byte buffer[] = new byte[getUploadBufferSize()];
             long lastStreamingEvent = 0;
             int bytesReadToBuffer = 0;
             do {
@@ -581,17 +614,22 @@ public class FileUploadHandler implements RequestHandler {
                     long now = System.currentTimeMillis();
                     // to avoid excessive session locking and event storms,
                     // events are sent in intervals, or at the end of the file.
-                    if (lastStreamingEvent + getProgressEventInterval() <= now
-                            || bytesReadToBuffer <= 0) {
-                        lastStreamingEvent = now;
+                    if (bytesReadToBuffer <= 0) {
+                        // The last event is sent before the upload is
+                        // reported as finished
                         session.lock();
                         try {
+                            progressDispatcher.finish();
                             StreamingProgressEventImpl progressEvent = new StreamingProgressEventImpl(
                                     filename, type, contentLength, totalBytes);
                             streamVariable.onProgress(progressEvent);
                         } finally {
                             session.unlock();
                         }
+                    } else if (lastStreamingEvent
+                            + getProgressEventInterval() <= now) {
+                        lastStreamingEvent = now;
+                        progressDispatcher.dispatch(session, ui, totalBytes);
                     }
                 }
                 if (streamVariable.isInterrupted()) {
@@ -601,6 +639,12 @@ public class FileUploadHandler implements RequestHandler {
 
             // upload successful
             out.close();
+            VaadinService service = session.getService();
+            ServiceMetrics metrics = service != null ? service.getMetrics()
+                    : null;
+            if (metrics != null) {
+                metrics.uploadCompleted(totalBytes, System.nanoTime() - start);
+            }
             StreamingEndEvent event = new StreamingEndEventImpl(filename, type,
                     totalBytes);
             session.lock();
@@ -617,6 +661,7 @@ public class FileUploadHandler implements RequestHandler {
                     type, contentLength, totalBytes, e);
             session.lock();
             try {
+                progressDispatcher.finish();
                 streamVariable.streamingFailed(event);
             } finally {
                 session.unlock();
@@ -627,6 +672,7 @@ public class FileUploadHandler implements RequestHandler {
             tryToCloseStream(out);
             session.lock();
             try {
+                progressDispatcher.finish();
                 StreamingErrorEvent event = new StreamingErrorEventImpl(
                         filename, type, contentLength, totalBytes, e);
                 streamVariable.streamingFailed(event);
@@ -640,6 +686,83 @@ public class FileUploadHandler implements RequestHandler {
         return startedEvent.isDisposed();
     }
 
+    /**
+     * Delivers progress events of an upload to the stream variable without
+     * making the thread reading the upload wait for the session lock. Only one
+     * event is queued at a time, with the latest number of received bytes.
+     */
+    private static class ProgressEventDispatcher implements Runnable {
+
+        private final StreamVariable streamVariable;
+        private final String filename;
+        private final String type;
+        private final long contentLength;
+
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private volatile long totalBytes;
+
+        /**
+         * Set when the upload has ended, only accessed with the session
+         * locked.
+         */
+        private boolean finished = false;
+
+        public ProgressEventDispatcher(StreamVariable streamVariable,
+                String filename, String type, long contentLength) {
+            this.streamVariable = streamVariable;
+            this.filename = filename;
+            this.type = type;
+            this.contentLength = contentLength;
+        }
+
+        public void dispatch(VaadinSession session, UI ui, long totalBytes) {
+            this.totalBytes = totalBytes;
+            if (!pending.compareAndSet(false, true)) {
+                // The queued event will report the latest count
+                return;
+            }
+            try {
+                if (ui != null) {
+                    ui.access(this);
+                } else {
+                    session.access(this);
+                }
+            } catch (UIDetachedException e) {
+                // Nobody to report progress to
+            }
+        }
+
+        /**
+         * Prevents queued events from being delivered after the last event or
+         * after the upload has failed. Must be called with the session locked.
+         */
+        public void finish() {
+            finished = true;
+        }
+
+        @Override
+        public void run() {
+            pending.set(false);
+            if (!finished) {
+                streamVariable.onProgress(new StreamingProgressEventImpl(
+                        filename, type, contentLength, totalBytes));
+            }
+        }
+    }
+
+    /**
+     * Gets the size of the buffers used for reading the uploaded data. To
+     * adjust this value override the method, and register your own handler in
+     * VaadinService.createRequestHandlers(). The default is
+     * {@value #DEFAULT_UPLOAD_BUFFER_SIZE} bytes.
+     *
+     * @since 7.7.24
+     * @return the buffer size in bytes
+     */
+    protected int getUploadBufferSize() {
+        return DEFAULT_UPLOAD_BUFFER_SIZE;
+    }
+
     /**
      * To prevent event storming, streaming progress events are sent in this
      * interval rather than every time the buffer is filled. This fixes #13155.
@@ -55,6 +55,11 @@ public class HeartbeatHandler extends SynchronizedRequestHandler
      * {@link UI#getLastHeartbeatTimestamp() heartbeat timestamp} to the current
      * time. Otherwise, writes a HTTP Not Found error to the response.
      */
+    @Override
+    protected UI findUIToLock(VaadinSession session, VaadinRequest request) {
+        return session.getService().findUI(request);
+    }
+
     @Override
     public boolean synchronizedHandleRequest(VaadinSession session,
             VaadinRequest request, VaadinResponse response) throws IOException {
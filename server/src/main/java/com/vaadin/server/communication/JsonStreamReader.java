@@ -0,0 +1,443 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonException;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+
+/**
+ * Reads JSON tokens directly from a {@link Reader} without first reading the
+ * whole document into a string. This is the reading counterpart of
+ * {@link JsonStreamWriter}.
+ * <p>
+ * The structure of objects and arrays can be walked token by token using
+ * {@link #beginObject()}, {@link #nextName()}, {@link #hasNext()} and so on,
+ * while {@link #nextValue()} reads a complete value as a tree of
+ * {@link JsonValue} objects. This makes it possible to handle the elements of
+ * a large array one by one, keeping only one element in memory at a time.
+ * <p>
+ * Syntax errors are reported as {@link JsonException}s and errors from the
+ * underlying reader as {@link IOException}s.
+ *
+ * @since 7.7.24
+ * @author Vaadin Ltd
+ */
+public class JsonStreamReader {
+
+    /**
+     * The maximum nesting depth of objects and arrays, to protect against
+     * stack overflows caused by malicious input.
+     */
+    private static final int MAX_DEPTH = 512;
+
+    private final Reader reader;
+
+    private final char[] buffer = new char[8192];
+    private int position = 0;
+    private int limit = 0;
+
+    /**
+     * Whether the next value or name on each nesting level is the first one,
+     * i.e. whether it should not be preceded by a comma.
+     */
+    private boolean[] first = new boolean[16];
+
+    private int depth = 0;
+
+    /**
+     * Creates a new streaming JSON reader that reads from the given reader.
+     *
+     * @param reader
+     *            the reader to read JSON from, not <code>null</code>
+     */
+    public JsonStreamReader(Reader reader) {
+        if (reader == null) {
+            throw new IllegalArgumentException("Reader cannot be null");
+        }
+        this.reader = reader;
+    }
+
+    /**
+     * Checks whether the end of the input has been reached, ignoring
+     * whitespace.
+     *
+     * @return <code>true</code> if there is no more content to read
+     * @throws IOException
+     *             if reading fails
+     */
+    public boolean isAtEnd() throws IOException {
+        return skipWhitespace() == -1;
+    }
+
+    /**
+     * Consumes the beginning of an object.
+     *
+     * @throws IOException
+     *             if reading fails
+     */
+    public void beginObject() throws IOException {
+        begin('{');
+    }
+
+    /**
+     * Consumes the end of the current object.
+     *
+     * @throws IOException
+     *             if reading fails
+     */
+    public void endObject() throws IOException {
+        end('}');
+    }
+
+    /**
+     * Consumes the beginning of an array.
+     *
+     * @throws IOException
+     *             if reading fails
+     */
+    public void beginArray() throws IOException {
+        begin('[');
+    }
+
+    /**
+     * Consumes the end of the current array.
+     *
+     * @throws IOException
+     *             if reading fails
+     */
+    public void endArray() throws IOException {
+        end(']');
+    }
+
+    /**
+     * Checks whether the current object or array has more elements. If it
+     * does, the separating comma is consumed.
+     *
+     * @return <code>true</code> if there is another name or value in the
+     *         current object or array, <code>false</code> if the object or
+     *         array ends
+     * @throws IOException
+     *             if reading fails
+     */
+    public boolean hasNext() throws IOException {
+        if (depth == 0) {
+            throw new JsonException("Not inside an object or array");
+        }
+        int c = skipWhitespace();
+        if (c == '}' || c == ']') {
+            return false;
+        }
+        if (!first[depth]) {
+            expect(',');
+        }
+        first[depth] = false;
+        return true;
+    }
+
+    /**
+     * Reads the name of the next property of the current object, including
+     * the following colon. Should be called after {@link #hasNext()} has
+     * returned <code>true</code>.
+     *
+     * @return the property name
+     * @throws IOException
+     *             if reading fails
+     */
+    public String nextName() throws IOException {
+        if (skipWhitespace() != '"') {
+            throw syntaxError("Expected a property name");
+        }
+        position++;
+        String name = readString();
+        expect(':');
+        return name;
+    }
+
+    /**
+     * Reads the next value, including any nested objects and arrays.
+     *
+     * @return the value, not <code>null</code>
+     * @throws IOException
+     *             if reading fails
+     */
+    public JsonValue nextValue() throws IOException {
+        int c = skipWhitespace();
+        switch (c) {
+        case '{':
+            beginObject();
+            JsonObject object = Json.createObject();
+            while (hasNext()) {
+                String name = nextName();
+                object.put(name, nextValue());
+            }
+            endObject();
+            return object;
+        case '[':
+            beginArray();
+            JsonArray array = Json.createArray();
+            int index = 0;
+            while (hasNext()) {
+                array.set(index++, nextValue());
+            }
+            endArray();
+            return array;
+        case '"':
+            position++;
+            return Json.create(readString());
+        case 't':
+            readLiteral("true");
+            return Json.create(true);
+        case 'f':
+            readLiteral("false");
+            return Json.create(false);
+        case 'n':
+            readLiteral("null");
+            return Json.createNull();
+        case -1:
+            throw syntaxError("Unexpected end of input");
+        default:
+            return Json.create(readNumber());
+        }
+    }
+
+    /**
+     * Reads and discards the next value.
+     *
+     * @throws IOException
+     *             if reading fails
+     */
+    public void skipValue() throws IOException {
+        nextValue();
+    }
+
+    private void begin(char c) throws IOException {
+        expect(c);
+        if (depth + 1 == MAX_DEPTH) {
+            throw syntaxError("Maximum nesting depth exceeded");
+        }
+        depth++;
+        if (depth == first.length) {
+            boolean[] newFirst = new boolean[first.length * 2];
+            System.arraycopy(first, 0, newFirst, 0, first.length);
+            first = newFirst;
+        }
+        first[depth] = true;
+    }
+
+    private void end(char c) throws IOException {
+        expect(c);
+        depth--;
+    }
+
+    private void expect(char expected) throws IOException {
+        if (skipWhitespace() != expected) {
+            throw syntaxError("Expected '" + expected + "'");
+        }
+        position++;
+    }
+
+    /**
+     * Skips whitespace and returns the next character without consuming it,
+     * or -1 at the end of the input.
+     */
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            char c = buffer[position];
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+                position++;
+            } else {
+                return c;
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer);
+        while (read == 0) {
+            read = reader.read(buffer);
+        }
+        if (read == -1) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private char nextChar() throws IOException {
+        if (position == limit && !fill()) {
+            throw syntaxError("Unexpected end of input");
+        }
+        return buffer[position++];
+    }
+
+    /**
+     * Reads the rest of a string after the opening quote.
+     */
+    private String readString() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        while (true) {
+            // Copy unescaped runs directly from the buffer
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                position++;
+            }
+            builder.append(buffer, start, position - start);
+
+            char c = nextChar();
+            if (c == '"') {
+                return builder.toString();
+            } else if (c == '\\') {
+                builder.append(readEscape());
+            } else {
+                // The buffer was exhausted
+                builder.append(c);
+            }
+        }
+    }
+
+    private char readEscape() throws IOException {
+        char c = nextChar();
+        switch (c) {
+        case '"':
+        case '\\':
+        case '/':
+            return c;
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case 'u':
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(nextChar(), 16);
+                if (digit == -1) {
+                    throw syntaxError("Invalid unicode escape");
+                }
+                value = value * 16 + digit;
+            }
+            return (char) value;
+        default:
+            throw syntaxError("Invalid escape character " + c);
+        }
+    }
+
+    private void readLiteral(String literal) throws IOException {
+        for (int i = 0; i < literal.length(); i++) {
+            if (nextChar() != literal.charAt(i)) {
+                throw syntaxError("Expected " + literal);
+            }
+        }
+    }
+
+    private double readNumber() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        while (true) {
+            if (position == limit && !fill()) {
+                break;
+            }
+            char c = buffer[position];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.'
+                    || c == 'e' || c == 'E') {
+                builder.append(c);
+                position++;
+            } else {
+                break;
+            }
+        }
+        if (builder.length() == 0) {
+            throw syntaxError("Unexpected character");
+        }
+        if (!isValidNumber(builder)) {
+            throw syntaxError("Invalid number " + builder);
+        }
+        return Double.parseDouble(builder.toString());
+    }
+
+    /**
+     * Checks that the number follows the JSON grammar, which is stricter than
+     * {@link Double#parseDouble(String)}: no leading plus sign, no leading
+     * zeros and digits on both sides of the decimal point.
+     */
+    private static boolean isValidNumber(CharSequence number) {
+        int length = number.length();
+        int i = 0;
+        if (number.charAt(i) == '-') {
+            i++;
+        }
+        if (i < length && number.charAt(i) == '0') {
+            i++;
+        } else {
+            int start = i;
+            i = skipDigits(number, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        if (i < length && number.charAt(i) == '.') {
+            int start = ++i;
+            i = skipDigits(number, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        if (i < length
+                && (number.charAt(i) == 'e' || number.charAt(i) == 'E')) {
+            i++;
+            if (i < length
+                    && (number.charAt(i) == '+' || number.charAt(i) == '-')) {
+                i++;
+            }
+            int start = i;
+            i = skipDigits(number, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        return i == length;
+    }
+
+    private static int skipDigits(CharSequence number, int index) {
+        while (index < number.length() && number.charAt(index) >= '0'
+                && number.charAt(index) <= '9') {
+            index++;
+        }
+        return index;
+    }
+
+    private JsonException syntaxError(String message) {
+        return new JsonException(message);
+    }
+}
@@ -0,0 +1,488 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+/**
+ * Writes JSON tokens directly to a {@link Writer} without building an
+ * intermediate tree of {@link JsonValue} objects.
+ * <p>
+ * The produced output is identical to what {@link JsonUtil#stringify(JsonValue)}
+ * would produce for the corresponding tree, including the escaping of strings,
+ * the formatting of numbers and the ordering of object keys (see
+ * {@link #getStringifyOrder(Collection)}). This makes it possible to use the
+ * streaming writer and the tree based serialization interchangeably.
+ * <p>
+ * The writer does not validate that the produced token sequence is well
+ * formed; it only keeps track of where separators are needed. Top level values
+ * are written without separators so that the same instance can be used for
+ * writing several JSON fragments into a larger hand-written document.
+ *
+ * @since 7.7.24
+ * @author Vaadin Ltd
+ */
+public class JsonStreamWriter {
+
+    private final Writer writer;
+
+    /**
+     * Whether the next value or name on each nesting level is the first one,
+     * i.e. whether it should be written without a preceding comma.
+     */
+    private boolean[] first = new boolean[16];
+
+    private int depth = 0;
+
+    /**
+     * Set after {@link #name(String)} so that the following value is not
+     * preceded by a comma.
+     */
+    private boolean afterName = false;
+
+    /**
+     * Creates a new streaming JSON writer that writes to the given writer.
+     *
+     * @param writer
+     *            the writer to write JSON to, not <code>null</code>
+     */
+    public JsonStreamWriter(Writer writer) {
+        if (writer == null) {
+            throw new IllegalArgumentException("Writer cannot be null");
+        }
+        this.writer = writer;
+    }
+
+    /**
+     * Gets the writer that JSON is written to.
+     *
+     * @return the underlying writer
+     */
+    public Writer getWriter() {
+        return writer;
+    }
+
+    /**
+     * Starts a new JSON object.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter beginObject() throws IOException {
+        beforeValue();
+        writer.write('{');
+        push();
+        return this;
+    }
+
+    /**
+     * Ends the current JSON object.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter endObject() throws IOException {
+        pop();
+        writer.write('}');
+        return this;
+    }
+
+    /**
+     * Starts a new JSON array.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter beginArray() throws IOException {
+        beforeValue();
+        writer.write('[');
+        push();
+        return this;
+    }
+
+    /**
+     * Ends the current JSON array.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter endArray() throws IOException {
+        pop();
+        writer.write(']');
+        return this;
+    }
+
+    /**
+     * Writes the name of the next member of the current JSON object. Must be
+     * followed by exactly one value.
+     *
+     * @param name
+     *            the member name, not <code>null</code>
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter name(String name) throws IOException {
+        beforeValue();
+        quote(name, writer);
+        writer.write(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes a string value. A <code>null</code> string is written as a JSON
+     * null.
+     *
+     * @param value
+     *            the string to write
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(String value) throws IOException {
+        beforeValue();
+        if (value == null) {
+            writer.write("null");
+        } else {
+            quote(value, writer);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a number value.
+     *
+     * @param value
+     *            the number to write
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(double value) throws IOException {
+        beforeValue();
+        writeNumber(value, writer);
+        return this;
+    }
+
+    /**
+     * Writes a boolean value.
+     *
+     * @param value
+     *            the boolean to write
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(boolean value) throws IOException {
+        beforeValue();
+        writer.write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Writes a JSON null value.
+     *
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter nullValue() throws IOException {
+        beforeValue();
+        writer.write("null");
+        return this;
+    }
+
+    /**
+     * Writes an existing JSON value, e.g. an encoded shared state, without
+     * first converting it to a string.
+     *
+     * @param value
+     *            the value to write, <code>null</code> is written as a JSON
+     *            null
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(JsonValue value) throws IOException {
+        beforeValue();
+        writeTree(value, writer);
+        return this;
+    }
+
+    /**
+     * Writes a list of strings as a JSON array.
+     *
+     * @param values
+     *            the strings to write, not <code>null</code>
+     * @return this writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter stringArray(Collection<String> values)
+            throws IOException {
+        beginArray();
+        for (String value : values) {
+            value(value);
+        }
+        return endArray();
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+        } else if (depth > 0) {
+            if (first[depth]) {
+                first[depth] = false;
+            } else {
+                writer.write(',');
+            }
+        }
+    }
+
+    private void push() {
+        depth++;
+        if (depth == first.length) {
+            boolean[] newFirst = new boolean[first.length * 2];
+            System.arraycopy(first, 0, newFirst, 0, first.length);
+            first = newFirst;
+        }
+        first[depth] = true;
+    }
+
+    private void pop() {
+        if (depth == 0) {
+            throw new IllegalStateException(
+                    "No open JSON object or array to end");
+        }
+        depth--;
+    }
+
+    /**
+     * Returns the given object keys in the order used by
+     * {@link JsonUtil#stringify(JsonValue)}: keys consisting only of digits
+     * first in lexicographical order, followed by the remaining keys in their
+     * original order. Connector ids are numeric, so anything keyed by connector
+     * id must be written in this order to produce the same output as the tree
+     * based serialization.
+     *
+     * @param keys
+     *            the keys in insertion order
+     * @return a new list containing the keys in stringify order
+     */
+    public static List<String> getStringifyOrder(Collection<String> keys) {
+        List<String> numeric = new ArrayList<String>();
+        List<String> nonNumeric = new ArrayList<String>();
+        for (String key : keys) {
+            if (isNumeric(key)) {
+                numeric.add(key);
+            } else {
+                nonNumeric.add(key);
+            }
+        }
+        Collections.sort(numeric);
+        numeric.addAll(nonNumeric);
+        return numeric;
+    }
+
+    private static boolean isNumeric(String key) {
+        int length = key.length();
+        if (length == 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSkippedKey(String key) {
+        // Same as the keys ignored by JsonUtil.stringify
+        return "$H".equals(key) || "__gwt_ObjectId".equals(key);
+    }
+
+    private static void writeTree(JsonValue value, Writer writer)
+            throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+        switch (value.getType()) {
+        case OBJECT:
+            JsonObject object = (JsonObject) value;
+            writer.write('{');
+            boolean firstMember = true;
+            String[] keys = object.keys();
+            List<String> orderedKeys;
+            if (keys.length < 2) {
+                orderedKeys = Arrays.asList(keys);
+            } else {
+                orderedKeys = getStringifyOrder(Arrays.asList(keys));
+            }
+            for (String key : orderedKeys) {
+                if (isSkippedKey(key)) {
+                    continue;
+                }
+                // JsonUtil.stringify writes the value of an empty key without
+                // the key itself
+                if (!key.isEmpty()) {
+                    if (!firstMember) {
+                        writer.write(',');
+                    }
+                    quote(key, writer);
+                    writer.write(':');
+                }
+                writeTree(object.get(key), writer);
+                firstMember = false;
+            }
+            writer.write('}');
+            break;
+        case ARRAY:
+            JsonArray array = (JsonArray) value;
+            writer.write('[');
+            for (int i = 0; i < array.length(); i++) {
+                if (i != 0) {
+                    writer.write(',');
+                }
+                writeTree(array.get(i), writer);
+            }
+            writer.write(']');
+            break;
+        case STRING:
+            quote(value.asString(), writer);
+            break;
+        case NUMBER:
+            writeNumber(value.asNumber(), writer);
+            break;
+        case BOOLEAN:
+            writer.write(value.asBoolean() ? "true" : "false");
+            break;
+        default:
+            writer.write("null");
+        }
+    }
+
+    private static void writeNumber(double number, Writer writer)
+            throws IOException {
+        if (Double.isInfinite(number)) {
+            writer.write("null");
+        } else if (number == (int) number && Math.abs(number) < 1e7
+                && !(number == 0 && 1 / number < 0)) {
+            // Fast path for integers that String.valueOf would write without
+            // an exponent, avoids creating the "x.0" string just to strip it
+            writer.write(Integer.toString((int) number));
+        } else {
+            String n = String.valueOf(number);
+            if (n.endsWith(".0")) {
+                writer.write(n, 0, n.length() - 2);
+            } else {
+                writer.write(n);
+            }
+        }
+    }
+
+    /**
+     * Writes the given string as a quoted JSON string literal, using the same
+     * escaping rules as {@link JsonUtil#quote(String)}.
+     *
+     * @param value
+     *            the string to quote, not <code>null</code>
+     * @param writer
+     *            the writer to write to
+     * @throws IOException
+     *             if writing fails
+     */
+    public static void quote(String value, Writer writer) throws IOException {
+        writer.write('"');
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String escaped;
+            switch (c) {
+            case '\b':
+                escaped = "\\b";
+                break;
+            case '\t':
+                escaped = "\\t";
+                break;
+            case '\n':
+                escaped = "\\n";
+                break;
+            case '\f':
+                escaped = "\\f";
+                break;
+            case '\r':
+                escaped = "\\r";
+                break;
+            case '"':
+                escaped = "\\\"";
+                break;
+            case '\\':
+                escaped = "\\\\";
+                break;
+            default:
+                if (!isControlChar(c)) {
+                    continue;
+                }
+                escaped = escapeCharAsUnicode(c);
+            }
+            if (i > start) {
+                writer.write(value, start, i - start);
+            }
+            writer.write(escaped);
+            start = i + 1;
+        }
+        if (start < length) {
+            writer.write(value, start, length - start);
+        }
+        writer.write('"');
+    }
+
+    private static String escapeCharAsUnicode(char toEscape) {
+        String hexValue = Integer.toString(toEscape, 16);
+        int padding = 4 - hexValue.length();
+        return "\\u" + ("0000".substring(0, padding)) + hexValue;
+    }
+
+    private static boolean isControlChar(char c) {
+        // Same set of characters as escaped by JsonUtil.quote
+        return c <= 0x1f || (c >= 0x7f && c <= 0x9f) || c == 0xad
+                || c == 0x70f || c == 0x17b4 || c == 0x17b5 || c == 0xfeff
+                || (c >= 0x600 && c <= 0x604) || (c >= 0x200c && c <= 0x200f)
+                || (c >= 0x2028 && c <= 0x202f)
+                || (c >= 0x2060 && c <= 0x206f) || c >= 0xfff0;
+    }
+}
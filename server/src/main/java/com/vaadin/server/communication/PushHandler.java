@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.Reader;
 import java.security.MessageDigest;
 import java.util.Collection;
+import java.util.concurrent.locks.Lock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -44,6 +45,7 @@ import com.vaadin.server.VaadinSession;
 import com.vaadin.shared.ApplicationConstants;
 import com.vaadin.shared.communication.PushMode;
 import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
 import com.vaadin.util.CurrentInstance;
 
 import elemental.json.JsonException;
@@ -230,7 +232,15 @@ public class PushHandler {
             }
 
             UI ui = null;
-            session.lock();
+            // Only the UI needs to be locked for handling push messages if UI
+            // locking is enabled
+            UI lockedUI = null;
+            if (service.isUILockingEnabled()) {
+                lockedUI = lockUI(session, vaadinRequest);
+            }
+            if (lockedUI == null) {
+                session.lock();
+            }
             try {
                 ui = service.findUI(vaadinRequest);
                 assert UI.getCurrent() == ui;
@@ -266,7 +276,11 @@ public class PushHandler {
                 callErrorHandler(session, e);
             } finally {
                 try {
-                    session.unlock();
+                    if (lockedUI != null) {
+                        lockedUI.unlock();
+                    } else {
+                        session.unlock();
+                    }
                 } catch (Exception e) {
                     getLogger().log(Level.WARNING,
                             "Error while unlocking session", e);
@@ -286,6 +300,37 @@ public class PushHandler {
         }
     }
 
+    /**
+     * Finds and locks the UI of the request when UI locking is enabled.
+     *
+     * @return the locked UI, or <code>null</code> if the UI was not found and
+     *         the session should be locked instead
+     */
+    private UI lockUI(VaadinSession session, VaadinRequest request) {
+        UI ui;
+        Lock sharedLock = session.getUIAccessLock().readLock();
+        sharedLock.lock();
+        try {
+            ui = service.findUI(request);
+        } finally {
+            sharedLock.unlock();
+        }
+        if (ui == null) {
+            return null;
+        }
+        try {
+            ui.lock();
+        } catch (UIDetachedException e) {
+            return null;
+        }
+        if (ui.getSession() != session) {
+            // Removed after it was found
+            ui.unlock();
+            return null;
+        }
+        return ui;
+    }
+
     /**
      * Call the session's {@link ErrorHandler}, if it has one, with the given
      * exception wrapped in an {@link ErrorEvent}.
@@ -16,6 +16,7 @@
 
 package com.vaadin.server.communication;
 
+import java.io.FilterReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Serializable;
@@ -31,11 +32,11 @@ import java.util.logging.Logger;
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.Constants;
 import com.vaadin.server.JsonCodec;
-import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.LegacyCommunicationManager.InvalidUIDLSecurityKeyException;
 import com.vaadin.server.ServerRpcManager;
 import com.vaadin.server.ServerRpcManager.RpcInvocationException;
 import com.vaadin.server.ServerRpcMethodInvocation;
+import com.vaadin.server.ServiceMetrics;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.VariableOwner;
@@ -221,6 +222,16 @@ public class ServerRpcHandler implements Serializable {
             throws IOException, InvalidUIDLSecurityKeyException {
         ui.getSession().setLastRequestTimestamp(System.currentTimeMillis());
 
+        VaadinService service = ui.getSession().getService();
+        int maxPayloadSize = service.getMaxRpcPayloadSize();
+        if (maxPayloadSize > 0) {
+            reader = new LimitedReader(reader, maxPayloadSize);
+        }
+        if (service.isStreamingRpcReaderEnabled()) {
+            handleStreamingRpc(ui, reader);
+            return;
+        }
+
         String changeMessage = getMessage(reader);
 
         if (changeMessage == null || changeMessage.equals("")) {
@@ -239,9 +250,175 @@ public class ServerRpcHandler implements Serializable {
 
         checkWidgetsetVersion(rpcRequest.getWidgetsetVersion());
 
+        if (checkClientToServerId(ui, rpcRequest.getClientToServerId())) {
+            handleInvocations(ui, rpcRequest.getSyncId(),
+                    rpcRequest.getRpcInvocationsData());
+        }
+
+        if (rpcRequest.isResynchronize()) {
+            ui.getSession().getCommunicationManager().repaintAll(ui);
+        }
+
+    }
+
+    /**
+     * Reads the RPC request using a {@link JsonStreamReader}. The invocations
+     * are decoded one at a time while reading, so that neither the whole
+     * message nor a JSON tree of all the invocations is kept in memory.
+     * <p>
+     * The message is checked the same way as by
+     * {@link #handleRpc(UI, Reader, VaadinRequest)} before any invocations are
+     * decoded. The client sends the CSRF token first and leaves it out if it
+     * has the default value, so a missing token is checked as the default
+     * value once the sync id and client to server id have been read. If the
+     * ids follow the invocations in the message, the invocations are buffered
+     * until the whole message has been read.
+     */
+    private void handleStreamingRpc(UI ui, Reader reader)
+            throws IOException, InvalidUIDLSecurityKeyException {
+        JsonStreamReader json = new JsonStreamReader(reader);
+        if (json.isAtEnd()) {
+            // The client sometimes sends empty messages, this is probably a bug
+            return;
+        }
+
+        String csrfToken = null;
+        boolean messageChecked = false;
+        boolean processInvocations = false;
+        List<MethodInvocation> invocations = null;
+        JsonArray invocationsData = null;
+        int syncId = -1;
+        boolean syncIdRead = false;
+        int clientToServerId = -1;
+        boolean clientToServerIdRead = false;
+        boolean resynchronize = false;
+        String widgetsetVersion = null;
+
+        try {
+            json.beginObject();
+            while (json.hasNext()) {
+                String name = json.nextName();
+                if (ApplicationConstants.RPC_INVOCATIONS.equals(name)) {
+                    if (!syncIdRead || !clientToServerIdRead) {
+                        /*
+                         * Older clients send the ids after the invocations.
+                         * Buffer the invocations until the message can be
+                         * checked.
+                         */
+                        invocationsData = (JsonArray) json.nextValue();
+                    } else {
+                        messageChecked = true;
+                        processInvocations = checkMessage(ui, csrfToken,
+                                widgetsetVersion, clientToServerId);
+                        if (processInvocations) {
+                            invocations = parseInvocations(
+                                    ui.getConnectorTracker(), json,
+                                    getLastSyncIdSeenByClient(ui, syncId));
+                        } else {
+                            json.skipValue();
+                        }
+                    }
+                } else if (ApplicationConstants.CSRF_TOKEN.equals(name)) {
+                    csrfToken = json.nextValue().asString();
+                } else if (ApplicationConstants.SERVER_SYNC_ID.equals(name)) {
+                    syncId = (int) json.nextValue().asNumber();
+                    syncIdRead = true;
+                } else if (ApplicationConstants.CLIENT_TO_SERVER_ID
+                        .equals(name)) {
+                    clientToServerId = (int) json.nextValue().asNumber();
+                    clientToServerIdRead = true;
+                } else if (ApplicationConstants.RESYNCHRONIZE_ID
+                        .equals(name)) {
+                    resynchronize = json.nextValue().asBoolean();
+                } else if (ApplicationConstants.WIDGETSET_VERSION_ID
+                        .equals(name)) {
+                    widgetsetVersion = json.nextValue().asString();
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+            if (!json.isAtEnd()) {
+                throw new JsonException("Unexpected content after the message");
+            }
+        } catch (JsonException e) {
+            getLogger().warning("Unable to parse RPC call from the client: "
+                    + e.getMessage());
+            throw new RuntimeException(e);
+        } catch (ClassCastException e) {
+            getLogger().warning("Unable to parse RPC call from the client: "
+                    + e.getMessage());
+            throw new RuntimeException(e);
+        }
+
+        if (!messageChecked) {
+            processInvocations = checkMessage(ui, csrfToken, widgetsetVersion,
+                    clientToServerId);
+        }
+
+        if (processInvocations) {
+            if (invocations != null) {
+                handleInvocations(ui, invocations);
+            } else if (invocationsData != null) {
+                handleInvocations(ui, getLastSyncIdSeenByClient(ui, syncId),
+                        invocationsData);
+            }
+        }
+
+        if (resynchronize) {
+            ui.getSession().getCommunicationManager().repaintAll(ui);
+        }
+    }
+
+    /**
+     * Runs the checks done for every message before its invocations are
+     * decoded.
+     *
+     * @return <code>true</code> if the RPC calls of the message should be
+     *         processed, <code>false</code> otherwise
+     */
+    private boolean checkMessage(UI ui, String csrfToken,
+            String widgetsetVersion, int clientToServerId)
+            throws InvalidUIDLSecurityKeyException {
+        checkCsrfToken(ui, csrfToken);
+        checkWidgetsetVersion(widgetsetVersion);
+        if (clientToServerId == -1) {
+            getLogger().warning("Server message without client id received");
+        }
+        return checkClientToServerId(ui, clientToServerId);
+    }
+
+    private static int getLastSyncIdSeenByClient(UI ui, int syncId) {
+        if (!ui.getSession().getService().getDeploymentConfiguration()
+                .isSyncIdCheckEnabled()) {
+            return -1;
+        }
+        return syncId;
+    }
+
+    private void checkCsrfToken(UI ui, String csrfToken)
+            throws InvalidUIDLSecurityKeyException {
+        if (csrfToken == null || csrfToken.equals("")) {
+            csrfToken = ApplicationConstants.CSRF_TOKEN_DEFAULT_VALUE;
+        }
+        // Security: double cookie submission pattern unless disabled by
+        // property
+        if (!VaadinService.isCsrfTokenValid(ui.getSession(), csrfToken)) {
+            throw new InvalidUIDLSecurityKeyException("");
+        }
+    }
+
+    /**
+     * Checks that the id of a client to server message is the expected one,
+     * and marks the message as processed. If it is not, forces a full
+     * re-synchronization of the client.
+     *
+     * @return <code>true</code> if the RPC calls of the message should be
+     *         processed, <code>false</code> otherwise
+     */
+    private boolean checkClientToServerId(UI ui, int clientToServerId) {
         int expectedId = ui.getLastProcessedClientToServerId() + 1;
-        if (rpcRequest.getClientToServerId() != -1
-                && rpcRequest.getClientToServerId() != expectedId) {
+        if (clientToServerId != -1 && clientToServerId != expectedId) {
             // Invalid message id, skip RPC processing but force a full
             // re-synchronization of the client as it might have not received
             // the previous response (e.g. due to a bad connection)
@@ -253,31 +430,24 @@ public class ServerRpcHandler implements Serializable {
             // been cleared on the server) and would be out of sync
             ui.getSession().getCommunicationManager().repaintAll(ui);
 
-            if (rpcRequest.getClientToServerId() < expectedId) {
+            if (clientToServerId < expectedId) {
                 // Just a duplicate message due to a bad connection or similar
                 // It has already been handled by the server so it is safe to
                 // ignore
                 getLogger()
                         .fine("Ignoring old message from the client. Expected: "
-                                + expectedId + ", got: "
-                                + rpcRequest.getClientToServerId());
+                                + expectedId + ", got: " + clientToServerId);
             } else {
                 getLogger().warning(
                         "Unexpected message id from the client. Expected: "
-                                + expectedId + ", got: "
-                                + rpcRequest.getClientToServerId());
+                                + expectedId + ", got: " + clientToServerId);
             }
+            return false;
         } else {
             // Message id ok, process RPCs
             ui.setLastProcessedClientToServerId(expectedId);
-            handleInvocations(ui, rpcRequest.getSyncId(),
-                    rpcRequest.getRpcInvocationsData());
+            return true;
         }
-
-        if (rpcRequest.isResynchronize()) {
-            ui.getSession().getCommunicationManager().repaintAll(ui);
-        }
-
     }
 
     /**
@@ -324,92 +494,107 @@ public class ServerRpcHandler implements Serializable {
      */
     protected void handleInvocations(UI ui, int lastSyncIdSeenByClient,
             JsonArray invocationsData) {
-        // TODO PUSH Refactor so that this is not needed
-        LegacyCommunicationManager manager = ui.getSession()
-                .getCommunicationManager();
-
         try {
-            ConnectorTracker connectorTracker = ui.getConnectorTracker();
-
-            Set<Connector> enabledConnectors = new HashSet<Connector>();
-
             List<MethodInvocation> invocations = parseInvocations(
                     ui.getConnectorTracker(), invocationsData,
                     lastSyncIdSeenByClient);
-            for (MethodInvocation invocation : invocations) {
-                final ClientConnector connector = connectorTracker
-                        .getConnector(invocation.getConnectorId());
+            handleInvocations(ui, invocations);
+        } catch (JsonException e) {
+            getLogger().warning("Unable to parse RPC call from the client: "
+                    + e.getMessage());
+            throw new RuntimeException(e);
+        }
+    }
 
-                if (connector != null && connector.isConnectorEnabled()) {
-                    enabledConnectors.add(connector);
-                }
+    /**
+     * Processes invocations that have already been decoded from the data
+     * received from the client.
+     *
+     * @param ui
+     *            the UI receiving the invocations
+     * @param invocations
+     *            the decoded invocations
+     * @since 7.7.24
+     */
+    protected void handleInvocations(UI ui,
+            List<MethodInvocation> invocations) {
+        ServiceMetrics metrics = ui.getSession().getService().getMetrics();
+        ConnectorTracker connectorTracker = ui.getConnectorTracker();
+
+        Set<Connector> enabledConnectors = new HashSet<Connector>();
+        for (MethodInvocation invocation : invocations) {
+            final ClientConnector connector = connectorTracker
+                    .getConnector(invocation.getConnectorId());
+
+            if (connector != null && connector.isConnectorEnabled()) {
+                enabledConnectors.add(connector);
             }
+        }
 
-            for (int i = 0; i < invocations.size(); i++) {
-                MethodInvocation invocation = invocations.get(i);
+        for (int i = 0; i < invocations.size(); i++) {
+            MethodInvocation invocation = invocations.get(i);
 
-                final ClientConnector connector = connectorTracker
-                        .getConnector(invocation.getConnectorId());
-                if (connector == null) {
-                    logUnknownConnector(invocation.getConnectorId(),
-                            invocation.getInterfaceName(),
-                            invocation.getMethodName());
-                    continue;
-                }
+            final ClientConnector connector = connectorTracker
+                    .getConnector(invocation.getConnectorId());
+            if (connector == null) {
+                logUnknownConnector(invocation.getConnectorId(),
+                        invocation.getInterfaceName(),
+                        invocation.getMethodName());
+                continue;
+            }
 
-                if (!enabledConnectors.contains(connector)) {
-
-                    if (invocation instanceof LegacyChangeVariablesInvocation) {
-                        LegacyChangeVariablesInvocation legacyInvocation = (LegacyChangeVariablesInvocation) invocation;
-                        // TODO convert window close to a separate RPC call and
-                        // handle above - not a variable change
-
-                        // Handle special case where window-close is called
-                        // after the window has been removed from the
-                        // application or the application has closed
-                        Map<String, Object> changes = legacyInvocation
-                                .getVariableChanges();
-                        if (changes.size() == 1 && changes.containsKey("close")
-                                && Boolean.TRUE.equals(changes.get("close"))) {
-                            // Silently ignore this
-                            continue;
-                        }
-                    }
+            if (!enabledConnectors.contains(connector)) {
 
-                    // Connector is disabled, log a warning and move to the next
-                    getLogger().warning(
-                            getIgnoredDisabledError("RPC call", connector));
-                    continue;
-                }
-                // DragAndDropService has null UI
-                if (connector.getUI() != null
-                        && connector.getUI().isClosing()) {
-                    String msg = "Ignoring RPC call for connector "
-                            + connector.getClass().getName();
-                    if (connector instanceof Component) {
-                        String caption = ((Component) connector).getCaption();
-                        if (caption != null) {
-                            msg += ", caption=" + caption;
-                        }
+                if (invocation instanceof LegacyChangeVariablesInvocation) {
+                    LegacyChangeVariablesInvocation legacyInvocation = (LegacyChangeVariablesInvocation) invocation;
+                    // TODO convert window close to a separate RPC call and
+                    // handle above - not a variable change
+
+                    // Handle special case where window-close is called
+                    // after the window has been removed from the
+                    // application or the application has closed
+                    Map<String, Object> changes = legacyInvocation
+                            .getVariableChanges();
+                    if (changes.size() == 1 && changes.containsKey("close")
+                            && Boolean.TRUE.equals(changes.get("close"))) {
+                        // Silently ignore this
+                        continue;
                     }
-                    msg += " in closed UI";
-                    getLogger().warning(msg);
-                    continue;
-
                 }
 
-                if (invocation instanceof ServerRpcMethodInvocation) {
-                    handleInvocation(ui, connector,
-                            (ServerRpcMethodInvocation) invocation);
-                } else {
-                    LegacyChangeVariablesInvocation legacyInvocation = (LegacyChangeVariablesInvocation) invocation;
-                    handleInvocation(ui, connector, legacyInvocation);
+                // Connector is disabled, log a warning and move to the next
+                getLogger().warning(
+                        getIgnoredDisabledError("RPC call", connector));
+                continue;
+            }
+            // DragAndDropService has null UI
+            if (connector.getUI() != null
+                    && connector.getUI().isClosing()) {
+                String msg = "Ignoring RPC call for connector "
+                        + connector.getClass().getName();
+                if (connector instanceof Component) {
+                    String caption = ((Component) connector).getCaption();
+                    if (caption != null) {
+                        msg += ", caption=" + caption;
+                    }
                 }
+                msg += " in closed UI";
+                getLogger().warning(msg);
+                continue;
+
+            }
+
+            long start = System.nanoTime();
+            if (invocation instanceof ServerRpcMethodInvocation) {
+                handleInvocation(ui, connector,
+                        (ServerRpcMethodInvocation) invocation);
+            } else {
+                LegacyChangeVariablesInvocation legacyInvocation = (LegacyChangeVariablesInvocation) invocation;
+                handleInvocation(ui, connector, legacyInvocation);
+            }
+            if (metrics != null) {
+                metrics.rpcInvoked(connector, System.nanoTime() - start);
             }
-        } catch (JsonException e) {
-            getLogger().warning("Unable to parse RPC call from the client: "
-                    + e.getMessage());
-            throw new RuntimeException(e);
         }
     }
 
@@ -516,6 +701,32 @@ public class ServerRpcHandler implements Serializable {
         return invocations;
     }
 
+    /**
+     * Decodes the invocations of a JSON array one at a time from the given
+     * reader, so that only the JSON of a single invocation is held in memory.
+     */
+    private List<MethodInvocation> parseInvocations(
+            ConnectorTracker connectorTracker, JsonStreamReader json,
+            int lastSyncIdSeenByClient) throws IOException {
+        List<MethodInvocation> invocations = new ArrayList<MethodInvocation>();
+
+        MethodInvocation previousInvocation = null;
+        json.beginArray();
+        while (json.hasNext()) {
+            JsonArray invocationJson = (JsonArray) json.nextValue();
+
+            MethodInvocation invocation = parseInvocation(invocationJson,
+                    previousInvocation, connectorTracker,
+                    lastSyncIdSeenByClient);
+            if (invocation != null) {
+                invocations.add(invocation);
+                previousInvocation = invocation;
+            }
+        }
+        json.endArray();
+        return invocations;
+    }
+
     private MethodInvocation parseInvocation(JsonArray invocationJson,
             MethodInvocation previousInvocation,
             ConnectorTracker connectorTracker, long lastSyncIdSeenByClient) {
@@ -598,8 +809,8 @@ public class ServerRpcHandler implements Serializable {
                 connectorId, rpcInterface, methodName, parametersJson.length());
 
         Object[] parameters = new Object[parametersJson.length()];
-        Type[] declaredRpcMethodParameterTypes = invocation.getMethod()
-                .getGenericParameterTypes();
+        Type[] declaredRpcMethodParameterTypes = invocation.getRpcMethod()
+                .getParameterTypes();
 
         for (int j = 0; j < parametersJson.length(); ++j) {
             JsonValue parameterValue = parametersJson.get(j);
@@ -632,6 +843,47 @@ public class ServerRpcHandler implements Serializable {
         return sb.toString();
     }
 
+    /**
+     * Reader that fails when more than a given number of characters is read,
+     * used for enforcing {@link VaadinService#getMaxRpcPayloadSize()}.
+     */
+    private static class LimitedReader extends FilterReader {
+        private final int maxSize;
+        private int count = 0;
+
+        public LimitedReader(Reader in, int maxSize) {
+            super(in);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c != -1) {
+                count(1);
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            int read = super.read(cbuf, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        private void count(int read) throws IOException {
+            count += read;
+            if (count > maxSize) {
+                throw new IOException(
+                        "RPC payload exceeds the maximum size of " + maxSize
+                                + " characters");
+            }
+        }
+    }
+
     private static final Logger getLogger() {
         return Logger.getLogger(ServerRpcHandler.class.getName());
     }
@@ -21,6 +21,8 @@ import java.io.Serializable;
 import java.io.Writer;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 import com.vaadin.server.ClientConnector;
@@ -82,4 +84,57 @@ public class SharedStateWriter implements Serializable {
 
         return writtenConnectors;
     }
+
+    /**
+     * Writes a JSON object containing the pending state changes of the dirty
+     * connectors of the given UI directly to the given JSON stream. Each state
+     * is written as soon as it has been encoded instead of first collecting
+     * all states into one JSON object. The output is identical to
+     * {@link #write(UI, Writer)}.
+     *
+     * @param ui
+     *            The UI whose state changes should be written.
+     * @param json
+     *            The JSON stream to write to.
+     * @return a set of connector ids with state changes
+     * @throws IOException
+     *             If the serialization fails.
+     * @since 7.7.24
+     */
+    public Set<String> write(UI ui, JsonStreamWriter json) throws IOException {
+
+        Collection<ClientConnector> dirtyVisibleConnectors = ui
+                .getConnectorTracker().getDirtyVisibleConnectors();
+
+        // Connectors must be written in the key order used by stringify
+        Map<String, ClientConnector> connectorsById = new LinkedHashMap<String, ClientConnector>();
+        for (ClientConnector connector : dirtyVisibleConnectors) {
+            connectorsById.put(connector.getConnectorId(), connector);
+        }
+
+        Set<String> writtenConnectors = new HashSet<String>();
+        json.beginObject();
+        for (String connectorId : JsonStreamWriter
+                .getStringifyOrder(connectorsById.keySet())) {
+            ClientConnector connector = connectorsById.get(connectorId);
+            // encode and send shared state
+            try {
+                JsonObject stateJson = connector.encodeState();
+
+                if (stateJson != null && stateJson.keys().length != 0) {
+                    json.name(connectorId).value(stateJson);
+                    writtenConnectors.add(connectorId);
+                }
+            } catch (JsonException e) {
+                throw new PaintException(
+                        "Failed to serialize shared state for connector "
+                                + connector.getClass().getName() + " ("
+                                + connectorId + "): " + e.getMessage(),
+                        e);
+            }
+        }
+        json.endObject();
+
+        return writtenConnectors;
+    }
 }
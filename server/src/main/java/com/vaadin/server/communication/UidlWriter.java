@@ -16,6 +16,7 @@
 
 package com.vaadin.server.communication;
 
+import java.io.FilterWriter;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.Writer;
@@ -35,6 +36,7 @@ import com.vaadin.server.ClientConnector;
 import com.vaadin.server.JsonPaintTarget;
 import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.LegacyCommunicationManager.ClientCache;
+import com.vaadin.server.ServiceMetrics;
 import com.vaadin.server.SystemMessages;
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinSession;
@@ -61,7 +63,7 @@ public class UidlWriter implements Serializable {
      *
      * @param ui
      *            The {@link UI} whose changes to write
-     * @param writer
+     * @param out
      *            The writer to use
      * @param analyzeLayouts
      *            Whether detected layout problems should be logged.
@@ -72,13 +74,24 @@ public class UidlWriter implements Serializable {
      * @throws IOException
      *             If the writing fails.
      */
-    public void write(UI ui, Writer writer, boolean async) throws IOException {
+    public void write(UI ui, Writer out, boolean async) throws IOException {
         VaadinSession session = ui.getSession();
         VaadinService service = session.getService();
 
         // Purge pending access calls as they might produce additional changes
         // to write out
-        service.runPendingAccessTasks(session);
+        if (service.isUILockingEnabled()) {
+            service.runPendingAccessTasks(ui);
+            // Session tasks require exclusive access to the whole session
+            if (session.getUIAccessLock().isWriteLockedByCurrentThread()) {
+                service.runPendingAccessTasks(session);
+            }
+        } else {
+            service.runPendingAccessTasks(session);
+        }
+
+        long start = System.nanoTime();
+        CountingWriter writer = new CountingWriter(out);
 
         Set<ClientConnector> processedConnectors = new HashSet<ClientConnector>();
 
@@ -119,22 +132,34 @@ public class UidlWriter implements Serializable {
         getLogger().log(Level.FINE, "Found " + processedConnectors.size()
                 + " dirty connectors to paint");
 
+        // In streaming mode, the JSON sections are written directly to the
+        // writer without building intermediate JSON trees
+        JsonStreamWriter json = service.isStreamingUidlWriterEnabled()
+                ? new JsonStreamWriter(writer) : null;
+
         uiConnectorTracker.setWritingResponse(true);
         try {
 
             int syncId = service.getDeploymentConfiguration()
                     .isSyncIdCheckEnabled()
                             ? uiConnectorTracker.getCurrentSyncId() : -1;
-            writer.write("\"" + ApplicationConstants.SERVER_SYNC_ID + "\": "
-                    + syncId + ", ");
+            writer.write('"');
+            writer.write(ApplicationConstants.SERVER_SYNC_ID);
+            writer.write("\": ");
+            writer.write(Integer.toString(syncId));
+            writer.write(", ");
             if (repaintAll) {
-                writer.write("\"" + ApplicationConstants.RESYNCHRONIZE_ID
-                        + "\": true, ");
+                writer.write('"');
+                writer.write(ApplicationConstants.RESYNCHRONIZE_ID);
+                writer.write("\": true, ");
             }
             int nextClientToServerMessageId = ui
                     .getLastProcessedClientToServerId() + 1;
-            writer.write("\"" + ApplicationConstants.CLIENT_TO_SERVER_ID
-                    + "\": " + nextClientToServerMessageId + ", ");
+            writer.write('"');
+            writer.write(ApplicationConstants.CLIENT_TO_SERVER_ID);
+            writer.write("\": ");
+            writer.write(Integer.toString(nextClientToServerMessageId));
+            writer.write(", ");
             writer.write("\"changes\" : ");
 
             JsonPaintTarget paintTarget = new JsonPaintTarget(manager, writer,
@@ -157,8 +182,13 @@ public class UidlWriter implements Serializable {
             // processing.
 
             writer.write("\"state\":");
-            Set<String> stateUpdateConnectors = new SharedStateWriter()
-                    .write(ui, writer);
+            Set<String> stateUpdateConnectors;
+            if (json != null) {
+                stateUpdateConnectors = new SharedStateWriter().write(ui, json);
+            } else {
+                stateUpdateConnectors = new SharedStateWriter().write(ui,
+                        writer);
+            }
             writer.write(", "); // close states
 
             // TODO This should be optimized. The type only needs to be
@@ -167,7 +197,11 @@ public class UidlWriter implements Serializable {
             // widget mapping
 
             writer.write("\"types\":");
-            new ConnectorTypeWriter().write(ui, writer, paintTarget);
+            if (json != null) {
+                new ConnectorTypeWriter().write(ui, json, paintTarget);
+            } else {
+                new ConnectorTypeWriter().write(ui, writer, paintTarget);
+            }
             writer.write(", "); // close states
 
             // Send update hierarchy information to the client.
@@ -178,8 +212,13 @@ public class UidlWriter implements Serializable {
             // child to 0 children)
 
             writer.write("\"hierarchy\":");
-            new ConnectorHierarchyWriter().write(ui, writer,
-                    stateUpdateConnectors);
+            if (json != null) {
+                new ConnectorHierarchyWriter().write(ui, json,
+                        stateUpdateConnectors);
+            } else {
+                new ConnectorHierarchyWriter().write(ui, writer,
+                        stateUpdateConnectors);
+            }
             writer.write(", "); // close hierarchy
 
             // send server to client RPC calls for components in the UI, in call
@@ -189,7 +228,11 @@ public class UidlWriter implements Serializable {
             // which they were performed, remove the calls from components
 
             writer.write("\"rpc\" : ");
-            new ClientRpcWriter().write(ui, writer);
+            if (json != null) {
+                new ClientRpcWriter().write(ui, json);
+            } else {
+                new ClientRpcWriter().write(ui, writer);
+            }
             writer.write(", "); // close rpc
 
             uiConnectorTracker.markAllConnectorsClean();
@@ -309,17 +352,17 @@ public class UidlWriter implements Serializable {
 
             // Include script dependencies in output if there are any
             if (!scriptDependencies.isEmpty()) {
-                writer.write(", \"scriptDependencies\": "
-                        + JsonUtil.stringify(toJsonArray(scriptDependencies)));
+                writer.write(", \"scriptDependencies\": ");
+                writeDependencies(scriptDependencies, writer, json);
             }
 
             // Include style dependencies in output if there are any
             if (!styleDependencies.isEmpty()) {
-                writer.write(", \"styleDependencies\": "
-                        + JsonUtil.stringify(toJsonArray(styleDependencies)));
+                writer.write(", \"styleDependencies\": ");
+                writeDependencies(styleDependencies, writer, json);
             }
 
-            session.getDragAndDropService().printJSONResponse(writer);
+            session.getDragAndDropService(ui).printJSONResponse(writer);
 
             for (ClientConnector connector : processedConnectors) {
                 uiConnectorTracker.markClientSideInitialized(connector);
@@ -329,11 +372,26 @@ public class UidlWriter implements Serializable {
                     .isEmpty()) : "Connectors have been marked as dirty during the end of the paint phase. This is most certainly not intended.";
 
             writePerformanceData(ui, writer);
+
+            ServiceMetrics metrics = service.getMetrics();
+            if (metrics != null) {
+                metrics.responseWritten(ui, processedConnectors.size(),
+                        writer.getCount(), System.nanoTime() - start);
+            }
         } finally {
             uiConnectorTracker.setWritingResponse(false);
         }
     }
 
+    private void writeDependencies(List<String> dependencies, Writer writer,
+            JsonStreamWriter json) throws IOException {
+        if (json != null) {
+            json.stringArray(dependencies);
+        } else {
+            writer.write(JsonUtil.stringify(toJsonArray(dependencies)));
+        }
+    }
+
     private JsonArray toJsonArray(List<String> list) {
         JsonArray result = Json.createArray();
         for (int i = 0; i < list.size(); i++) {
@@ -352,9 +410,47 @@ public class UidlWriter implements Serializable {
     private void writePerformanceData(UI ui, Writer writer) throws IOException {
         if (!ui.getSession().getService().getDeploymentConfiguration()
                 .isProductionMode()) {
-            writer.write(String.format(", \"timings\":[%d, %d]",
-                    ui.getSession().getCumulativeRequestDuration(),
-                    ui.getSession().getLastRequestDuration()));
+            writer.write(", \"timings\":[");
+            writer.write(Long
+                    .toString(ui.getSession().getCumulativeRequestDuration()));
+            writer.write(", ");
+            writer.write(
+                    Long.toString(ui.getSession().getLastRequestDuration()));
+            writer.write(']');
+        }
+    }
+
+    /**
+     * Writer that counts the characters written, used for reporting the
+     * response length to {@link VaadinService#getMetrics()}.
+     */
+    private static class CountingWriter extends FilterWriter {
+        private long count = 0;
+
+        public CountingWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            super.write(c);
+            count++;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            super.write(cbuf, off, len);
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            super.write(str, off, len);
+            count += len;
+        }
+
+        public long getCount() {
+            return count;
         }
     }
 
@@ -29,7 +29,11 @@ import java.util.Set;
 import com.vaadin.data.Container;
 import com.vaadin.data.Container.Indexed;
 import com.vaadin.data.Container.Indexed.ItemAddEvent;
+import com.vaadin.data.Container.Indexed.ItemRangesRemoveEvent;
 import com.vaadin.data.Container.Indexed.ItemRemoveEvent;
+import com.vaadin.data.Container.ItemChangeEvent;
+import com.vaadin.data.Container.ItemChangeListener;
+import com.vaadin.data.Container.ItemChangeNotifier;
 import com.vaadin.data.Container.ItemSetChangeEvent;
 import com.vaadin.data.Container.ItemSetChangeListener;
 import com.vaadin.data.Container.ItemSetChangeNotifier;
@@ -44,6 +48,7 @@ import com.vaadin.server.KeyMapper;
 import com.vaadin.shared.data.DataProviderRpc;
 import com.vaadin.shared.data.DataRequestRpc;
 import com.vaadin.shared.ui.grid.GridState;
+import com.vaadin.shared.ui.grid.HeightMode;
 import com.vaadin.shared.ui.grid.Range;
 import com.vaadin.ui.Grid;
 import com.vaadin.ui.Grid.Column;
@@ -75,6 +80,11 @@ public class RpcDataProviderExtension extends AbstractExtension {
         private final KeyMapper<Object> keyMapper = new KeyMapper<Object>();
         private final Set<Object> droppedItems = new HashSet<Object>();
 
+        /**
+         * Hashes of the row data last sent to the client for the active items.
+         */
+        private final Map<Object, Long> sentRowHashes = new HashMap<Object, Long>();
+
         /**
          * Registers ValueChangeListeners for given item ids.
          * <p>
@@ -87,8 +97,12 @@ public class RpcDataProviderExtension extends AbstractExtension {
         public void addActiveItems(Collection<?> itemIds) {
             for (Object itemId : itemIds) {
                 if (!activeItemMap.containsKey(itemId)) {
-                    activeItemMap.put(itemId, new GridValueChangeListener(
-                            itemId, container.getItem(itemId)));
+                    // Changes are reported by the container if it sends item
+                    // change events, no need to listen to the properties
+                    activeItemMap.put(itemId,
+                            container instanceof ItemChangeNotifier ? null
+                                    : new GridValueChangeListener(itemId,
+                                            container.getItem(itemId)));
                 }
             }
 
@@ -126,7 +140,10 @@ public class RpcDataProviderExtension extends AbstractExtension {
          * @return collection of value change listeners
          */
         public Collection<GridValueChangeListener> getValueChangeListeners() {
-            return new HashSet<GridValueChangeListener>(activeItemMap.values());
+            Set<GridValueChangeListener> listeners = new HashSet<GridValueChangeListener>(
+                    activeItemMap.values());
+            listeners.remove(null);
+            return listeners;
         }
 
         @Override
@@ -138,6 +155,23 @@ public class RpcDataProviderExtension extends AbstractExtension {
         public void destroyData(Object itemId) {
             keyMapper.remove(itemId);
             removeListener(itemId);
+            sentRowHashes.remove(itemId);
+        }
+
+        /**
+         * Records the row data sent to the client for an item.
+         *
+         * @param itemId
+         *            the id of the item
+         * @param rowData
+         *            the generated row data
+         * @return <code>true</code> if the data differs from the data sent
+         *         previously, <code>false</code> if the client already has the
+         *         same data
+         */
+        public boolean rowDataSent(Object itemId, JsonObject rowData) {
+            Long hash = Long.valueOf(hash(rowData.toJson()));
+            return !hash.equals(sentRowHashes.put(itemId, hash));
         }
 
         private void removeListener(Object itemId) {
@@ -220,10 +254,48 @@ public class RpcDataProviderExtension extends AbstractExtension {
         }
     }
 
+    /**
+     * The maximum number of removed item ranges sent to the client as separate
+     * row removals. If more ranges are removed at once, the data is refreshed
+     * instead.
+     */
+    private static final int MAX_REMOVED_RANGES = 10;
+
+    /**
+     * The default maximum number of rows pushed in advance while the client is
+     * scrolling.
+     *
+     * @since 7.7.24
+     * @see #setPrefetchRowCount(int)
+     */
+    public static final int DEFAULT_PREFETCH_ROW_COUNT = 50;
+
+    /**
+     * The number of rows pushed initially when nothing is known about the
+     * size of the client side cache.
+     */
+    private static final int DEFAULT_INITIAL_ROW_COUNT = 40;
+
+    /**
+     * The number of pages cached after the visible rows by the default client
+     * side cache strategy, in addition to the visible page.
+     */
+    private static final int CLIENT_CACHE_PAGES = 3;
+
     private final Indexed container;
 
     private DataProviderRpc rpc;
 
+    private final ItemChangeListener itemChangeListener = new ItemChangeListener() {
+        @Override
+        public void containerItemChange(ItemChangeEvent event) {
+            Object itemId = event.getItemId();
+            if (activeItemHandler.activeItemMap.containsKey(itemId)) {
+                updateRowData(itemId);
+            }
+        }
+    };
+
     private final ItemSetChangeListener itemListener = new ItemSetChangeListener() {
         @Override
         public void containerItemSetChange(ItemSetChangeEvent event) {
@@ -242,6 +314,18 @@ public class RpcDataProviderExtension extends AbstractExtension {
                 removeRowData(firstIndex, count);
             }
 
+            else if (event instanceof ItemRangesRemoveEvent
+                    && ((ItemRangesRemoveEvent) event)
+                            .getFirstIndexes().length <= MAX_REMOVED_RANGES) {
+                ItemRangesRemoveEvent removeEvent = (ItemRangesRemoveEvent) event;
+                int[] firstIndexes = removeEvent.getFirstIndexes();
+                int[] counts = removeEvent.getRemovedItemsCounts();
+                // Remove from the end so that the indexes stay valid
+                for (int i = firstIndexes.length - 1; i >= 0; i--) {
+                    removeRowData(firstIndexes[i], counts[i]);
+                }
+            }
+
             else {
                 // Remove obsolete value change listeners.
                 Set<Object> keySet = new HashSet<Object>(
@@ -276,6 +360,15 @@ public class RpcDataProviderExtension extends AbstractExtension {
 
     private final ActiveItemHandler activeItemHandler = new ActiveItemHandler();
 
+    /** Maximum number of rows to push in advance, 0 to disable */
+    private int prefetchRowCount = DEFAULT_PREFETCH_ROW_COUNT;
+
+    /** First row of the previous row request, -1 if none */
+    private int lastRequestedRow = -1;
+
+    /** Number of rows covered by the client cache after the last request */
+    private int clientCacheSize = 0;
+
     /**
      * Creates a new data provider using the given container.
      *
@@ -290,8 +383,16 @@ public class RpcDataProviderExtension extends AbstractExtension {
             @Override
             public void requestRows(int firstRow, int numberOfRows,
                     int firstCachedRowIndex, int cacheSize) {
-                pushRowData(firstRow, numberOfRows, firstCachedRowIndex,
+                Range requested = getPrefetchRange(firstRow, numberOfRows);
+                lastRequestedRow = firstRow;
+
+                Range cached = Range.withLength(firstCachedRowIndex,
                         cacheSize);
+                clientCacheSize = cached.isEmpty() ? requested.length()
+                        : requested.combineWith(cached).length();
+
+                pushRowData(requested.getStart(), requested.length(),
+                        firstCachedRowIndex, cacheSize);
             }
 
             @Override
@@ -307,6 +408,10 @@ public class RpcDataProviderExtension extends AbstractExtension {
             ((ItemSetChangeNotifier) container)
                     .addItemSetChangeListener(itemListener);
         }
+        if (container instanceof ItemChangeNotifier) {
+            ((ItemChangeNotifier) container)
+                    .addItemChangeListener(itemChangeListener);
+        }
 
         addDataGenerator(activeItemHandler);
     }
@@ -329,8 +434,9 @@ public class RpcDataProviderExtension extends AbstractExtension {
              */
             int size = container.size();
             rpc.resetDataAndSize(size);
+            lastRequestedRow = -1;
 
-            int numberOfRows = Math.min(40, size);
+            int numberOfRows = Math.min(getInitialRowCount(), size);
             pushRowData(0, numberOfRows, 0, 0);
         } else {
             // Only do row changes if not initial response.
@@ -378,10 +484,7 @@ public class RpcDataProviderExtension extends AbstractExtension {
         JsonArray rows = Json.createArray();
 
         // Offset the index to match the wanted range.
-        int diff = 0;
-        if (!cached.isEmpty() && newRange.getStart() > cached.getStart()) {
-            diff = cached.length();
-        }
+        int diff = newRange.getStart() - fullRange.getStart();
 
         for (int i = 0; i < newRange.length()
                 && i + diff < itemIds.size(); ++i) {
@@ -389,13 +492,93 @@ public class RpcDataProviderExtension extends AbstractExtension {
 
             Item item = container.getItem(itemId);
 
-            rows.set(i, getRowData(getGrid().getColumns(), itemId, item));
+            JsonObject row = getRowData(getGrid().getColumns(), itemId, item);
+            activeItemHandler.rowDataSent(itemId, row);
+            rows.set(i, row);
         }
         rpc.setRowData(firstRowToPush, rows);
 
         activeItemHandler.addActiveItems(itemIds);
     }
 
+    /**
+     * Gets the number of rows to push to the client before it has requested
+     * any rows. If the client has requested rows before, enough rows to fill
+     * its cache are pushed. Otherwise the amount is based on the height of
+     * the Grid if it is defined as a number of rows.
+     *
+     * @since 7.7.24
+     * @return the number of rows to push initially
+     */
+    protected int getInitialRowCount() {
+        if (clientCacheSize > 0) {
+            return clientCacheSize;
+        }
+        Grid grid = getGrid();
+        if (grid != null && grid.getHeightMode() == HeightMode.ROW) {
+            int pageSize = (int) Math.ceil(grid.getHeightByRows());
+            return pageSize * (1 + CLIENT_CACHE_PAGES);
+        }
+        return DEFAULT_INITIAL_ROW_COUNT;
+    }
+
+    /**
+     * Extends a requested row range in the direction the client is scrolling,
+     * based on how far the client has moved since the previous request. The
+     * client keeps rows close enough to its viewport and drops the rest.
+     */
+    private Range getPrefetchRange(int firstRow, int numberOfRows) {
+        Range requested = Range.withLength(firstRow, numberOfRows);
+        if (prefetchRowCount == 0 || lastRequestedRow < 0
+                || requested.isEmpty()) {
+            return requested;
+        }
+
+        int distance = firstRow - lastRequestedRow;
+        int extra = Math.min(Math.abs(distance), prefetchRowCount);
+        if (distance > 0) {
+            int available = container.size() - requested.getEnd();
+            return requested.expand(0, Math.max(0, Math.min(extra, available)));
+        } else if (distance < 0) {
+            return requested.expand(Math.min(extra, firstRow), 0);
+        }
+        return requested;
+    }
+
+    /**
+     * Sets the maximum number of rows pushed to the client in addition to the
+     * requested rows. When successive row requests show that the client is
+     * scrolling, rows are pushed in advance in the scrolling direction, up to
+     * the distance scrolled since the previous request, so that the next rows
+     * are available without another round trip.
+     *
+     * @since 7.7.24
+     * @param prefetchRowCount
+     *            the maximum number of rows to push in advance, or 0 to only
+     *            push the requested rows
+     * @throws IllegalArgumentException
+     *             if the count is negative
+     */
+    public void setPrefetchRowCount(int prefetchRowCount) {
+        if (prefetchRowCount < 0) {
+            throw new IllegalArgumentException(
+                    "Prefetch row count cannot be negative");
+        }
+        this.prefetchRowCount = prefetchRowCount;
+    }
+
+    /**
+     * Gets the maximum number of rows pushed to the client in addition to the
+     * requested rows.
+     *
+     * @since 7.7.24
+     * @see #setPrefetchRowCount(int)
+     * @return the maximum number of rows to push in advance
+     */
+    public int getPrefetchRowCount() {
+        return prefetchRowCount;
+    }
+
     private JsonObject getRowData(Collection<Column> columns, Object itemId,
             Item item) {
 
@@ -540,15 +723,36 @@ public class RpcDataProviderExtension extends AbstractExtension {
                 Item item = container.getItem(itemId);
                 if (item != null) {
                     JsonObject row = getRowData(columns, itemId, item);
-                    rowData.set(i++, row);
+                    // Only send the rows that have actually changed
+                    if (activeItemHandler.rowDataSent(itemId, row)) {
+                        rowData.set(i++, row);
+                    }
                 }
             }
         }
-        rpc.updateRowData(rowData);
+        if (rowData.length() > 0) {
+            rpc.updateRowData(rowData);
+        }
+    }
+
+    /**
+     * Computes a 64-bit FNV-1a hash of the given string. Used for detecting
+     * changes in row data without keeping the data sent to the client.
+     */
+    private static long hash(String json) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            hash = (hash ^ (c & 0xff)) * 0x100000001b3L;
+            hash = (hash ^ (c >>> 8)) * 0x100000001b3L;
+        }
+        return hash;
     }
 
     /**
-     * Pushes a new version of all the rows in the active cache range.
+     * Pushes a new version of all the rows in the active cache range. Only the
+     * rows whose generated data differs from the data last sent to the client
+     * are pushed.
      */
     public void refreshCache() {
         if (!refreshCache) {
@@ -567,6 +771,10 @@ public class RpcDataProviderExtension extends AbstractExtension {
                 ((ItemSetChangeNotifier) container)
                         .removeItemSetChangeListener(itemListener);
             }
+            if (container instanceof ItemChangeNotifier) {
+                ((ItemChangeNotifier) container)
+                        .removeItemChangeListener(itemChangeListener);
+            }
 
         } else if (!(parent instanceof Grid)) {
             throw new IllegalStateException(
@@ -260,7 +260,7 @@ public class ConnectorTracker implements Serializable {
             return connector;
         } else {
             DragAndDropService service = uI.getSession()
-                    .getDragAndDropService();
+                    .getDragAndDropService(uI);
             if (connectorId.equals(service.getConnectorId())) {
                 return service;
             }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.ui;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.ui.Upload.Receiver;
+
+/**
+ * An {@link Upload.Receiver} that writes each upload to a file through a
+ * {@link java.nio.channels.FileChannel}. The data is written by the thread
+ * reading the upload request without locking the session.
+ * <p>
+ * By default, each upload is written to a new temporary file in the given
+ * directory. Override {@link #createFile(String, String)} to choose the file in
+ * another way. The file of the latest upload is available from
+ * {@link #getFile()}, e.g. in an {@link Upload.SucceededListener}.
+ *
+ * @author Vaadin Ltd
+ * @since 7.7.24
+ */
+public class FileUploadReceiver implements Receiver {
+
+    private final File directory;
+
+    private volatile File file;
+
+    /**
+     * Creates a receiver writing uploads to temporary files in the default
+     * temporary file directory.
+     */
+    public FileUploadReceiver() {
+        this(null);
+    }
+
+    /**
+     * Creates a receiver writing uploads to temporary files in the given
+     * directory.
+     *
+     * @param directory
+     *            the directory for the uploaded files, or <code>null</code>
+     *            to use the default temporary file directory
+     */
+    public FileUploadReceiver(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public OutputStream receiveUpload(String filename, String mimeType) {
+        try {
+            File target = createFile(filename, mimeType);
+            OutputStream out = Channels
+                    .newOutputStream(new FileOutputStream(target).getChannel());
+            file = target;
+            return out;
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING,
+                    "Could not create a file for the upload of " + filename,
+                    e);
+            // The upload fails with a NoOutputStreamException
+            return null;
+        }
+    }
+
+    /**
+     * Creates the file to write an upload to. By default, a new temporary file
+     * is created in the directory of this receiver.
+     *
+     * @param filename
+     *            the name of the uploaded file, as specified by the client
+     * @param mimeType
+     *            the MIME type of the uploaded file
+     * @return the file to write to, not <code>null</code>
+     * @throws IOException
+     *             if the file cannot be created
+     */
+    protected File createFile(String filename, String mimeType)
+            throws IOException {
+        return File.createTempFile("upload", null, directory);
+    }
+
+    /**
+     * Gets the directory the uploaded files are written to.
+     *
+     * @return the directory, or <code>null</code> if the default temporary
+     *         file directory is used
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets the file the latest upload was written to.
+     *
+     * @return the file of the latest upload, or <code>null</code> if nothing
+     *         has been uploaded
+     */
+    public File getFile() {
+        return file;
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(FileUploadReceiver.class.getName());
+    }
+}
@@ -4628,6 +4628,8 @@ public class Grid extends AbstractFocusable implements SelectionNotifier,
 
     private RpcDataProviderExtension datasourceExtension;
 
+    private int prefetchRowCount = RpcDataProviderExtension.DEFAULT_PREFETCH_ROW_COUNT;
+
     /**
      * The selection model that is currently in use. Never <code>null</code>
      * after the constructor has been run.
@@ -5082,6 +5084,7 @@ public class Grid extends AbstractFocusable implements SelectionNotifier,
         }
 
         datasourceExtension = new RpcDataProviderExtension(container);
+        datasourceExtension.setPrefetchRowCount(prefetchRowCount);
         datasourceExtension.extend(this);
         datasourceExtension.addDataGenerator(new RowDataGenerator());
         for (Extension e : getExtensions()) {
@@ -5715,6 +5718,39 @@ public class Grid extends AbstractFocusable implements SelectionNotifier,
         return getState(false).heightMode;
     }
 
+    /**
+     * Sets the maximum number of rows sent to the client in advance while the
+     * user is scrolling. When consecutive row requests from the client move in
+     * the same direction, additional rows in that direction are sent along
+     * with the requested rows to avoid a round trip for the next ones.
+     * <p>
+     * Defaults to
+     * {@link RpcDataProviderExtension#DEFAULT_PREFETCH_ROW_COUNT}.
+     *
+     * @since 7.7.24
+     * @param prefetchRowCount
+     *            the maximum number of rows to send in advance, or 0 to only
+     *            send the rows requested by the client
+     * @throws IllegalArgumentException
+     *             if the count is negative
+     */
+    public void setPrefetchRowCount(int prefetchRowCount) {
+        datasourceExtension.setPrefetchRowCount(prefetchRowCount);
+        this.prefetchRowCount = prefetchRowCount;
+    }
+
+    /**
+     * Gets the maximum number of rows sent to the client in advance while the
+     * user is scrolling.
+     *
+     * @since 7.7.24
+     * @see #setPrefetchRowCount(int)
+     * @return the maximum number of rows to send in advance
+     */
+    public int getPrefetchRowCount() {
+        return prefetchRowCount;
+    }
+
     /* Selection related methods: */
 
     /**
@@ -6939,7 +6975,8 @@ public class Grid extends AbstractFocusable implements SelectionNotifier,
      * given item ids.
      * <p>
      * Calling this for a row which is not currently rendered on the client side
-     * has no effect.
+     * has no effect. Rows for which the generated data has not changed since
+     * it was last sent to the client are not sent again.
      * 
      * @param itemIds
      *            the item id(s) of the row to refresh.
@@ -6952,6 +6989,9 @@ public class Grid extends AbstractFocusable implements SelectionNotifier,
 
     /**
      * Refreshes, i.e. causes the client side to re-render all rows.
+     * <p>
+     * Only the rows for which the generated data has changed since it was last
+     * sent to the client are sent again.
      *
      * @since 7.7.7
      */
@@ -200,7 +200,7 @@ class PushConfigurationImpl implements PushConfiguration {
                     "Cannot set the push mode for a detached UI");
         }
 
-        assert session.hasLock();
+        assert session.hasUILock();
 
         if (pushMode.isEnabled()
                 && !session.getService().ensurePushAvailable()) {
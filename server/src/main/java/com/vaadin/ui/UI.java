@@ -18,6 +18,7 @@ package com.vaadin.ui;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -26,7 +27,12 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -55,6 +61,7 @@ import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinServlet;
 import com.vaadin.server.VaadinSession;
+import com.vaadin.server.VaadinSession.FutureAccess;
 import com.vaadin.server.VaadinSession.State;
 import com.vaadin.server.communication.PushConnection;
 import com.vaadin.shared.Connector;
@@ -113,6 +120,19 @@ public abstract class UI extends AbstractSingleComponentContainer
      */
     private volatile VaadinSession session;
 
+    /**
+     * The lock of this UI, only used if UI locking is enabled.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The session that was locked together with this UI, remembered so that
+     * the lock can be released even if the UI is detached while locked.
+     */
+    private transient VaadinSession lockedSession;
+
+    private transient ConcurrentLinkedQueue<FutureAccess> pendingAccessQueue = new ConcurrentLinkedQueue<FutureAccess>();
+
     /**
      * List of windows in this UI.
      */
@@ -1254,13 +1274,30 @@ public abstract class UI extends AbstractSingleComponentContainer
 
             // Can't use UI.push() directly since it checks for a valid session
             if (session != null) {
-                session.getService().runPendingAccessTasks(session);
+                runPendingAccessTasks(session);
             }
             getPushConnection().push();
         }
 
     }
 
+    /**
+     * Runs the pending access tasks of this UI, and those of the session if
+     * the current thread has exclusive access to the whole session.
+     */
+    private void runPendingAccessTasks(VaadinSession session) {
+        VaadinService service = session.getService();
+        if (service.isUILockingEnabled()) {
+            service.runPendingAccessTasks(this);
+            // Session tasks require exclusive access to the whole session
+            if (session.getUIAccessLock().isWriteLockedByCurrentThread()) {
+                service.runPendingAccessTasks(session);
+            }
+        } else {
+            service.runPendingAccessTasks(session);
+        }
+    }
+
     /**
      * Returns whether this UI is marked as closed and is to be detached.
      * <p>
@@ -1381,7 +1418,12 @@ public abstract class UI extends AbstractSingleComponentContainer
 
         VaadinService.verifyNoOtherSessionLocked(session);
 
-        session.lock();
+        boolean uiLocking = session.getService().isUILockingEnabled();
+        if (uiLocking) {
+            lock();
+        } else {
+            session.lock();
+        }
         try {
             if (getSession() == null) {
                 // UI was detached after fetching the session but before we
@@ -1391,7 +1433,11 @@ public abstract class UI extends AbstractSingleComponentContainer
             old = CurrentInstance.setCurrent(this);
             runnable.run();
         } finally {
-            session.unlock();
+            if (uiLocking) {
+                unlock();
+            } else {
+                session.unlock();
+            }
             if (old != null) {
                 CurrentInstance.restoreInstances(old);
             }
@@ -1452,7 +1498,7 @@ public abstract class UI extends AbstractSingleComponentContainer
             throw new UIDetachedException();
         }
 
-        return session.access(new ErrorHandlingRunnable() {
+        ErrorHandlingRunnable task = new ErrorHandlingRunnable() {
             @Override
             public void run() {
                 accessSynchronously(runnable);
@@ -1482,7 +1528,229 @@ public abstract class UI extends AbstractSingleComponentContainer
                     getLogger().log(Level.SEVERE, e.getMessage(), e);
                 }
             }
-        });
+        };
+
+        VaadinService service = session.getService();
+        if (!service.isUILockingEnabled()) {
+            return session.access(task);
+        }
+
+        // Only this UI needs to be locked for running the task
+        FutureAccess future = new FutureAccess(session, task);
+        pendingAccessQueue.add(future);
+        service.ensureAccessQueuePurged(this);
+        return future;
+    }
+
+    /**
+     * Locks this UI to protect it against concurrent access from other
+     * threads. The lock is reentrant; it must be released using
+     * {@link #unlock()} as many times as it has been acquired.
+     * <p>
+     * If {@link VaadinService#isUILockingEnabled() UI locking} is enabled,
+     * only this UI is locked and other UIs of the same session can be accessed
+     * concurrently by other threads. Otherwise, this is the same as locking
+     * the session.
+     * <p>
+     * {@link #accessSynchronously(Runnable)} and {@link #access(Runnable)}
+     * should typically be used instead of locking the UI directly.
+     *
+     * @since 7.7.24
+     * @throws UIDetachedException
+     *             if the UI is not attached to a session
+     * @throws IllegalStateException
+     *             if UI locking is enabled and the current thread holds the
+     *             lock of another UI of the same session
+     *
+     * @see #unlock()
+     * @see VaadinSession#lock()
+     */
+    public void lock() {
+        VaadinSession session = getSession();
+        if (session == null) {
+            throw new UIDetachedException();
+        }
+        if (!session.getService().isUILockingEnabled()) {
+            session.lock();
+            return;
+        }
+
+        ReentrantReadWriteLock accessLock = session.getUIAccessLock();
+        if (accessLock.getReadHoldCount() > 0 && !lock.isHeldByCurrentThread()
+                && !accessLock.isWriteLockedByCurrentThread()) {
+            throw new IllegalStateException(
+                    "Can't lock a UI while another UI of the same session is locked by the same thread. This restriction is intended to help avoid deadlocks.");
+        }
+        accessLock.readLock().lock();
+        lock.lock();
+        if (lock.getHoldCount() == 1) {
+            lockedSession = session;
+        }
+    }
+
+    /**
+     * Tries to lock this UI without waiting if the lock is held by another
+     * thread. If the lock is acquired, it must be released using
+     * {@link #unlock()}.
+     *
+     * @since 7.7.24
+     * @return <code>true</code> if the lock was acquired, <code>false</code>
+     *         otherwise
+     * @throws UIDetachedException
+     *             if the UI is not attached to a session
+     *
+     * @see #lock()
+     */
+    public boolean tryLock() {
+        VaadinSession session = getSession();
+        if (session == null) {
+            throw new UIDetachedException();
+        }
+        try {
+            // tryLock() would be shorter, but it does not guarantee fairness
+            if (!session.getService().isUILockingEnabled()) {
+                return session.getLockInstance().tryLock(0, TimeUnit.SECONDS);
+            }
+            ReentrantReadWriteLock accessLock = session.getUIAccessLock();
+            if (accessLock.getReadHoldCount() > 0
+                    && !lock.isHeldByCurrentThread()
+                    && !accessLock.isWriteLockedByCurrentThread()) {
+                // Would be refused by lock()
+                return false;
+            }
+            if (!accessLock.readLock().tryLock(0, TimeUnit.SECONDS)) {
+                return false;
+            }
+            if (!lock.tryLock(0, TimeUnit.SECONDS)) {
+                accessLock.readLock().unlock();
+                return false;
+            }
+            if (lock.getHoldCount() == 1) {
+                lockedSession = session;
+            }
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Releases the lock of this UI acquired using {@link #lock()}. When the
+     * lock is ultimately released, pending {@link #access(Runnable) access
+     * tasks} are run and changes are pushed to the client if automatic push is
+     * enabled.
+     *
+     * @since 7.7.24
+     * @see #lock()
+     * @see VaadinSession#unlock()
+     */
+    public void unlock() {
+        if (!lock.isHeldByCurrentThread()) {
+            // Locked as the session
+            VaadinSession session = getSession();
+            if (session == null) {
+                throw new UIDetachedException();
+            }
+            session.unlock();
+            return;
+        }
+
+        VaadinSession session = lockedSession;
+        VaadinService service = session.getService();
+        boolean ultimateRelease = false;
+        List<UI> otherUIsWithPendingAccess = null;
+        try {
+            if (lock.getHoldCount() == 1) {
+                ultimateRelease = true;
+                service.runPendingAccessTasks(this);
+
+                if (getSession() != null && getPushConfiguration()
+                        .getPushMode() == PushMode.AUTOMATIC) {
+                    Map<Class<?>, CurrentInstance> oldCurrent = CurrentInstance
+                            .setCurrent(this);
+                    try {
+                        push();
+                    } finally {
+                        CurrentInstance.restoreInstances(oldCurrent);
+                    }
+                }
+                try {
+                    getConnectorTracker().cleanConnectorMap();
+                } catch (Exception e) {
+                    getLogger().log(Level.SEVERE,
+                            "Exception while cleaning connector map for ui "
+                                    + getUIId(),
+                            e);
+                } catch (AssertionError e) {
+                    getLogger().log(Level.SEVERE,
+                            "Exception while cleaning connector map for ui "
+                                    + getUIId(),
+                            e);
+                }
+                /*
+                 * Tasks enqueued for other UIs by this thread could not be
+                 * run since this thread may not lock them. The UIs can't be
+                 * added or removed while the read lock is held.
+                 */
+                for (UI ui : session.getUIs()) {
+                    if (ui != this && !ui.getPendingAccessQueue().isEmpty()) {
+                        if (otherUIsWithPendingAccess == null) {
+                            otherUIsWithPendingAccess = new ArrayList<UI>();
+                        }
+                        otherUIsWithPendingAccess.add(ui);
+                    }
+                }
+                lockedSession = null;
+            }
+        } finally {
+            lock.unlock();
+            session.getUIAccessLock().readLock().unlock();
+        }
+
+        /*
+         * Tasks enqueued after purging but before releasing the lock would
+         * otherwise remain in the queue. Session tasks can't be run while a UI
+         * is locked, so they are run now that the UI lock is released.
+         */
+        if (ultimateRelease) {
+            if (!pendingAccessQueue.isEmpty() && getSession() != null) {
+                service.ensureAccessQueuePurged(this);
+            }
+            if (!session.getPendingAccessQueue().isEmpty()) {
+                service.ensureAccessQueuePurged(session);
+            }
+            if (otherUIsWithPendingAccess != null) {
+                for (UI ui : otherUIsWithPendingAccess) {
+                    service.ensureAccessQueuePurged(ui);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the lock of this UI that is used if
+     * {@link VaadinService#isUILockingEnabled() UI locking} is enabled.
+     * <p>
+     * This is meant for framework internal use.
+     *
+     * @since 7.7.24
+     * @return the UI lock, not <code>null</code>
+     */
+    public ReentrantLock getLockInstance() {
+        return lock;
+    }
+
+    /**
+     * Gets the queue of tasks submitted using {@link #access(Runnable)} when
+     * {@link VaadinService#isUILockingEnabled() UI locking} is enabled. It is
+     * safe to call this method and access the returned queue without holding
+     * the lock of this UI.
+     *
+     * @since 7.7.24
+     * @return the queue of pending access tasks
+     */
+    public Queue<FutureAccess> getPendingAccessQueue() {
+        return pendingAccessQueue;
     }
 
     /**
@@ -1540,7 +1808,7 @@ public abstract class UI extends AbstractSingleComponentContainer
         if (session == null) {
             throw new UIDetachedException("Cannot push a detached UI");
         }
-        assert session.hasLock();
+        assert session.hasUILock();
 
         if (!getPushConfiguration().getPushMode().isEnabled()) {
             throw new IllegalStateException("Push not enabled");
@@ -1552,7 +1820,7 @@ public abstract class UI extends AbstractSingleComponentContainer
          * when the push would otherwise be ignored because there are no changes
          * to push.
          */
-        session.getService().runPendingAccessTasks(session);
+        runPendingAccessTasks(session);
 
         if (!getConnectorTracker().hasDirtyConnectors()) {
             // Do not push if there is nothing to push
@@ -1704,6 +1972,12 @@ public abstract class UI extends AbstractSingleComponentContainer
         return localeService;
     }
 
+    private void readObject(ObjectInputStream stream)
+            throws IOException, ClassNotFoundException {
+        stream.defaultReadObject();
+        pendingAccessQueue = new ConcurrentLinkedQueue<FutureAccess>();
+    }
+
     private static Logger getLogger() {
         return Logger.getLogger(UI.class.getName());
     }
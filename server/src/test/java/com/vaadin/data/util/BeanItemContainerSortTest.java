@@ -1,10 +1,12 @@
 package com.vaadin.data.util;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import org.junit.Assert;
@@ -45,6 +47,28 @@ public class BeanItemContainerSortTest {
         }
     }
 
+    public static class CountingPerson {
+        private static int getterCalls = 0;
+
+        private final Integer age;
+        private final String name;
+
+        public CountingPerson(Integer age, String name) {
+            this.age = age;
+            this.name = name;
+        }
+
+        public Integer getAge() {
+            getterCalls++;
+            return age;
+        }
+
+        public String getName() {
+            getterCalls++;
+            return name;
+        }
+    }
+
     String[] names = new String[] { "Antti", "Ville", "Sirkka", "Jaakko",
             "Pekka", "John" };
     int[] ages = new int[] { 10, 20, 50, 12, 64, 67 };
@@ -163,4 +187,27 @@ public class BeanItemContainerSortTest {
         Assert.assertTrue(sortablePropertyIds.contains("age"));
     }
 
+    @Test
+    public void bulkSort_sameOrderAsComparator_valuesReadOnce() {
+        BeanItemContainer<CountingPerson> container = new BeanItemContainer<CountingPerson>(
+                CountingPerson.class);
+        Random random = new Random(3);
+        for (int i = 0; i < 1000; i++) {
+            Integer age = random.nextInt(10) == 0 ? null : random.nextInt(20);
+            container.addBean(new CountingPerson(age, names[i % 3]));
+        }
+        List<CountingPerson> expected = new ArrayList<CountingPerson>(
+                container.getItemIds());
+        DefaultItemSorter sorter = new DefaultItemSorter();
+        sorter.setSortProperties(container, new Object[] { "age", "name" },
+                new boolean[] { false, true });
+        Collections.sort(expected, sorter);
+
+        CountingPerson.getterCalls = 0;
+        container.sort(new Object[] { "age", "name" },
+                new boolean[] { false, true });
+        Assert.assertEquals(expected, container.getItemIds());
+        Assert.assertEquals(2 * container.size(), CountingPerson.getterCalls);
+    }
+
 }
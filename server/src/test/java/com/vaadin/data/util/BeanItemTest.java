@@ -423,4 +423,45 @@ public class BeanItemTest {
         beanItem.setBean(null);
     }
 
+    @Test
+    public void testPropertyCreatedOnlyOnce() {
+        BeanItem<MyClass> beanItem = new BeanItem<BeanItemTest.MyClass>(
+                new MyClass("Foo"));
+        Property<?> property = beanItem.getItemProperty("name");
+        Assert.assertSame(property, beanItem.getItemProperty("name"));
+        Assert.assertNull(beanItem.getItemProperty("unknown"));
+    }
+
+    @Test
+    public void testChangeBeanCreatedAndUncreatedProperties() {
+        BeanItem<MyClass> beanItem = new BeanItem<BeanItemTest.MyClass>(
+                new MyClass("Foo"));
+        Property<?> name = beanItem.getItemProperty("name");
+        beanItem.setBean(new MyClass("Bar"));
+        Assert.assertSame(name, beanItem.getItemProperty("name"));
+        Assert.assertEquals("Bar", name.getValue());
+        Assert.assertEquals("Bar",
+                beanItem.getItemProperty("name2").getValue());
+    }
+
+    @Test
+    public void testRemoveUncreatedProperty() {
+        BeanItem<MyClass> beanItem = new BeanItem<BeanItemTest.MyClass>(
+                new MyClass("Foo"));
+        Assert.assertTrue(beanItem.removeItemProperty("name"));
+        Assert.assertFalse(beanItem.getItemPropertyIds().contains("name"));
+        Assert.assertNull(beanItem.getItemProperty("name"));
+        Assert.assertFalse(beanItem.removeItemProperty("name"));
+    }
+
+    @Test
+    public void testItemsOfDifferentBeansNotEqual() {
+        BeanItem<MyClass> item1 = new BeanItem<BeanItemTest.MyClass>(
+                new MyClass("Foo"));
+        BeanItem<MyClass> item2 = new BeanItem<BeanItemTest.MyClass>(
+                new MyClass("Foo"));
+        Assert.assertFalse(item1.equals(item2));
+        Assert.assertEquals(item1, item1);
+    }
+
 }
@@ -0,0 +1,261 @@
+package com.vaadin.data.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.data.Container;
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.Item;
+import com.vaadin.data.util.filter.And;
+import com.vaadin.data.util.filter.Between;
+import com.vaadin.data.util.filter.Compare;
+import com.vaadin.data.util.filter.IsNull;
+import com.vaadin.data.util.filter.Not;
+import com.vaadin.data.util.filter.Or;
+import com.vaadin.data.util.filter.SimpleStringFilter;
+
+public class ColumnarContainerTest extends AbstractInMemoryContainerTestBase {
+
+    private static final String[] NAMES = { "Anna", "anders", "Bert",
+            "bertil", "Cecilia", null };
+
+    @Test
+    public void testBasicOperations() {
+        testBasicContainerOperations(new ColumnarContainer());
+    }
+
+    @Test
+    public void testFiltering() {
+        testContainerFiltering(new ColumnarContainer());
+    }
+
+    @Test
+    public void testSorting() {
+        testContainerSorting(new ColumnarContainer());
+    }
+
+    @Test
+    public void testSortingAndFiltering() {
+        testContainerSortingAndFiltering(new ColumnarContainer());
+    }
+
+    @Test
+    public void testContainerOrdered() {
+        testContainerOrdered(new ColumnarContainer());
+    }
+
+    @Test
+    public void testContainerIndexed() {
+        testContainerIndexed(new ColumnarContainer(), sampleData[2], 2, true,
+                "newItemId", true);
+    }
+
+    private static void fill(Container container, int size, long seed) {
+        container.addContainerProperty("name", String.class, null);
+        container.addContainerProperty("int", Integer.class, null);
+        container.addContainerProperty("long", Long.class, null);
+        container.addContainerProperty("double", Double.class, null);
+        container.addContainerProperty("boolean", Boolean.class, null);
+        Random random = new Random(seed);
+        for (int i = 0; i < size; i++) {
+            Item item = container.addItem(i);
+            item.getItemProperty("name")
+                    .setValue(NAMES[random.nextInt(NAMES.length)]);
+            if (random.nextInt(10) != 0) {
+                item.getItemProperty("int").setValue(random.nextInt(50) - 25);
+                item.getItemProperty("long").setValue(random.nextLong());
+                item.getItemProperty("double")
+                        .setValue(random.nextInt(10) / 3.0);
+                item.getItemProperty("boolean").setValue(random.nextBoolean());
+            }
+        }
+    }
+
+    private static ColumnarContainer createColumnar(int size) {
+        ColumnarContainer container = new ColumnarContainer();
+        fill(container, size, 42);
+        return container;
+    }
+
+    private static IndexedContainer createIndexed(int size) {
+        IndexedContainer container = new IndexedContainer();
+        fill(container, size, 42);
+        return container;
+    }
+
+    @Test
+    public void values_sameAsStored() {
+        ColumnarContainer columnar = createColumnar(200);
+        IndexedContainer indexed = createIndexed(200);
+        for (Object itemId : indexed.getItemIds()) {
+            for (Object propertyId : indexed.getContainerPropertyIds()) {
+                Assert.assertEquals(
+                        indexed.getContainerProperty(itemId, propertyId)
+                                .getValue(),
+                        columnar.getContainerProperty(itemId, propertyId)
+                                .getValue());
+            }
+        }
+    }
+
+    @Test
+    public void sort_sameOrderAsIndexedContainer() {
+        ColumnarContainer columnar = createColumnar(500);
+        IndexedContainer indexed = createIndexed(500);
+        Object[][] sorts = { { "name" }, { "int" }, { "double", "name" },
+                { "boolean", "int" }, { "long" } };
+        for (Object[] sort : sorts) {
+            for (boolean ascending : new boolean[] { true, false }) {
+                boolean[] directions = new boolean[sort.length];
+                Arrays.fill(directions, ascending);
+                columnar.sort(sort, directions);
+                indexed.sort(sort, directions);
+                Assert.assertEquals(indexed.getItemIds(),
+                        columnar.getItemIds());
+            }
+        }
+    }
+
+    @Test
+    public void filter_sameResultAsIndexedContainer() {
+        ColumnarContainer columnar = createColumnar(500);
+        IndexedContainer indexed = createIndexed(500);
+        Filter[] filters = { new Compare.Equal("int", 3),
+                new Compare.Greater("int", 0), new Compare.LessOrEqual("int", 0),
+                new Compare.GreaterOrEqual("double", 1.0),
+                new Compare.Less("name", "B"), new Compare.Equal("boolean", true),
+                new Compare.Equal("int", 3L), new IsNull("long"),
+                new SimpleStringFilter("name", "an", true, true),
+                new SimpleStringFilter("name", "ert", false, false),
+                new SimpleStringFilter("int", "1", false, false),
+                new Between("int", -5, 5),
+                new And(new Compare.Greater("int", 0),
+                        new Not(new SimpleStringFilter("name", "a", true,
+                                false))),
+                new Or(new IsNull("name"), new Compare.Less("double", 1.0)) };
+        for (Filter filter : filters) {
+            columnar.addContainerFilter(filter);
+            indexed.addContainerFilter(filter);
+            Assert.assertEquals(filter.toString(), indexed.getItemIds(),
+                    columnar.getItemIds());
+            columnar.removeAllContainerFilters();
+            indexed.removeAllContainerFilters();
+        }
+    }
+
+    @Test
+    public void removeItems_valuesOfOtherItemsKept() {
+        ColumnarContainer columnar = createColumnar(100);
+        IndexedContainer indexed = createIndexed(100);
+        Random random = new Random(1);
+        for (int i = 0; i < 50; i++) {
+            Object itemId = random.nextInt(100);
+            Assert.assertEquals(indexed.removeItem(itemId),
+                    columnar.removeItem(itemId));
+        }
+        Assert.assertEquals(indexed.getItemIds(), columnar.getItemIds());
+        for (Object itemId : indexed.getItemIds()) {
+            for (Object propertyId : indexed.getContainerPropertyIds()) {
+                Assert.assertEquals(
+                        indexed.getContainerProperty(itemId, propertyId)
+                                .getValue(),
+                        columnar.getContainerProperty(itemId, propertyId)
+                                .getValue());
+            }
+        }
+
+        Item item = columnar.addItem("new");
+        for (Object propertyId : columnar.getContainerPropertyIds()) {
+            Assert.assertNull(item.getItemProperty(propertyId).getValue());
+        }
+    }
+
+    @Test
+    public void changeAndRemoveStrings_unusedValuesReused() {
+        ColumnarContainer columnar = createColumnar(100);
+        IndexedContainer indexed = createIndexed(100);
+        Random random = new Random(3);
+        for (int i = 0; i < 1000; i++) {
+            Object itemId = random.nextInt(100);
+            String value = random.nextInt(5) == 0 ? null
+                    : "value" + random.nextInt(300);
+            if (indexed.containsId(itemId)) {
+                indexed.getContainerProperty(itemId, "name").setValue(value);
+                columnar.getContainerProperty(itemId, "name").setValue(value);
+            }
+            if (i % 20 == 0) {
+                indexed.removeItem(itemId);
+                columnar.removeItem(itemId);
+            }
+        }
+
+        columnar.sort(new Object[] { "name" }, new boolean[] { true });
+        indexed.sort(new Object[] { "name" }, new boolean[] { true });
+        Assert.assertEquals(indexed.getItemIds(), columnar.getItemIds());
+
+        Filter filter = new SimpleStringFilter("name", "value1", false, true);
+        columnar.addContainerFilter(filter);
+        indexed.addContainerFilter(filter);
+        Assert.assertEquals(indexed.getItemIds(), columnar.getItemIds());
+    }
+
+    @Test
+    public void defaultValues_setForExistingAndNewItems() {
+        ColumnarContainer container = new ColumnarContainer();
+        container.addItem("a");
+        container.addContainerProperty("count", int.class, 7);
+        container.addItem("b");
+        Assert.assertEquals(7, container.getContainerProperty("a", "count")
+                .getValue());
+        Assert.assertEquals(7, container.getContainerProperty("b", "count")
+                .getValue());
+        Assert.assertEquals(int.class, container.getType("count"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setValue_wrongType_throws() {
+        ColumnarContainer container = createColumnar(1);
+        container.getContainerProperty(0, "int").setValue("1");
+    }
+
+    @Test
+    public void removeAllItems_containerReusable() {
+        ColumnarContainer container = createColumnar(50);
+        container.removeAllItems();
+        Assert.assertEquals(0, container.size());
+        fillAgain(container);
+        Assert.assertEquals("Bert",
+                container.getContainerProperty("x", "name").getValue());
+    }
+
+    private static void fillAgain(ColumnarContainer container) {
+        Item item = container.addItem("x");
+        item.getItemProperty("name").setValue("Bert");
+        item.getItemProperty("int").setValue(1);
+    }
+
+    @Test
+    public void customItemSorter_used() {
+        ColumnarContainer container = createColumnar(100);
+        IndexedContainer indexed = createIndexed(100);
+        container.setItemSorter(new DefaultItemSorter());
+        container.sort(new Object[] { "name", "int" },
+                new boolean[] { false, true });
+        indexed.sort(new Object[] { "name", "int" },
+                new boolean[] { false, true });
+        Assert.assertEquals(indexed.getItemIds(), container.getItemIds());
+
+        container.setItemSorter(null);
+        Assert.assertFalse(
+                container.getItemSorter() instanceof DefaultItemSorter);
+        List<Object> before = new ArrayList<Object>(container.getItemIds());
+        container.sort(new Object[] { "name", "int" },
+                new boolean[] { false, true });
+        Assert.assertEquals(before, container.getItemIds());
+    }
+}
@@ -4,6 +4,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.easymock.Capture;
@@ -12,9 +14,12 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import com.vaadin.data.Container.Indexed.ItemAddEvent;
+import com.vaadin.data.Container.Indexed.ItemRangesRemoveEvent;
 import com.vaadin.data.Container.Indexed.ItemRemoveEvent;
+import com.vaadin.data.Container.ItemSetChangeEvent;
 import com.vaadin.data.Container.ItemSetChangeListener;
 import com.vaadin.data.Item;
+import com.vaadin.data.util.filter.SimpleStringFilter;
 
 public class IndexedContainerTest extends AbstractInMemoryContainerTestBase {
 
@@ -530,4 +535,72 @@ public class IndexedContainerTest extends AbstractInMemoryContainerTestBase {
         ic.addItem(object1);
         assertNull(ic.getContainerProperty(object1, null));
     }
+
+    private IndexedContainer createNameContainer(String... names) {
+        IndexedContainer ic = new IndexedContainer();
+        ic.addContainerProperty("name", String.class, null);
+        for (int i = 0; i < names.length; i++) {
+            ic.addItem(i).getItemProperty("name").setValue(names[i]);
+        }
+        return ic;
+    }
+
+    private List<ItemSetChangeEvent> collectEvents(IndexedContainer ic) {
+        final List<ItemSetChangeEvent> events = new ArrayList<ItemSetChangeEvent>();
+        ic.addItemSetChangeListener(new ItemSetChangeListener() {
+            @Override
+            public void containerItemSetChange(ItemSetChangeEvent event) {
+                events.add(event);
+            }
+        });
+        return events;
+    }
+
+    @Test
+    public void addFilter_narrowing_removedRangesReported() {
+        IndexedContainer ic = createNameContainer("ab", "abc", "x", "abd",
+                "y", "z", "abe");
+        ic.addContainerFilter(new SimpleStringFilter("name", "a", false, false));
+        List<ItemSetChangeEvent> events = collectEvents(ic);
+
+        ic.addContainerFilter(new SimpleStringFilter("name", "ab", false, true));
+        Assert.assertTrue(events.isEmpty());
+
+        ic.addContainerFilter(new SimpleStringFilter("name", "c", false, false));
+        Assert.assertEquals(Arrays.asList(1), ic.getItemIds());
+        Assert.assertEquals(1, events.size());
+        ItemRangesRemoveEvent event = (ItemRangesRemoveEvent) events.get(0);
+        Assert.assertArrayEquals(new int[] { 0, 2 }, event.getFirstIndexes());
+        Assert.assertArrayEquals(new int[] { 1, 2 },
+                event.getRemovedItemsCounts());
+    }
+
+    @Test
+    public void replaceContainerFilter_longerPrefix_onlyRemovesItems() {
+        IndexedContainer ic = createNameContainer("Anna", "Anders", "Bert",
+                "Annika", "anna");
+        SimpleStringFilter filter = new SimpleStringFilter("name", "an", true,
+                true);
+        ic.addContainerFilter(filter);
+        Assert.assertEquals(Arrays.asList(0, 1, 3, 4), ic.getItemIds());
+        List<ItemSetChangeEvent> events = collectEvents(ic);
+
+        SimpleStringFilter longer = new SimpleStringFilter("name", "ann", true,
+                true);
+        ic.replaceContainerFilter(filter, longer);
+        Assert.assertEquals(Arrays.asList(0, 3, 4), ic.getItemIds());
+        Assert.assertEquals(1, events.size());
+        ItemRemoveEvent event = (ItemRemoveEvent) events.get(0);
+        Assert.assertEquals(1, event.getFirstIndex());
+        Assert.assertEquals(1, event.getRemovedItemsCount());
+        Assert.assertEquals(1, event.getFirstItemId());
+
+        // a shorter filter string shows more items again
+        ic.replaceContainerFilter(longer,
+                new SimpleStringFilter("name", "a", true, true));
+        Assert.assertEquals(Arrays.asList(0, 1, 3, 4), ic.getItemIds());
+        Assert.assertEquals(2, events.size());
+        Assert.assertFalse(events.get(1) instanceof ItemRemoveEvent);
+        Assert.assertEquals(1, ic.getContainerFilters().size());
+    }
 }
@@ -0,0 +1,161 @@
+package com.vaadin.data.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.data.Container;
+import com.vaadin.data.Container.ItemChangeEvent;
+import com.vaadin.data.Container.ItemChangeListener;
+import com.vaadin.data.Container.ItemChangeNotifier;
+import com.vaadin.data.Property.ValueChangeEvent;
+import com.vaadin.data.Property.ValueChangeListener;
+
+public class ItemChangeNotifierTest {
+
+    public static class Address {
+        private String city = "Turku";
+
+        public String getCity() {
+            return city;
+        }
+
+        public void setCity(String city) {
+            this.city = city;
+        }
+    }
+
+    public static class Person {
+        private String name;
+        private int age;
+        private Address address = new Address();
+
+        public Person(String name, int age) {
+            this.name = name;
+            this.age = age;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+
+        public Address getAddress() {
+            return address;
+        }
+
+        public void setAddress(Address address) {
+            this.address = address;
+        }
+    }
+
+    private static class RecordingListener implements ItemChangeListener {
+        private final List<Object> itemIds = new ArrayList<Object>();
+
+        @Override
+        public void containerItemChange(ItemChangeEvent event) {
+            itemIds.add(event.getItemId());
+        }
+    }
+
+    private void assertItemChanges(Container container) {
+        container.addContainerProperty("name", String.class, null);
+        container.addItem("a");
+        container.addItem("b");
+
+        RecordingListener listener = new RecordingListener();
+        ((ItemChangeNotifier) container).addItemChangeListener(listener);
+        container.getContainerProperty("b", "name").setValue("Bert");
+        container.getItem("a").getItemProperty("name").setValue("Anna");
+        Assert.assertEquals(Arrays.asList("b", "a"), listener.itemIds);
+
+        ((ItemChangeNotifier) container).removeItemChangeListener(listener);
+        container.getContainerProperty("a", "name").setValue("Bert");
+        Assert.assertEquals(2, listener.itemIds.size());
+    }
+
+    @Test
+    public void indexedContainer_valueChange_itemChangeSent() {
+        assertItemChanges(new IndexedContainer());
+    }
+
+    @Test
+    public void hierarchicalContainer_valueChange_itemChangeSent() {
+        assertItemChanges(new HierarchicalContainer());
+    }
+
+    @Test
+    public void columnarContainer_valueChange_itemChangeSent() {
+        assertItemChanges(new ColumnarContainer());
+    }
+
+    @Test
+    public void beanItemContainer_valueChange_itemChangeSent() {
+        BeanItemContainer<Person> container = new BeanItemContainer<Person>(
+                Person.class);
+        Person anna = new Person("Anna", 30);
+        Person bert = new Person("Bert", 40);
+        container.addBean(anna);
+
+        RecordingListener listener = new RecordingListener();
+        container.addItemChangeListener(listener);
+        container.addBean(bert);
+        container.getContainerProperty(bert, "age").setValue(41);
+        container.getContainerProperty(anna, "name").setValue("Annie");
+        Assert.assertEquals(Arrays.asList(bert, anna), listener.itemIds);
+
+        BeanItem<Person> item = container.getItem(anna);
+        container.removeItem(anna);
+        item.getItemProperty("age").setValue(31);
+        Assert.assertEquals(2, listener.itemIds.size());
+
+        container.removeItemChangeListener(listener);
+        container.getContainerProperty(bert, "name").setValue("Bertil");
+        Assert.assertEquals(2, listener.itemIds.size());
+    }
+
+    @Test
+    public void beanItemContainer_nestedProperty_itemChangeSent() {
+        BeanContainer<String, Person> container = new BeanContainer<String, Person>(
+                Person.class);
+        container.addItem("a", new Person("Anna", 30));
+        RecordingListener listener = new RecordingListener();
+        container.addItemChangeListener(listener);
+        container.addNestedContainerProperty("address.city");
+        container.getContainerProperty("a", "address.city").setValue("Oulu");
+        Assert.assertEquals(Arrays.asList("a"), listener.itemIds);
+    }
+
+    @Test
+    public void beanItem_propertyChangeListener_onlyCreatedProperties() {
+        BeanItem<Person> item = new BeanItem<Person>(new Person("Anna", 30));
+        final List<Object> changes = new ArrayList<Object>();
+        item.setPropertyChangeListener(new ValueChangeListener() {
+            @Override
+            public void valueChange(ValueChangeEvent event) {
+                changes.add(event.getProperty().getValue());
+            }
+        });
+        Assert.assertNull(item.getCreatedItemProperty("age"));
+        item.getItemProperty("age").setValue(31);
+        Assert.assertEquals(Arrays.<Object> asList(31), changes);
+
+        item.setPropertyChangeListener(null);
+        item.getItemProperty("age").setValue(32);
+        Assert.assertEquals(1, changes.size());
+    }
+}
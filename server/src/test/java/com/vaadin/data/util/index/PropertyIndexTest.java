@@ -0,0 +1,244 @@
+package com.vaadin.data.util.index;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.Container.Filter;
+import com.vaadin.data.Item;
+import com.vaadin.data.util.BeanItemContainer;
+import com.vaadin.data.util.IndexedContainer;
+import com.vaadin.data.util.filter.And;
+import com.vaadin.data.util.filter.Between;
+import com.vaadin.data.util.filter.Compare;
+import com.vaadin.data.util.filter.IsNull;
+import com.vaadin.data.util.filter.Like;
+import com.vaadin.data.util.filter.Not;
+import com.vaadin.data.util.filter.Or;
+import com.vaadin.data.util.filter.SimpleStringFilter;
+
+public class PropertyIndexTest {
+
+    private static final String NAME = "name";
+    private static final String AGE = "age";
+    private static final String PRICE = "price";
+
+    private static final String[] NAMES = { "Anna", "anders", "Bert",
+            "bertil", "Cecilia", "Åsa", "Anna-Lena", null };
+
+    public static class Person {
+        private String name;
+        private Integer age;
+
+        public Person(String name, Integer age) {
+            this.name = name;
+            this.age = age;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Integer getAge() {
+            return age;
+        }
+
+        public void setAge(Integer age) {
+            this.age = age;
+        }
+    }
+
+    private IndexedContainer plain;
+    private IndexedContainer indexed;
+
+    @Before
+    public void setUp() {
+        plain = createContainer();
+        indexed = createContainer();
+        indexed.addContainerIndex(new PrefixPropertyIndex(NAME));
+        indexed.addContainerIndex(new HashPropertyIndex(NAME));
+        indexed.addContainerIndex(new SortedPropertyIndex(AGE));
+        indexed.addContainerIndex(new HashPropertyIndex(PRICE));
+    }
+
+    private IndexedContainer createContainer() {
+        IndexedContainer container = new IndexedContainer();
+        container.addContainerProperty(NAME, String.class, null);
+        container.addContainerProperty(AGE, Integer.class, null);
+        container.addContainerProperty(PRICE, BigDecimal.class, null);
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            Item item = container.addItem(i);
+            item.getItemProperty(NAME)
+                    .setValue(NAMES[random.nextInt(NAMES.length)]);
+            if (random.nextInt(10) != 0) {
+                item.getItemProperty(AGE).setValue(random.nextInt(100));
+            }
+            item.getItemProperty(PRICE)
+                    .setValue(new BigDecimal(random.nextInt(5)).setScale(
+                            random.nextInt(3)));
+        }
+        return container;
+    }
+
+    private void assertSameResult(Filter... filters) {
+        for (Filter filter : filters) {
+            plain.addContainerFilter(filter);
+            indexed.addContainerFilter(filter);
+        }
+        Assert.assertEquals(plain.getItemIds(), indexed.getItemIds());
+        plain.removeAllContainerFilters();
+        indexed.removeAllContainerFilters();
+    }
+
+    @Test
+    public void filtering_sameResultAsWithoutIndexes() {
+        assertSameResult(new Compare.Equal(NAME, "Bert"));
+        assertSameResult(new IsNull(NAME));
+        assertSameResult(new SimpleStringFilter(NAME, "an", true, true));
+        assertSameResult(new SimpleStringFilter(NAME, "An", false, true));
+        assertSameResult(new SimpleStringFilter(NAME, "å", true, true));
+        assertSameResult(new Like(NAME, "ber%", false));
+        assertSameResult(new Like(NAME, "Anna%"));
+        assertSameResult(new Like(NAME, "A%a"));
+        assertSameResult(new Like(NAME, "A.n%"));
+        assertSameResult(new Compare.Greater(AGE, 50));
+        assertSameResult(new Compare.GreaterOrEqual(AGE, 50));
+        assertSameResult(new Compare.Less(AGE, 50));
+        assertSameResult(new Compare.LessOrEqual(AGE, 50));
+        assertSameResult(new Compare.Equal(AGE, 50));
+        assertSameResult(new Between(AGE, 10, 20));
+        assertSameResult(new Between(AGE, null, 20));
+        assertSameResult(new IsNull(AGE));
+        assertSameResult(new Compare.Equal(PRICE, new BigDecimal("2.00")));
+        assertSameResult(new Compare.Equal(PRICE, BigDecimal.ZERO));
+        assertSameResult(new Compare.Greater(AGE, 30),
+                new SimpleStringFilter(NAME, "b", true, true));
+        assertSameResult(new Or(new Compare.Less(AGE, 10),
+                new Compare.Equal(NAME, "Cecilia")));
+        assertSameResult(new Or(new Compare.Less(AGE, 10),
+                new SimpleStringFilter(NAME, "e", true, false)));
+        assertSameResult(new And(new Between(AGE, 20, 60),
+                new Not(new Compare.Equal(NAME, "Anna"))));
+    }
+
+    @Test
+    public void valueChanges_indexesUpdated() {
+        for (Object itemId : Arrays.asList(3, 7, 11)) {
+            plain.getContainerProperty(itemId, NAME).setValue("Zorro");
+            indexed.getContainerProperty(itemId, NAME).setValue("Zorro");
+        }
+        plain.getContainerProperty(5, AGE).setValue(null);
+        indexed.getContainerProperty(5, AGE).setValue(null);
+        assertSameResult(new Compare.Equal(NAME, "Zorro"));
+        assertSameResult(new IsNull(AGE));
+
+        Item item = indexed.getItem(8);
+        indexed.addContainerFilter(new Like(NAME, "Zo%"));
+        Assert.assertEquals(Arrays.asList(3, 7, 11), indexed.getItemIds());
+        indexed.getContainerProperty(7, NAME).setValue("Anna");
+        item.getItemProperty(NAME).setValue("Zorro");
+        Assert.assertEquals(Arrays.asList(3, 8, 11), indexed.getItemIds());
+    }
+
+    @Test
+    public void addAndRemoveItems_indexesUpdated() {
+        indexed.addContainerFilter(new Compare.Equal(NAME, "New"));
+        Assert.assertEquals(0, indexed.size());
+
+        Item item = indexed.addItemAt(0, "new");
+        item.getItemProperty(NAME).setValue("New");
+        Assert.assertEquals(Arrays.asList("new"), indexed.getItemIds());
+
+        indexed.removeItem("new");
+        Assert.assertEquals(0, indexed.size());
+        indexed.removeAllItems();
+        for (PropertyIndex index : indexed.getContainerIndexes()) {
+            Assert.assertEquals(0, index.size());
+        }
+    }
+
+    @Test
+    public void sortAndChangeItems_selectiveFilterKeepsContainerOrder() {
+        Filter filter = new Compare.Equal(NAME, "Bert");
+        assertSameResult(filter);
+
+        Object[] sortIds = { AGE, PRICE };
+        boolean[] ascending = { false, true };
+        plain.sort(sortIds, ascending);
+        indexed.sort(sortIds, ascending);
+        assertSameResult(filter);
+
+        for (Object itemId : Arrays.asList(plain.getIdByIndex(0),
+                plain.getIdByIndex(100), plain.getIdByIndex(200))) {
+            plain.removeItem(itemId);
+            indexed.removeItem(itemId);
+        }
+        plain.addItemAt(3, "new").getItemProperty(NAME).setValue("Bert");
+        indexed.addItemAt(3, "new").getItemProperty(NAME).setValue("Bert");
+        assertSameResult(filter);
+        assertSameResult(new Compare.Equal(AGE, 50));
+    }
+
+    @Test
+    public void removeProperty_indexRemoved() {
+        Assert.assertEquals(4, indexed.getContainerIndexes().size());
+        indexed.removeContainerProperty(NAME);
+        Assert.assertEquals(2, indexed.getContainerIndexes().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addIndex_unknownProperty_throws() {
+        indexed.addContainerIndex(new HashPropertyIndex("foo"));
+    }
+
+    @Test
+    public void sortedIndex_mixedTypes_notUsed() {
+        SortedPropertyIndex index = new SortedPropertyIndex(AGE);
+        index.add(1, 10);
+        index.add(2, 20L);
+        Assert.assertNull(index.findCandidates(new Compare.Less(AGE, 15)));
+
+        index.clear();
+        index.add(1, 10);
+        index.add(2, null);
+        Assert.assertEquals(1,
+                index.findCandidates(new Compare.Less(AGE, 15)).size());
+        // null is greater than any value in Compare
+        Assert.assertEquals(1,
+                index.findCandidates(new Compare.Greater(AGE, 15)).size());
+        Assert.assertNull(index.findCandidates(new Compare.Less(AGE, 15L)));
+    }
+
+    @Test
+    public void beanContainer_valueChanges_indexesUpdated() {
+        BeanItemContainer<Person> container = new BeanItemContainer<Person>(
+                Person.class);
+        Person anna = new Person("Anna", 30);
+        Person bert = new Person("Bert", 40);
+        container.addContainerFilter(new Compare.Greater(AGE, 35));
+        container.addBean(anna);
+        container.addContainerIndex(new SortedPropertyIndex(AGE));
+        container.addBean(bert);
+        Assert.assertEquals(Arrays.asList(bert), container.getItemIds());
+
+        container.getItem(anna).getItemProperty(AGE).setValue(50);
+        Assert.assertEquals(Arrays.asList(anna, bert),
+                container.getItemIds());
+        container.getItem(bert).getItemProperty(AGE).setValue(20);
+        Assert.assertEquals(Arrays.asList(anna), container.getItemIds());
+
+        container.removeItem(anna);
+        Assert.assertEquals(0, container.size());
+        Assert.assertEquals(1,
+                container.getContainerIndexes().iterator().next().size());
+    }
+}
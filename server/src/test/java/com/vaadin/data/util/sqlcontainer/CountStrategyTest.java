@@ -0,0 +1,156 @@
+package com.vaadin.data.util.sqlcontainer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.Container.ItemSetChangeEvent;
+import com.vaadin.data.Container.ItemSetChangeListener;
+import com.vaadin.data.util.filter.Like;
+import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.query.TableQuery;
+import com.vaadin.data.util.sqlcontainer.query.ValidatingSimpleJDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.query.generator.StatementHelper;
+import com.vaadin.util.CurrentInstance;
+
+public class CountStrategyTest {
+
+    private static class ManualExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<Runnable>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        private void runAll() {
+            List<Runnable> current = new ArrayList<Runnable>(tasks);
+            tasks.clear();
+            for (Runnable task : current) {
+                task.run();
+            }
+        }
+    }
+
+    private JDBCConnectionPool connectionPool;
+    private SQLContainer container;
+
+    @Before
+    public void setUp() throws SQLException {
+        // Refresh directly instead of through a session left by other tests
+        CurrentInstance.clearAll();
+        connectionPool = new ValidatingSimpleJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 2, 2);
+        DataGenerator.addPeopleToDatabase(connectionPool);
+        container = new SQLContainer(new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen));
+    }
+
+    @After
+    public void tearDown() {
+        if (connectionPool != null) {
+            connectionPool.destroy();
+        }
+    }
+
+    private void addPersonToDatabase() throws SQLException {
+        Connection conn = connectionPool.reserveConnection();
+        Statement statement = conn.createStatement();
+        statement.executeUpdate(
+                "insert into people values(default, 'Olle', '42')");
+        statement.close();
+        conn.commit();
+        connectionPool.releaseConnection(conn);
+    }
+
+    @Test
+    public void asynchronous_lastKnownSizeUntilCountCompletes()
+            throws SQLException {
+        ManualExecutor executor = new ManualExecutor();
+        AsynchronousCountStrategy strategy = new AsynchronousCountStrategy(
+                executor);
+        container.setCountStrategy(strategy);
+        Assert.assertEquals(4, container.size());
+        Assert.assertTrue(executor.tasks.isEmpty());
+
+        addPersonToDatabase();
+        container.refresh();
+        final List<ItemSetChangeEvent> events = new ArrayList<ItemSetChangeEvent>();
+        container.addItemSetChangeListener(new ItemSetChangeListener() {
+            @Override
+            public void containerItemSetChange(ItemSetChangeEvent event) {
+                events.add(event);
+            }
+        });
+
+        Assert.assertEquals(4, container.size());
+        Assert.assertTrue(strategy.isCounting());
+        Assert.assertEquals(1, executor.tasks.size());
+        // Count already running
+        container.refresh();
+        Assert.assertEquals(4, container.size());
+        Assert.assertEquals(1, executor.tasks.size());
+
+        executor.runAll();
+        Assert.assertFalse(strategy.isCounting());
+        Assert.assertFalse(events.isEmpty());
+        Assert.assertEquals(5, container.size());
+        Assert.assertTrue(executor.tasks.isEmpty());
+    }
+
+    @Test
+    public void asynchronous_outdatedCountIgnored() throws SQLException {
+        ManualExecutor executor = new ManualExecutor();
+        container.setCountStrategy(new AsynchronousCountStrategy(executor));
+        Assert.assertEquals(4, container.size());
+
+        addPersonToDatabase();
+        container.refresh();
+        Assert.assertEquals(4, container.size());
+        container.addContainerFilter(new Like("NAME", "K%"));
+        Assert.assertEquals(4, container.size());
+        Assert.assertEquals(2, executor.tasks.size());
+
+        executor.runAll();
+        Assert.assertEquals(1, container.size());
+    }
+
+    @Test
+    public void estimated_usesStatisticsWithoutFilters() throws SQLException {
+        container.setCountStrategy(new EstimatedCountStrategy() {
+            @Override
+            protected StatementHelper createEstimateStatement(
+                    String databaseProductName, TableQuery query) {
+                StatementHelper sh = new StatementHelper();
+                sh.setQueryString("SELECT 1000 FROM people WHERE name = ?");
+                sh.addParameterValue("Ville");
+                return sh;
+            }
+        });
+        Assert.assertEquals(1000, container.size());
+
+        container.addContainerFilter(new Like("NAME", "%lle"));
+        Assert.assertEquals(3, container.size());
+    }
+
+    @Test
+    public void estimated_noEstimate_fallbackUsed() throws SQLException {
+        container.setCountStrategy(new EstimatedCountStrategy() {
+            @Override
+            protected StatementHelper createEstimateStatement(
+                    String databaseProductName, TableQuery query) {
+                return null;
+            }
+        });
+        Assert.assertEquals(4, container.size());
+    }
+}
@@ -7,10 +7,12 @@ import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.math.BigDecimal;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
@@ -212,6 +214,62 @@ public class SQLContainerTableQueryTest {
                 is("Person 1337"));
     }
 
+    @Test
+    public void getIdByIndex_keysetPaging_sameIdsAsOffsetPaging()
+            throws SQLException {
+        DataGenerator.addFiveThousandPeople(connectionPool);
+        final List<RowItem> seekRows = new ArrayList<RowItem>();
+        TableQuery keysetQuery = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen) {
+            @Override
+            public ResultSet getResultsAfter(RowItem lastRow, int pagelength)
+                    throws SQLException {
+                seekRows.add(lastRow);
+                return super.getResultsAfter(lastRow, pagelength);
+            }
+        };
+        keysetQuery.setKeysetPagingEnabled(true);
+        SQLContainer keysetContainer = new SQLContainer(keysetQuery);
+        keysetContainer.setPageLength(50);
+        container.setPageLength(50);
+
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(container.getIdByIndex(i),
+                    keysetContainer.getIdByIndex(i));
+        }
+        assertFalse(seekRows.isEmpty());
+
+        // Sorting by a column other than the primary key uses offsets
+        seekRows.clear();
+        keysetContainer.sort(new Object[] { NAME }, new boolean[] { true });
+        container.sort(new Object[] { NAME }, new boolean[] { true });
+        for (int i = 0; i < 5000; i += 7) {
+            assertEquals(container.getIdByIndex(i),
+                    keysetContainer.getIdByIndex(i));
+        }
+        assertTrue(seekRows.isEmpty());
+    }
+
+    @Test
+    public void isKeysetPagingApplicable_nullableOrderingColumn_false()
+            throws SQLException {
+        TableQuery query = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        query.setKeysetPagingEnabled(true);
+        SQLContainer keysetContainer = new SQLContainer(query);
+        RowItem row = (RowItem) keysetContainer
+                .getItem(keysetContainer.getIdByIndex(0));
+        assertTrue(query.isKeysetPagingApplicable(row));
+
+        // NAME may be null, even if this row has a value for it
+        keysetContainer.sort(new Object[] { NAME, ID },
+                new boolean[] { true, true });
+        row = (RowItem) keysetContainer
+                .getItem(keysetContainer.getIdByIndex(0));
+        assertNotNull(row.getItemProperty(NAME).getValue());
+        assertFalse(query.isKeysetPagingApplicable(row));
+    }
+
     @Test
     public void getItemIds_table_returnsItemIdsWithKeys0through3()
             throws SQLException {
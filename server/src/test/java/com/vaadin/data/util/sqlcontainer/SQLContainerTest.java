@@ -5,6 +5,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.logging.Handler;
@@ -19,6 +20,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.vaadin.data.Container.Filter;
+import com.vaadin.data.Container.ItemChangeEvent;
+import com.vaadin.data.Container.ItemChangeListener;
 import com.vaadin.data.Container.ItemSetChangeEvent;
 import com.vaadin.data.Container.ItemSetChangeListener;
 import com.vaadin.data.Item;
@@ -743,6 +746,22 @@ public class SQLContainerTest {
                 container.getContainerProperty(id, "NAME").getValue());
     }
 
+    @Test
+    public void setValue_itemChangeListenerNotified() throws SQLException {
+        SQLContainer container = new SQLContainer(new FreeformQuery(
+                "SELECT * FROM people", connectionPool, "ID"));
+        final List<Object> changedItemIds = new ArrayList<Object>();
+        container.addItemChangeListener(new ItemChangeListener() {
+            @Override
+            public void containerItemChange(ItemChangeEvent event) {
+                changedItemIds.add(event.getItemId());
+            }
+        });
+        Object id = container.addItem();
+        container.getContainerProperty(id, "NAME").setValue("asdf");
+        Assert.assertEquals(Arrays.asList(id), changedItemIds);
+    }
+
     @Test
     public void containsId_freeformNewlyAddedItem_returnsTrue()
             throws SQLException {
@@ -0,0 +1,261 @@
+package com.vaadin.data.util.sqlcontainer;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Collections;
+
+import org.easymock.EasyMock;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.Item;
+import com.vaadin.data.util.filter.Like;
+import com.vaadin.data.util.sqlcontainer.connection.JDBCConnectionPool;
+import com.vaadin.data.util.sqlcontainer.query.TableQuery;
+import com.vaadin.data.util.sqlcontainer.query.ValidatingSimpleJDBCConnectionPool;
+
+public class SharedRowCacheTest {
+
+    private static final String NAME = "NAME";
+
+    private JDBCConnectionPool connectionPool;
+    private SharedRowCache sharedCache;
+
+    @Before
+    public void setUp() throws SQLException {
+        connectionPool = new ValidatingSimpleJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 2, 2);
+        DataGenerator.addPeopleToDatabase(connectionPool);
+        sharedCache = new SharedRowCache();
+    }
+
+    @After
+    public void tearDown() {
+        if (connectionPool != null) {
+            connectionPool.destroy();
+        }
+    }
+
+    private SQLContainer createContainer() throws SQLException {
+        SQLContainer container = new SQLContainer(new TableQuery("people",
+                connectionPool, SQLTestsConstants.sqlGen));
+        container.setSharedRowCache(sharedCache);
+        return container;
+    }
+
+    private RowId getRowId(int id) {
+        return new RowId(new Object[] { id + SQLTestsConstants.offset });
+    }
+
+    @Test
+    public void samePage_fetchedOnce_itemsNotShared() throws SQLException {
+        SQLContainer first = createContainer();
+        SQLContainer second = createContainer();
+
+        Item firstItem = first.getItem(getRowId(1));
+        Assert.assertEquals(0, sharedCache.getHitCount());
+        Assert.assertEquals(1, sharedCache.getMissCount());
+
+        Item secondItem = second.getItem(getRowId(1));
+        Assert.assertEquals(1, sharedCache.getHitCount());
+        Assert.assertEquals(1, sharedCache.getMissCount());
+
+        Assert.assertNotSame(firstItem, secondItem);
+        Assert.assertEquals("Kalle",
+                secondItem.getItemProperty(NAME).getValue());
+
+        firstItem.getItemProperty(NAME).setValue("Modified");
+        Assert.assertEquals("Kalle",
+                secondItem.getItemProperty(NAME).getValue());
+    }
+
+    @Test
+    public void differentFilters_differentPages() throws SQLException {
+        SQLContainer first = createContainer();
+        SQLContainer second = createContainer();
+        second.addContainerFilter(new Like(NAME, "%lle"));
+
+        first.getItem(getRowId(1));
+        second.getItem(getRowId(1));
+
+        Assert.assertEquals(0, sharedCache.getHitCount());
+        Assert.assertEquals(2, sharedCache.getPageCount());
+        Assert.assertEquals(3, second.size());
+    }
+
+    @Test
+    public void commit_invalidatesTable() throws SQLException {
+        SQLContainer first = createContainer();
+        SQLContainer second = createContainer();
+        first.getItem(getRowId(1));
+        Assert.assertEquals(1, sharedCache.getPageCount());
+
+        first.getItem(getRowId(1)).getItemProperty(NAME).setValue("Modified");
+        first.commit();
+        Assert.assertEquals(0, sharedCache.getPageCount());
+
+        Assert.assertEquals("Modified", second.getItem(getRowId(1))
+                .getItemProperty(NAME).getValue());
+    }
+
+    @Test
+    public void externalChange_visibleAfterInvalidate() throws SQLException {
+        SQLContainer first = createContainer();
+        first.getItem(getRowId(0));
+
+        Connection conn = connectionPool.reserveConnection();
+        Statement statement = conn.createStatement();
+        statement.executeUpdate("update people set name = 'Changed' where id = "
+                + getRowId(0).getId()[0]);
+        statement.close();
+        conn.commit();
+        connectionPool.releaseConnection(conn);
+
+        SQLContainer second = createContainer();
+        Assert.assertEquals("Ville", second.getItem(getRowId(0))
+                .getItemProperty(NAME).getValue());
+
+        sharedCache.invalidate("people");
+        second.refresh();
+        Assert.assertEquals("Changed", second.getItem(getRowId(0))
+                .getItemProperty(NAME).getValue());
+    }
+
+    @Test
+    public void invalidatedWhileFetching_pageNotAdded() throws SQLException {
+        TableQuery query = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        SharedRowCache.PageKey key = SharedRowCache.createKey(query, 0, 10);
+        long generation = sharedCache.getGeneration(key);
+        Assert.assertNull(sharedCache.get(key));
+
+        sharedCache.invalidate("people");
+        sharedCache.put(key, new SharedRowCache.Page(new String[0],
+                Collections.<RowId> emptyList(),
+                Collections.<Object[]> emptyList()), generation);
+        Assert.assertEquals(0, sharedCache.getPageCount());
+    }
+
+    @Test
+    public void keysetPage_notAdded() throws SQLException {
+        DataGenerator.addFiveThousandPeople(connectionPool);
+        TableQuery query = new TableQuery("people", connectionPool,
+                SQLTestsConstants.sqlGen);
+        query.setKeysetPagingEnabled(true);
+        SQLContainer first = new SQLContainer(query);
+        first.setSharedRowCache(sharedCache);
+        first.setPageLength(50);
+        SQLContainer second = createContainer();
+        second.setPageLength(50);
+
+        first.getIdByIndex(0);
+        Assert.assertEquals(1, sharedCache.getPageCount());
+        // The next page is fetched after the last cached row
+        Object id = first.getIdByIndex(200);
+        Assert.assertEquals(1, sharedCache.getPageCount());
+
+        Assert.assertEquals(id, second.getIdByIndex(200));
+        Assert.assertEquals(2, sharedCache.getPageCount());
+    }
+
+    @Test
+    public void differentConnectionPools_differentPages() throws SQLException {
+        JDBCConnectionPool otherPool = new ValidatingSimpleJDBCConnectionPool(
+                SQLTestsConstants.dbDriver, SQLTestsConstants.dbURL,
+                SQLTestsConstants.dbUser, SQLTestsConstants.dbPwd, 2, 2);
+        try {
+            SQLContainer first = createContainer();
+            SQLContainer second = new SQLContainer(new TableQuery("people",
+                    otherPool, SQLTestsConstants.sqlGen));
+            second.setSharedRowCache(sharedCache);
+
+            first.getItem(getRowId(1));
+            second.getItem(getRowId(1));
+            Assert.assertEquals(0, sharedCache.getHitCount());
+            Assert.assertEquals(2, sharedCache.getPageCount());
+        } finally {
+            otherPool.destroy();
+        }
+    }
+
+    @Test
+    public void commitWithoutSharedCache_invalidatesTable()
+            throws SQLException {
+        createContainer().getItem(getRowId(1));
+        Assert.assertEquals(1, sharedCache.getPageCount());
+
+        SQLContainer other = new SQLContainer(new TableQuery("people",
+                connectionPool, SQLTestsConstants.sqlGen));
+        other.getItem(getRowId(1)).getItemProperty(NAME).setValue("Modified");
+        other.commit();
+        Assert.assertEquals(0, sharedCache.getPageCount());
+    }
+
+    @Test
+    public void mutableValues_copied() {
+        Timestamp timestamp = new Timestamp(1000);
+        timestamp.setNanos(123456789);
+        Object copy = SharedRowCache.copyValue(timestamp);
+        Assert.assertNotSame(timestamp, copy);
+        Assert.assertEquals(timestamp, copy);
+
+        byte[] bytes = { 1, 2, 3 };
+        byte[] bytesCopy = (byte[]) SharedRowCache.copyValue(bytes);
+        Assert.assertNotSame(bytes, bytesCopy);
+        Assert.assertArrayEquals(bytes, bytesCopy);
+
+        String string = "immutable";
+        Assert.assertSame(string, SharedRowCache.copyValue(string));
+    }
+
+    @Test
+    public void evictedRow_fetchedAgain() throws SQLException {
+        SQLContainer container = new SQLContainer(new TableQuery("people",
+                connectionPool, SQLTestsConstants.sqlGen));
+        Assert.assertNotNull(container.getItem(getRowId(1)));
+
+        container.getRowCache().remove(getRowId(1));
+        Item item = container.getItem(getRowId(1));
+        Assert.assertNotNull(item);
+        Assert.assertEquals("Kalle", item.getItemProperty(NAME).getValue());
+    }
+
+    @Test
+    public void lruRowCache_evictsLeastRecentlyUsed() {
+        SQLContainer container = EasyMock.createNiceMock(SQLContainer.class);
+        LRURowCache cache = new LRURowCache();
+        cache.setCapacity(2);
+        RowItem item0 = createItem(container, 0);
+        RowItem item1 = createItem(container, 1);
+        cache.put(getRowId(0), item0);
+        cache.put(getRowId(1), item1);
+        Assert.assertSame(item0, cache.get(getRowId(0)));
+
+        cache.put(getRowId(2), createItem(container, 2));
+        Assert.assertTrue(cache.contains(getRowId(0)));
+        Assert.assertFalse(cache.contains(getRowId(1)));
+        Assert.assertTrue(cache.contains(getRowId(2)));
+    }
+
+    @Test
+    public void lruRowCache_expiredItemsRemoved() throws InterruptedException {
+        SQLContainer container = EasyMock.createNiceMock(SQLContainer.class);
+        LRURowCache cache = new LRURowCache(50);
+        cache.put(getRowId(0), createItem(container, 0));
+        Assert.assertFalse(cache.isEmpty());
+
+        Thread.sleep(100);
+        Assert.assertNull(cache.get(getRowId(0)));
+        Assert.assertTrue(cache.isEmpty());
+    }
+
+    private RowItem createItem(SQLContainer container, int id) {
+        return new RowItem(container, getRowId(id),
+                Collections.<ColumnProperty> emptyList());
+    }
+}
@@ -22,6 +22,7 @@ import com.vaadin.data.util.sqlcontainer.query.OrderBy;
 import com.vaadin.data.util.sqlcontainer.query.TableQuery;
 import com.vaadin.data.util.sqlcontainer.query.ValidatingSimpleJDBCConnectionPool;
 import com.vaadin.data.util.sqlcontainer.query.generator.DefaultSQLGenerator;
+import com.vaadin.data.util.sqlcontainer.query.generator.KeysetPagination;
 import com.vaadin.data.util.sqlcontainer.query.generator.MSSQLGenerator;
 import com.vaadin.data.util.sqlcontainer.query.generator.OracleGenerator;
 import com.vaadin.data.util.sqlcontainer.query.generator.SQLGenerator;
@@ -236,4 +237,26 @@ public class SQLGeneratorsTest {
                         + "OR \"name\" LIKE ?)) "
                         + "AS a WHERE a.rownum BETWEEN 5 AND 12");
     }
+
+    @Test
+    public void generateKeysetSelectQuery_mixedOrdering_shouldSucceed() {
+        SQLGenerator sg = new DefaultSQLGenerator();
+        List<OrderBy> ob = Arrays.asList(new OrderBy("AGE", true),
+                new OrderBy("NAME", false), new OrderBy("ID", true));
+        Assert.assertTrue(KeysetPagination.isApplicable(ob,
+                Arrays.asList("ID")));
+        Assert.assertFalse(KeysetPagination.isApplicable(ob.subList(0, 2),
+                Arrays.asList("ID")));
+
+        StatementHelper sh = KeysetPagination.generateSelectQuery(sg,
+                "TABLE", null, ob, new Object[] { 18, "Pelle", 2 }, 10,
+                null);
+        Assert.assertEquals("SELECT * FROM TABLE WHERE (\"AGE\" > ? OR "
+                + "(\"AGE\" = ? AND \"NAME\" < ?) OR "
+                + "(\"AGE\" = ? AND \"NAME\" = ? AND \"ID\" > ?)) "
+                + "ORDER BY \"AGE\" ASC, \"NAME\" DESC, \"ID\" ASC "
+                + "LIMIT 10 OFFSET 0", sh.getQueryString());
+        Assert.assertEquals(Arrays.<Object> asList(18, 18, "Pelle", 18,
+                "Pelle", 2), sh.getParameterValues());
+    }
 }
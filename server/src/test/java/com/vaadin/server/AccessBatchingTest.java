@@ -0,0 +1,148 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AccessBatchingTest {
+
+    private VaadinService service;
+    private VaadinSession session;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    private final Runnable increment = new Runnable() {
+        @Override
+        public void run() {
+            Assert.assertTrue(session.hasLock());
+            counter.incrementAndGet();
+        }
+    };
+
+    @Before
+    public void setup() throws Exception {
+        Properties initParameters = new Properties();
+        // Production mode to skip license checking
+        initParameters.setProperty("productionMode", "true");
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig(initParameters));
+        service = new VaadinServletService(servlet,
+                new DefaultDeploymentConfiguration(AccessBatchingTest.class,
+                        initParameters));
+        service.init();
+        session = new MockVaadinSession(service);
+    }
+
+    @After
+    public void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    public void noBatching_runImmediately() {
+        session.access(increment);
+        session.access(increment);
+
+        Assert.assertEquals(2, counter.get());
+        AccessQueueStatistics statistics = session.getAccessQueueStatistics();
+        Assert.assertEquals(2, statistics.getExecutedTaskCount());
+        Assert.assertEquals(2, statistics.getBatchCount());
+        Assert.assertEquals(0, statistics.getQueueDepth());
+    }
+
+    @Test
+    public void batchDelay_tasksCoalesced() throws Exception {
+        service.setAccessBatchDelay(200);
+
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(session.access(increment));
+        }
+        Assert.assertEquals(0, counter.get());
+        Assert.assertEquals(100,
+                session.getAccessQueueStatistics().getQueueDepth());
+
+        for (Future<Void> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals(100, counter.get());
+        AccessQueueStatistics statistics = session.getAccessQueueStatistics();
+        Assert.assertEquals(100, statistics.getExecutedTaskCount());
+        Assert.assertEquals(1, awaitBatchCount(1));
+        Assert.assertEquals(100, statistics.getMaxQueueDepth());
+        Assert.assertEquals(0, statistics.getQueueDepth());
+        Assert.assertTrue(statistics.getMaxWaitTime(TimeUnit.MILLISECONDS)
+                >= 100);
+    }
+
+    @Test
+    public void batchSize_remainingTasksRunInNewBatches() throws Exception {
+        service.setAccessBatchSize(10);
+
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        session.lock();
+        try {
+            for (int i = 0; i < 25; i++) {
+                futures.add(session.access(increment));
+            }
+            Assert.assertEquals(0, counter.get());
+        } finally {
+            session.unlock();
+        }
+
+        for (Future<Void> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals(25, counter.get());
+        Assert.assertEquals(3, awaitBatchCount(3));
+    }
+
+    private long awaitBatchCount(long expected) throws InterruptedException {
+        // A batch is completed after the futures of its tasks are done
+        AccessQueueStatistics statistics = session.getAccessQueueStatistics();
+        for (int i = 0; i < 100
+                && statistics.getBatchCount() < expected; i++) {
+            Thread.sleep(10);
+        }
+        return statistics.getBatchCount();
+    }
+
+    @Test
+    public void cancelledTask_notCountedAsExecuted() {
+        session.lock();
+        try {
+            session.access(increment).cancel(false);
+            session.access(increment);
+        } finally {
+            session.unlock();
+        }
+
+        Assert.assertEquals(1, counter.get());
+        AccessQueueStatistics statistics = session.getAccessQueueStatistics();
+        Assert.assertEquals(1, statistics.getExecutedTaskCount());
+        Assert.assertEquals(0, statistics.getQueueDepth());
+        Assert.assertEquals(2, statistics.getMaxQueueDepth());
+    }
+}
@@ -0,0 +1,110 @@
+package com.vaadin.server;
+
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+import javax.management.MBeanServer;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.communication.UidlRequestHandler;
+import com.vaadin.ui.Button;
+
+public class JmxServiceMetricsTest {
+
+    @Test
+    public void measurements_collected() {
+        JmxServiceMetrics metrics = new JmxServiceMetrics("test");
+        metrics.requestHandled(new UidlRequestHandler(), 2000000);
+        metrics.requestHandled(new UidlRequestHandler(), 4000000);
+        metrics.rpcInvoked(new Button(), 1000000);
+        metrics.responseWritten(null, 3, 100, 1000000);
+        metrics.responseWritten(null, 5, -1, 3000000);
+        metrics.uploadCompleted(1000, 500000000);
+
+        String handler = UidlRequestHandler.class.getName();
+        Assert.assertEquals(Long.valueOf(2),
+                metrics.getRequestCounts().get(handler));
+        Assert.assertEquals(3.0, metrics.getMeanRequestTimes().get(handler),
+                0.001);
+        Assert.assertEquals(4.0, metrics.getMaxRequestTimes().get(handler),
+                0.001);
+        Assert.assertEquals(Long.valueOf(1), metrics.getRpcInvocationCounts()
+                .get(Button.class.getName()));
+        Assert.assertEquals(2, metrics.getResponseCount());
+        Assert.assertEquals(4.0, metrics.getMeanDirtyConnectors(), 0.001);
+        Assert.assertEquals(5, metrics.getMaxDirtyConnectors());
+        Assert.assertEquals(100.0, metrics.getMeanResponseLength(), 0.001);
+        Assert.assertEquals(2000.0, metrics.getUploadThroughput(), 0.001);
+
+        metrics.reset();
+        Assert.assertEquals(0, metrics.getResponseCount());
+        Assert.assertTrue(metrics.getRequestCounts().isEmpty());
+    }
+
+    @Test
+    public void register_availableThroughJmx() throws Exception {
+        VaadinService service = Mockito.mock(VaadinService.class);
+        JmxServiceMetrics metrics = new JmxServiceMetrics("register test");
+        metrics.register(service);
+        Mockito.verify(service).setMetrics(metrics);
+        Mockito.verify(service).addServiceDestroyListener(
+                Mockito.any(ServiceDestroyListener.class));
+
+        metrics.requestHandled(new UidlRequestHandler(), 1000);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            Assert.assertEquals(0L, server.getAttribute(
+                    metrics.getObjectName(), "SessionLockCount"));
+            TabularData counts = (TabularData) server.getAttribute(
+                    metrics.getObjectName(), "RequestCounts");
+            Assert.assertEquals(1, counts.size());
+        } finally {
+            metrics.unregister();
+        }
+        Assert.assertFalse(server.isRegistered(metrics.getObjectName()));
+    }
+
+    @Test
+    public void sessionLock_reportedOncePerAcquisition() throws Exception {
+        Properties initParameters = new Properties();
+        // Production mode to skip license checking
+        initParameters.setProperty("productionMode", "true");
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig(initParameters));
+        VaadinService service = new VaadinServletService(servlet,
+                new DefaultDeploymentConfiguration(JmxServiceMetricsTest.class,
+                        initParameters));
+        service.init();
+        Assert.assertSame(NoOpServiceMetrics.get(), service.getMetrics());
+        ServiceMetrics metrics = Mockito.mock(ServiceMetrics.class);
+        service.setMetrics(metrics);
+
+        VaadinSession session = new MockVaadinSession(service);
+        WrappedSession wrappedSession = Mockito.mock(WrappedSession.class);
+        Mockito.when(
+                wrappedSession.getAttribute(service.getLockAttributeName()))
+                .thenReturn(session.getLockInstance());
+        session.lock();
+        try {
+            // Not measured before the session is stored by the service
+            service.storeSession(session, wrappedSession);
+        } finally {
+            session.unlock();
+        }
+        Mockito.verifyZeroInteractions(metrics);
+
+        session.lock();
+        session.lock();
+        session.unlock();
+        session.unlock();
+        Mockito.verify(metrics).sessionLockAcquired(Mockito.eq(session),
+                Mockito.anyLong());
+        Mockito.verify(metrics).sessionLockReleased(Mockito.eq(session),
+                Mockito.anyLong());
+        service.destroy();
+    }
+}
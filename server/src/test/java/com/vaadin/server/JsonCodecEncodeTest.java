@@ -0,0 +1,162 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4); 
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.shared.ui.label.ContentMode;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+public class JsonCodecEncodeTest {
+
+    public static class TestBean {
+        public boolean flag = false;
+        public int intValue = 1;
+        public long longValue = 2;
+        public float floatValue = 1.5f;
+        public double doubleValue = 0.25;
+        public byte byteValue = 3;
+        public char charValue = 'c';
+        public String text = "text";
+        public Integer boxed = null;
+        public ContentMode mode = ContentMode.TEXT;
+        public List<String> list = null;
+        public Object object = "object";
+        private String property = "property";
+
+        public String getProperty() {
+            return property;
+        }
+
+        public void setProperty(String property) {
+            this.property = property;
+        }
+    }
+
+    public static class DuplicateBean {
+        public String foo;
+
+        public String getFoo() {
+            return foo;
+        }
+
+        public void setFoo(String foo) {
+            this.foo = foo;
+        }
+    }
+
+    @Test
+    public void encode_allPropertyTypes() {
+        JsonObject encoded = (JsonObject) JsonCodec
+                .encode(new TestBean(), null, TestBean.class, null)
+                .getEncodedValue();
+
+        JsonObject expected = Json.createObject();
+        expected.put("property", "property");
+        expected.put("flag", false);
+        expected.put("intValue", 1);
+        expected.put("longValue", 2);
+        expected.put("floatValue", 1.5);
+        expected.put("doubleValue", 0.25);
+        expected.put("byteValue", 3);
+        expected.put("charValue", "c");
+        expected.put("text", "text");
+        expected.put("boxed", Json.createNull());
+        expected.put("mode", "TEXT");
+        expected.put("list", Json.createNull());
+        expected.put("object", "object");
+
+        Assert.assertTrue(JsonUtil.stringify(encoded),
+                JsonCodec.jsonEquals(expected, encoded));
+    }
+
+    @Test
+    public void encodeWithReference_onlyChangesInDiff() {
+        JsonObject reference = (JsonObject) JsonCodec
+                .encode(new TestBean(), null, TestBean.class, null)
+                .getEncodedValue();
+
+        TestBean bean = new TestBean();
+        bean.flag = true;
+        bean.doubleValue = 0.5;
+        bean.text = "changed";
+        bean.boxed = 5;
+        bean.mode = ContentMode.HTML;
+        bean.list = Arrays.asList("a", "b");
+        bean.setProperty("changed");
+        EncodeResult result = JsonCodec.encode(bean, reference, TestBean.class,
+                null);
+
+        JsonObject diff = (JsonObject) result.getDiff();
+        List<String> keys = Arrays.asList(diff.keys());
+        Assert.assertEquals(7, keys.size());
+        Assert.assertTrue(keys.containsAll(Arrays.asList("flag", "doubleValue",
+                "text", "boxed", "mode", "list", "property")));
+        Assert.assertEquals(0.5, diff.getNumber("doubleValue"), 0);
+        Assert.assertEquals("HTML", diff.getString("mode"));
+
+        JsonObject encoded = (JsonObject) result.getEncodedValue();
+        Assert.assertEquals(reference.keys().length, encoded.keys().length);
+        Assert.assertEquals("changed", encoded.getString("text"));
+    }
+
+    @Test
+    public void encodeWithReference_unchangedScalarsReuseReference() {
+        JsonObject reference = (JsonObject) JsonCodec
+                .encode(new TestBean(), null, TestBean.class, null)
+                .getEncodedValue();
+
+        EncodeResult result = JsonCodec.encode(new TestBean(), reference,
+                TestBean.class, null);
+
+        Assert.assertEquals(0, ((JsonObject) result.getDiff()).keys().length);
+        JsonObject encoded = (JsonObject) result.getEncodedValue();
+        for (String key : new String[] { "flag", "intValue", "floatValue",
+                "text", "mode", "object", "property" }) {
+            JsonValue value = encoded.get(key);
+            Assert.assertSame(key, reference.get(key), value);
+        }
+    }
+
+    @Test
+    public void encodeWithReference_typeChangeInDiff() {
+        JsonObject reference = (JsonObject) JsonCodec
+                .encode(new TestBean(), null, TestBean.class, null)
+                .getEncodedValue();
+
+        TestBean bean = new TestBean();
+        // Same string representation, different JSON type
+        bean.object = Boolean.TRUE;
+        reference.put("object", "true");
+        EncodeResult result = JsonCodec.encode(bean, reference, TestBean.class,
+                null);
+
+        Assert.assertTrue(((JsonObject) result.getDiff()).getBoolean("object"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void encodeDuplicateProperties_throws() {
+        JsonCodec.encode(new DuplicateBean(), null, DuplicateBean.class, null);
+    }
+}
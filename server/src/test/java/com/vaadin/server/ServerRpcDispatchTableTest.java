@@ -0,0 +1,100 @@
+package com.vaadin.server;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.server.ServerRpcDispatchTable.RpcMethod;
+import com.vaadin.server.ServerRpcManager.RpcInvocationException;
+import com.vaadin.shared.communication.ServerRpc;
+
+public class ServerRpcDispatchTableTest {
+
+    interface TestRpc extends ServerRpc {
+        void call();
+
+        void call(String value);
+
+        void values(List<Integer> values);
+    }
+
+    private static class TestRpcImpl implements TestRpc {
+        private final List<Object> calls = new ArrayList<Object>();
+
+        @Override
+        public void call() {
+            calls.add("call()");
+        }
+
+        @Override
+        public void call(String value) {
+            calls.add(value);
+        }
+
+        @Override
+        public void values(List<Integer> values) {
+            calls.add(values);
+        }
+    }
+
+    @Test
+    public void get_sameTableReturned() {
+        Assert.assertSame(ServerRpcDispatchTable.get(TestRpc.class),
+                ServerRpcDispatchTable.get(TestRpc.class));
+    }
+
+    @Test
+    public void getMethod_byNameAndParameterCount() {
+        ServerRpcDispatchTable table = ServerRpcDispatchTable.get(TestRpc.class);
+        Assert.assertEquals(0,
+                table.getMethod("call", 0).getParameterTypes().length);
+        Assert.assertEquals(String.class,
+                table.getMethod("call", 1).getParameterTypes()[0]);
+        Assert.assertNull(table.getMethod("call", 2));
+        Assert.assertNull(table.getMethod("call", -1));
+        Assert.assertNull(table.getMethod("missing", 0));
+
+        Type type = table.getMethod("values", 1).getParameterTypes()[0];
+        Assert.assertTrue(type instanceof ParameterizedType);
+        Assert.assertEquals(Integer.class,
+                ((ParameterizedType) type).getActualTypeArguments()[0]);
+    }
+
+    @Test
+    public void applyInvocation_nonPublicInterface_invoked()
+            throws RpcInvocationException {
+        TestRpcImpl implementation = new TestRpcImpl();
+        ServerRpcManager<TestRpc> manager = new ServerRpcManager<TestRpc>(
+                implementation, TestRpc.class);
+
+        ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
+                "1", TestRpc.class, "call", 1);
+        invocation.setParameters(new Object[] { "foo" });
+        manager.applyInvocation(invocation);
+
+        invocation = new ServerRpcMethodInvocation("1", TestRpc.class, "call",
+                0);
+        invocation.setParameters(new Object[0]);
+        manager.applyInvocation(invocation);
+
+        Assert.assertEquals("[foo, call()]",
+                implementation.calls.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unknownMethod_throws() {
+        new ServerRpcMethodInvocation("1", TestRpc.class, "call", 3);
+    }
+
+    @Test
+    public void rpcMethod_sameForInvocations() {
+        RpcMethod method = new ServerRpcMethodInvocation("1", TestRpc.class,
+                "values", 1).getRpcMethod();
+        Assert.assertSame(method, new ServerRpcMethodInvocation("2",
+                TestRpc.class, "values", 1).getRpcMethod());
+    }
+}
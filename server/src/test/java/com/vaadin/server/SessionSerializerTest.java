@@ -0,0 +1,124 @@
+package com.vaadin.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.ui.Label;
+import com.vaadin.util.CurrentInstance;
+
+public class SessionSerializerTest {
+
+    public static class Person implements Serializable {
+        private String name;
+        private int age;
+        private Class<?> type = int.class;
+        private Label label = new Label("Label");
+
+        public Person(String name, int age) {
+            this.name = name;
+            this.age = age;
+        }
+    }
+
+    private MockVaadinSession session;
+
+    @Before
+    public void setUp() {
+        CurrentInstance.clearAll();
+        session = new MockVaadinSession(Mockito.mock(VaadinService.class));
+        session.lock();
+        List<Person> persons = new ArrayList<Person>();
+        Map<String, Person> byName = new HashMap<String, Person>();
+        for (int i = 0; i < 200; i++) {
+            Person person = new Person("Person " + i, i);
+            persons.add(person);
+            byName.put(person.name, person);
+        }
+        session.setAttribute("persons", persons);
+        session.setAttribute("byName", byName);
+        session.unlock();
+    }
+
+    @After
+    public void tearDown() {
+        CurrentInstance.clearAll();
+    }
+
+    private static byte[] write(SessionSerializer serializer,
+            VaadinSession session) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.writeSession(session, out);
+        return out.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void assertRoundTrip(SessionSerializer serializer)
+            throws Exception {
+        byte[] bytes = write(serializer, session);
+        VaadinSession read = serializer
+                .readSession(new ByteArrayInputStream(bytes));
+        // The service is not restored, lock without running pending tasks
+        read.getLockInstance().lock();
+        try {
+            List<Person> persons = (List<Person>) read
+                    .getAttribute("persons");
+            Map<String, Person> byName = (Map<String, Person>) read
+                    .getAttribute("byName");
+            Assert.assertEquals(200, persons.size());
+            Person person = persons.get(42);
+            Assert.assertEquals("Person 42", person.name);
+            Assert.assertEquals(42, person.age);
+            Assert.assertEquals(int.class, person.type);
+            Assert.assertEquals("Label", person.label.getValue());
+            // Object identity is kept
+            Assert.assertSame(person, byName.get("Person 42"));
+        } finally {
+            read.getLockInstance().unlock();
+        }
+    }
+
+    @Test
+    public void javaSerializer_roundTrip() throws Exception {
+        assertRoundTrip(new JavaSessionSerializer());
+    }
+
+    @Test
+    public void compactSerializer_roundTrip() throws Exception {
+        assertRoundTrip(new CompactSessionSerializer(false));
+        assertRoundTrip(new CompactSessionSerializer(true));
+    }
+
+    @Test
+    public void compactSerializer_smallerOutput() throws Exception {
+        int javaSize = write(new JavaSessionSerializer(), session).length;
+        int compactSize = write(new CompactSessionSerializer(false),
+                session).length;
+        int compressedSize = write(new CompactSessionSerializer(true),
+                session).length;
+        Assert.assertTrue(compactSize + " < " + javaSize,
+                compactSize < javaSize);
+        Assert.assertTrue(compressedSize + " < " + compactSize,
+                compressedSize < compactSize);
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void compactSerializer_javaSerializedData_throws()
+            throws Exception {
+        byte[] bytes = write(new JavaSessionSerializer(), session);
+        new CompactSessionSerializer()
+                .readSession(new ByteArrayInputStream(bytes));
+    }
+}
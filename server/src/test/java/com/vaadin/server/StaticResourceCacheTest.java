@@ -0,0 +1,221 @@
+package com.vaadin.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.StaticResourceCache.StaticResource;
+
+public class StaticResourceCacheTest {
+
+    private File dir;
+    private File file;
+    private URL url;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("resource", ".js");
+        dir = file.getParentFile();
+        write(file, "0123456789");
+        url = file.toURI().toURL();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        new File(file.getPath() + ".gz").delete();
+    }
+
+    private static void write(File file, String content) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String read(StaticResource resource, long start, long count)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        resource.write(out, start, count);
+        return out.toString("UTF-8");
+    }
+
+    @Test
+    public void getResource_metadataResolved() throws IOException {
+        StaticResource resource = new StaticResourceCache().getResource(url);
+        Assert.assertEquals(10, resource.getLength());
+        Assert.assertEquals(0, resource.getLastModified() % 1000);
+        Assert.assertNotNull(resource.getETag());
+        Assert.assertTrue(resource.getETag().startsWith("\"a-"));
+    }
+
+    @Test
+    public void smallResource_contentKeptInMemory() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache();
+        StaticResource resource = cache.getResource(url);
+        Assert.assertSame(resource, cache.getResource(url));
+        Assert.assertEquals("0123456789", read(resource, 0, -1));
+        Assert.assertEquals(10, cache.getCachedBytes());
+
+        file.delete();
+        Assert.assertEquals("2345", read(resource, 2, 4));
+    }
+
+    @Test
+    public void largeResource_readFromFile() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(5, 100);
+        StaticResource resource = cache.getResource(url);
+        Assert.assertEquals("0123456789", read(resource, 0, -1));
+        Assert.assertEquals("789", read(resource, 7, 3));
+        Assert.assertEquals(0, cache.getCachedBytes());
+    }
+
+    @Test
+    public void totalSizeLimit_respected() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache(100, 15);
+        File other = File.createTempFile("other", ".js", dir);
+        try {
+            write(other, "abcdefghij");
+            read(cache.getResource(url), 0, -1);
+            read(cache.getResource(other.toURI().toURL()), 0, -1);
+            Assert.assertEquals(10, cache.getCachedBytes());
+        } finally {
+            other.delete();
+        }
+    }
+
+    @Test
+    public void variant_resolvedOnce() throws IOException {
+        StaticResourceCache cache = new StaticResourceCache();
+        StaticResource resource = cache.getResource(url);
+        Assert.assertNull(resource.getVariant(".gz"));
+
+        // The missing variant is remembered
+        write(new File(file.getPath() + ".gz"), "zip");
+        Assert.assertNull(resource.getVariant(".gz"));
+
+        StaticResource uncached = StaticResourceCache
+                .createUncachedResource(url);
+        StaticResource variant = uncached.getVariant(".gz");
+        Assert.assertEquals(3, variant.getLength());
+        Assert.assertFalse(resource.getETag().equals(variant.getETag()));
+    }
+
+    @Test(expected = java.io.FileNotFoundException.class)
+    public void missingResource_throws() throws IOException {
+        new StaticResourceCache()
+                .getResource(new File(dir, "missing.js").toURI().toURL());
+    }
+
+    private static HttpServletRequest request(String... headers) {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        for (int i = 0; i < headers.length; i += 2) {
+            Mockito.when(request.getHeader(headers[i]))
+                    .thenReturn(headers[i + 1]);
+        }
+        return request;
+    }
+
+    @Test
+    public void requestedRange() {
+        Assert.assertNull(VaadinServlet.getRequestedRange(request(), null, 10));
+        assertRange(2, 5, VaadinServlet
+                .getRequestedRange(request("Range", "bytes=2-5"), null, 10));
+        assertRange(2, 9, VaadinServlet
+                .getRequestedRange(request("Range", "bytes=2-"), null, 10));
+        assertRange(2, 9, VaadinServlet
+                .getRequestedRange(request("Range", "bytes=2-20"), null, 10));
+        assertRange(7, 9, VaadinServlet
+                .getRequestedRange(request("Range", "bytes=-3"), null, 10));
+        assertRange(0, 9, VaadinServlet
+                .getRequestedRange(request("Range", "bytes=-30"), null, 10));
+        Assert.assertSame(VaadinServlet.UNSATISFIABLE_RANGE, VaadinServlet
+                .getRequestedRange(request("Range", "bytes=10-"), null, 10));
+        Assert.assertNull(VaadinServlet
+                .getRequestedRange(request("Range", "bytes=5-2"), null, 10));
+        Assert.assertNull(VaadinServlet.getRequestedRange(
+                request("Range", "bytes=0-1,4-5"), null, 10));
+        Assert.assertNull(VaadinServlet
+                .getRequestedRange(request("Range", "bytes=a-b"), null, 10));
+        Assert.assertNull(VaadinServlet.getRequestedRange(
+                request("Range", "bytes=2-5", "If-Range", "\"old\""), "\"new\"",
+                10));
+        assertRange(2, 5, VaadinServlet.getRequestedRange(
+                request("Range", "bytes=2-5", "If-Range", "\"new\""), "\"new\"",
+                10));
+    }
+
+    private static void assertRange(long start, long end, long[] range) {
+        Assert.assertArrayEquals(new long[] { start, end }, range);
+    }
+
+    private static class CapturingOutputStream extends ServletOutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        @Override
+        public void write(int b) throws IOException {
+            bytes.write(b);
+        }
+    }
+
+    @Test
+    public void writeStaticResourceResponse_rangeAndETag() throws IOException {
+        VaadinServlet servlet = new VaadinServlet();
+        HttpServletResponse response = Mockito
+                .mock(HttpServletResponse.class);
+        CapturingOutputStream out = new CapturingOutputStream();
+        Mockito.when(response.getOutputStream()).thenReturn(out);
+
+        servlet.writeStaticResourceResponse(
+                request("Range", "bytes=3-4"), response, url);
+        Mockito.verify(response)
+                .setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        Mockito.verify(response).setHeader("Content-Range", "bytes 3-4/10");
+        Mockito.verify(response).setContentLength(2);
+        Assert.assertEquals("34", out.bytes.toString("UTF-8"));
+
+        String eTag = StaticResourceCache.createUncachedResource(url)
+                .getETag();
+        HttpServletResponse notModified = Mockito
+                .mock(HttpServletResponse.class);
+        servlet.writeStaticResourceResponse(
+                request("If-None-Match", "\"x\", " + eTag), notModified, url);
+        Mockito.verify(notModified)
+                .setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        Mockito.verify(notModified, Mockito.never()).getOutputStream();
+    }
+
+    @Test
+    public void writeStaticResourceResponse_precompressedVariant()
+            throws IOException {
+        write(new File(file.getPath() + ".gz"), "zip");
+        VaadinServlet servlet = new VaadinServlet();
+        HttpServletResponse response = Mockito
+                .mock(HttpServletResponse.class);
+        CapturingOutputStream out = new CapturingOutputStream();
+        Mockito.when(response.getOutputStream()).thenReturn(out);
+
+        servlet.writeStaticResourceResponse(request("Accept-Encoding",
+                "gzip, deflate, br", "Range", "bytes=3-4"), response, url);
+        Mockito.verify(response).setHeader("Content-Encoding", "gzip");
+        Mockito.verify(response, Mockito.never())
+                .setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        Mockito.verify(response).setContentLength(3);
+        Assert.assertEquals("zip", out.bytes.toString("UTF-8"));
+    }
+}
@@ -0,0 +1,141 @@
+package com.vaadin.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.TopicBroadcaster.BroadcastListener;
+import com.vaadin.ui.UI;
+
+public class TopicBroadcasterTest {
+
+    private static class TestUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+        }
+    }
+
+    private VaadinService service;
+
+    @Before
+    public void setUp() throws Exception {
+        Properties initParameters = new Properties();
+        // Production mode to skip license checking
+        initParameters.setProperty("productionMode", "true");
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig(initParameters));
+        service = new VaadinServletService(servlet,
+                new DefaultDeploymentConfiguration(TopicBroadcasterTest.class,
+                        initParameters));
+        service.init();
+    }
+
+    @After
+    public void tearDown() {
+        service.destroy();
+    }
+
+    private UI createUI(VaadinSession session) {
+        UI ui = new TestUI();
+        session.lock();
+        try {
+            ui.setSession(session);
+            ui.doInit(Mockito.mock(VaadinRequest.class),
+                    session.getNextUIid(), "");
+            session.addUI(ui);
+        } finally {
+            session.unlock();
+        }
+        return ui;
+    }
+
+    private static void subscribe(TopicBroadcaster broadcaster, String topic,
+            UI ui, BroadcastListener listener) {
+        ui.getSession().lock();
+        try {
+            broadcaster.subscribe(topic, ui, listener);
+        } finally {
+            ui.getSession().unlock();
+        }
+    }
+
+    @Test
+    public void publish_deliveredInOrderWithSessionLocked() throws Exception {
+        VaadinSession session1 = new MockVaadinSession(service);
+        VaadinSession session2 = new MockVaadinSession(service);
+        UI ui1 = createUI(session1);
+        UI ui2 = createUI(session1);
+        UI ui3 = createUI(session2);
+
+        final List<String> received = Collections
+                .synchronizedList(new ArrayList<String>());
+        final CountDownLatch latch = new CountDownLatch(6);
+        BroadcastListener listener = new BroadcastListener() {
+            @Override
+            public void broadcastReceived(String topic, Object message) {
+                UI ui = UI.getCurrent();
+                Assert.assertTrue(ui.getSession().hasLock());
+                received.add(ui.getUIId() + ":" + message);
+                latch.countDown();
+            }
+        };
+
+        TopicBroadcaster broadcaster = service.getTopicBroadcaster();
+        subscribe(broadcaster, "prices", ui1, listener);
+        subscribe(broadcaster, "prices", ui2, listener);
+        subscribe(broadcaster, "prices", ui3, listener);
+        subscribe(broadcaster, "other", ui3, listener);
+        broadcaster.publish("prices", "a");
+        broadcaster.publish("prices", "b");
+
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(6, received.size());
+        for (UI ui : new UI[] { ui1, ui2, ui3 }) {
+            int a = received.indexOf(ui.getUIId() + ":a");
+            int b = received.indexOf(ui.getUIId() + ":b");
+            Assert.assertTrue(a >= 0 && a < b);
+        }
+    }
+
+    @Test
+    public void detachedUI_subscriptionRemoved() {
+        VaadinSession session = new MockVaadinSession(service);
+        UI ui1 = createUI(session);
+        UI ui2 = createUI(session);
+        BroadcastListener listener = Mockito.mock(BroadcastListener.class);
+
+        TopicBroadcaster broadcaster = service.getTopicBroadcaster();
+        subscribe(broadcaster, "prices", ui1, listener);
+        subscribe(broadcaster, "prices", ui2, listener);
+        subscribe(broadcaster, "prices", ui2, listener);
+        Assert.assertEquals(2, broadcaster.getSubscriptionCount("prices"));
+
+        subscribe(broadcaster, "other", ui2, listener);
+
+        session.lock();
+        try {
+            UI.setCurrent(ui2);
+            session.removeUI(ui2);
+            UI.setCurrent(null);
+            Assert.assertEquals(1,
+                    broadcaster.getSubscriptionCount("prices"));
+            Assert.assertEquals(0, broadcaster.getSubscriptionCount("other"));
+            broadcaster.publish("prices", "a");
+        } finally {
+            session.unlock();
+        }
+        Mockito.verify(listener).broadcastReceived("prices", "a");
+
+        broadcaster.unsubscribe("prices", ui1, listener);
+        Assert.assertEquals(0, broadcaster.getSubscriptionCount("prices"));
+    }
+}
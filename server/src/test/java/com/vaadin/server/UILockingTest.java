@@ -0,0 +1,371 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.communication.UidlRequestHandler;
+import com.vaadin.shared.ui.ui.UIConstants;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+public class UILockingTest {
+
+    private static class TestUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+            setContent(new Label("Content"));
+        }
+    }
+
+    private VaadinService service;
+    private VaadinSession session;
+    private UI ui1;
+    private UI ui2;
+
+    @Before
+    public void setup() throws Exception {
+        Properties initParameters = new Properties();
+        // Production mode to skip license checking
+        initParameters.setProperty("productionMode", "true");
+        initParameters.setProperty(Constants.SERVLET_PARAMETER_UI_LOCKING,
+                "true");
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig(initParameters));
+        service = new VaadinServletService(servlet,
+                new DefaultDeploymentConfiguration(UILockingTest.class,
+                        initParameters));
+        service.init();
+        Assert.assertTrue(service.isUILockingEnabled());
+
+        session = new MockVaadinSession(service);
+        session.lock();
+        try {
+            session.setCommunicationManager(
+                    new LegacyCommunicationManager(session));
+            ui1 = createUI(1);
+            ui2 = createUI(2);
+        } finally {
+            session.unlock();
+        }
+    }
+
+    private UI createUI(int id) {
+        UI ui = new TestUI();
+        ui.setSession(session);
+        ui.doInit(Mockito.mock(VaadinRequest.class), id, "");
+        session.addUI(ui);
+        return ui;
+    }
+
+    @Test
+    public void differentUIs_lockedConcurrently() throws Exception {
+        ui1.lock();
+        try {
+            Assert.assertTrue(session.hasUILock());
+            // Only the session lock gives exclusive access to the session
+            Assert.assertFalse(session.hasLock());
+            final CountDownLatch locked = new CountDownLatch(1);
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    ui2.lock();
+                    try {
+                        locked.countDown();
+                    } finally {
+                        ui2.unlock();
+                    }
+                }
+            };
+            thread.start();
+            Assert.assertTrue(locked.await(5, TimeUnit.SECONDS));
+            thread.join();
+        } finally {
+            ui1.unlock();
+        }
+        Assert.assertFalse(session.hasUILock());
+    }
+
+    @Test
+    public void sessionLock_waitsForUILock() throws Exception {
+        final AtomicBoolean sessionLocked = new AtomicBoolean();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                session.lock();
+                try {
+                    sessionLocked.set(true);
+                } finally {
+                    session.unlock();
+                }
+            }
+        };
+
+        ui1.lock();
+        try {
+            thread.start();
+            thread.join(200);
+            Assert.assertFalse(sessionLocked.get());
+        } finally {
+            ui1.unlock();
+        }
+        thread.join(5000);
+        Assert.assertTrue(sessionLocked.get());
+    }
+
+    @Test
+    public void uiLock_allowedWhileHoldingSessionLock() {
+        session.lock();
+        try {
+            ui1.lock();
+            ui2.lock();
+            ui2.unlock();
+            ui1.unlock();
+            Assert.assertTrue(session.hasLock());
+        } finally {
+            session.unlock();
+        }
+        Assert.assertFalse(session.hasLock());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void lockSession_whileHoldingUILock_throws() {
+        ui1.lock();
+        try {
+            session.lock();
+        } finally {
+            ui1.unlock();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void lockOtherUI_whileHoldingUILock_throws() {
+        ui1.lock();
+        try {
+            ui2.lock();
+        } finally {
+            ui1.unlock();
+        }
+    }
+
+    @Test
+    public void access_uiLockedByCurrentThread_runOnUnlock()
+            throws Exception {
+        final AtomicReference<UI> currentUI = new AtomicReference<UI>();
+        ui1.lock();
+        Future<Void> future;
+        try {
+            future = ui1.access(new Runnable() {
+                @Override
+                public void run() {
+                    currentUI.set(UI.getCurrent());
+                }
+            });
+            Assert.assertFalse(future.isDone());
+        } finally {
+            ui1.unlock();
+        }
+        Assert.assertTrue(future.isDone());
+        Assert.assertSame(ui1, currentUI.get());
+        Assert.assertTrue(ui1.getPendingAccessQueue().isEmpty());
+    }
+
+    @Test
+    public void access_otherUILocked_runImmediately() throws Exception {
+        final CountDownLatch locked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                ui1.lock();
+                try {
+                    locked.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // Just release the lock
+                } finally {
+                    ui1.unlock();
+                }
+            }
+        };
+        thread.start();
+        try {
+            Assert.assertTrue(locked.await(5, TimeUnit.SECONDS));
+            final AtomicBoolean run = new AtomicBoolean();
+            Future<Void> future = ui2.access(new Runnable() {
+                @Override
+                public void run() {
+                    run.set(true);
+                }
+            });
+            Assert.assertTrue(future.isDone());
+            Assert.assertTrue(run.get());
+        } finally {
+            release.countDown();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void accessOtherUI_whileUILocked_runAfterUIUnlock() {
+        final AtomicReference<UI> currentUI = new AtomicReference<UI>();
+        Future<Void> future;
+        ui1.lock();
+        try {
+            future = ui2.access(new Runnable() {
+                @Override
+                public void run() {
+                    currentUI.set(UI.getCurrent());
+                }
+            });
+            Assert.assertFalse(future.isDone());
+        } finally {
+            ui1.unlock();
+        }
+        Assert.assertTrue(future.isDone());
+        Assert.assertSame(ui2, currentUI.get());
+        Assert.assertTrue(ui2.getPendingAccessQueue().isEmpty());
+        Assert.assertFalse(session.hasUILock());
+    }
+
+    @Test
+    public void sessionAccess_whileUILocked_runAfterUIUnlock() {
+        final AtomicBoolean run = new AtomicBoolean();
+        ui1.lock();
+        try {
+            session.access(new Runnable() {
+                @Override
+                public void run() {
+                    run.set(true);
+                }
+            });
+            Assert.assertFalse(run.get());
+        } finally {
+            ui1.unlock();
+        }
+        Assert.assertTrue(run.get());
+        Assert.assertFalse(session.hasLock());
+    }
+
+    @Test
+    public void closeUI_whileUILocked_sessionTasksRunAfterUnlock() {
+        final AtomicBoolean run = new AtomicBoolean();
+        ui1.lock();
+        try {
+            session.access(new Runnable() {
+                @Override
+                public void run() {
+                    run.set(true);
+                }
+            });
+            ui1.close();
+            Assert.assertTrue(ui1.isClosing());
+            Assert.assertFalse(run.get());
+        } finally {
+            ui1.unlock();
+        }
+        Assert.assertTrue(run.get());
+    }
+
+    @Test
+    public void uidlRequest_uiLocked_runsOnlyUITasks() throws Exception {
+        final AtomicBoolean uiTaskRun = new AtomicBoolean();
+        final AtomicBoolean sessionTaskRun = new AtomicBoolean();
+        final AtomicBoolean sessionTaskRunWithUILock = new AtomicBoolean();
+        String csrfToken;
+        ui1.lock();
+        try {
+            csrfToken = session.getCsrfToken();
+        } finally {
+            ui1.unlock();
+        }
+        ui1.getPendingAccessQueue()
+                .add(new VaadinSession.FutureAccess(session, new Runnable() {
+                    @Override
+                    public void run() {
+                        uiTaskRun.set(true);
+                    }
+                }));
+        session.getPendingAccessQueue()
+                .add(new VaadinSession.FutureAccess(session, new Runnable() {
+                    @Override
+                    public void run() {
+                        sessionTaskRun.set(true);
+                        sessionTaskRunWithUILock.set(!session.getUIAccessLock()
+                                .isWriteLockedByCurrentThread());
+                    }
+                }));
+
+
+        WrappedSession wrappedSession = Mockito.mock(WrappedSession.class);
+        Mockito.when(wrappedSession
+                .getAttribute(service.getSessionAttributeName()))
+                .thenReturn(session);
+        Mockito.when(wrappedSession.getAttribute(service.getLockAttributeName()))
+                .thenReturn(session.getLockInstance());
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getService()).thenReturn(service);
+        Mockito.when(request.getPathInfo()).thenReturn("/UIDL/");
+        Mockito.when(request.getParameter(UIConstants.UI_ID_PARAMETER))
+                .thenReturn("1");
+        Mockito.when(request.getWrappedSession()).thenReturn(wrappedSession);
+        Mockito.when(request.getReader()).thenReturn(new BufferedReader(
+                new StringReader("{\"csrfToken\":\"" + csrfToken
+                        + "\",\"rpc\":[],\"syncId\":-1,\"clientId\":0}")));
+        VaadinResponse response = Mockito.mock(VaadinResponse.class);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Mockito.when(response.getOutputStream()).thenReturn(out);
+
+        Assert.assertTrue(new UidlRequestHandler().handleRequest(session,
+                request, response));
+
+        Assert.assertTrue(out.toString("UTF-8").startsWith("for(;;);[{"));
+        Assert.assertTrue(uiTaskRun.get());
+        // Session tasks need the session lock, not just the lock of the UI
+        Assert.assertTrue(sessionTaskRun.get());
+        Assert.assertFalse(sessionTaskRunWithUILock.get());
+        Assert.assertFalse(session.hasUILock());
+    }
+
+    @Test
+    public void uiLockingDisabled_lockUIUsesSessionLock() {
+        service.setUILockingEnabled(false);
+        ui1.lock();
+        try {
+            Assert.assertTrue(
+                    ((ReentrantLock) session
+                            .getLockInstance()).isHeldByCurrentThread());
+            Assert.assertFalse(ui1.getLockInstance().isLocked());
+        } finally {
+            ui1.unlock();
+        }
+        Assert.assertFalse(session.hasLock());
+    }
+}
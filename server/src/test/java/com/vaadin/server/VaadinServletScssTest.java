@@ -0,0 +1,164 @@
+package com.vaadin.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Set;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class VaadinServletScssTest {
+
+    private static final String THEME = "/VAADIN/themes/scsstest/";
+
+    private File root;
+    private File scssFile;
+    private VaadinServlet servlet;
+
+    private class WebContentServletContext extends MockServletContext {
+        @Override
+        public URL getResource(String path) throws MalformedURLException {
+            File file = new File(root, path);
+            return file.exists() ? file.toURI().toURL() : null;
+        }
+
+        @Override
+        public String getRealPath(String path) {
+            return new File(root, path).getPath();
+        }
+
+        @Override
+        public Set getResourcePaths(String path) {
+            if ("/VAADIN/themes/".equals(path)) {
+                return Collections.singleton(THEME);
+            }
+            return null;
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException, ServletException {
+        root = File.createTempFile("webcontent", "");
+        root.delete();
+        File themeDir = new File(root, THEME);
+        themeDir.mkdirs();
+        scssFile = new File(themeDir, "styles.scss");
+        writeScss("$c: red;\n.a { color: $c; }\n");
+
+        final ServletContext context = new WebContentServletContext();
+        ServletConfig config = Mockito.mock(ServletConfig.class);
+        Mockito.when(config.getServletContext()).thenReturn(context);
+        Mockito.when(config.getInitParameterNames())
+                .thenReturn(Collections.enumeration(Collections.EMPTY_LIST));
+        servlet = new VaadinServlet() {
+            @Override
+            protected VaadinServletService createServletService(
+                    DeploymentConfiguration deploymentConfiguration) {
+                // Avoid the license check done by a real service in
+                // development mode
+                VaadinServletService service = Mockito
+                        .mock(VaadinServletService.class);
+                Mockito.when(service.getDeploymentConfiguration())
+                        .thenReturn(deploymentConfiguration);
+                Mockito.when(service.getClassLoader())
+                        .thenReturn(getClass().getClassLoader());
+                return service;
+            }
+        };
+        servlet.init(config);
+    }
+
+    @After
+    public void tearDown() {
+        servlet.destroy();
+        for (File file : scssFile.getParentFile().listFiles()) {
+            file.delete();
+        }
+        new File(root, THEME).delete();
+        new File(root, "VAADIN/themes").delete();
+        new File(root, "VAADIN").delete();
+        root.delete();
+    }
+
+    private void writeScss(String scss) throws IOException {
+        long lastModified = scssFile.exists() ? scssFile.lastModified() : 0;
+        OutputStream out = new FileOutputStream(scssFile);
+        try {
+            out.write(scss.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        // Make sure the change is noticed with coarse file system timestamps
+        scssFile.setLastModified(Math.max(scssFile.lastModified(),
+                lastModified + 2000));
+    }
+
+    private String serveCss() throws IOException, ServletException {
+        HttpServletResponse response = Mockito
+                .mock(HttpServletResponse.class);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Mockito.when(response.getOutputStream())
+                .thenReturn(new ServletOutputStream() {
+                    @Override
+                    public void write(int b) throws IOException {
+                        bytes.write(b);
+                    }
+                });
+        servlet.serveStaticResourcesInVAADIN(THEME + "styles.css",
+                Mockito.mock(HttpServletRequest.class), response);
+        return bytes.toString("UTF-8");
+    }
+
+    private String waitForCss(String expected)
+            throws IOException, ServletException, InterruptedException {
+        String css = null;
+        for (int i = 0; i < 200; i++) {
+            css = serveCss();
+            if (css.contains(expected)) {
+                break;
+            }
+            Thread.sleep(50);
+        }
+        return css;
+    }
+
+    @Test
+    public void themePrecompiledAtInit() throws InterruptedException {
+        File cacheFile = new File(scssFile.getPath() + ".cache");
+        for (int i = 0; i < 200 && !cacheFile.exists(); i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(cacheFile.exists());
+    }
+
+    @Test
+    public void modifiedScss_recompiled_lastGoodCssKept() throws Exception {
+        Assert.assertTrue(waitForCss("red").contains("red"));
+
+        writeScss("$c: blue;\n.a { color: $c; }\n");
+        String css = serveCss();
+        // Either the previous css or the recompiled one, never nothing
+        Assert.assertTrue(css, css.contains("red") || css.contains("blue"));
+        Assert.assertTrue(waitForCss("blue").contains("blue"));
+
+        writeScss(".a { color: $undefined; ");
+        Thread.sleep(500);
+        Assert.assertTrue(waitForCss("blue").contains("blue"));
+    }
+}
@@ -4,13 +4,26 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.Properties;
 
 import org.atmosphere.cpr.AtmosphereResource;
+import org.atmosphere.cpr.Broadcaster;
 import org.easymock.EasyMock;
 import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.Mockito;
 
+import com.vaadin.server.DefaultDeploymentConfiguration;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.MockServletConfig;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.VaadinSession;
 import com.vaadin.server.communication.AtmospherePushConnection.State;
+import com.vaadin.ui.Label;
 import com.vaadin.ui.UI;
 
 public class AtmospherePushConnectionTest {
@@ -35,4 +48,124 @@ public class AtmospherePushConnectionTest {
 
         Assert.assertEquals(State.DISCONNECTED, connection.getState());
     }
+
+    private VaadinService service;
+    private VaadinSession session;
+    private Label label;
+    private UI ui;
+
+    private void setupUI() throws Exception {
+        Properties initParameters = new Properties();
+        // Production mode to skip license checking
+        initParameters.setProperty("productionMode", "true");
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig(initParameters));
+        service = new VaadinServletService(servlet,
+                new DefaultDeploymentConfiguration(
+                        AtmospherePushConnectionTest.class, initParameters));
+        service.init();
+        service.setPushCoalescingWindow(100);
+
+        session = new MockVaadinSession(service);
+        label = new Label();
+        ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+                setContent(label);
+            }
+        };
+        session.lock();
+        try {
+            session.setCommunicationManager(
+                    new LegacyCommunicationManager(session));
+            ui.setSession(session);
+            ui.doInit(Mockito.mock(VaadinRequest.class), 1, "");
+            session.addUI(ui);
+        } finally {
+            session.unlock();
+        }
+    }
+
+    private static AtmosphereResource createResource(
+            Broadcaster broadcaster) {
+        AtmosphereResource resource = Mockito.mock(AtmosphereResource.class);
+        Mockito.when(resource.getBroadcaster()).thenReturn(broadcaster);
+        return resource;
+    }
+
+    @Test
+    public void push_withinCoalescingWindow_sentTogether() throws Exception {
+        setupUI();
+        Broadcaster broadcaster = Mockito.mock(Broadcaster.class);
+        AtmosphereResource resource = createResource(broadcaster);
+        AtmospherePushConnection connection = new AtmospherePushConnection(ui);
+
+        session.lock();
+        try {
+            connection.connect(resource);
+            connection.push();
+            Assert.assertEquals(1, connection.getMessagesSent());
+
+            label.setValue("first");
+            connection.push();
+            label.setValue("second");
+            connection.push();
+            Assert.assertEquals(1, connection.getMessagesSent());
+            Assert.assertEquals(2, connection.getCoalescedPushes());
+        } finally {
+            session.unlock();
+        }
+
+        for (int i = 0; i < 100 && connection.getMessagesSent() < 2; i++) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(2, connection.getMessagesSent());
+        Mockito.verify(broadcaster, Mockito.times(2)).broadcast(
+                Mockito.contains("for(;;)"), Mockito.eq(resource));
+        Assert.assertTrue(connection.getBytesSent() > 0);
+        service.destroy();
+    }
+
+    @Test
+    public void connectionLostWithinCoalescingWindow_sentAfterReconnect()
+            throws Exception {
+        setupUI();
+        Broadcaster broadcaster = Mockito.mock(Broadcaster.class);
+        AtmospherePushConnection connection = new AtmospherePushConnection(ui);
+
+        session.lock();
+        try {
+            connection.connect(createResource(broadcaster));
+            connection.push();
+            label.setValue("changed");
+            connection.push();
+            Assert.assertEquals(1, connection.getCoalescedPushes());
+            connection.connectionLost();
+        } finally {
+            session.unlock();
+        }
+
+        for (int i = 0; i < 100
+                && connection.getState() != State.PUSH_PENDING; i++) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(State.PUSH_PENDING, connection.getState());
+        Assert.assertEquals(1, connection.getMessagesSent());
+
+        session.lock();
+        try {
+            connection.connect(createResource(broadcaster));
+        } finally {
+            session.unlock();
+        }
+        Assert.assertEquals(2, connection.getMessagesSent());
+        service.destroy();
+    }
+
+    @Test
+    public void utf8Length_sameAsEncoded() throws Exception {
+        String string = "a\u00e4\u20ac\ud83d\ude00";
+        Assert.assertEquals(string.getBytes("UTF-8").length,
+                AtmospherePushConnection.getUtf8Length(string));
+    }
 }
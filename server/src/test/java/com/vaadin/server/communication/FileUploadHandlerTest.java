@@ -1,6 +1,8 @@
 package com.vaadin.server.communication;
 
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -11,12 +13,15 @@ import java.io.OutputStream;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.ServletPortletHelper;
 import com.vaadin.server.StreamVariable;
+import com.vaadin.server.StreamVariable.StreamingErrorEvent;
+import com.vaadin.server.StreamVariable.StreamingProgressEvent;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinResponse;
 import com.vaadin.server.VaadinSession;
@@ -150,4 +155,27 @@ public class FileUploadHandlerTest {
 
         verifyZeroInteractions(responseOutput);
     }
+
+    @Test
+    public void interruptedUpload_queuedProgressEventNotDelivered()
+            throws IOException {
+        handler = new FileUploadHandler() {
+            @Override
+            protected int getProgressEventInterval() {
+                return 0;
+            }
+        };
+        when(streamVariable.listenProgress()).thenReturn(true);
+        when(streamVariable.isInterrupted()).thenReturn(true);
+
+        handler.handleRequest(session, request, response);
+
+        ArgumentCaptor<Runnable> progressTask = ArgumentCaptor
+                .forClass(Runnable.class);
+        verify(session).access(progressTask.capture());
+        verify(streamVariable).streamingFailed(any(StreamingErrorEvent.class));
+        progressTask.getValue().run();
+        verify(streamVariable, never())
+                .onProgress(any(StreamingProgressEvent.class));
+    }
 }
@@ -0,0 +1,166 @@
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import elemental.json.JsonArray;
+import elemental.json.JsonException;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+public class JsonStreamReaderTest {
+
+    private static final String MESSAGE = "{\"csrfToken\":\"abc-123\","
+            + "\"rpc\":[[\"1\",\"com.vaadin.shared.ui.button.ButtonServerRpc\","
+            + "\"click\",[{\"altKey\":false,\"button\":\"LEFT\","
+            + "\"clientX\":12.5,\"relativeY\":-3}]],"
+            + "[\"2\",\"v\",\"v\",[\"text\",[\"s\",\"a \\\"quoted\\\" \\u00e5\\n\"]]],"
+            + "[\"3\",\"x\",\"y\",[null,true,[],{},1e3]]],"
+            + "\"syncId\":4,\"clientId\":5,\"wsver\":\"7.7.24\"}";
+
+    /**
+     * Reader which only returns a couple of characters at a time.
+     */
+    private static class ChunkedReader extends Reader {
+        private final String data;
+        private int position = 0;
+
+        public ChunkedReader(String data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if (position == data.length()) {
+                return -1;
+            }
+            int count = Math.min(Math.min(len, 3), data.length() - position);
+            data.getChars(position, position + count, cbuf, off);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    @Test
+    public void nextValue_sameAsParse() throws IOException {
+        JsonValue expected = JsonUtil.parse(MESSAGE);
+        JsonValue value = new JsonStreamReader(new StringReader(MESSAGE))
+                .nextValue();
+        Assert.assertEquals(JsonUtil.stringify(expected),
+                JsonUtil.stringify(value));
+    }
+
+    @Test
+    public void chunkedInput_sameAsParse() throws IOException {
+        JsonValue expected = JsonUtil.parse(MESSAGE);
+        JsonValue value = new JsonStreamReader(new ChunkedReader(MESSAGE))
+                .nextValue();
+        Assert.assertEquals(JsonUtil.stringify(expected),
+                JsonUtil.stringify(value));
+    }
+
+    @Test
+    public void streamObject_namesAndValues() throws IOException {
+        JsonStreamReader json = new JsonStreamReader(
+                new ChunkedReader(MESSAGE));
+        json.beginObject();
+        Assert.assertTrue(json.hasNext());
+        Assert.assertEquals("csrfToken", json.nextName());
+        Assert.assertEquals("abc-123", json.nextValue().asString());
+
+        Assert.assertTrue(json.hasNext());
+        Assert.assertEquals("rpc", json.nextName());
+        json.beginArray();
+        int count = 0;
+        while (json.hasNext()) {
+            JsonArray invocation = (JsonArray) json.nextValue();
+            Assert.assertEquals(String.valueOf(++count),
+                    invocation.getString(0));
+        }
+        json.endArray();
+        Assert.assertEquals(3, count);
+
+        Assert.assertTrue(json.hasNext());
+        Assert.assertEquals("syncId", json.nextName());
+        json.skipValue();
+        Assert.assertTrue(json.hasNext());
+        Assert.assertEquals("clientId", json.nextName());
+        Assert.assertEquals(5, json.nextValue().asNumber(), 0);
+        Assert.assertTrue(json.hasNext());
+        Assert.assertEquals("wsver", json.nextName());
+        json.skipValue();
+        Assert.assertFalse(json.hasNext());
+        json.endObject();
+        Assert.assertTrue(json.isAtEnd());
+    }
+
+    @Test
+    public void escapes_decoded() throws IOException {
+        JsonObject value = (JsonObject) new JsonStreamReader(new StringReader(
+                "{\"s\":\"\\\"\\\\\\/\\b\\f\\n\\r\\t\\u20AC\\ud83d\\ude00\"}"))
+                        .nextValue();
+        Assert.assertEquals("\"\\/\b\f\n\r\t€😀",
+                value.getString("s"));
+    }
+
+    @Test
+    public void emptyInput_atEnd() throws IOException {
+        Assert.assertTrue(new JsonStreamReader(new StringReader("")).isAtEnd());
+        Assert.assertTrue(
+                new JsonStreamReader(new StringReader(" \n")).isAtEnd());
+    }
+
+    @Test(expected = JsonException.class)
+    public void missingComma_throws() throws IOException {
+        new JsonStreamReader(new StringReader("[1 2]")).nextValue();
+    }
+
+    @Test(expected = JsonException.class)
+    public void unterminatedString_throws() throws IOException {
+        new JsonStreamReader(new StringReader("[\"abc")).nextValue();
+    }
+
+    @Test(expected = JsonException.class)
+    public void invalidLiteral_throws() throws IOException {
+        new JsonStreamReader(new StringReader("[nul]")).nextValue();
+    }
+
+    @Test(expected = JsonException.class)
+    public void tooDeepNesting_throws() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append('[');
+        }
+        new JsonStreamReader(new StringReader(sb.toString())).nextValue();
+    }
+
+    @Test
+    public void numbers_followJsonGrammar() throws IOException {
+        for (String number : new String[] { "0", "-0", "10", "-1.5",
+                "0.25e+3", "2E-2", "1e3" }) {
+            Assert.assertEquals(number, Double.parseDouble(number),
+                    new JsonStreamReader(new StringReader(number)).nextValue()
+                            .asNumber(),
+                    0);
+        }
+        for (String number : new String[] { "+1", "01", "-01", "1.", ".5",
+                "-", "1e", "1e+", "1.e3", "--1", "1-2" }) {
+            try {
+                new JsonStreamReader(new StringReader("[" + number + "]"))
+                        .nextValue();
+                Assert.fail("Accepted invalid number " + number);
+            } catch (JsonException e) {
+                // Expected
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+public class JsonStreamWriterTest {
+
+    private StringWriter stringWriter;
+    private JsonStreamWriter json;
+
+    @Before
+    public void setup() {
+        stringWriter = new StringWriter();
+        json = new JsonStreamWriter(stringWriter);
+    }
+
+    @Test
+    public void writeObject_sameAsStringify() throws IOException {
+        json.beginObject();
+        json.name("foo").value("bar");
+        json.name("number").value(42);
+        json.name("decimal").value(1.5);
+        json.name("bool").value(true);
+        json.name("null").nullValue();
+        json.name("array").beginArray().value(1).value("two").endArray();
+        json.name("empty").beginObject().endObject();
+        json.endObject();
+
+        JsonObject expected = Json.createObject();
+        expected.put("foo", "bar");
+        expected.put("number", 42);
+        expected.put("decimal", 1.5);
+        expected.put("bool", true);
+        expected.put("null", Json.createNull());
+        JsonArray array = Json.createArray();
+        array.set(0, 1);
+        array.set(1, "two");
+        expected.put("array", array);
+        expected.put("empty", Json.createObject());
+
+        Assert.assertEquals(JsonUtil.stringify(expected),
+                stringWriter.toString());
+    }
+
+    @Test
+    public void writeTree_sameAsStringify() throws IOException {
+        JsonObject tree = Json.createObject();
+        tree.put("b", "text");
+        tree.put("10", 10);
+        tree.put("2", -0.5);
+        tree.put("a", Double.POSITIVE_INFINITY);
+        JsonArray array = Json.createArray();
+        array.set(0, Json.createObject());
+        array.set(1, Json.createArray());
+        array.set(2, false);
+        array.set(3, Json.createNull());
+        tree.put("array", array);
+        tree.put("$H", 1);
+
+        json.value(tree);
+
+        Assert.assertEquals(JsonUtil.stringify(tree), stringWriter.toString());
+    }
+
+    @Test
+    public void writeEscapedStrings_sameAsQuote() throws IOException {
+        String[] strings = { "", "plain", "\"quoted\"", "back\\slash",
+                "tab\tnewline\ncr\rff\fbs\b", "\u0000\u001f\u007f\u009f",
+                "soft­hyphen", "  ", "﻿￿", "/",
+                "åäö" };
+        for (String string : strings) {
+            StringWriter writer = new StringWriter();
+            JsonStreamWriter.quote(string, writer);
+            Assert.assertEquals(JsonUtil.quote(string), writer.toString());
+        }
+    }
+
+    @Test
+    public void writeNumbers_sameAsStringify() throws IOException {
+        double[] numbers = { 0, -0.0, 1, -1, 0.1, 1e20, 1e-7,
+                Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE,
+                Double.NaN, Double.NEGATIVE_INFINITY };
+        json.beginArray();
+        JsonArray expected = Json.createArray();
+        for (int i = 0; i < numbers.length; i++) {
+            json.value(numbers[i]);
+            expected.set(i, numbers[i]);
+        }
+        json.endArray();
+
+        Assert.assertEquals(JsonUtil.stringify(expected),
+                stringWriter.toString());
+    }
+
+    @Test
+    public void topLevelValues_noSeparators() throws IOException {
+        json.beginObject().endObject();
+        stringWriter.write(", ");
+        json.stringArray(Arrays.asList("a", "b"));
+
+        Assert.assertEquals("{}, [\"a\",\"b\"]", stringWriter.toString());
+    }
+
+    @Test
+    public void stringifyOrder_numericKeysFirst() {
+        Assert.assertEquals(Arrays.asList("1", "10", "2", "b", "a", "1a"),
+                JsonStreamWriter.getStringifyOrder(
+                        Arrays.asList("b", "2", "a", "10", "1a", "1")));
+    }
+
+    @Test
+    public void writeNullJsonValue_writesNull() throws IOException {
+        json.value((JsonValue) null);
+        Assert.assertEquals("null", stringWriter.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void endWithoutBegin_throws() throws IOException {
+        json.endObject();
+    }
+}
@@ -1,10 +1,18 @@
 package com.vaadin.server.communication;
 
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.vaadin.server.DeploymentConfiguration;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.LegacyCommunicationManager.InvalidUIDLSecurityKeyException;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
+import com.vaadin.shared.communication.MethodInvocation;
 import com.vaadin.tests.util.AlwaysLockedVaadinSession;
 import com.vaadin.ui.UI;
 
@@ -46,4 +54,125 @@ public class ServerRpcHandlerTest {
         // This only tests that an invocation for a non-existant connector does
         // not cause any exceptions
     }
+
+    private static TestUI createStreamingUI(int maxPayloadSize,
+            boolean xsrfProtection) {
+        VaadinService service = Mockito.mock(VaadinService.class);
+        DeploymentConfiguration configuration = Mockito
+                .mock(DeploymentConfiguration.class);
+        Mockito.when(configuration.isXsrfProtectionEnabled())
+                .thenReturn(xsrfProtection);
+        Mockito.when(service.getDeploymentConfiguration())
+                .thenReturn(configuration);
+        Mockito.when(service.isStreamingRpcReaderEnabled()).thenReturn(true);
+        Mockito.when(service.getMaxRpcPayloadSize()).thenReturn(maxPayloadSize);
+
+        AlwaysLockedVaadinSession s = new AlwaysLockedVaadinSession(service);
+        TestUI ui = new TestUI();
+        ui.doInit(Mockito.mock(VaadinRequest.class), 1, null);
+        ui.setSession(s);
+        s.addUI(ui);
+        return ui;
+    }
+
+    private static String createMessage(String csrfToken) {
+        return "{\"csrfToken\":\"" + csrfToken + "\","
+                + "\"rpc\":[[\"12\",\"someInterface\",\"someMethod\",[]]],"
+                + "\"syncId\":0,\"clientId\":0}";
+    }
+
+    @Test
+    public void streamingReader_messageProcessed() throws Exception {
+        TestUI ui = createStreamingUI(0, false);
+        new ServerRpcHandler().handleRpc(ui,
+                new StringReader(createMessage("token")),
+                Mockito.mock(VaadinRequest.class));
+        Assert.assertEquals(0, ui.getLastProcessedClientToServerId());
+    }
+
+    @Test(expected = InvalidUIDLSecurityKeyException.class)
+    public void streamingReader_invalidCsrfToken_throws() throws Exception {
+        TestUI ui = createStreamingUI(0, true);
+        new ServerRpcHandler().handleRpc(ui,
+                new StringReader(createMessage("invalid")),
+                Mockito.mock(VaadinRequest.class));
+    }
+
+    @Test
+    public void streamingReader_idsBeforeInvocations_messageProcessed()
+            throws Exception {
+        TestUI ui = createStreamingUI(0, false);
+        new ServerRpcHandler().handleRpc(ui,
+                new StringReader("{\"csrfToken\":\"token\",\"syncId\":0,"
+                        + "\"clientId\":0,"
+                        + "\"rpc\":[[\"12\",\"someInterface\",\"someMethod\",[]]]}"),
+                Mockito.mock(VaadinRequest.class));
+        Assert.assertEquals(0, ui.getLastProcessedClientToServerId());
+    }
+
+    @Test
+    public void streamingReader_duplicateMessage_invocationsNotDecoded()
+            throws Exception {
+        // The invocation is malformed and would fail if it was decoded
+        String invocations = "\"rpc\":[[\"12\"]]";
+        String ids = "\"syncId\":0,\"clientId\":0";
+        for (String message : new String[] {
+                "{\"csrfToken\":\"token\"," + ids + "," + invocations + "}",
+                "{\"csrfToken\":\"token\"," + invocations + "," + ids
+                        + "}" }) {
+            TestUI ui = createStreamingUI(0, false);
+            ui.getSession().setCommunicationManager(
+                    Mockito.mock(LegacyCommunicationManager.class));
+            ui.setLastProcessedClientToServerId(0);
+            new ServerRpcHandler().handleRpc(ui, new StringReader(message),
+                    Mockito.mock(VaadinRequest.class));
+            Assert.assertEquals(0, ui.getLastProcessedClientToServerId());
+        }
+    }
+
+    @Test
+    public void streamingReader_defaultTokenLeftOut_invocationsNotBuffered()
+            throws Exception {
+        TestUI ui = createStreamingUI(0, false);
+        ServerRpcHandler handler = Mockito.spy(new ServerRpcHandler());
+        handler.handleRpc(ui,
+                new StringReader("{\"syncId\":0,\"clientId\":0,"
+                        + "\"rpc\":[[\"12\",\"someInterface\",\"someMethod\",[]]]}"),
+                Mockito.mock(VaadinRequest.class));
+        Assert.assertEquals(0, ui.getLastProcessedClientToServerId());
+        Mockito.verify(handler).handleInvocations(Mockito.eq(ui),
+                Mockito.anyListOf(MethodInvocation.class));
+        Mockito.verify(handler, Mockito.never()).handleInvocations(
+                Mockito.any(UI.class), Mockito.anyInt(),
+                Mockito.any(JsonArray.class));
+    }
+
+    @Test(expected = InvalidUIDLSecurityKeyException.class)
+    public void streamingReader_defaultTokenLeftOut_checkedBeforeInvocations()
+            throws Exception {
+        TestUI ui = createStreamingUI(0, true);
+        // The rest of the message is never read since the token is invalid
+        new ServerRpcHandler().handleRpc(ui,
+                new StringReader("{\"syncId\":0,\"clientId\":0,"
+                        + "\"rpc\":[[\"12\"]] invalid"),
+                Mockito.mock(VaadinRequest.class));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void streamingReader_trailingContent_throws() throws Exception {
+        TestUI ui = createStreamingUI(0, false);
+        new ServerRpcHandler().handleRpc(ui,
+                new StringReader(createMessage("token") + "{}"),
+                Mockito.mock(VaadinRequest.class));
+    }
+
+    @Test(expected = IOException.class)
+    public void payloadTooLarge_throws() throws Exception {
+        TestUI ui = createStreamingUI(20, false);
+        Mockito.when(ui.getSession().getService().isStreamingRpcReaderEnabled())
+                .thenReturn(false);
+        new ServerRpcHandler().handleRpc(ui,
+                new StringReader(createMessage("token")),
+                Mockito.mock(VaadinRequest.class));
+    }
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2000-2020 Vaadin Ltd.
+ *
+ * Licensed under the Commercial Vaadin Developer License version 4.0 (CVDLv4);
+ * you may not use this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * https://vaadin.com/license/cvdl-4.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.CharArrayWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.DefaultDeploymentConfiguration;
+import com.vaadin.server.JsonPaintTarget;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.MockServletConfig;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.ServiceMetrics;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.Table;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+import elemental.json.JsonObject;
+import elemental.json.impl.JsonUtil;
+
+public class UidlWriterTest {
+
+    private static class TestUI extends UI {
+        @Override
+        protected void init(VaadinRequest request) {
+            VerticalLayout layout = new VerticalLayout();
+            layout.addComponent(new Label("Special \"chars\" \\ </script>"));
+            layout.addComponent(new Button("Button"));
+            TextField textField = new TextField("Caption");
+            textField.setValue("value\nwith\tcontrol chars ");
+            layout.addComponent(textField);
+            Table table = new Table();
+            table.addContainerProperty("p", String.class, "");
+            for (int i = 0; i < 15; i++) {
+                table.addItem(new Object[] { "row " + i }, i);
+            }
+            layout.addComponent(table);
+            setContent(layout);
+        }
+    }
+
+    @Test
+    public void sharedState_sameOutputAsTree() throws Exception {
+        // Connector ids are deterministic, so two identical UIs have the
+        // same state output
+        UI treeUI = createUI(false);
+        UI streamingUI = createUI(true);
+
+        StringWriter treeOutput = new StringWriter();
+        StringWriter streamingOutput = new StringWriter();
+        Set<String> treeConnectors;
+        Set<String> streamingConnectors;
+        treeUI.getSession().lock();
+        try {
+            treeConnectors = new SharedStateWriter().write(treeUI, treeOutput);
+        } finally {
+            treeUI.getSession().unlock();
+        }
+        streamingUI.getSession().lock();
+        try {
+            streamingConnectors = new SharedStateWriter().write(streamingUI,
+                    new JsonStreamWriter(streamingOutput));
+        } finally {
+            streamingUI.getSession().unlock();
+        }
+
+        Assert.assertTrue(treeOutput.toString().startsWith("{\"0\":"));
+        Assert.assertEquals(treeOutput.toString(), streamingOutput.toString());
+        Assert.assertEquals(treeConnectors, streamingConnectors);
+    }
+
+    @Test
+    public void typesAndHierarchy_sameOutputAsTree() throws Exception {
+        UI ui = createUI(false);
+        ui.getSession().lock();
+        try {
+            JsonPaintTarget target = new JsonPaintTarget(
+                    ui.getSession().getCommunicationManager(),
+                    new StringWriter(), false);
+            Set<String> stateUpdateConnectors = Collections.singleton("0");
+
+            StringWriter treeOutput = new StringWriter();
+            StringWriter streamingOutput = new StringWriter();
+            new ConnectorTypeWriter().write(ui, treeOutput, target);
+            new ConnectorTypeWriter().write(ui,
+                    new JsonStreamWriter(streamingOutput), target);
+            Assert.assertEquals(treeOutput.toString(),
+                    streamingOutput.toString());
+
+            treeOutput = new StringWriter();
+            streamingOutput = new StringWriter();
+            new ConnectorHierarchyWriter().write(ui, treeOutput,
+                    stateUpdateConnectors);
+            new ConnectorHierarchyWriter().write(ui,
+                    new JsonStreamWriter(streamingOutput),
+                    stateUpdateConnectors);
+            Assert.assertEquals(treeOutput.toString(),
+                    streamingOutput.toString());
+        } finally {
+            ui.getSession().unlock();
+        }
+    }
+
+    @Test
+    public void clientRpc_sameOutputAsTree() throws Exception {
+        Assert.assertEquals(writeRpc(false), writeRpc(true));
+    }
+
+    @Test
+    public void streamingWriter_producesValidJson() throws Exception {
+        UI ui = createUI(true);
+        ui.getSession().lock();
+        try {
+            StringWriter writer = new StringWriter();
+            new UidlWriter().write(ui, writer, false);
+
+            VerticalLayout layout = (VerticalLayout) ui.getContent();
+            layout.addComponent(new Label("Added"));
+            ((Button) layout.getComponent(1)).setCaption("Changed");
+            layout.removeComponent(layout.getComponent(0));
+            ui.getPage().getJavaScript().execute("alert('foo')");
+
+            StringWriter changesWriter = new StringWriter();
+            new UidlWriter().write(ui, changesWriter, true);
+
+            JsonObject response = JsonUtil
+                    .parse("{" + writer.toString() + "}");
+            Assert.assertTrue(response.hasKey("typeMappings"));
+            JsonObject changes = JsonUtil
+                    .parse("{" + changesWriter.toString() + "}");
+            Assert.assertEquals(1, changes.getArray("rpc").length());
+        } finally {
+            ui.getSession().unlock();
+        }
+    }
+
+    @Test
+    public void responseWritten_lengthReportedForAnyWriter() throws Exception {
+        UI ui = createUI(true);
+        ServiceMetrics metrics = Mockito.mock(ServiceMetrics.class);
+        ui.getSession().getService().setMetrics(metrics);
+        ui.getSession().lock();
+        try {
+            CharArrayWriter writer = new CharArrayWriter();
+            new UidlWriter().write(ui, writer, false);
+
+            Mockito.verify(metrics).responseWritten(Mockito.eq(ui),
+                    Mockito.anyInt(), Mockito.eq((long) writer.size()),
+                    Mockito.anyLong());
+        } finally {
+            ui.getSession().unlock();
+        }
+    }
+
+    private String writeRpc(boolean streaming) throws Exception {
+        UI ui = createUI(streaming);
+        ui.getSession().lock();
+        try {
+            ui.getPage().getJavaScript().execute("alert(\"foo\\n\")");
+            ui.getPage().getJavaScript().execute("alert(1)");
+            StringWriter writer = new StringWriter();
+            if (streaming) {
+                new ClientRpcWriter().write(ui, new JsonStreamWriter(writer));
+            } else {
+                new ClientRpcWriter().write(ui, writer);
+            }
+            return writer.toString();
+        } finally {
+            ui.getSession().unlock();
+        }
+    }
+
+    private UI createUI(boolean streaming) throws Exception {
+        Properties initParameters = new Properties();
+        // Production mode to skip license checking
+        initParameters.setProperty("productionMode", "true");
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig(initParameters));
+        VaadinService service = new VaadinServletService(servlet,
+                new DefaultDeploymentConfiguration(UidlWriterTest.class,
+                        initParameters));
+        service.init();
+        service.setStreamingUidlWriterEnabled(streaming);
+
+        VaadinSession session = new MockVaadinSession(service);
+        UI ui = new TestUI();
+        session.lock();
+        try {
+            session.setCommunicationManager(
+                    new LegacyCommunicationManager(session));
+            ui.setSession(session);
+            ui.doInit(Mockito.mock(VaadinRequest.class), 1, "");
+            session.addUI(ui);
+        } finally {
+            session.unlock();
+        }
+        return ui;
+    }
+}
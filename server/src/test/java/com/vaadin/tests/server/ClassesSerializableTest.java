@@ -50,10 +50,15 @@ public class ClassesSerializableTest {
             "com\\.vaadin\\.server\\.VaadinServiceClassLoaderUtil", //
             "com\\.vaadin\\.server\\.VaadinServiceClassLoaderUtil\\$GetClassLoaderPrivilegedAction", //
             "com\\.vaadin\\.server\\.communication\\.FileUploadHandler\\$SimpleMultiPartInputStream", //
+            "com\\.vaadin\\.server\\.CompactSessionSerializer\\$Compact.*Stream", //
             "com\\.vaadin\\.server\\.communication\\.PushRequestHandler.*",
             "com\\.vaadin\\.server\\.communication\\.PushHandler.*", // PushHandler
             "com\\.vaadin\\.server\\.communication\\.DateSerializer", //
             "com\\.vaadin\\.server\\.communication\\.JSONSerializer", //
+            "com\\.vaadin\\.server\\.communication\\.JsonStreamWriter", //
+            "com\\.vaadin\\.server\\.communication\\.JsonStreamReader", //
+            "com\\.vaadin\\.server\\.communication\\.ServerRpcHandler\\$LimitedReader", //
+            "com\\.vaadin\\.server\\.communication\\.UidlWriter\\$CountingWriter", //
             // and its inner classes do not need to be serializable
             "com\\.vaadin\\.util\\.SerializerHelper", // fully static
             // class level filtering, also affecting nested classes and
@@ -77,6 +82,9 @@ public class ClassesSerializableTest {
             "com\\.vaadin\\.server\\.communication\\.AtmospherePushConnection.*", //
             "com\\.vaadin\\.util\\.ConnectorHelper", //
             "com\\.vaadin\\.server\\.VaadinSession\\$FutureAccess", //
+            "com\\.vaadin\\.server\\.VaadinService\\$AccessThreadFactory", //
+            "com\\.vaadin\\.server\\.ServiceMetricsMXBean", //
+            "com\\.vaadin\\.server\\.ServerRpcDispatchTable.*", //
             "com\\.vaadin\\.external\\..*", //
             "com\\.vaadin\\.util\\.WeakValueMap.*", //
             "com\\.vaadin\\.themes\\.valoutil\\.BodyStyleName", //
@@ -5,6 +5,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import com.vaadin.server.communication.FileUploadHandler.SimpleMultiPartInputStream;
@@ -112,6 +113,43 @@ public class SimpleMultiPartInputStreamTest {
                 "abcabd", "xyz123abc");
     }
 
+    @Test
+    public void testBulkReadWithSmallChunks() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            // Partial boundaries spread over buffer borders
+            content.append(i % 7 == 0 ? "\r\n--ab" : "x").append(i);
+        }
+        byte[] input = (content + getFullBoundary("abc") + "rest")
+                .getBytes();
+        for (int bufferSize : new int[] { 1, 10, 4096 }) {
+            // An input stream returning at most 3 bytes for each read
+            ByteArrayInputStream chunked = new ByteArrayInputStream(input) {
+                @Override
+                public synchronized int read(byte[] b, int off, int len) {
+                    return super.read(b, off, Math.min(len, 3));
+                }
+            };
+            SimpleMultiPartInputStream smpis = new SimpleMultiPartInputStream(
+                    chunked, "abc", bufferSize);
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            byte[] buffer = new byte[100];
+            int read;
+            while ((read = smpis.read(buffer)) != -1) {
+                result.write(buffer, 0, read);
+            }
+            Assert.assertEquals(content.toString(), result.toString());
+            Assert.assertEquals(-1, smpis.read());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNoBoundaryInInput_bulkRead() throws Exception {
+        SimpleMultiPartInputStream smpis = new SimpleMultiPartInputStream(
+                new ByteArrayInputStream("xyz123".getBytes()), "abc");
+        smpis.read(new byte[100]);
+    }
+
     /*
      * TODO fix these tests, they don't do what their method name says.
      */
@@ -0,0 +1,115 @@
+package com.vaadin.tests.server.component.grid;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.util.IndexedContainer;
+import com.vaadin.server.ClientMethodInvocation;
+import com.vaadin.server.ServerRpcMethodInvocation;
+import com.vaadin.server.communication.data.RpcDataProviderExtension;
+import com.vaadin.shared.data.DataRequestRpc;
+import com.vaadin.shared.ui.grid.HeightMode;
+
+import elemental.json.JsonArray;
+
+public class GridDataPrefetchTest {
+
+    private TestGrid grid;
+    private RpcDataProviderExtension dataProvider;
+
+    @Before
+    public void setUp() throws Exception {
+        IndexedContainer container = new IndexedContainer();
+        container.addContainerProperty("value", Integer.class, null);
+        for (int i = 0; i < 1000; i++) {
+            container.addItem(i).getItemProperty("value").setValue(i);
+        }
+        grid = new TestGrid(container);
+        dataProvider = grid.getDataProvider();
+        dataProvider.retrievePendingRpcCalls();
+    }
+
+    /**
+     * Requests rows and returns the pushed range as {first row, row count}.
+     */
+    private int[] requestRows(int firstRow, int numberOfRows,
+            int firstCachedRow, int cacheSize) throws Exception {
+        ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
+                "1", DataRequestRpc.class, "requestRows", 4);
+        invocation.setParameters(new Object[] { firstRow, numberOfRows,
+                firstCachedRow, cacheSize });
+        dataProvider.getRpcManager(DataRequestRpc.class.getName())
+                .applyInvocation(invocation);
+        return getPushedRows();
+    }
+
+    private int[] getPushedRows() {
+        for (ClientMethodInvocation invocation : dataProvider
+                .retrievePendingRpcCalls()) {
+            if (invocation.getMethodName().equals("setRowData")) {
+                Object[] parameters = invocation.getParameters();
+                return new int[] { (Integer) parameters[0],
+                        ((JsonArray) parameters[1]).length() };
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void scrollingDown_rowsPushedInAdvance() throws Exception {
+        Assert.assertArrayEquals(new int[] { 0, 80 }, requestRows(0, 80, 0, 0));
+        Assert.assertArrayEquals(new int[] { 80, 40 + 50 },
+                requestRows(80, 40, 0, 80));
+        // Next request starts after the prefetched rows
+        Assert.assertArrayEquals(new int[] { 170, 30 + 50 },
+                requestRows(170, 30, 20, 150));
+        // Not more than available
+        Assert.assertArrayEquals(new int[] { 950, 50 },
+                requestRows(950, 40, 900, 50));
+    }
+
+    @Test
+    public void scrollingUp_rowsPushedInAdvance() throws Exception {
+        requestRows(500, 40, 0, 0);
+        Assert.assertArrayEquals(new int[] { 480 - 20, 20 + 20 },
+                requestRows(480, 20, 500, 40));
+        Assert.assertArrayEquals(new int[] { 0, 10 },
+                requestRows(5, 5, 10, 470));
+    }
+
+    @Test
+    public void prefetchDisabled_onlyRequestedRowsPushed() throws Exception {
+        grid.setPrefetchRowCount(0);
+        requestRows(0, 80, 0, 0);
+        Assert.assertArrayEquals(new int[] { 80, 40 },
+                requestRows(80, 40, 0, 80));
+    }
+
+    @Test
+    public void prefetchRowCount_keptWhenContainerChanged() throws Exception {
+        grid.setPrefetchRowCount(10);
+        grid.removeAllColumns();
+        grid.setContainerDataSource(new IndexedContainer());
+        Assert.assertEquals(10, grid.getPrefetchRowCount());
+        Assert.assertEquals(10,
+                grid.getDataProvider().getPrefetchRowCount());
+    }
+
+    @Test
+    public void initialRows_basedOnHeightByRows() throws Exception {
+        grid.setHeightMode(HeightMode.ROW);
+        grid.setHeightByRows(12.5);
+        dataProvider.beforeClientResponse(true);
+        Assert.assertArrayEquals(new int[] { 0, 13 * 4 }, getPushedRows());
+    }
+
+    @Test
+    public void initialRows_basedOnPreviousRequests() throws Exception {
+        dataProvider.beforeClientResponse(true);
+        Assert.assertArrayEquals(new int[] { 0, 40 }, getPushedRows());
+        requestRows(40, 60, 0, 40);
+        dataProvider.beforeClientResponse(true);
+        Assert.assertArrayEquals(new int[] { 0, 100 }, getPushedRows());
+    }
+}
@@ -0,0 +1,114 @@
+package com.vaadin.tests.server.component.grid;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.data.Container;
+import com.vaadin.data.Property.ValueChangeEvent;
+import com.vaadin.data.util.AbstractProperty;
+import com.vaadin.data.util.BeanItemContainer;
+import com.vaadin.data.util.GeneratedPropertyContainer;
+import com.vaadin.data.util.IndexedContainer;
+import com.vaadin.server.ClientMethodInvocation;
+import com.vaadin.server.ServerRpcMethodInvocation;
+import com.vaadin.server.communication.data.RpcDataProviderExtension;
+import com.vaadin.shared.data.DataRequestRpc;
+
+public class GridItemChangeTest {
+
+    public static class Bean {
+        private String value;
+
+        public Bean(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+    }
+
+    private static IndexedContainer createContainer() {
+        IndexedContainer container = new IndexedContainer();
+        container.addContainerProperty("value", String.class, null);
+        for (int i = 0; i < 100; i++) {
+            container.addItem(i).getItemProperty("value").setValue("" + i);
+        }
+        return container;
+    }
+
+    private static RpcDataProviderExtension showRows(TestGrid grid,
+            int numberOfRows) throws Exception {
+        RpcDataProviderExtension dataProvider = grid.getDataProvider();
+        ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
+                "1", DataRequestRpc.class, "requestRows", 4);
+        invocation.setParameters(new Object[] { 0, numberOfRows, 0, 0 });
+        dataProvider.getRpcManager(DataRequestRpc.class.getName())
+                .applyInvocation(invocation);
+        dataProvider.retrievePendingRpcCalls();
+        return dataProvider;
+    }
+
+    private static boolean isRowDataUpdated(
+            RpcDataProviderExtension dataProvider) {
+        dataProvider.beforeClientResponse(false);
+        for (ClientMethodInvocation invocation : dataProvider
+                .retrievePendingRpcCalls()) {
+            if (invocation.getMethodName().equals("updateRowData")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void assertRowUpdates(Container.Indexed container)
+            throws Exception {
+        TestGrid grid = new TestGrid();
+        grid.setContainerDataSource(container);
+        RpcDataProviderExtension dataProvider = showRows(grid, 10);
+
+        container.getContainerProperty(container.getIdByIndex(5), "value")
+                .setValue("changed");
+        Assert.assertTrue(isRowDataUpdated(dataProvider));
+
+        // Not active
+        container.getContainerProperty(container.getIdByIndex(50), "value")
+                .setValue("changed");
+        Assert.assertFalse(isRowDataUpdated(dataProvider));
+    }
+
+    @Test
+    public void itemChangeNotifier_activeRowsUpdated() throws Exception {
+        assertRowUpdates(createContainer());
+    }
+
+    @Test
+    public void otherContainer_activeRowsUpdated() throws Exception {
+        assertRowUpdates(new GeneratedPropertyContainer(createContainer()));
+    }
+
+    @Test
+    public void beanItemContainer_noPropertyListeners() throws Exception {
+        BeanItemContainer<Bean> container = new BeanItemContainer<Bean>(
+                Bean.class);
+        Bean bean = new Bean("a");
+        container.addBean(bean);
+        container.addBean(new Bean("b"));
+        TestGrid grid = new TestGrid();
+        grid.setContainerDataSource(container);
+        RpcDataProviderExtension dataProvider = showRows(grid, 2);
+
+        AbstractProperty<?> property = (AbstractProperty<?>) container
+                .getContainerProperty(bean, "value");
+        // Only the container's own listener
+        Assert.assertEquals(1,
+                property.getListeners(ValueChangeEvent.class).size());
+
+        container.getContainerProperty(bean, "value").setValue("changed");
+        Assert.assertTrue(isRowDataUpdated(dataProvider));
+    }
+}
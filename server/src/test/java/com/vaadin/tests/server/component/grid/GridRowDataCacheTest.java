@@ -0,0 +1,94 @@
+package com.vaadin.tests.server.component.grid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.util.BeanItemContainer;
+import com.vaadin.server.ClientMethodInvocation;
+import com.vaadin.server.ServerRpcMethodInvocation;
+import com.vaadin.server.communication.data.RpcDataProviderExtension;
+import com.vaadin.shared.data.DataRequestRpc;
+
+import elemental.json.JsonArray;
+
+public class GridRowDataCacheTest {
+
+    private List<GridItemChangeTest.Bean> beans;
+    private TestGrid grid;
+    private RpcDataProviderExtension dataProvider;
+
+    @Before
+    public void setUp() throws Exception {
+        BeanItemContainer<GridItemChangeTest.Bean> container = new BeanItemContainer<GridItemChangeTest.Bean>(
+                GridItemChangeTest.Bean.class);
+        beans = new ArrayList<GridItemChangeTest.Bean>();
+        for (int i = 0; i < 20; i++) {
+            GridItemChangeTest.Bean bean = new GridItemChangeTest.Bean(
+                    "" + i);
+            beans.add(bean);
+            container.addBean(bean);
+        }
+        grid = new TestGrid();
+        grid.setContainerDataSource(container);
+
+        dataProvider = grid.getDataProvider();
+        ServerRpcMethodInvocation invocation = new ServerRpcMethodInvocation(
+                "1", DataRequestRpc.class, "requestRows", 4);
+        invocation.setParameters(new Object[] { 0, 10, 0, 0 });
+        dataProvider.getRpcManager(DataRequestRpc.class.getName())
+                .applyInvocation(invocation);
+        dataProvider.retrievePendingRpcCalls();
+    }
+
+    private int getUpdatedRowCount() {
+        dataProvider.beforeClientResponse(false);
+        int count = 0;
+        for (ClientMethodInvocation invocation : dataProvider
+                .retrievePendingRpcCalls()) {
+            if (invocation.getMethodName().equals("updateRowData")) {
+                count += ((JsonArray) invocation.getParameters()[0]).length();
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void refreshAllRows_noChanges_nothingSent() {
+        grid.refreshAllRows();
+        Assert.assertEquals(0, getUpdatedRowCount());
+    }
+
+    @Test
+    public void refreshAllRows_onlyChangedRowsSent() {
+        // Changed directly in the bean, no events from the container
+        beans.get(3).setValue("changed");
+        beans.get(7).setValue("changed");
+        grid.refreshAllRows();
+        Assert.assertEquals(2, getUpdatedRowCount());
+
+        grid.refreshAllRows();
+        Assert.assertEquals(0, getUpdatedRowCount());
+    }
+
+    @Test
+    public void refreshRows_unchangedRowNotSent() {
+        beans.get(1).setValue("changed");
+        grid.refreshRows(beans.get(1), beans.get(2));
+        Assert.assertEquals(1, getUpdatedRowCount());
+    }
+
+    @Test
+    public void changeReverted_rowSentAgain() {
+        beans.get(1).setValue("changed");
+        grid.refreshAllRows();
+        Assert.assertEquals(1, getUpdatedRowCount());
+
+        beans.get(1).setValue("1");
+        grid.refreshAllRows();
+        Assert.assertEquals(1, getUpdatedRowCount());
+    }
+}
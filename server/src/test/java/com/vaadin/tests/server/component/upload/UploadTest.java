@@ -1,11 +1,16 @@
 package com.vaadin.tests.server.component.upload;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.vaadin.server.StreamVariable;
 import com.vaadin.server.StreamVariable.StreamingErrorEvent;
 import com.vaadin.shared.ui.upload.UploadState;
+import com.vaadin.ui.FileUploadReceiver;
 import com.vaadin.ui.Upload;
 
 /**
@@ -49,6 +54,23 @@ public class UploadTest {
                 state.primaryStyleName);
     }
 
+    @Test
+    public void fileUploadReceiver_writesToFile() throws IOException {
+        FileUploadReceiver receiver = new FileUploadReceiver();
+        OutputStream out = receiver.receiveUpload("name.txt", "text/plain");
+        try {
+            out.write("content".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        File file = receiver.getFile();
+        try {
+            Assert.assertEquals(7, file.length());
+        } finally {
+            file.delete();
+        }
+    }
+
     private static class TestStreamingErrorEvent
             implements StreamingErrorEvent {
 